@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.io.jmh;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Random;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Generates the deterministic payloads shared by the benchmarks.
+ *
+ * @version $Id$
+ */
+final class BenchmarkData {
+
+    /** Words used to build line oriented text, including some non-ASCII ones. */
+    private static final String[] WORDS = {
+        "lorem", "ipsum", "dolor", "sit", "amet", "consectetur", "adipiscing", "elit",
+        "sed", "do", "eiusmod", "tempor", "caf\u00e9", "na\u00efve", "\u00fcber", "\u65e5\u672c"
+    };
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * Creates text of approximately the given number of characters, split
+     * into lines of 40 to 120 characters.
+     *
+     * @param size the approximate number of characters
+     * @return the generated text
+     */
+    static String text(final int size) {
+        final Random random = new Random(size);
+        final StringBuilder builder = new StringBuilder(size + 128);
+        int lineLength = 0;
+        int lineLimit = 40 + random.nextInt(80);
+        while (builder.length() < size) {
+            final String word = WORDS[random.nextInt(WORDS.length)];
+            builder.append(word);
+            lineLength += word.length();
+            if (lineLength >= lineLimit) {
+                builder.append('\n');
+                lineLength = 0;
+                lineLimit = 40 + random.nextInt(80);
+            } else {
+                builder.append(' ');
+                lineLength++;
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Creates a temporary directory for a benchmark.
+     *
+     * @param prefix the directory name prefix
+     * @return the new, empty directory
+     * @throws IOException if the directory cannot be created
+     */
+    static File tempDirectory(final String prefix) throws IOException {
+        final File dir = File.createTempFile(prefix, "");
+        if (!dir.delete() || !dir.mkdirs()) {
+            throw new IOException("Cannot create benchmark directory " + dir);
+        }
+        return dir;
+    }
+
+    /**
+     * Writes a file of the given size filled with random bytes.
+     *
+     * @param file the file to write
+     * @param size the file size in bytes
+     * @param seed the random seed
+     * @throws IOException if the file cannot be written
+     */
+    static void randomFile(final File file, final long size, final long seed) throws IOException {
+        final Random random = new Random(seed);
+        final byte[] chunk = new byte[8192];
+        final OutputStream out = new BufferedOutputStream(new FileOutputStream(file));
+        try {
+            long remaining = size;
+            while (remaining > 0) {
+                random.nextBytes(chunk);
+                final int n = (int) Math.min(chunk.length, remaining);
+                out.write(chunk, 0, n);
+                remaining -= n;
+            }
+        } finally {
+            IOUtils.closeQuietly(out);
+        }
+    }
+
+    /**
+     * Deletes a benchmark directory, ignoring failures.
+     *
+     * @param dir the directory to delete
+     */
+    static void delete(final File dir) {
+        FileUtils.deleteQuietly(dir);
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.io.jmh;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.output.ByteArrayOutputStream;
+import org.apache.commons.io.output.NullOutputStream;
+import org.apache.commons.io.output.UnsynchronizedByteArrayOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks for {@link ByteArrayOutputStream} and {@link UnsynchronizedByteArrayOutputStream}.
+ * <p>
+ * Run with {@code mvn test -Pbenchmark -Dbenchmark=ByteArrayOutputStreamBenchmark}.
+ *
+ * @version $Id$
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ByteArrayOutputStreamBenchmark {
+
+    /** Total number of bytes written per invocation. */
+    @Param({ "1024", "65536", "1048576" })
+    public int payloadSize;
+
+    /** Number of bytes passed to each write call. */
+    @Param({ "1", "128", "8192" })
+    public int chunkSize;
+
+    private byte[] payload;
+
+    @Setup
+    public void setUp() {
+        payload = new byte[payloadSize];
+        new Random(payloadSize).nextBytes(payload);
+    }
+
+    private ByteArrayOutputStream fill() {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        if (chunkSize == 1) {
+            for (final byte b : payload) {
+                out.write(b);
+            }
+        } else {
+            for (int offset = 0; offset < payload.length; offset += chunkSize) {
+                out.write(payload, offset, Math.min(chunkSize, payload.length - offset));
+            }
+        }
+        return out;
+    }
+
+    private UnsynchronizedByteArrayOutputStream fillUnsynchronized() {
+        final UnsynchronizedByteArrayOutputStream out = new UnsynchronizedByteArrayOutputStream();
+        if (chunkSize == 1) {
+            for (final byte b : payload) {
+                out.write(b);
+            }
+        } else {
+            for (int offset = 0; offset < payload.length; offset += chunkSize) {
+                out.write(payload, offset, Math.min(chunkSize, payload.length - offset));
+            }
+        }
+        return out;
+    }
+
+    @Benchmark
+    public int write() {
+        return fill().size();
+    }
+
+    @Benchmark
+    public byte[] writeAndToByteArray() {
+        return fill().toByteArray();
+    }
+
+    @Benchmark
+    public int writeAndWriteTo() throws IOException {
+        final ByteArrayOutputStream out = fill();
+        out.writeTo(NullOutputStream.NULL_OUTPUT_STREAM);
+        return out.size();
+    }
+
+    @Benchmark
+    public int unsynchronizedWrite() {
+        final UnsynchronizedByteArrayOutputStream out = fillUnsynchronized();
+        final int size = out.size();
+        out.close();
+        return size;
+    }
+
+    @Benchmark
+    public byte[] unsynchronizedWriteAndToByteArray() {
+        final UnsynchronizedByteArrayOutputStream out = fillUnsynchronized();
+        final byte[] bytes = out.toByteArray();
+        out.close();
+        return bytes;
+    }
+}
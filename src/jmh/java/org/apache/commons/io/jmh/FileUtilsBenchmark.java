@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.io.jmh;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.LineIterator;
+import org.apache.commons.io.filefilter.TrueFileFilter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * JMH benchmarks for the file copy, compare, checksum, listing and line
+ * iteration paths of {@link FileUtils}.
+ * <p>
+ * The data set is a single file of {@code fileSize} bytes and a directory
+ * tree of {@code fileCount} files, each of {@code fileSize / fileCount}
+ * bytes, spread over ten subdirectories.
+ * <p>
+ * Run with {@code mvn test -Pbenchmark -Dbenchmark=FileUtilsBenchmark}.
+ *
+ * @version $Id$
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FileUtilsBenchmark {
+
+    /** Size of the single test file in bytes. */
+    @Param({ "4096", "1048576", "67108864" })
+    public long fileSize;
+
+    /** Number of files in the test tree. */
+    @Param({ "10", "1000" })
+    public int fileCount;
+
+    private File workDir;
+    private File source;
+    private File sourceCopy;
+    private File target;
+    private File textFile;
+    private File sourceTree;
+    private File targetTree;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        workDir = BenchmarkData.tempDirectory("commons-io-jmh");
+        source = new File(workDir, "source.bin");
+        sourceCopy = new File(workDir, "source-copy.bin");
+        target = new File(workDir, "target.bin");
+        textFile = new File(workDir, "source.txt");
+        sourceTree = new File(workDir, "tree");
+        targetTree = new File(workDir, "tree-copy");
+
+        BenchmarkData.randomFile(source, fileSize, fileSize);
+        FileUtils.copyFile(source, sourceCopy);
+        FileUtils.writeStringToFile(textFile, BenchmarkData.text((int) Math.min(fileSize, Integer.MAX_VALUE)),
+                "UTF-8");
+
+        final long treeFileSize = Math.max(1, fileSize / fileCount);
+        for (int i = 0; i < fileCount; i++) {
+            final File dir = new File(sourceTree, "dir" + i % 10);
+            if (!dir.isDirectory() && !dir.mkdirs()) {
+                throw new IOException("Cannot create " + dir);
+            }
+            BenchmarkData.randomFile(new File(dir, "file" + i + ".bin"), treeFileSize, i);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkData.delete(workDir);
+    }
+
+    @Benchmark
+    public long copyFile() throws IOException {
+        FileUtils.copyFile(source, target, false);
+        return target.length();
+    }
+
+    @Benchmark
+    public File copyDirectory() throws IOException {
+        FileUtils.copyDirectory(sourceTree, targetTree, false);
+        return targetTree;
+    }
+
+    @Benchmark
+    public boolean contentEquals() throws IOException {
+        return FileUtils.contentEquals(source, sourceCopy);
+    }
+
+    @Benchmark
+    public long checksumCRC32() throws IOException {
+        return FileUtils.checksumCRC32(source);
+    }
+
+    @Benchmark
+    public Collection<File> listFiles() {
+        return FileUtils.listFiles(sourceTree, TrueFileFilter.INSTANCE, TrueFileFilter.INSTANCE);
+    }
+
+    @Benchmark
+    public void lineIterator(final Blackhole blackhole) throws IOException {
+        final LineIterator it = FileUtils.lineIterator(textFile, "UTF-8");
+        try {
+            while (it.hasNext()) {
+                blackhole.consume(it.nextLine());
+            }
+        } finally {
+            it.close();
+        }
+    }
+}
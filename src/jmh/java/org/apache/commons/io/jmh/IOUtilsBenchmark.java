@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.io.jmh;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.NullOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks for the in-memory byte copy, read, skip and compare paths
+ * of {@link IOUtils}.
+ * <p>
+ * Run with {@code mvn test -Pbenchmark -Dbenchmark=IOUtilsBenchmark}.
+ *
+ * @version $Id$
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class IOUtilsBenchmark {
+
+    /** Size of the payload in bytes. */
+    @Param({ "1024", "65536", "1048576" })
+    public int payloadSize;
+
+    /** Size of the caller supplied copy buffer in bytes. */
+    @Param({ "4096", "65536" })
+    public int bufferSize;
+
+    private byte[] payload;
+    private byte[] payloadCopy;
+    private byte[] buffer;
+
+    @Setup
+    public void setUp() throws IOException {
+        payload = new byte[payloadSize];
+        new Random(payloadSize).nextBytes(payload);
+        payloadCopy = payload.clone();
+        buffer = new byte[bufferSize];
+    }
+
+    @Benchmark
+    public int copy() throws IOException {
+        return IOUtils.copy(new ByteArrayInputStream(payload), NullOutputStream.NULL_OUTPUT_STREAM);
+    }
+
+    @Benchmark
+    public long copyLargeWithBuffer() throws IOException {
+        return IOUtils.copyLarge(new ByteArrayInputStream(payload), NullOutputStream.NULL_OUTPUT_STREAM, buffer);
+    }
+
+    @Benchmark
+    public byte[] toByteArray() throws IOException {
+        return IOUtils.toByteArray(new ByteArrayInputStream(payload));
+    }
+
+    @Benchmark
+    public byte[] toByteArrayKnownSize() throws IOException {
+        return IOUtils.toByteArray(new ByteArrayInputStream(payload), payload.length);
+    }
+
+    @Benchmark
+    public boolean contentEquals() throws IOException {
+        return IOUtils.contentEquals(new ByteArrayInputStream(payload), new ByteArrayInputStream(payloadCopy));
+    }
+
+    @Benchmark
+    public long skip() throws IOException {
+        return IOUtils.skip(new ByteArrayInputStream(payload), payload.length);
+    }
+}
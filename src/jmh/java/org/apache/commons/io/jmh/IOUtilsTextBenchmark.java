@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.io.jmh;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.LineIterator;
+import org.apache.commons.io.output.NullOutputStream;
+import org.apache.commons.io.output.NullWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * JMH benchmarks for the character based copy, decode and line iteration
+ * paths of {@link IOUtils}.
+ * <p>
+ * Run with {@code mvn test -Pbenchmark -Dbenchmark=IOUtilsTextBenchmark}.
+ *
+ * @version $Id$
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class IOUtilsTextBenchmark {
+
+    /** Approximate size of the text in characters. */
+    @Param({ "1024", "65536", "1048576" })
+    public int payloadSize;
+
+    /** Charset used to encode and decode the text. */
+    @Param({ "US-ASCII", "UTF-8", "UTF-16" })
+    public String charset;
+
+    private String text;
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() throws IOException {
+        text = BenchmarkData.text(payloadSize);
+        encoded = text.getBytes(charset);
+    }
+
+    @Benchmark
+    public long copyReaderToWriter() throws IOException {
+        return IOUtils.copyLarge(new StringReader(text), NullWriter.NULL_WRITER);
+    }
+
+    @Benchmark
+    public void copyReaderToOutputStream() throws IOException {
+        IOUtils.copy(new StringReader(text), NullOutputStream.NULL_OUTPUT_STREAM, charset);
+    }
+
+    @Benchmark
+    public String toStringWithCharset() throws IOException {
+        return IOUtils.toString(new ByteArrayInputStream(encoded), charset);
+    }
+
+    @Benchmark
+    public List<String> readLines() throws IOException {
+        return IOUtils.readLines(new ByteArrayInputStream(encoded), charset);
+    }
+
+    @Benchmark
+    public void lineIterator(final Blackhole blackhole) throws IOException {
+        final LineIterator it = IOUtils.lineIterator(
+                new InputStreamReader(new ByteArrayInputStream(encoded), charset));
+        try {
+            while (it.hasNext()) {
+                blackhole.consume(it.nextLine());
+            }
+        } finally {
+            it.close();
+        }
+    }
+
+    @Benchmark
+    public boolean contentEqualsReader() throws IOException {
+        return IOUtils.contentEquals(new StringReader(text), new StringReader(text));
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.io;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A byte count that can be incremented and read by many threads without locking,
+ * with a rolling rate.
+ * <p>
+ * Incrementing is a single atomic add. Reading the count or the rate never blocks
+ * the threads that increment it; the rate is sampled by its readers, see
+ * {@link #getBytesPerSecond()}. Counters can be added to a {@link ByteCounterRegistry}
+ * to follow the throughput of many streams together.
+ *
+ * @version $Id$
+ * @since 2.5
+ */
+public class ByteCounter {
+
+    /** The default length of the rate window, ten seconds. */
+    public static final long DEFAULT_WINDOW_MILLIS = 10000;
+
+    /** The number of bytes counted since construction. */
+    private final AtomicLong total = new AtomicLong();
+    /** The value of <code>total</code> at the last reset. */
+    private final AtomicLong resetBase = new AtomicLong();
+    /** The rate window. */
+    private final RateWindow window;
+
+    /**
+     * Constructs a counter whose rate is measured over ten seconds.
+     */
+    public ByteCounter() {
+        this(DEFAULT_WINDOW_MILLIS);
+    }
+
+    /**
+     * Constructs a counter whose rate is measured over the given window.
+     *
+     * @param windowMillis the length of the rate window, in milliseconds, positive
+     * @throws IllegalArgumentException if <code>windowMillis</code> is not positive
+     */
+    public ByteCounter(final long windowMillis) {
+        this.window = new RateWindow(windowMillis, 0);
+    }
+
+    /**
+     * Adds to the count.
+     *
+     * @param n the number of bytes, not negative
+     */
+    public void add(final long n) {
+        total.addAndGet(n);
+    }
+
+    /**
+     * Returns the number of bytes counted since construction or the last reset.
+     *
+     * @return the byte count
+     */
+    public long getByteCount() {
+        return total.get() - resetBase.get();
+    }
+
+    /**
+     * Sets the byte count back to zero. The total and the rate are not affected.
+     *
+     * @return the count previous to resetting
+     */
+    public long resetByteCount() {
+        while (true) {
+            final long base = resetBase.get();
+            final long current = total.get();
+            if (resetBase.compareAndSet(base, current)) {
+                return current - base;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of bytes counted since construction, ignoring resets.
+     *
+     * @return the total byte count
+     */
+    public long getTotalByteCount() {
+        return total.get();
+    }
+
+    /**
+     * Returns the rate at which bytes were counted over the rate window.
+     * <p>
+     * The rate is measured against samples of the count taken by the callers of
+     * this method, at most one every eighth of the window. Until the method is
+     * called regularly, the rate covers the time since construction.
+     *
+     * @return the rate, in bytes per second
+     */
+    public double getBytesPerSecond() {
+        return window.rate(total.get());
+    }
+
+    /**
+     * Returns the length of the rate window.
+     *
+     * @return the window, in milliseconds
+     */
+    public long getWindowMillis() {
+        return window.getWindowMillis();
+    }
+
+}
@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.io;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A set of {@link ByteCounter}s whose aggregate throughput can be sampled.
+ * <p>
+ * Sampling reads each counter once and never blocks the threads that increment
+ * them, so monitoring threads can poll a registry of thousands of live streams.
+ * Counters that are removed, for example when their stream is closed, stay in
+ * the total. A counter shared by several streams is added once per stream, and
+ * stays live until it has been removed as many times. The total never goes down
+ * from one sample to the next.
+ * <p>
+ * This class is thread-safe.
+ *
+ * @version $Id$
+ * @since 2.5
+ */
+public class ByteCounterRegistry {
+
+    /** The live counters, with the number of times each was added, guarded by this. */
+    private final Map<ByteCounter, Integer> counters = new ConcurrentHashMap<ByteCounter, Integer>();
+    /** The bytes counted by removed counters. */
+    private final AtomicLong retired = new AtomicLong();
+    /** The highest total sampled. */
+    private final AtomicLong sampled = new AtomicLong();
+    /** The rate window. */
+    private final RateWindow window;
+
+    /**
+     * Constructs a registry whose rate is measured over ten seconds.
+     */
+    public ByteCounterRegistry() {
+        this(ByteCounter.DEFAULT_WINDOW_MILLIS);
+    }
+
+    /**
+     * Constructs a registry whose rate is measured over the given window.
+     *
+     * @param windowMillis the length of the rate window, in milliseconds, positive
+     * @throws IllegalArgumentException if <code>windowMillis</code> is not positive
+     */
+    public ByteCounterRegistry(final long windowMillis) {
+        this.window = new RateWindow(windowMillis, 0);
+    }
+
+    /**
+     * Adds a counter. Bytes it counted before it was added are included in the
+     * total from then on. A counter that is already live is counted once, and
+     * must be removed once more before it is retired.
+     *
+     * @param counter the counter to add, not {@code null}
+     * @throws NullPointerException if <code>counter</code> is {@code null}
+     */
+    public synchronized void add(final ByteCounter counter) {
+        if (counter == null) {
+            throw new NullPointerException("counter");
+        }
+        final Integer count = counters.get(counter);
+        counters.put(counter, Integer.valueOf(count == null ? 1 : count.intValue() + 1));
+    }
+
+    /**
+     * Removes a counter once. When it has been removed as many times as it was
+     * added, it is retired, keeping the bytes it counted in the total.
+     * Does nothing if the counter is not live.
+     *
+     * @param counter the counter to remove
+     */
+    public synchronized void remove(final ByteCounter counter) {
+        final Integer count = counter == null ? null : counters.get(counter);
+        if (count == null) {
+            return;
+        }
+        if (count.intValue() > 1) {
+            counters.put(counter, Integer.valueOf(count.intValue() - 1));
+        } else {
+            counters.remove(counter);
+            retired.addAndGet(counter.getTotalByteCount());
+        }
+    }
+
+    /**
+     * Returns the number of live counters.
+     *
+     * @return the counter count
+     */
+    public int getCounterCount() {
+        return counters.size();
+    }
+
+    /**
+     * Returns the bytes counted by all counters, live or removed. The total is
+     * at least the one returned before.
+     *
+     * @return the total byte count
+     */
+    public long getTotalByteCount() {
+        long sum = retired.get();
+        for (final ByteCounter counter : counters.keySet()) {
+            sum += counter.getTotalByteCount();
+        }
+        // a counter retired while summing is missed, until the next sample
+        long last = sampled.get();
+        while (sum > last) {
+            if (sampled.compareAndSet(last, sum)) {
+                return sum;
+            }
+            last = sampled.get();
+        }
+        return last;
+    }
+
+    /**
+     * Returns the rate at which all counters together counted bytes over the
+     * rate window, sampled as {@link ByteCounter#getBytesPerSecond()} is.
+     *
+     * @return the aggregate rate, in bytes per second
+     */
+    public double getBytesPerSecond() {
+        return window.rate(getTotalByteCount());
+    }
+
+}
@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.io;
+
+import java.io.File;
+
+/**
+ * A directory entry that reads each of its attributes from the file system at
+ * most once.
+ * <p>
+ * The listing methods of {@link FileUtils} pass instances of this class to the
+ * file filters, so that the filters of a combined filter, and the listing code
+ * itself, share one <code>isDirectory()</code>, <code>lastModified()</code> and
+ * <code>length()</code> call per entry instead of repeating them. The values
+ * are a snapshot: they are never refreshed, so instances are only handed to the
+ * filters and are not returned to callers.
+ *
+ * @version $Id$
+ * @since 2.5
+ */
+final class CachedAttributesFile extends File {
+
+    private static final long serialVersionUID = -3421698411412262312L;
+
+    private static final byte UNKNOWN = 0;
+    private static final byte TRUE = 1;
+    private static final byte FALSE = 2;
+
+    private byte exists = UNKNOWN;
+    private byte directory = UNKNOWN;
+    private byte file = UNKNOWN;
+    private byte hidden = UNKNOWN;
+    private boolean lastModifiedRead;
+    private long lastModified;
+    private boolean lengthRead;
+    private long length;
+
+    /**
+     * Creates an entry of a directory.
+     *
+     * @param parent the directory
+     * @param child the name of the entry
+     */
+    CachedAttributesFile(final File parent, final String child) {
+        super(parent, child);
+    }
+
+    private static byte toFlag(final boolean value) {
+        return value ? TRUE : FALSE;
+    }
+
+    @Override
+    public boolean exists() {
+        if (exists == UNKNOWN) {
+            exists = toFlag(super.exists());
+        }
+        return exists == TRUE;
+    }
+
+    @Override
+    public boolean isDirectory() {
+        if (directory == UNKNOWN) {
+            directory = toFlag(super.isDirectory());
+        }
+        return directory == TRUE;
+    }
+
+    @Override
+    public boolean isFile() {
+        if (file == UNKNOWN) {
+            file = toFlag(super.isFile());
+        }
+        return file == TRUE;
+    }
+
+    @Override
+    public boolean isHidden() {
+        if (hidden == UNKNOWN) {
+            hidden = toFlag(super.isHidden());
+        }
+        return hidden == TRUE;
+    }
+
+    @Override
+    public long lastModified() {
+        if (!lastModifiedRead) {
+            lastModified = super.lastModified();
+            lastModifiedRead = true;
+        }
+        return lastModified;
+    }
+
+    @Override
+    public long length() {
+        if (!lengthRead) {
+            length = super.length();
+            lengthRead = true;
+        }
+        return length;
+    }
+
+    // equals and hashCode of File compare paths only, so inheriting them is correct
+}
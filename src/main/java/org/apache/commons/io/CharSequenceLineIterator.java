@@ -0,0 +1,310 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.io;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * An Iterator over the lines in a <code>Reader</code> that returns every line
+ * as the same reusable <code>CharSequence</code>.
+ * <p>
+ * {@link LineIterator} creates a <code>String</code> for every line. This
+ * iterator instead returns a view over its own buffer, which holds the
+ * line only until the next call to {@link #hasNext()} or {@link #next()}, so
+ * that reading lines allocates nothing per line. Call <code>toString()</code>
+ * on a line to keep it. This suits filters that look at a prefix of each line,
+ * and parsers that accept a <code>CharSequence</code>:
+ * <pre>
+ * CharSequenceLineIterator it = new CharSequenceLineIterator(reader);
+ * try {
+ *   while (it.hasNext()) {
+ *     CharSequence line = it.nextLine();
+ *     if (line.length() &gt; 0 &amp;&amp; line.charAt(0) == '#') {
+ *       continue;
+ *     }
+ *     // parse line
+ *   }
+ * } finally {
+ *   it.close();
+ * }
+ * </pre>
+ * <p>
+ * Lines are ended by LF, CR or CR LF, as <code>BufferedReader.readLine()</code>
+ * ends them. The buffer grows to hold the longest line. The reader is read
+ * directly and need not be buffered.
+ *
+ * @version $Id$
+ * @since 2.5
+ * @see LineIterator
+ */
+public class CharSequenceLineIterator implements Iterator<CharSequence> {
+
+    private static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    /** The reader that is being read. */
+    private final Reader reader;
+    /** The characters read and not yet returned, from pos to limit. */
+    private char[] buffer;
+    private int pos;
+    private int limit;
+    /** The view of the current line. */
+    private final Line line = new Line();
+    /** Whether the current line has been read but not returned. */
+    private boolean cached;
+    /** Whether the reader has no more characters. */
+    private boolean eof;
+    /** A flag indicating if the iterator has been fully read. */
+    private boolean finished;
+
+    /**
+     * Constructs an iterator of the lines for a <code>Reader</code>.
+     *
+     * @param reader the <code>Reader</code> to read from, not null
+     * @throws IllegalArgumentException if the reader is null
+     */
+    public CharSequenceLineIterator(final Reader reader) throws IllegalArgumentException {
+        this(reader, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Constructs an iterator of the lines for a <code>Reader</code>.
+     *
+     * @param reader the <code>Reader</code> to read from, not null
+     * @param bufferSize the initial size of the buffer, positive
+     * @throws IllegalArgumentException if the reader is null or the buffer size is not positive
+     */
+    public CharSequenceLineIterator(final Reader reader, final int bufferSize) throws IllegalArgumentException {
+        if (reader == null) {
+            throw new IllegalArgumentException("Reader must not be null");
+        }
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("Buffer size must be positive: " + bufferSize);
+        }
+        this.reader = reader;
+        this.buffer = new char[bufferSize];
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * Indicates whether the <code>Reader</code> has more lines. The line
+     * returned before is no longer valid.
+     * If there is an <code>IOException</code> then {@link #close()} will
+     * be called on this instance.
+     *
+     * @return {@code true} if the Reader has more lines
+     * @throws IllegalStateException if an IO exception occurs
+     */
+    public boolean hasNext() {
+        if (cached) {
+            return true;
+        } else if (finished) {
+            return false;
+        } else {
+            try {
+                while (true) {
+                    if (!readLine()) {
+                        finished = true;
+                        return false;
+                    } else if (isValidLine(line)) {
+                        cached = true;
+                        return true;
+                    }
+                }
+            } catch (final IOException ioe) {
+                close();
+                throw new IllegalStateException(ioe);
+            }
+        }
+    }
+
+    /**
+     * Overridable method to validate each line that is returned.
+     * This implementation always returns true.
+     * @param line  the line that is to be validated, valid only during the call
+     * @return true if valid, false to remove from the iterator
+     */
+    protected boolean isValidLine(final CharSequence line) {
+        return true;
+    }
+
+    /**
+     * Returns the next line in the wrapped <code>Reader</code>.
+     *
+     * @return the next line from the input, valid until the next call to
+     * {@link #hasNext()} or {@link #next()}
+     * @throws NoSuchElementException if there is no line to return
+     */
+    public CharSequence next() {
+        return nextLine();
+    }
+
+    /**
+     * Returns the next line in the wrapped <code>Reader</code>.
+     *
+     * @return the next line from the input, valid until the next call to
+     * {@link #hasNext()} or {@link #next()}
+     * @throws NoSuchElementException if there is no line to return
+     */
+    public CharSequence nextLine() {
+        if (!hasNext()) {
+            throw new NoSuchElementException("No more lines");
+        }
+        cached = false;
+        return line;
+    }
+
+    /**
+     * Closes the underlying <code>Reader</code> quietly.
+     * This method is useful if you only want to process the first few
+     * lines of a larger file. If you do not close the iterator
+     * then the <code>Reader</code> remains open.
+     * This method can safely be called multiple times.
+     */
+    public void close() {
+        finished = true;
+        cached = false;
+        IOUtils.closeQuietly(reader);
+    }
+
+    /**
+     * Unsupported.
+     *
+     * @throws UnsupportedOperationException always
+     */
+    public void remove() {
+        throw new UnsupportedOperationException("Remove unsupported on CharSequenceLineIterator");
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * Closes the iterator, handling null and ignoring exceptions.
+     *
+     * @param iterator  the iterator to close
+     */
+    public static void closeQuietly(final CharSequenceLineIterator iterator) {
+        if (iterator != null) {
+            iterator.close();
+        }
+    }
+
+    /**
+     * Reads the next line into the view.
+     *
+     * @return false at the end of the reader
+     * @throws IOException if the reader fails
+     */
+    private boolean readLine() throws IOException {
+        int scan = pos;
+        while (true) {
+            for (; scan < limit; scan++) {
+                final char ch = buffer[scan];
+                if (ch == '\n' || ch == '\r') {
+                    if (ch == '\r' && scan + 1 == limit && !eof) {
+                        break; // a LF may follow
+                    }
+                    line.set(pos, scan - pos);
+                    pos = scan + 1;
+                    if (ch == '\r' && pos < limit && buffer[pos] == '\n') {
+                        pos++;
+                    }
+                    return true;
+                }
+            }
+            if (eof) {
+                if (pos < limit) {
+                    line.set(pos, limit - pos);
+                    pos = limit;
+                    return true;
+                }
+                return false;
+            }
+            scan -= pos;
+            fill();
+        }
+    }
+
+    /**
+     * Moves the unread characters to the start of the buffer, growing it if
+     * they fill it, and reads more characters after them.
+     *
+     * @throws IOException if the reader fails
+     */
+    private void fill() throws IOException {
+        if (pos > 0) {
+            System.arraycopy(buffer, pos, buffer, 0, limit - pos);
+            limit -= pos;
+            pos = 0;
+        }
+        if (limit == buffer.length) {
+            final char[] newBuffer = new char[buffer.length << 1];
+            System.arraycopy(buffer, 0, newBuffer, 0, limit);
+            buffer = newBuffer;
+        }
+        final int read = reader.read(buffer, limit, buffer.length - limit);
+        if (read < 0) {
+            eof = true;
+        } else {
+            limit += read;
+        }
+    }
+
+    /**
+     * The view of the current line in the buffer.
+     */
+    private final class Line implements CharSequence {
+
+        private int start;
+        private int length;
+
+        void set(final int start, final int length) {
+            this.start = start;
+            this.length = length;
+        }
+
+        public int length() {
+            return length;
+        }
+
+        public char charAt(final int index) {
+            if (index < 0 || index >= length) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", length: " + length);
+            }
+            return buffer[start + index];
+        }
+
+        /**
+         * Returns a copy of part of the line, which stays valid.
+         */
+        public CharSequence subSequence(final int begin, final int end) {
+            if (begin < 0 || end > length || begin > end) {
+                throw new IndexOutOfBoundsException("Begin: " + begin + ", end: " + end + ", length: " + length);
+            }
+            return new String(buffer, start + begin, end - begin);
+        }
+
+        /**
+         * Returns a copy of the line, which stays valid.
+         */
+        @Override
+        public String toString() {
+            return new String(buffer, start, length);
+        }
+    }
+}
@@ -0,0 +1,393 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Constructor;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Checksum;
+
+import org.apache.commons.io.buffer.BufferPool;
+import org.apache.commons.io.filefilter.TrueFileFilter;
+
+/**
+ * A checksum or message digest algorithm to compute the checksums of files,
+ * one at a time or many in parallel.
+ * <p>
+ * The algorithms are {@link #CRC32}, {@link #ADLER32}, {@link #CRC32C} and any
+ * <code>MessageDigest</code> of the platform, see {@link #forDigest(String)}.
+ * Files are read through a <code>FileChannel</code> into a buffer borrowed from
+ * the {@link IOUtils#getBufferPool() buffer pool}, of 64 KB, the largest default
+ * size class of the pools, or the length of the file if smaller. The value of a
+ * checksum is returned as bytes in big-endian order, four for the 32-bit
+ * checksums, or as lower case hexadecimal:
+ * <pre>
+ * String sha = ChecksumAlgorithm.forDigest("SHA-256").checksumHex(file);
+ * Map&lt;File, String&gt; manifest = ChecksumAlgorithm.CRC32C.checksumDirectory(dir, executor);
+ * </pre>
+ * <p>
+ * Instances are immutable and safe for use by multiple threads.
+ *
+ * @version $Id$
+ * @since 2.5
+ * @see FileUtils#checksum(File, Checksum)
+ */
+public abstract class ChecksumAlgorithm {
+
+    /** The CRC-32 checksum of <code>java.util.zip.CRC32</code>. */
+    public static final ChecksumAlgorithm CRC32 = new ChecksumAlgorithm("CRC32") {
+        @Override
+        Engine newEngine() {
+            return new ChecksumEngine(new CRC32());
+        }
+    };
+
+    /** The Adler-32 checksum of <code>java.util.zip.Adler32</code>, faster and weaker than CRC-32. */
+    public static final ChecksumAlgorithm ADLER32 = new ChecksumAlgorithm("Adler32") {
+        @Override
+        Engine newEngine() {
+            return new ChecksumEngine(new Adler32());
+        }
+    };
+
+    /** The CRC-32C checksum, see {@link #newCrc32C()}. */
+    public static final ChecksumAlgorithm CRC32C = new ChecksumAlgorithm("CRC32C") {
+        @Override
+        Engine newEngine() {
+            return new ChecksumEngine(newCrc32C());
+        }
+    };
+
+    /** The size of the buffer files are read with, the largest default size class of the pools. */
+    static final int BUFFER_SIZE = 64 * 1024;
+
+    /** The constructor of <code>java.util.zip.CRC32C</code>, null before Java 9. */
+    private static final Constructor<?> CRC32C_CONSTRUCTOR;
+
+    static {
+        Constructor<?> constructor = null;
+        try {
+            constructor = Class.forName("java.util.zip.CRC32C").getConstructor();
+        } catch (final Exception ex) {
+            // before Java 9: PureJavaCrc32C
+            constructor = null;
+        }
+        CRC32C_CONSTRUCTOR = constructor;
+    }
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private final String name;
+
+    /**
+     * Constructs an algorithm.
+     *
+     * @param name the name of the algorithm
+     */
+    ChecksumAlgorithm(final String name) {
+        this.name = name;
+    }
+
+    /**
+     * Returns the algorithm of a <code>MessageDigest</code>.
+     *
+     * @param algorithm the name of the digest algorithm, such as "MD5" or "SHA-256"
+     * @return the algorithm
+     * @throws IllegalArgumentException if no provider supports the algorithm
+     */
+    public static ChecksumAlgorithm forDigest(final String algorithm) {
+        try {
+            MessageDigest.getInstance(algorithm);
+        } catch (final NoSuchAlgorithmException ex) {
+            throw new IllegalArgumentException("Unknown digest algorithm: " + algorithm, ex);
+        }
+        return new ChecksumAlgorithm(algorithm) {
+            @Override
+            Engine newEngine() {
+                try {
+                    return new DigestEngine(MessageDigest.getInstance(algorithm));
+                } catch (final NoSuchAlgorithmException ex) {
+                    throw new IllegalStateException(ex); // was found before
+                }
+            }
+        };
+    }
+
+    /**
+     * Returns a new CRC-32C checksum: a <code>java.util.zip.CRC32C</code>,
+     * which uses the CRC32 instructions of the processor, on Java 9 and
+     * later, a {@link PureJavaCrc32C} before.
+     *
+     * @return the checksum
+     */
+    public static Checksum newCrc32C() {
+        if (CRC32C_CONSTRUCTOR != null) {
+            try {
+                return (Checksum) CRC32C_CONSTRUCTOR.newInstance();
+            } catch (final Exception ex) {
+                // fall back
+            }
+        }
+        return new PureJavaCrc32C();
+    }
+
+    /**
+     * Returns the name of this algorithm.
+     *
+     * @return the name
+     */
+    public String getName() {
+        return name;
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * Computes the checksum of a file.
+     *
+     * @param file the file to checksum, must not be {@code null}
+     * @return the value of the checksum
+     * @throws IllegalArgumentException if the file is a directory
+     * @throws IOException if an IO error occurs reading the file
+     */
+    public byte[] checksum(final File file) throws IOException {
+        final Engine engine = newEngine();
+        update(file, engine);
+        return engine.getValue();
+    }
+
+    /**
+     * Computes the checksum of a file in hexadecimal.
+     *
+     * @param file the file to checksum, must not be {@code null}
+     * @return the value of the checksum in lower case hexadecimal
+     * @throws IllegalArgumentException if the file is a directory
+     * @throws IOException if an IO error occurs reading the file
+     */
+    public String checksumHex(final File file) throws IOException {
+        return toHex(checksum(file));
+    }
+
+    /**
+     * Computes the checksums of files, each one by a task of an executor.
+     * The executor is not shut down by this method.
+     *
+     * @param files the files to checksum, must not be {@code null}
+     * @param executor the executor that runs the tasks, null to compute
+     * the checksums in the calling thread
+     * @return the checksums in lower case hexadecimal by file, in the order of the files
+     * @throws IOException if a file cannot be read; the checksums of the other files
+     * are not computed
+     * @throws InterruptedIOException if the calling thread is interrupted while waiting
+     */
+    public Map<File, String> checksumAll(final Collection<File> files, final ExecutorService executor)
+            throws IOException {
+        final Map<File, String> manifest = new LinkedHashMap<File, String>();
+        if (executor == null) {
+            for (final File file : files) {
+                manifest.put(file, checksumHex(file));
+            }
+            return manifest;
+        }
+        final List<Future<String>> futures = new ArrayList<Future<String>>(files.size());
+        try {
+            for (final File file : files) {
+                futures.add(executor.submit(new Callable<String>() {
+                    public String call() throws IOException {
+                        return checksumHex(file);
+                    }
+                }));
+            }
+            int i = 0;
+            for (final File file : files) {
+                manifest.put(file, futures.get(i++).get());
+            }
+            return manifest;
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while computing checksums");
+        } catch (final ExecutionException ex) {
+            if (ex.getCause() instanceof IOException) {
+                throw (IOException) ex.getCause();
+            } else if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            } else if (ex.getCause() instanceof Error) {
+                throw (Error) ex.getCause();
+            }
+            throw new IOException(ex.getCause());
+        } finally {
+            for (final Future<String> future : futures) {
+                future.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * Computes the checksums of the files in a directory tree, each one by a
+     * task of an executor. The executor is not shut down by this method.
+     *
+     * @param directory the directory, must not be {@code null}
+     * @param executor the executor that runs the tasks, null to compute
+     * the checksums in the calling thread
+     * @return the checksums in lower case hexadecimal by file, in the order of the file paths
+     * @throws IllegalArgumentException if the directory is not a directory
+     * @throws IOException if a file cannot be read
+     * @throws InterruptedIOException if the calling thread is interrupted while waiting
+     */
+    public Map<File, String> checksumDirectory(final File directory, final ExecutorService executor)
+            throws IOException {
+        final List<File> files = new ArrayList<File>(
+                FileUtils.listFiles(directory, TrueFileFilter.INSTANCE, TrueFileFilter.INSTANCE));
+        Collections.sort(files);
+        return checksumAll(files, executor);
+    }
+
+    /**
+     * Returns the name of this algorithm.
+     *
+     * @return the name
+     */
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * Creates the state of one computation.
+     *
+     * @return the engine
+     */
+    abstract Engine newEngine();
+
+    /**
+     * Reads a file into a checksum.
+     *
+     * @param file the file
+     * @param checksum the checksum to update
+     * @throws IOException if an IO error occurs reading the file
+     */
+    static void update(final File file, final Checksum checksum) throws IOException {
+        update(file, new ChecksumEngine(checksum));
+    }
+
+    private static void update(final File file, final Engine engine) throws IOException {
+        if (file.isDirectory()) {
+            throw new IllegalArgumentException("Checksums can't be computed on directories");
+        }
+        final RandomAccessFile raf = new RandomAccessFile(file, "r");
+        final BufferPool pool = IOUtils.getBufferPool();
+        byte[] bytes = null;
+        try {
+            final FileChannel channel = raf.getChannel();
+            // small files do not need a full buffer; the pool rounds up to its size classes
+            bytes = pool.borrowBytes((int) Math.max(1, Math.min(BUFFER_SIZE, channel.size())));
+            final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            while (channel.read(buffer) >= 0) {
+                if (!buffer.hasRemaining()) {
+                    engine.update(bytes, 0, buffer.position());
+                    buffer.clear();
+                }
+            }
+            engine.update(bytes, 0, buffer.position());
+        } finally {
+            IOUtils.closeQuietly(raf);
+            pool.releaseBytes(bytes);
+        }
+    }
+
+    static String toHex(final byte[] bytes) {
+        final char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[2 * i] = HEX_DIGITS[bytes[i] >> 4 & 0xf];
+            chars[2 * i + 1] = HEX_DIGITS[bytes[i] & 0xf];
+        }
+        return new String(chars);
+    }
+
+    /**
+     * The state of one computation.
+     */
+    abstract static class Engine {
+
+        abstract void update(byte[] bytes, int off, int len);
+
+        abstract byte[] getValue();
+    }
+
+    /**
+     * Computes a 32-bit checksum.
+     */
+    private static final class ChecksumEngine extends Engine {
+
+        private final Checksum checksum;
+
+        ChecksumEngine(final Checksum checksum) {
+            this.checksum = checksum;
+        }
+
+        @Override
+        void update(final byte[] bytes, final int off, final int len) {
+            checksum.update(bytes, off, len);
+        }
+
+        @Override
+        byte[] getValue() {
+            final long value = checksum.getValue();
+            return new byte[] {(byte) (value >> 24), (byte) (value >> 16), (byte) (value >> 8), (byte) value};
+        }
+    }
+
+    /**
+     * Computes a message digest.
+     */
+    private static final class DigestEngine extends Engine {
+
+        private final MessageDigest digest;
+
+        DigestEngine(final MessageDigest digest) {
+            this.digest = digest;
+        }
+
+        @Override
+        void update(final byte[] bytes, final int off, final int len) {
+            digest.update(bytes, off, len);
+        }
+
+        @Override
+        byte[] getValue() {
+            return digest.digest();
+        }
+    }
+}
@@ -0,0 +1,397 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.io;
+
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.apache.commons.io.buffer.BufferPool;
+
+/**
+ * Copies data between streams and channels using the cheapest mechanism
+ * that both ends support.
+ * <p>
+ * The engine inspects the source and the sink and chooses a {@link Strategy}:
+ * <ul>
+ * <li>{@link Strategy#TRANSFER_TO} - the source is a file, the sink a channel
+ * (or a <code>FileOutputStream</code>); the kernel moves the data with
+ * {@link FileChannel#transferTo(long, long, WritableByteChannel)}</li>
+ * <li>{@link Strategy#TRANSFER_FROM} - the sink is a file and the source a
+ * non-file channel; {@link FileChannel#transferFrom(ReadableByteChannel, long, long)} is used</li>
+ * <li>{@link Strategy#MAPPED} - the source is a large file and the sink a plain
+ * <code>OutputStream</code>; the file is memory mapped in chunks, saving a read
+ * system call per buffer. This strategy is disabled unless a map threshold is
+ * given, see {@link #DEFAULT_MAP_THRESHOLD}</li>
+ * <li>{@link Strategy#DIRECT_BUFFER} - both ends are channels, neither of them a
+ * file; the data goes through a direct buffer that is reused by each thread</li>
+ * <li>{@link Strategy#HEAP} - everything else; the data goes through a heap buffer
+ * borrowed from the {@link IOUtils#getBufferPool() buffer pool}</li>
+ * </ul>
+ * Only streams of exactly the classes <code>FileInputStream</code> and
+ * <code>FileOutputStream</code> are treated as files, because subclasses may
+ * override <code>read</code> or <code>write</code>. After a zero-copy transfer
+ * of the file's current size, the source is read to its end with the heap
+ * strategy, so that files that grow during the copy, or report a size of zero
+ * like many files under <code>/proc</code>, are still copied in full.
+ * <p>
+ * Channels must be in blocking mode. As with the other methods of this package,
+ * neither end is closed or flushed.
+ * <p>
+ * The engine counts how often each strategy was chosen and how many bytes it
+ * moved, see {@link #getCopyCount(Strategy)} and {@link #getByteCount(Strategy)}.
+ * Instances are immutable apart from these counters and safe for use by multiple
+ * threads. The instance used by <code>IOUtils</code> and <code>FileUtils</code> is
+ * set with {@link IOUtils#setCopyEngine(CopyEngine)}.
+ *
+ * @version $Id$
+ * @since 2.5
+ */
+public class CopyEngine {
+
+    /**
+     * The mechanism used for a copy.
+     */
+    public enum Strategy {
+        /** {@link FileChannel#transferTo(long, long, WritableByteChannel)} from a file. */
+        TRANSFER_TO,
+        /** {@link FileChannel#transferFrom(ReadableByteChannel, long, long)} into a file. */
+        TRANSFER_FROM,
+        /** Memory mapped chunks of a file, written to a stream. */
+        MAPPED,
+        /** A read and write loop through a direct buffer. */
+        DIRECT_BUFFER,
+        /** A read and write loop through a heap buffer. */
+        HEAP
+    }
+
+    /** The default maximum number of bytes moved by one transfer call: {@value}. */
+    public static final long DEFAULT_TRANSFER_CHUNK_SIZE = FileUtils.ONE_MB * 30;
+
+    /**
+     * The default minimum file size for the mapped strategy, <code>Long.MAX_VALUE</code>,
+     * which disables it.
+     * <p>
+     * Mapping is off by default because a mapped region is only released when it is
+     * garbage collected, and on some platforms a mapped file cannot be deleted or
+     * truncated until then.
+     */
+    public static final long DEFAULT_MAP_THRESHOLD = Long.MAX_VALUE;
+
+    /** The default size of each mapped region: {@value}. */
+    public static final int DEFAULT_MAP_CHUNK_SIZE = (int) FileUtils.ONE_MB * 16;
+
+    /** The default size of the direct buffer: {@value}. */
+    public static final int DEFAULT_DIRECT_BUFFER_SIZE = 1024 * 64;
+
+    /** The size of the heap buffer. */
+    private static final int HEAP_BUFFER_SIZE = 1024 * 4;
+
+    private final long transferChunkSize;
+    private final long mapThreshold;
+    private final int mapChunkSize;
+    private final int directBufferSize;
+
+    private final AtomicLongArray copies = new AtomicLongArray(Strategy.values().length);
+    private final AtomicLongArray bytes = new AtomicLongArray(Strategy.values().length);
+
+    private final ThreadLocal<ByteBuffer> directBuffers = new ThreadLocal<ByteBuffer>() {
+        @Override
+        protected ByteBuffer initialValue() {
+            return ByteBuffer.allocateDirect(directBufferSize);
+        }
+    };
+
+    /**
+     * Constructs an engine with the default chunk and buffer sizes.
+     */
+    public CopyEngine() {
+        this(DEFAULT_TRANSFER_CHUNK_SIZE, DEFAULT_MAP_THRESHOLD, DEFAULT_MAP_CHUNK_SIZE, DEFAULT_DIRECT_BUFFER_SIZE);
+    }
+
+    /**
+     * Constructs an engine with the given chunk and buffer sizes.
+     *
+     * @param transferChunkSize the maximum number of bytes moved by one transfer call, positive
+     * @param mapThreshold the minimum number of remaining file bytes for the mapped strategy;
+     * use <code>Long.MAX_VALUE</code> to never map
+     * @param mapChunkSize the size of each mapped region, positive
+     * @param directBufferSize the size of the direct buffer, positive
+     * @throws IllegalArgumentException if a size is not positive
+     */
+    public CopyEngine(final long transferChunkSize, final long mapThreshold, final int mapChunkSize,
+            final int directBufferSize) {
+        if (transferChunkSize <= 0 || mapThreshold <= 0 || mapChunkSize <= 0 || directBufferSize <= 0) {
+            throw new IllegalArgumentException("Chunk and buffer sizes must be positive");
+        }
+        this.transferChunkSize = transferChunkSize;
+        this.mapThreshold = mapThreshold;
+        this.mapChunkSize = mapChunkSize;
+        this.directBufferSize = directBufferSize;
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * Copies all remaining bytes from an <code>InputStream</code> to an <code>OutputStream</code>.
+     *
+     * @param input the <code>InputStream</code> to read from
+     * @param output the <code>OutputStream</code> to write to
+     * @return the number of bytes copied
+     * @throws NullPointerException if the input or output is null
+     * @throws IOException if an I/O error occurs
+     */
+    public long copy(final InputStream input, final OutputStream output) throws IOException {
+        if (input.getClass() == FileInputStream.class) {
+            final FileChannel source = ((FileInputStream) input).getChannel();
+            final long remaining = remaining(source);
+            if (remaining > 0) {
+                long count;
+                if (output.getClass() == FileOutputStream.class) {
+                    count = transferTo(source, ((FileOutputStream) output).getChannel(), remaining);
+                } else if (remaining >= mapThreshold) {
+                    count = copyMapped(source, output, remaining);
+                } else {
+                    return copyHeap(input, output);
+                }
+                return count + copyRest(input, output);
+            }
+        }
+        return copyHeap(input, output);
+    }
+
+    /**
+     * Copies all remaining bytes from a <code>ReadableByteChannel</code> to a
+     * <code>WritableByteChannel</code>.
+     *
+     * @param input the channel to read from, in blocking mode
+     * @param output the channel to write to, in blocking mode
+     * @return the number of bytes copied
+     * @throws NullPointerException if the input or output is null
+     * @throws IOException if an I/O error occurs
+     */
+    public long copy(final ReadableByteChannel input, final WritableByteChannel output) throws IOException {
+        if (input instanceof FileChannel) {
+            final FileChannel source = (FileChannel) input;
+            final long remaining = remaining(source);
+            if (remaining > 0) {
+                final long count = transferTo(source, output, remaining);
+                return count + copyDirect(input, output, false);
+            }
+        } else if (output instanceof FileChannel) {
+            return transferFrom(input, (FileChannel) output);
+        }
+        return copyDirect(input, output, true);
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * Returns the number of copies that used the given strategy.
+     * <p>
+     * A copy that finishes a file with the heap or direct strategy after a
+     * zero-copy transfer counts for both strategies if both moved data.
+     *
+     * @param strategy the strategy
+     * @return the number of copies
+     */
+    public long getCopyCount(final Strategy strategy) {
+        return copies.get(strategy.ordinal());
+    }
+
+    /**
+     * Returns the number of bytes moved with the given strategy.
+     *
+     * @param strategy the strategy
+     * @return the number of bytes
+     */
+    public long getByteCount(final Strategy strategy) {
+        return bytes.get(strategy.ordinal());
+    }
+
+    /**
+     * Returns the maximum number of bytes moved by one transfer call.
+     *
+     * @return the transfer chunk size
+     */
+    public long getTransferChunkSize() {
+        return transferChunkSize;
+    }
+
+    /**
+     * Returns the minimum number of remaining file bytes for the mapped strategy.
+     *
+     * @return the map threshold
+     */
+    public long getMapThreshold() {
+        return mapThreshold;
+    }
+
+    /**
+     * Returns the size of each mapped region.
+     *
+     * @return the map chunk size
+     */
+    public int getMapChunkSize() {
+        return mapChunkSize;
+    }
+
+    /**
+     * Returns the size of the direct buffer.
+     *
+     * @return the direct buffer size
+     */
+    public int getDirectBufferSize() {
+        return directBufferSize;
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * Transfers bytes from the current position of a file to a channel and
+     * advances the position of the file.
+     *
+     * @param source the file to read from
+     * @param target the channel to write to
+     * @param length the maximum number of bytes to transfer
+     * @return the number of bytes transferred, less than <code>length</code> if
+     * the file was truncated or the target stopped accepting data
+     * @throws IOException if an I/O error occurs
+     */
+    long transferTo(final FileChannel source, final WritableByteChannel target, final long length)
+            throws IOException {
+        final long start = source.position();
+        long count = 0;
+        try {
+            while (count < length) {
+                final long transferred = source.transferTo(start + count,
+                        Math.min(transferChunkSize, length - count), target);
+                if (transferred <= 0) { // IO-385 - can happen if file is truncated after caching the size
+                    break; // ensure we don't loop forever
+                }
+                count += transferred;
+            }
+        } finally {
+            source.position(start + count);
+            record(Strategy.TRANSFER_TO, count);
+        }
+        return count;
+    }
+
+    private long transferFrom(final ReadableByteChannel source, final FileChannel target) throws IOException {
+        long position = target.position();
+        long count = 0;
+        try {
+            long transferred;
+            // transferFrom only returns 0 at the end of a blocking source
+            while ((transferred = target.transferFrom(source, position, transferChunkSize)) > 0) {
+                position += transferred;
+                count += transferred;
+            }
+        } finally {
+            target.position(position);
+            record(Strategy.TRANSFER_FROM, count);
+        }
+        return count;
+    }
+
+    private long copyMapped(final FileChannel source, final OutputStream output, final long length)
+            throws IOException {
+        final long start = source.position();
+        final BufferPool pool = IOUtils.getBufferPool();
+        final byte[] buffer = pool.borrowBytes(HEAP_BUFFER_SIZE);
+        long count = 0;
+        try {
+            while (count < length) {
+                final long size = Math.min(mapChunkSize, length - count);
+                final MappedByteBuffer mapped = source.map(FileChannel.MapMode.READ_ONLY, start + count, size);
+                while (mapped.hasRemaining()) {
+                    final int n = Math.min(buffer.length, mapped.remaining());
+                    mapped.get(buffer, 0, n);
+                    output.write(buffer, 0, n);
+                    count += n;
+                }
+            }
+        } finally {
+            pool.releaseBytes(buffer);
+            source.position(start + count);
+            record(Strategy.MAPPED, count);
+        }
+        return count;
+    }
+
+    private long copyDirect(final ReadableByteChannel input, final WritableByteChannel output,
+            final boolean always) throws IOException {
+        final ByteBuffer buffer = directBuffers.get();
+        buffer.clear();
+        long count = 0;
+        try {
+            while (input.read(buffer) != IOUtils.EOF) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    count += output.write(buffer);
+                }
+                buffer.clear();
+            }
+        } finally {
+            if (always || count > 0) {
+                record(Strategy.DIRECT_BUFFER, count);
+            }
+        }
+        return count;
+    }
+
+    private long copyHeap(final InputStream input, final OutputStream output) throws IOException {
+        final long count = IOUtils.copy(input, output, HEAP_BUFFER_SIZE);
+        record(Strategy.HEAP, count);
+        return count;
+    }
+
+    /**
+     * Copies whatever a file stream still has after a zero-copy transfer.
+     */
+    private long copyRest(final InputStream input, final OutputStream output) throws IOException {
+        final long count = IOUtils.copy(input, output, HEAP_BUFFER_SIZE);
+        if (count > 0) {
+            record(Strategy.HEAP, count);
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of bytes between the position and the end of a file,
+     * or zero if the channel cannot tell.
+     */
+    private static long remaining(final FileChannel channel) {
+        try {
+            return Math.max(0, channel.size() - channel.position());
+        } catch (final IOException e) {
+            return 0; // not a regular file, use the generic path
+        }
+    }
+
+    private void record(final Strategy strategy, final long count) {
+        copies.incrementAndGet(strategy.ordinal());
+        bytes.addAndGet(strategy.ordinal(), count);
+    }
+
+}
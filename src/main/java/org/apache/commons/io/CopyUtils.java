@@ -27,6 +27,8 @@ import java.io.StringReader;
 import java.io.Writer;
 import java.nio.charset.Charset;
 
+import org.apache.commons.io.buffer.BufferPool;
+
 /**
  * This class provides static utility methods for buffered
  * copying between sources (<code>InputStream</code>, <code>Reader</code>,
@@ -194,14 +196,19 @@ public class CopyUtils {
             final InputStream input,
             final OutputStream output)
                 throws IOException {
-        final byte[] buffer = new byte[DEFAULT_BUFFER_SIZE];
-        int count = 0;
-        int n = 0;
-        while (-1 != (n = input.read(buffer))) {
-            output.write(buffer, 0, n);
-            count += n;
+        final BufferPool pool = IOUtils.getBufferPool();
+        final byte[] buffer = pool.borrowBytes(DEFAULT_BUFFER_SIZE);
+        try {
+            int count = 0;
+            int n = 0;
+            while (-1 != (n = input.read(buffer))) {
+                output.write(buffer, 0, n);
+                count += n;
+            }
+            return count;
+        } finally {
+            pool.releaseBytes(buffer);
         }
-        return count;
     }
 
     // ----------------------------------------------------------------
@@ -219,14 +226,19 @@ public class CopyUtils {
             final Reader input,
             final Writer output)
                 throws IOException {
-        final char[] buffer = new char[DEFAULT_BUFFER_SIZE];
-        int count = 0;
-        int n = 0;
-        while (-1 != (n = input.read(buffer))) {
-            output.write(buffer, 0, n);
-            count += n;
+        final BufferPool pool = IOUtils.getBufferPool();
+        final char[] buffer = pool.borrowChars(DEFAULT_BUFFER_SIZE);
+        try {
+            int count = 0;
+            int n = 0;
+            while (-1 != (n = input.read(buffer))) {
+                output.write(buffer, 0, n);
+                count += n;
+            }
+            return count;
+        } finally {
+            pool.releaseChars(buffer);
         }
-        return count;
     }
 
     // ----------------------------------------------------------------
@@ -19,7 +19,16 @@ package org.apache.commons.io;
 import java.io.File;
 import java.io.FileFilter;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.commons.io.filefilter.FileFilterUtils;
 import org.apache.commons.io.filefilter.IOFileFilter;
@@ -42,6 +51,8 @@ import org.apache.commons.io.filefilter.TrueFileFilter;
  *          {@link FileFilter}(s) with <code>DirectoryWalker</code>.</li>
  *      <li><a href="#cancel">3. Cancellation</a> - how to implement cancellation
  *          behaviour.</li>
+ *      <li><a href="#parallel">4. Parallel Walking</a> - walking the hierarchy
+ *          with the threads of an <code>ExecutorService</code>.</li>
  *   </ul>
  *
  * <a name="example"></a>
@@ -245,11 +256,40 @@ import org.apache.commons.io.filefilter.TrueFileFilter;
  *  }
  * </pre>
  *
+ * <a name="parallel"></a>
+ * <h3>4. Parallel Walking</h3>
+ *
+ * Subclasses may call {@link #walk(File, Collection, ExecutorService, boolean)}
+ * instead of {@link #walk(File, Collection)} to list every directory in its own
+ * task on an <code>ExecutorService</code>. The same filter, depth limit and
+ * <code>handle</code> methods apply, but all methods except
+ * {@link #handleStart}, {@link #handleEnd} and {@link #handleCancelled} are
+ * called by the executor threads, possibly at the same time, so they must be
+ * thread-safe.
+ * <p>
+ * Those methods receive a private collection of the task that calls them
+ * rather than the results collection passed to <code>walk</code>. The
+ * collected objects are added to the results collection either in the order
+ * a single-threaded walk would have added them, once the walk is finished,
+ * or in the order the tasks complete. {@link #handleDirectoryEnd} is still
+ * called after everything below the directory has been handled.
+ * <p>
+ * The first <code>CancelException</code> or other exception thrown by a task
+ * stops the walk: no new directories are visited and the walk waits for the
+ * running tasks before calling {@link #handleCancelled} or throwing.
+ *
  * @since 1.3
  * @version $Id$
  */
 public abstract class DirectoryWalker<T> {
 
+    /**
+     * The number of directory tasks a parallel walk queues on the executor
+     * before it visits further directories on the thread that found them.
+     */
+    private static final int MAX_QUEUED_TASKS = 1024;
+
+
     /**
      * The file filter to use to filter files and directories.
      */
@@ -375,6 +415,42 @@ public abstract class DirectoryWalker<T> {
         checkIfCancelled(directory, depth, results);
     }
 
+    /**
+     * Internal method that walks the directory hierarchy with the threads of an
+     * <code>ExecutorService</code>.
+     * <p>
+     * Writers of subclasses may call this method instead of
+     * {@link #walk(File, Collection)} to start a parallel walk. It emits the same
+     * events, but most of them on the executor threads; see
+     * <a href="#parallel">Parallel Walking</a>. It returns once the walk is
+     * finished. The executor is not shut down.
+     *
+     * @param startDirectory  the directory to start from, not null
+     * @param results  the collection of result objects, may be updated
+     * @param executor  the executor that visits the directories, not null
+     * @param ordered  true to add the results in the order of a single-threaded walk,
+     *  false to add them as the directory tasks complete
+     * @throws NullPointerException if the start directory or executor is null
+     * @throws IOException if an I/O Error occurs
+     * @since 2.5
+     */
+    protected final void walk(final File startDirectory, final Collection<T> results,
+            final ExecutorService executor, final boolean ordered) throws IOException {
+        if (startDirectory == null) {
+            throw new NullPointerException("Start Directory is null");
+        }
+        if (executor == null) {
+            throw new NullPointerException("ExecutorService is null");
+        }
+        try {
+            handleStart(startDirectory, results);
+            new ParallelWalk(executor, results, ordered).walk(startDirectory);
+            handleEnd(results);
+        } catch(final CancelException cancel) {
+            handleCancelled(startDirectory, results, cancel);
+        }
+    }
+
     //-----------------------------------------------------------------------
     /**
      * Checks whether the walk has been cancelled by calling {@link #handleIsCancelled},
@@ -574,6 +650,266 @@ public abstract class DirectoryWalker<T> {
         // do nothing - overridable by subclass
     }
 
+    //-----------------------------------------------------------------------
+    /**
+     * The state of one parallel walk.
+     */
+    private final class ParallelWalk {
+
+        /** The executor that visits the directories. */
+        private final ExecutorService executor;
+        /** The results collection passed to walk. */
+        private final Collection<T> results;
+        /** Whether the results are added in the order of a single-threaded walk. */
+        private final boolean ordered;
+        /** The permits for tasks waiting for the executor. */
+        private final Semaphore queuePermits = new Semaphore(MAX_QUEUED_TASKS);
+        /** Released when the start directory is finished. */
+        private final CountDownLatch done = new CountDownLatch(1);
+        /** The first exception thrown by a task. */
+        private final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+        ParallelWalk(final ExecutorService executor, final Collection<T> results, final boolean ordered) {
+            this.executor = executor;
+            this.results = results;
+            this.ordered = ordered;
+        }
+
+        /**
+         * Walks the hierarchy below the start directory and waits for the walk to finish.
+         *
+         * @param startDirectory  the directory to start from
+         * @throws IOException the first exception thrown by a task
+         */
+        void walk(final File startDirectory) throws IOException {
+            final Node root = new Node(null, startDirectory, 0);
+            schedule(root);
+            try {
+                done.await();
+            } catch (final InterruptedException e) {
+                failure.compareAndSet(null, e);
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while walking " + startDirectory);
+            }
+            if (ordered) {
+                root.addResultsTo(results);
+            }
+            final Throwable throwable = failure.get();
+            if (throwable instanceof IOException) {
+                throw (IOException) throwable;
+            }
+            if (throwable instanceof RuntimeException) {
+                throw (RuntimeException) throwable;
+            }
+            if (throwable instanceof Error) {
+                throw (Error) throwable;
+            }
+        }
+
+        /**
+         * Visits a directory on the executor, or on the current thread if the
+         * queue is full or the executor rejects the task.
+         *
+         * @param node  the directory to visit
+         */
+        private void schedule(final Node node) {
+            if (queuePermits.tryAcquire()) {
+                try {
+                    executor.execute(new Runnable() {
+                        public void run() {
+                            queuePermits.release();
+                            visit(node);
+                        }
+                    });
+                    return;
+                } catch (final RejectedExecutionException e) {
+                    queuePermits.release();
+                }
+            }
+            visit(node);
+        }
+
+        /**
+         * Visits a directory, schedules its subdirectories and handles its files,
+         * like the single-threaded walk.
+         *
+         * @param node  the directory to visit
+         */
+        private void visit(final Node node) {
+            final File directory = node.directory;
+            final int depth = node.depth;
+            Collection<T> chunk = newChunk(node);
+            try {
+                if (failure.get() != null) {
+                    return;
+                }
+                checkIfCancelled(directory, depth, chunk);
+                if (handleDirectory(directory, depth, chunk)) {
+                    node.entered = true;
+                    handleDirectoryStart(directory, depth, chunk);
+                    final int childDepth = depth + 1;
+                    if (depthLimit < 0 || childDepth <= depthLimit) {
+                        checkIfCancelled(directory, depth, chunk);
+                        File[] childFiles = filter == null ? directory.listFiles() : directory.listFiles(filter);
+                        childFiles = filterDirectoryContents(directory, depth, childFiles);
+                        if (childFiles == null) {
+                            handleRestricted(directory, childDepth, chunk);
+                        } else {
+                            for (final File childFile : childFiles) {
+                                if (childFile.isDirectory()) {
+                                    final Node child = node.addChild(childFile, childDepth);
+                                    if (ordered) {
+                                        chunk = newChunk(node);
+                                    }
+                                    schedule(child);
+                                } else {
+                                    checkIfCancelled(childFile, childDepth, chunk);
+                                    handleFile(childFile, childDepth, chunk);
+                                    checkIfCancelled(childFile, childDepth, chunk);
+                                }
+                            }
+                        }
+                    }
+                }
+            } catch (final Throwable throwable) {
+                failure.compareAndSet(null, throwable);
+            } finally {
+                if (!ordered) {
+                    deliver(chunk);
+                }
+                finished(node);
+            }
+        }
+
+        /**
+         * Records that a directory task, or the walk of one of its subdirectories,
+         * has finished. Ends every directory that has nothing left to wait for.
+         *
+         * @param node  the directory
+         */
+        private void finished(final Node node) {
+            Node current = node;
+            while (current != null && current.pending.decrementAndGet() == 0) {
+                final Collection<T> chunk = newChunk(current);
+                try {
+                    if (failure.get() == null) {
+                        if (current.entered) {
+                            handleDirectoryEnd(current.directory, current.depth, chunk);
+                        }
+                        checkIfCancelled(current.directory, current.depth, chunk);
+                    }
+                } catch (final Throwable throwable) {
+                    failure.compareAndSet(null, throwable);
+                } finally {
+                    if (!ordered) {
+                        deliver(chunk);
+                    }
+                }
+                current = current.parent;
+            }
+            if (current == null) {
+                done.countDown();
+            }
+        }
+
+        /**
+         * Creates the collection for the next results of a directory. In an
+         * ordered walk it is kept by the directory until the walk is finished.
+         *
+         * @param node  the directory
+         * @return an empty collection
+         */
+        private Collection<T> newChunk(final Node node) {
+            return ordered ? node.newChunk() : new ArrayList<T>();
+        }
+
+        /**
+         * Adds the results of a task to the results collection.
+         *
+         * @param chunk  the results of the task
+         */
+        private void deliver(final Collection<T> chunk) {
+            if (!chunk.isEmpty()) {
+                synchronized (results) {
+                    results.addAll(chunk);
+                }
+            }
+        }
+    }
+
+    /**
+     * A directory of a parallel walk.
+     */
+    private final class Node {
+
+        /** The parent directory, null for the start directory. */
+        final Node parent;
+        /** The directory. */
+        final File directory;
+        /** The directory level (starting directory = 0). */
+        final int depth;
+        /** The visit of this directory plus the walks of its subdirectories still running. */
+        final AtomicInteger pending = new AtomicInteger(1);
+        /** The result chunks and subdirectories in the order of a single-threaded walk. */
+        private final List<Object> parts = new ArrayList<Object>();
+        /** Whether handleDirectory returned true. */
+        volatile boolean entered;
+
+        Node(final Node parent, final File directory, final int depth) {
+            this.parent = parent;
+            this.directory = directory;
+            this.depth = depth;
+        }
+
+        /**
+         * Creates the collection for the next results of this directory.
+         *
+         * @return an empty collection
+         */
+        Collection<T> newChunk() {
+            final List<T> chunk = new ArrayList<T>();
+            synchronized (parts) {
+                parts.add(chunk);
+            }
+            return chunk;
+        }
+
+        /**
+         * Creates a subdirectory, which this directory waits for.
+         *
+         * @param childDirectory  the subdirectory
+         * @param childDepth  the level of the subdirectory
+         * @return the subdirectory
+         */
+        Node addChild(final File childDirectory, final int childDepth) {
+            final Node child = new Node(this, childDirectory, childDepth);
+            pending.incrementAndGet();
+            synchronized (parts) {
+                parts.add(child);
+            }
+            return child;
+        }
+
+        /**
+         * Adds the results of this directory and its subdirectories in the
+         * order of a single-threaded walk.
+         *
+         * @param target  the collection to add to
+         */
+        @SuppressWarnings("unchecked")
+        void addResultsTo(final Collection<T> target) {
+            synchronized (parts) {
+                for (final Object part : parts) {
+                    if (part instanceof DirectoryWalker.Node) {
+                        ((Node) part).addResultsTo(target);
+                    } else {
+                        target.addAll((List<T>) part);
+                    }
+                }
+            }
+        }
+    }
+
     //-----------------------------------------------------------------------
     /**
      * CancelException is thrown in DirectoryWalker to cancel the current
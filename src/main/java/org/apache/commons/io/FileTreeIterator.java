@@ -0,0 +1,209 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.io;
+
+import java.io.Closeable;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.apache.commons.io.filefilter.IOFileFilter;
+
+/**
+ * An Iterator over the files below a directory that walks the tree as it is
+ * iterated.
+ * <p>
+ * The files are returned in the same order as
+ * {@link FileUtils#listFiles(File, IOFileFilter, IOFileFilter)} and
+ * {@link FileUtils#listFilesAndDirs(File, IOFileFilter, IOFileFilter)} return
+ * them: depth first, each directory before its contents. Only the names of the
+ * directories on the path to the current file are held, so memory use depends
+ * on the depth of the tree and the size of its directories, not on the number
+ * of files below the start directory. A directory is listed when the iterator
+ * reaches it, so changes made to the tree during the iteration may or may not
+ * be seen.
+ * <p>
+ * Calling {@link #close()} ends the iteration early and releases the directory
+ * listings held. The recommended usage pattern is:
+ * <pre>
+ * FileTreeIterator it = FileUtils.fileTreeIterator(dir, fileFilter, dirFilter, false);
+ * try {
+ *   while (it.hasNext()) {
+ *     File file = it.next();
+ *     // do something with file
+ *   }
+ * } finally {
+ *   it.close();
+ * }
+ * </pre>
+ *
+ * @version $Id$
+ * @since 2.5
+ */
+public class FileTreeIterator implements Iterator<File>, Closeable {
+
+    // N.B. Like LineIterator, this class deliberately does not implement Iterable
+
+    /** The filter applied to files and directories. */
+    private final IOFileFilter filter;
+    /** Whether directories are returned. */
+    private final boolean includeDirectories;
+    /** The directories on the path to the current file, innermost last. */
+    private final List<Cursor> cursors = new ArrayList<Cursor>();
+    /** The next file, null if not yet found. */
+    private File nextFile;
+    /** A flag indicating if the iteration is finished or closed. */
+    private boolean finished;
+
+    /**
+     * Constructs an iterator over the tree below a directory.
+     *
+     * @param directory  the directory to start from
+     * @param filter  the filter to apply to files and directories, receives
+     *  {@link CachedAttributesFile} entries
+     * @param includeDirectories  whether the start directory and accepted
+     *  subdirectories are returned as well
+     */
+    FileTreeIterator(final File directory, final IOFileFilter filter, final boolean includeDirectories) {
+        this.filter = filter;
+        this.includeDirectories = includeDirectories;
+        cursors.add(new Cursor(directory));
+        if (includeDirectories) {
+            nextFile = directory;
+        }
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * Indicates whether there is another file below the directory.
+     *
+     * @return {@code true} if there is another file
+     */
+    public boolean hasNext() {
+        if (nextFile != null) {
+            return true;
+        }
+        if (finished) {
+            return false;
+        }
+        nextFile = findNext();
+        if (nextFile == null) {
+            close();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the next file below the directory.
+     *
+     * @return the next file
+     * @throws NoSuchElementException if there are no more files
+     */
+    public File next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException("No more files");
+        }
+        final File file = nextFile;
+        nextFile = null;
+        return file;
+    }
+
+    /**
+     * Ends the iteration and releases the directory listings held.
+     * Further calls to {@link #hasNext()} return false.
+     */
+    public void close() {
+        finished = true;
+        nextFile = null;
+        cursors.clear();
+    }
+
+    /**
+     * Unsupported.
+     *
+     * @throws UnsupportedOperationException always
+     */
+    public void remove() {
+        throw new UnsupportedOperationException("Remove unsupported on FileTreeIterator");
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * Advances through the directories until the filter accepts an entry.
+     *
+     * @return the next file, null at the end of the tree
+     */
+    private File findNext() {
+        while (!cursors.isEmpty()) {
+            final Cursor cursor = cursors.get(cursors.size() - 1);
+            final String name = cursor.nextName();
+            if (name == null) {
+                cursors.remove(cursors.size() - 1);
+                continue;
+            }
+            final CachedAttributesFile entry = new CachedAttributesFile(cursor.directory, name);
+            if (!filter.accept(entry)) {
+                continue;
+            }
+            final File file = new File(cursor.directory, name);
+            if (entry.isDirectory()) {
+                cursors.add(new Cursor(file));
+                if (includeDirectories) {
+                    return file;
+                }
+            } else {
+                return file;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The position within the listing of one directory.
+     */
+    private static final class Cursor {
+
+        /** The directory. */
+        private final File directory;
+        /** The names in the directory, null until listed. */
+        private String[] names;
+        /** The index of the next name. */
+        private int index;
+
+        Cursor(final File directory) {
+            this.directory = directory;
+        }
+
+        /**
+         * Returns the next name in the directory, listing it on the first call.
+         *
+         * @return the next name, null after the last one or if the directory cannot be listed
+         */
+        String nextName() {
+            if (names == null) {
+                names = directory.list();
+                if (names == null) {
+                    return null;
+                }
+            }
+            return index < names.length ? names[index++] : null;
+        }
+    }
+}
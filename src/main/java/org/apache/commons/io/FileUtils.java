@@ -40,8 +40,8 @@ import java.util.Collection;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
 import java.util.zip.CRC32;
-import java.util.zip.CheckedInputStream;
 import java.util.zip.Checksum;
 
 import org.apache.commons.io.filefilter.DirectoryFileFilter;
@@ -50,7 +50,6 @@ import org.apache.commons.io.filefilter.FileFilterUtils;
 import org.apache.commons.io.filefilter.IOFileFilter;
 import org.apache.commons.io.filefilter.SuffixFileFilter;
 import org.apache.commons.io.filefilter.TrueFileFilter;
-import org.apache.commons.io.output.NullOutputStream;
 
 /**
  * General file manipulation utilities.
@@ -106,11 +105,6 @@ public class FileUtils {
      */
     public static final BigInteger ONE_MB_BI = ONE_KB_BI.multiply(ONE_KB_BI);
 
-    /**
-     * The file copy buffer size (30 MB)
-     */
-    private static final long FILE_COPY_BUFFER_SIZE = ONE_MB * 30;
-
     /**
      * The number of bytes in a gigabyte.
      */
@@ -470,19 +464,9 @@ public class FileUtils {
      */
     private static void innerListFiles(final Collection<File> files, final File directory,
             final IOFileFilter filter, final boolean includeSubDirectories) {
-        final File[] found = directory.listFiles((FileFilter) filter);
-
-        if (found != null) {
-            for (final File file : found) {
-                if (file.isDirectory()) {
-                    if (includeSubDirectories) {
-                        files.add(file);
-                    }
-                    innerListFiles(files, file, filter, includeSubDirectories);
-                } else {
-                    files.add(file);
-                }
-            }
+        final FileTreeIterator iterator = new FileTreeIterator(directory, filter, includeSubDirectories);
+        while (iterator.hasNext()) {
+            files.add(iterator.next());
         }
     }
 
@@ -629,9 +613,6 @@ public class FileUtils {
 
         //Find files
         final Collection<File> files = new java.util.LinkedList<File>();
-        if (directory.isDirectory()) {
-            files.add(directory);
-        }
         innerListFiles(files, directory,
             FileFilterUtils.or(effFileFilter, effDirFilter), true);
         return files;
@@ -641,9 +622,10 @@ public class FileUtils {
      * Allows iteration over the files in given directory (and optionally
      * its subdirectories).
      * <p>
-     * All files found are filtered by an IOFileFilter. This method is
-     * based on {@link #listFiles(File, IOFileFilter, IOFileFilter)},
-     * which supports Iterable ('foreach' loop).
+     * All files found are filtered by an IOFileFilter. This method
+     * returns the same files as {@link #listFiles(File, IOFileFilter, IOFileFilter)},
+     * which supports Iterable ('foreach' loop), but walks the tree as the
+     * iterator is used rather than up front; see {@link FileTreeIterator}.
      * <p>
      * @param directory  the directory to search in
      * @param fileFilter  filter to apply when finding files.
@@ -657,16 +639,17 @@ public class FileUtils {
      */
     public static Iterator<File> iterateFiles(
             final File directory, final IOFileFilter fileFilter, final IOFileFilter dirFilter) {
-        return listFiles(directory, fileFilter, dirFilter).iterator();
+        return fileTreeIterator(directory, fileFilter, dirFilter, false);
     }
 
     /**
      * Allows iteration over the files in given directory (and optionally
      * its subdirectories).
      * <p>
-     * All files found are filtered by an IOFileFilter. This method is
-     * based on {@link #listFilesAndDirs(File, IOFileFilter, IOFileFilter)},
-     * which supports Iterable ('foreach' loop).
+     * All files found are filtered by an IOFileFilter. This method
+     * returns the same files as {@link #listFilesAndDirs(File, IOFileFilter, IOFileFilter)},
+     * which supports Iterable ('foreach' loop), but walks the tree as the
+     * iterator is used rather than up front; see {@link FileTreeIterator}.
      * <p>
      * The resulting iterator includes the subdirectories themselves.
      *
@@ -681,7 +664,36 @@ public class FileUtils {
      * @since 2.2
      */
     public static Iterator<File> iterateFilesAndDirs(final File directory, final IOFileFilter fileFilter, final IOFileFilter dirFilter) {
-        return listFilesAndDirs(directory, fileFilter, dirFilter).iterator();
+        return fileTreeIterator(directory, fileFilter, dirFilter, true);
+    }
+
+    /**
+     * Returns an iterator over the files in given directory (and optionally
+     * its subdirectories) that walks the tree as it is used and can be
+     * closed to end the walk early.
+     * <p>
+     * The files are those of {@link #listFiles(File, IOFileFilter, IOFileFilter)},
+     * or of {@link #listFilesAndDirs(File, IOFileFilter, IOFileFilter)} if
+     * <code>includeDirectories</code> is true, in the same order.
+     *
+     * @param directory  the directory to search in
+     * @param fileFilter  filter to apply when finding files.
+     * @param dirFilter  optional filter to apply when finding subdirectories.
+     * If this parameter is {@code null}, subdirectories will not be included in the
+     * search. Use TrueFileFilter.INSTANCE to match all directories.
+     * @param includeDirectories  whether the directory and the subdirectories
+     * are returned as well
+     * @return an iterator of java.io.File for the matching files
+     * @see FileTreeIterator
+     * @since 2.5
+     */
+    public static FileTreeIterator fileTreeIterator(final File directory, final IOFileFilter fileFilter,
+            final IOFileFilter dirFilter, final boolean includeDirectories) {
+        validateListFilesParameters(directory, fileFilter);
+
+        final IOFileFilter effFileFilter = setUpEffectiveFileFilter(fileFilter);
+        final IOFileFilter effDirFilter = setUpEffectiveDirFilter(dirFilter);
+        return new FileTreeIterator(directory, FileFilterUtils.or(effFileFilter, effDirFilter), includeDirectories);
     }
 
     //-----------------------------------------------------------------------
@@ -700,6 +712,19 @@ public class FileUtils {
         return suffixes;
     }
 
+    /**
+     * Returns the filter that accepts files with any of the given extensions.
+     *
+     * @param extensions  an array of extensions, ex. {"java","xml"}, null for all files
+     * @return the filter
+     */
+    private static IOFileFilter toExtensionFilter(final String[] extensions) {
+        if (extensions == null) {
+            return TrueFileFilter.INSTANCE;
+        }
+        return new SuffixFileFilter(toSuffixes(extensions));
+    }
+
 
     /**
      * Finds files within a given directory (and optionally its subdirectories)
@@ -713,22 +738,15 @@ public class FileUtils {
      */
     public static Collection<File> listFiles(
             final File directory, final String[] extensions, final boolean recursive) {
-        IOFileFilter filter;
-        if (extensions == null) {
-            filter = TrueFileFilter.INSTANCE;
-        } else {
-            final String[] suffixes = toSuffixes(extensions);
-            filter = new SuffixFileFilter(suffixes);
-        }
-        return listFiles(directory, filter,
+        return listFiles(directory, toExtensionFilter(extensions),
             recursive ? TrueFileFilter.INSTANCE : FalseFileFilter.INSTANCE);
     }
 
     /**
      * Allows iteration over the files in a given directory (and optionally
      * its subdirectories) which match an array of extensions. This method
-     * is based on {@link #listFiles(File, String[], boolean)},
-     * which supports Iterable ('foreach' loop).
+     * returns the same files as {@link #listFiles(File, String[], boolean)},
+     * which supports Iterable ('foreach' loop), but walks the tree lazily.
      *
      * @param directory  the directory to search in
      * @param extensions  an array of extensions, ex. {"java","xml"}. If this
@@ -739,7 +757,8 @@ public class FileUtils {
      */
     public static Iterator<File> iterateFiles(
             final File directory, final String[] extensions, final boolean recursive) {
-        return listFiles(directory, extensions, recursive).iterator();
+        return iterateFiles(directory, toExtensionFilter(extensions),
+            recursive ? TrueFileFilter.INSTANCE : FalseFileFilter.INSTANCE);
     }
 
     //-----------------------------------------------------------------------
@@ -1171,7 +1190,7 @@ public class FileUtils {
      * @throws IOException if the output file length is not the same as the input file length after the copy completes
      * @throws IllegalArgumentException "Negative size" if the file is truncated so that the size is less than the position
      */
-    private static void doCopyFile(final File srcFile, final File destFile, final boolean preserveFileDate) throws IOException {
+    static void doCopyFile(final File srcFile, final File destFile, final boolean preserveFileDate) throws IOException {
         if (destFile.exists() && destFile.isDirectory()) {
             throw new IOException("Destination '" + destFile + "' exists but is a directory");
         }
@@ -1186,17 +1205,7 @@ public class FileUtils {
             input  = fis.getChannel();
             output = fos.getChannel();
             final long size = input.size(); // TODO See IO-386
-            long pos = 0;
-            long count = 0;
-            while (pos < size) {
-                final long remain = size - pos;
-                count = remain > FILE_COPY_BUFFER_SIZE ? FILE_COPY_BUFFER_SIZE : remain;
-                final long bytesCopied = output.transferFrom(input, pos, count);
-                if (bytesCopied == 0) { // IO-385 - can happen if file is truncated after caching the size
-                    break; // ensure we don't loop forever
-                }
-                pos += bytesCopied;
-            }
+            IOUtils.getCopyEngine().transferTo(input, output, size);
         } finally {
             IOUtils.closeQuietly(output, fos, input, fis);
         }
@@ -1408,6 +1417,63 @@ public class FileUtils {
      */
     public static void copyDirectory(final File srcDir, final File destDir,
             final FileFilter filter, final boolean preserveFileDate) throws IOException {
+        final List<String> exclusionList = checkCopyDirectory(srcDir, destDir, filter);
+        doCopyDirectory(srcDir, destDir, filter, preserveFileDate, exclusionList);
+    }
+
+    /**
+     * Copies a filtered directory to a new location using several threads.
+     * <p>
+     * This method behaves like {@link #copyDirectory(File, File, FileFilter, boolean)},
+     * except that the directories are listed and the files copied by the tasks of
+     * the given executor, so that many files are copied at the same time. A failure
+     * to copy one file does not stop the others from being copied; once all tasks
+     * are done, an exception is thrown if anything failed. Use
+     * {@link ParallelDirectoryCopier} directly to be told about each failure and
+     * about the progress of the copy.
+     * <p>
+     * The executor is not shut down by this method.
+     *
+     * @param srcDir  an existing directory to copy, must not be {@code null}
+     * @param destDir  the new directory, must not be {@code null}
+     * @param filter  the filter to apply, null means copy all directories and files
+     * @param preserveFileDate  true if the file date of the copy
+     *  should be the same as the original
+     * @param executor  the executor that runs the listing and copy tasks, must not be {@code null}
+     *
+     * @throws NullPointerException if source, destination or executor is {@code null}
+     * @throws IOException if source or destination is invalid
+     * @throws IOException if any directory or file could not be copied, with the first
+     *  failure as its cause
+     * @since 2.5
+     * @see ParallelDirectoryCopier
+     */
+    public static void copyDirectory(final File srcDir, final File destDir,
+            final FileFilter filter, final boolean preserveFileDate, final ExecutorService executor)
+            throws IOException {
+        final ParallelDirectoryCopier.Result result =
+                new ParallelDirectoryCopier(executor).copy(srcDir, destDir, filter, preserveFileDate, null);
+        final List<ParallelDirectoryCopier.Failure> failures = result.getFailures();
+        if (!failures.isEmpty()) {
+            final ParallelDirectoryCopier.Failure first = failures.get(0);
+            throw new IOException("Failed to copy " + failures.size() + " item(s) from '" + srcDir
+                    + "' to '" + destDir + "', first failure: '" + first.getSource() + "'", first.getException());
+        }
+    }
+
+    /**
+     * Checks the arguments of a directory copy.
+     *
+     * @param srcDir  an existing directory to copy
+     * @param destDir  the new directory
+     * @param filter  the filter to apply, null means copy all directories and files
+     * @return the canonical paths of the files in the destination that must not be
+     * copied again because the destination is inside the source, or {@code null}
+     * @throws NullPointerException if source or destination is {@code null}
+     * @throws IOException if source or destination is invalid
+     */
+    static List<String> checkCopyDirectory(final File srcDir, final File destDir, final FileFilter filter)
+            throws IOException {
         if (srcDir == null) {
             throw new NullPointerException("Source must not be null");
         }
@@ -1436,7 +1502,7 @@ public class FileUtils {
                 }
             }
         }
-        doCopyDirectory(srcDir, destDir, filter, preserveFileDate, exclusionList);
+        return exclusionList;
     }
 
     /**
@@ -1864,6 +1930,35 @@ public class FileUtils {
         }
     }
 
+    /**
+     * Reads the contents of a file line by line to a List of Strings using several threads.
+     * <p>
+     * This method returns the same lines as {@link #readLines(File, Charset)}, but
+     * chunks of the file are read and decoded by the tasks of the given executor.
+     * Use {@link ParallelLineReader} directly to handle the lines as they are read
+     * instead of holding all of them in memory.
+     * <p>
+     * The executor is not shut down by this method.
+     *
+     * @param file  the file to read, must not be {@code null}
+     * @param encoding  the encoding to use, {@code null} means platform default
+     * @param executor  the executor that runs the tasks reading the chunks, must not be {@code null}
+     * @return the list of Strings representing each line in the file, never {@code null}
+     * @throws IOException in case of an I/O error
+     * @since 2.5
+     * @see ParallelLineReader
+     */
+    public static List<String> readLines(final File file, final Charset encoding, final ExecutorService executor)
+            throws IOException {
+        final List<String> lines = new ArrayList<String>();
+        new ParallelLineReader(executor).read(file, encoding, true, new ParallelLineReader.LineHandler() {
+            public void handle(final String line) {
+                lines.add(line);
+            }
+        });
+        return lines;
+    }
+
     /**
      * Reads the contents of a file line by line to a List of Strings. The file is always closed.
      *
@@ -2870,6 +2965,9 @@ public class FileUtils {
      * <pre>
      *   long csum = FileUtils.checksum(file, new CRC32()).getValue();
      * </pre>
+     * The file is read through a <code>FileChannel</code> into a buffer borrowed
+     * from the {@link IOUtils#getBufferPool() buffer pool}. See {@link ChecksumAlgorithm}
+     * for CRC-32C, message digests and the checksums of many files at once.
      *
      * @param file  the file to checksum, must not be {@code null}
      * @param checksum  the checksum object to be used, must not be {@code null}
@@ -2880,16 +2978,7 @@ public class FileUtils {
      * @since 1.3
      */
     public static Checksum checksum(final File file, final Checksum checksum) throws IOException {
-        if (file.isDirectory()) {
-            throw new IllegalArgumentException("Checksums can't be computed on directories");
-        }
-        InputStream in = null;
-        try {
-            in = new CheckedInputStream(new FileInputStream(file), checksum);
-            IOUtils.copy(in, new NullOutputStream());
-        } finally {
-            IOUtils.closeQuietly(in);
-        }
+        ChecksumAlgorithm.update(file, checksum);
         return checksum;
     }
 
@@ -43,12 +43,15 @@ import java.net.URLConnection;
 import java.nio.ByteBuffer;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.Selector;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.UnsupportedCharsetException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 
+import org.apache.commons.io.buffer.BufferPool;
+import org.apache.commons.io.buffer.UnpooledBufferPool;
 import org.apache.commons.io.output.ByteArrayOutputStream;
 import org.apache.commons.io.output.StringBuilderWriter;
 
@@ -89,6 +92,8 @@ import org.apache.commons.io.output.StringBuilderWriter;
  * <p>
  * Applications can re-use buffers by using the underlying methods directly.
  * This may improve performance for applications that need to do a lot of copying.
+ * Alternatively, the internal buffers can be taken from a
+ * {@link BufferPool}, see {@link #setBufferPool(BufferPool)}.
  * <p>
  * Wherever possible, the methods in this class do <em>not</em> flush or close
  * the stream. This is to avoid making non-portable assumptions about the
@@ -170,6 +175,16 @@ public class IOUtils {
     private static char[] SKIP_CHAR_BUFFER;
     private static byte[] SKIP_BYTE_BUFFER;
 
+    /**
+     * The pool from which the internal copy and compare buffers are borrowed.
+     */
+    private static volatile BufferPool bufferPool = UnpooledBufferPool.INSTANCE;
+
+    /**
+     * The engine that performs the stream to stream and channel to channel copies.
+     */
+    private static volatile CopyEngine copyEngine = new CopyEngine();
+
     /**
      * Instances should NOT be constructed in standard programming.
      */
@@ -177,6 +192,62 @@ public class IOUtils {
         super();
     }
 
+    //-----------------------------------------------------------------------
+    /**
+     * Returns the pool from which the internal copy and compare buffers are borrowed.
+     *
+     * @return the buffer pool, never {@code null}
+     * @since 2.5
+     */
+    public static BufferPool getBufferPool() {
+        return bufferPool;
+    }
+
+    /**
+     * Sets the pool from which the internal copy and compare buffers of
+     * <code>IOUtils</code>, <code>CopyUtils</code> and <code>FileUtils</code> are borrowed.
+     * <p>
+     * By default every call allocates its own buffer. Installing, for example, a
+     * {@link org.apache.commons.io.buffer.ThreadLocalBufferPool} makes repeated copies
+     * on the same threads allocation free. The pool applies JVM wide, so it should
+     * be set once, early, by the application rather than by a library.
+     * <p>
+     * Methods that are passed a buffer by the caller never use the pool.
+     *
+     * @param pool the buffer pool to use, or {@code null} to restore the default of
+     * allocating a new buffer for each call
+     * @since 2.5
+     */
+    public static void setBufferPool(final BufferPool pool) {
+        bufferPool = pool != null ? pool : UnpooledBufferPool.INSTANCE;
+    }
+
+    /**
+     * Returns the engine used by {@link #copyLarge(InputStream, OutputStream)},
+     * {@link #copyLarge(ReadableByteChannel, WritableByteChannel)} and the file
+     * copy methods of <code>FileUtils</code>.
+     *
+     * @return the copy engine, never {@code null}
+     * @since 2.5
+     */
+    public static CopyEngine getCopyEngine() {
+        return copyEngine;
+    }
+
+    /**
+     * Sets the engine used by {@link #copyLarge(InputStream, OutputStream)},
+     * {@link #copyLarge(ReadableByteChannel, WritableByteChannel)} and the file
+     * copy methods of <code>FileUtils</code>, for example to tune its chunk sizes.
+     * <p>
+     * The engine applies JVM wide, so it should be set once, early, by the application.
+     *
+     * @param engine the copy engine, or {@code null} to restore an engine with the default settings
+     * @since 2.5
+     */
+    public static void setCopyEngine(final CopyEngine engine) {
+        copyEngine = engine != null ? engine : new CopyEngine();
+    }
+
     //-----------------------------------------------------------------------
 
     /**
@@ -2097,6 +2168,8 @@ public class IOUtils {
      * Copies bytes from an <code>InputStream</code> to an <code>OutputStream</code> using an internal buffer of the
      * given size.
      * <p>
+     * The buffer is borrowed from the {@link #getBufferPool() buffer pool}, which may hand out a larger buffer.
+     * <p>
      * This method buffers the input internally, so there is no need to use a <code>BufferedInputStream</code>.
      * <p>
      * @param input
@@ -2113,7 +2186,13 @@ public class IOUtils {
      * @since 2.5
      */
     public static long copy(final InputStream input, final OutputStream output, final int bufferSize) throws IOException {
-        return copyLarge(input, output, new byte[bufferSize]);
+        final BufferPool pool = bufferPool;
+        final byte[] buffer = pool.borrowBytes(bufferSize);
+        try {
+            return copyLarge(input, output, buffer);
+        } finally {
+            pool.releaseBytes(buffer);
+        }
     }
 
     /**
@@ -2123,7 +2202,10 @@ public class IOUtils {
      * This method buffers the input internally, so there is no need to use a
      * <code>BufferedInputStream</code>.
      * <p>
-     * The buffer size is given by {@link #DEFAULT_BUFFER_SIZE}.
+     * The copy is performed by the {@link #getCopyEngine() copy engine}: if the input
+     * is a <code>FileInputStream</code> and the output a <code>FileOutputStream</code>,
+     * the data is transferred by the operating system without passing through a buffer.
+     * Otherwise the buffer size is given by {@link #DEFAULT_BUFFER_SIZE}.
      *
      * @param input  the <code>InputStream</code> to read from
      * @param output  the <code>OutputStream</code> to write to
@@ -2131,10 +2213,34 @@ public class IOUtils {
      * @throws NullPointerException if the input or output is null
      * @throws IOException if an I/O error occurs
      * @since 1.3
+     * @see CopyEngine
      */
     public static long copyLarge(final InputStream input, final OutputStream output)
             throws IOException {
-        return copy(input, output, DEFAULT_BUFFER_SIZE);
+        return copyEngine.copy(input, output);
+    }
+
+    /**
+     * Copies all remaining bytes from a <code>ReadableByteChannel</code> to a
+     * <code>WritableByteChannel</code>.
+     * <p>
+     * The copy is performed by the {@link #getCopyEngine() copy engine}, which uses
+     * {@link java.nio.channels.FileChannel#transferTo(long, long, WritableByteChannel) transferTo}
+     * or {@link java.nio.channels.FileChannel#transferFrom(ReadableByteChannel, long, long) transferFrom}
+     * if either channel is a file, and a direct buffer otherwise.
+     * Both channels must be in blocking mode.
+     *
+     * @param input  the channel to read from
+     * @param output  the channel to write to
+     * @return the number of bytes copied
+     * @throws NullPointerException if the input or output is null
+     * @throws IOException if an I/O error occurs
+     * @since 2.5
+     * @see CopyEngine
+     */
+    public static long copyLarge(final ReadableByteChannel input, final WritableByteChannel output)
+            throws IOException {
+        return copyEngine.copy(input, output);
     }
 
     /**
@@ -2189,7 +2295,13 @@ public class IOUtils {
      */
     public static long copyLarge(final InputStream input, final OutputStream output, final long inputOffset, final long length)
             throws IOException {
-        return copyLarge(input, output, inputOffset, length, new byte[DEFAULT_BUFFER_SIZE]);
+        final BufferPool pool = bufferPool;
+        final byte[] buffer = pool.borrowBytes(DEFAULT_BUFFER_SIZE);
+        try {
+            return copyLarge(input, output, inputOffset, length, buffer);
+        } finally {
+            pool.releaseBytes(buffer);
+        }
     }
 
     /**
@@ -2356,7 +2468,13 @@ public class IOUtils {
      * @since 1.3
      */
     public static long copyLarge(final Reader input, final Writer output) throws IOException {
-        return copyLarge(input, output, new char[DEFAULT_BUFFER_SIZE]);
+        final BufferPool pool = bufferPool;
+        final char[] buffer = pool.borrowChars(DEFAULT_BUFFER_SIZE);
+        try {
+            return copyLarge(input, output, buffer);
+        } finally {
+            pool.releaseChars(buffer);
+        }
     }
 
     /**
@@ -2405,7 +2523,13 @@ public class IOUtils {
      */
     public static long copyLarge(final Reader input, final Writer output, final long inputOffset, final long length)
             throws IOException {
-        return  copyLarge(input, output, inputOffset, length, new char[DEFAULT_BUFFER_SIZE]);
+        final BufferPool pool = bufferPool;
+        final char[] buffer = pool.borrowChars(DEFAULT_BUFFER_SIZE);
+        try {
+            return copyLarge(input, output, inputOffset, length, buffer);
+        } finally {
+            pool.releaseChars(buffer);
+        }
     }
 
     /**
@@ -2545,8 +2669,8 @@ public class IOUtils {
      * Compares the contents of two Streams to determine if they are equal or
      * not.
      * <p>
-     * This method buffers the input internally using
-     * <code>BufferedInputStream</code> if they are not already buffered.
+     * This method buffers the input internally, in the two halves of a buffer
+     * borrowed from the {@link #getBufferPool() buffer pool}.
      *
      * @param input1  the first stream
      * @param input2  the second stream
@@ -2555,37 +2679,43 @@ public class IOUtils {
      * @throws NullPointerException if either input is null
      * @throws IOException if an I/O error occurs
      */
-    public static boolean contentEquals(InputStream input1, InputStream input2)
+    public static boolean contentEquals(final InputStream input1, final InputStream input2)
             throws IOException {
         if (input1 == input2) {
             return true;
         }
-        if (!(input1 instanceof BufferedInputStream)) {
-            input1 = new BufferedInputStream(input1);
-        }
-        if (!(input2 instanceof BufferedInputStream)) {
-            input2 = new BufferedInputStream(input2);
-        }
-
-        int ch = input1.read();
-        while (EOF != ch) {
-            final int ch2 = input2.read();
-            if (ch != ch2) {
-                return false;
+        final BufferPool pool = bufferPool;
+        // one buffer split in two halves, so that a pool keeping a single buffer
+        // per size class and thread can serve every call
+        final byte[] buffer = pool.borrowBytes(DEFAULT_BUFFER_SIZE * 2);
+        try {
+            while (true) {
+                // read() only returns less than requested at the end of the stream
+                final int n1 = read(input1, buffer, 0, DEFAULT_BUFFER_SIZE);
+                final int n2 = read(input2, buffer, DEFAULT_BUFFER_SIZE, DEFAULT_BUFFER_SIZE);
+                if (n1 != n2) {
+                    return false;
+                }
+                if (n1 == 0) {
+                    return true;
+                }
+                for (int i = 0; i < n1; i++) {
+                    if (buffer[i] != buffer[DEFAULT_BUFFER_SIZE + i]) {
+                        return false;
+                    }
+                }
             }
-            ch = input1.read();
+        } finally {
+            pool.releaseBytes(buffer);
         }
-
-        final int ch2 = input2.read();
-        return ch2 == EOF;
     }
 
     /**
      * Compares the contents of two Readers to determine if they are equal or
      * not.
      * <p>
-     * This method buffers the input internally using
-     * <code>BufferedReader</code> if they are not already buffered.
+     * This method buffers the input internally, in the two halves of a buffer
+     * borrowed from the {@link #getBufferPool() buffer pool}.
      *
      * @param input1  the first reader
      * @param input2  the second reader
@@ -2595,26 +2725,35 @@ public class IOUtils {
      * @throws IOException if an I/O error occurs
      * @since 1.1
      */
-    public static boolean contentEquals(Reader input1, Reader input2)
+    public static boolean contentEquals(final Reader input1, final Reader input2)
             throws IOException {
         if (input1 == input2) {
             return true;
         }
-
-        input1 = toBufferedReader(input1);
-        input2 = toBufferedReader(input2);
-
-        int ch = input1.read();
-        while (EOF != ch) {
-            final int ch2 = input2.read();
-            if (ch != ch2) {
-                return false;
+        final BufferPool pool = bufferPool;
+        // one buffer split in two halves, so that a pool keeping a single buffer
+        // per size class and thread can serve every call
+        final char[] buffer = pool.borrowChars(DEFAULT_BUFFER_SIZE * 2);
+        try {
+            while (true) {
+                // read() only returns less than requested at the end of the stream
+                final int n1 = read(input1, buffer, 0, DEFAULT_BUFFER_SIZE);
+                final int n2 = read(input2, buffer, DEFAULT_BUFFER_SIZE, DEFAULT_BUFFER_SIZE);
+                if (n1 != n2) {
+                    return false;
+                }
+                if (n1 == 0) {
+                    return true;
+                }
+                for (int i = 0; i < n1; i++) {
+                    if (buffer[i] != buffer[DEFAULT_BUFFER_SIZE + i]) {
+                        return false;
+                    }
+                }
             }
-            ch = input1.read();
+        } finally {
+            pool.releaseChars(buffer);
         }
-
-        final int ch2 = input2.read();
-        return ch2 == EOF;
     }
 
     /**
@@ -43,6 +43,9 @@ import java.util.NoSuchElementException;
  *   it.close();
  * }
  * </pre>
+ * <p>
+ * To read lines without creating a <code>String</code> for each of them, use
+ * {@link CharSequenceLineIterator}.
  *
  * @version $Id$
  * @since 1.2
@@ -0,0 +1,431 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.io;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Copies a directory tree using the threads of an <code>ExecutorService</code>.
+ * <p>
+ * Every directory is listed, and its destination created, by its own task, and
+ * every file is copied by its own task, so listing, directory creation and file
+ * copies of different parts of the tree overlap. This keeps the queues of fast
+ * storage busy when a tree holds many small files.
+ * <p>
+ * The result is the same as that of
+ * {@link FileUtils#copyDirectory(File, File, FileFilter, boolean)}: the filter
+ * applies to directories and files at every level, a destination inside the
+ * source is not copied into itself, and with <code>preserveFileDate</code> the
+ * date of each directory is set once everything below it has been copied.
+ * <p>
+ * Unlike <code>copyDirectory</code>, a failure to list a directory or to copy a
+ * file does not stop the copy. Failures are reported to the {@link Listener}
+ * and returned in the {@link Result}; the subtree of a directory that cannot
+ * be listed or created is skipped.
+ * <p>
+ * The number of queued tasks is bounded: once <code>maxQueuedTasks</code> tasks
+ * are waiting for the executor, further tasks run on the thread that creates
+ * them. The executor is never shut down by this class.
+ *
+ * @version $Id$
+ * @since 2.5
+ * @see FileUtils#copyDirectory(File, File, FileFilter, boolean, ExecutorService)
+ */
+public class ParallelDirectoryCopier {
+
+    /**
+     * Receives the progress of a copy.
+     * <p>
+     * The methods are called by the executor threads, possibly at the same time.
+     */
+    public interface Listener {
+
+        /**
+         * Called when a file has been copied.
+         *
+         * @param srcFile the source file
+         * @param destFile the copied file
+         */
+        void fileCopied(File srcFile, File destFile);
+
+        /**
+         * Called when a directory could not be listed or created, or a file could not be copied.
+         *
+         * @param source the source directory or file
+         * @param destination the destination directory or file
+         * @param exception the failure
+         */
+        void copyFailed(File source, File destination, IOException exception);
+    }
+
+    /**
+     * A directory or file that could not be copied.
+     */
+    public static class Failure {
+
+        private final File source;
+        private final File destination;
+        private final IOException exception;
+
+        Failure(final File source, final File destination, final IOException exception) {
+            this.source = source;
+            this.destination = destination;
+            this.exception = exception;
+        }
+
+        /**
+         * Returns the source directory or file.
+         *
+         * @return the source
+         */
+        public File getSource() {
+            return source;
+        }
+
+        /**
+         * Returns the destination directory or file.
+         *
+         * @return the destination
+         */
+        public File getDestination() {
+            return destination;
+        }
+
+        /**
+         * Returns the reason of the failure.
+         *
+         * @return the exception
+         */
+        public IOException getException() {
+            return exception;
+        }
+
+        @Override
+        public String toString() {
+            return "Failure[" + source + " -> " + destination + ": " + exception + "]";
+        }
+    }
+
+    /**
+     * The outcome of a copy.
+     */
+    public static class Result {
+
+        private final long directoryCount;
+        private final long fileCount;
+        private final long byteCount;
+        private final List<Failure> failures;
+
+        Result(final long directoryCount, final long fileCount, final long byteCount, final List<Failure> failures) {
+            this.directoryCount = directoryCount;
+            this.fileCount = fileCount;
+            this.byteCount = byteCount;
+            this.failures = Collections.unmodifiableList(failures);
+        }
+
+        /**
+         * Returns the number of directories copied, including the top directory.
+         *
+         * @return the directory count
+         */
+        public long getDirectoryCount() {
+            return directoryCount;
+        }
+
+        /**
+         * Returns the number of files copied.
+         *
+         * @return the file count
+         */
+        public long getFileCount() {
+            return fileCount;
+        }
+
+        /**
+         * Returns the number of bytes copied.
+         *
+         * @return the byte count
+         */
+        public long getByteCount() {
+            return byteCount;
+        }
+
+        /**
+         * Returns the directories and files that could not be copied.
+         *
+         * @return the failures, empty if the copy succeeded
+         */
+        public List<Failure> getFailures() {
+            return failures;
+        }
+    }
+
+    /** The default maximum number of tasks waiting for the executor. */
+    public static final int DEFAULT_MAX_QUEUED_TASKS = 1024;
+
+    private final ExecutorService executor;
+    private final int maxQueuedTasks;
+
+    /**
+     * Constructs a copier that queues at most {@link #DEFAULT_MAX_QUEUED_TASKS} tasks.
+     *
+     * @param executor the executor that runs the listing and copy tasks
+     * @throws NullPointerException if the executor is {@code null}
+     */
+    public ParallelDirectoryCopier(final ExecutorService executor) {
+        this(executor, DEFAULT_MAX_QUEUED_TASKS);
+    }
+
+    /**
+     * Constructs a copier.
+     *
+     * @param executor the executor that runs the listing and copy tasks
+     * @param maxQueuedTasks the maximum number of tasks waiting for the executor, positive
+     * @throws NullPointerException if the executor is {@code null}
+     * @throws IllegalArgumentException if <code>maxQueuedTasks</code> is not positive
+     */
+    public ParallelDirectoryCopier(final ExecutorService executor, final int maxQueuedTasks) {
+        if (executor == null) {
+            throw new NullPointerException("Executor must not be null");
+        }
+        if (maxQueuedTasks <= 0) {
+            throw new IllegalArgumentException("maxQueuedTasks must be positive: " + maxQueuedTasks);
+        }
+        this.executor = executor;
+        this.maxQueuedTasks = maxQueuedTasks;
+    }
+
+    /**
+     * Copies a filtered directory tree and waits until all of it has been copied.
+     *
+     * @param srcDir an existing directory to copy, must not be {@code null}
+     * @param destDir the new directory, must not be {@code null}
+     * @param filter the filter to apply, null means copy all directories and files
+     * @param preserveFileDate true if the dates of the copies should be the same as the originals
+     * @param listener the listener to notify of each copied file and each failure, may be {@code null}
+     * @return the outcome of the copy
+     * @throws NullPointerException if source or destination is {@code null}
+     * @throws IOException if source or destination is invalid
+     * @throws InterruptedIOException if the calling thread is interrupted while waiting;
+     * the tasks already submitted keep running
+     */
+    public Result copy(final File srcDir, final File destDir, final FileFilter filter,
+            final boolean preserveFileDate, final Listener listener) throws IOException {
+        final List<String> exclusionList = FileUtils.checkCopyDirectory(srcDir, destDir, filter);
+        final Copy copy = new Copy(filter, preserveFileDate, exclusionList, listener);
+        copy.submit(copy.new DirectoryTask(new Directory(srcDir, destDir, null)));
+        try {
+            copy.done.await();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            final InterruptedIOException ex = new InterruptedIOException("Interrupted while copying " + srcDir);
+            ex.initCause(e);
+            throw ex;
+        }
+        return new Result(copy.directoryCount.get(), copy.fileCount.get(), copy.byteCount.get(),
+                new ArrayList<Failure>(copy.failures));
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * A directory being copied. It is complete when its own task and the tasks
+     * of all its entries have finished.
+     */
+    private static final class Directory {
+        private final File srcDir;
+        private final File destDir;
+        private final Directory parent;
+        /** The own task plus the unfinished entry tasks. */
+        private final AtomicInteger pending = new AtomicInteger(1);
+        /** Set once the destination exists. */
+        private volatile boolean created;
+
+        Directory(final File srcDir, final File destDir, final Directory parent) {
+            this.srcDir = srcDir;
+            this.destDir = destDir;
+            this.parent = parent;
+        }
+    }
+
+    /**
+     * The state of one call to {@link ParallelDirectoryCopier#copy}.
+     */
+    private final class Copy {
+        private final FileFilter filter;
+        private final boolean preserveFileDate;
+        private final List<String> exclusionList;
+        private final Listener listener;
+        private final Semaphore queuePermits = new Semaphore(maxQueuedTasks);
+        private final CountDownLatch done = new CountDownLatch(1);
+        private final AtomicLong directoryCount = new AtomicLong();
+        private final AtomicLong fileCount = new AtomicLong();
+        private final AtomicLong byteCount = new AtomicLong();
+        private final ConcurrentLinkedQueue<Failure> failures = new ConcurrentLinkedQueue<Failure>();
+
+        Copy(final FileFilter filter, final boolean preserveFileDate, final List<String> exclusionList,
+                final Listener listener) {
+            this.filter = filter;
+            this.preserveFileDate = preserveFileDate;
+            this.exclusionList = exclusionList;
+            this.listener = listener;
+        }
+
+        /**
+         * Queues a task, or runs it on the current thread if the queue is full.
+         */
+        void submit(final Runnable task) {
+            if (queuePermits.tryAcquire()) {
+                try {
+                    executor.execute(new Runnable() {
+                        public void run() {
+                            queuePermits.release();
+                            task.run();
+                        }
+                    });
+                    return;
+                } catch (final RejectedExecutionException e) {
+                    queuePermits.release();
+                }
+            }
+            task.run();
+        }
+
+        void failed(final File source, final File destination, final IOException exception) {
+            failures.add(new Failure(source, destination, exception));
+            if (listener != null) {
+                listener.copyFailed(source, destination, exception);
+            }
+        }
+
+        /**
+         * Marks one task of a directory as finished, completing the directory,
+         * and possibly its parents, if it was the last one.
+         */
+        void finished(final Directory directory) {
+            Directory current = directory;
+            while (current != null && current.pending.decrementAndGet() == 0) {
+                // Do this last, as copying the entries has probably affected directory metadata
+                if (preserveFileDate && current.created) {
+                    current.destDir.setLastModified(current.srcDir.lastModified());
+                }
+                if (current.parent == null) {
+                    done.countDown();
+                }
+                current = current.parent;
+            }
+        }
+
+        /**
+         * Lists a directory, creates its destination and submits a task for each entry.
+         */
+        final class DirectoryTask implements Runnable {
+            private final Directory directory;
+
+            DirectoryTask(final Directory directory) {
+                this.directory = directory;
+            }
+
+            public void run() {
+                final File srcDir = directory.srcDir;
+                final File destDir = directory.destDir;
+                try {
+                    final File[] srcFiles = filter == null ? srcDir.listFiles() : srcDir.listFiles(filter);
+                    if (srcFiles == null) {
+                        throw new IOException("Failed to list contents of " + srcDir);
+                    }
+                    if (destDir.exists()) {
+                        if (destDir.isDirectory() == false) {
+                            throw new IOException("Destination '" + destDir + "' exists but is not a directory");
+                        }
+                    } else {
+                        if (!destDir.mkdirs() && !destDir.isDirectory()) {
+                            throw new IOException("Destination '" + destDir + "' directory cannot be created");
+                        }
+                    }
+                    if (destDir.canWrite() == false) {
+                        throw new IOException("Destination '" + destDir + "' cannot be written to");
+                    }
+                    directory.created = true;
+                    directoryCount.incrementAndGet();
+                    for (final File srcFile : srcFiles) {
+                        final File dstFile = new File(destDir, srcFile.getName());
+                        if (exclusionList == null || !exclusionList.contains(srcFile.getCanonicalPath())) {
+                            directory.pending.incrementAndGet();
+                            if (srcFile.isDirectory()) {
+                                submit(new DirectoryTask(new Directory(srcFile, dstFile, directory)));
+                            } else {
+                                submit(new FileTask(directory, srcFile, dstFile));
+                            }
+                        }
+                    }
+                } catch (final IOException e) {
+                    failed(srcDir, destDir, e);
+                } catch (final RuntimeException e) {
+                    failed(srcDir, destDir, new IOException(e));
+                } finally {
+                    finished(directory);
+                }
+            }
+        }
+
+        /**
+         * Copies one file.
+         */
+        final class FileTask implements Runnable {
+            private final Directory directory;
+            private final File srcFile;
+            private final File destFile;
+
+            FileTask(final Directory directory, final File srcFile, final File destFile) {
+                this.directory = directory;
+                this.srcFile = srcFile;
+                this.destFile = destFile;
+            }
+
+            public void run() {
+                try {
+                    FileUtils.doCopyFile(srcFile, destFile, preserveFileDate);
+                    fileCount.incrementAndGet();
+                    byteCount.addAndGet(destFile.length());
+                    if (listener != null) {
+                        listener.fileCopied(srcFile, destFile);
+                    }
+                } catch (final IOException e) {
+                    failed(srcFile, destFile, e);
+                } catch (final RuntimeException e) {
+                    failed(srcFile, destFile, new IOException(e));
+                } finally {
+                    finished(directory);
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,394 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.io;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Reads the lines of a file using the threads of an <code>ExecutorService</code>.
+ * <p>
+ * The file is split into chunks of about <code>chunkSize</code> bytes, each
+ * ending at the end of a line, and each chunk is read, decoded and split into
+ * lines by its own task. Lines are ended by LF, CR or CR LF, as
+ * {@link BufferedReader#readLine()} ends them. A file in an encoding in which
+ * LF and CR are not single bytes of their own, such as UTF-16, cannot be split
+ * this way and is read by the calling thread.
+ * <p>
+ * Lines are passed to a {@link LineHandler} either in file order, by the
+ * calling thread, or in no particular order, by the executor threads as soon
+ * as their chunk is decoded, possibly at the same time. At most
+ * <code>maxPendingChunks</code> chunks are read or waiting to be handled at
+ * any time, which bounds the memory used to a few times
+ * <code>chunkSize * maxPendingChunks</code>.
+ * <p>
+ * If a task fails, or the handler throws a runtime exception, no further
+ * chunks are read and the failure is rethrown by {@link #read}. The executor
+ * is never shut down by this class.
+ *
+ * @version $Id$
+ * @since 2.5
+ * @see FileUtils#readLines(File, Charset, ExecutorService)
+ */
+public class ParallelLineReader {
+
+    /**
+     * Receives the lines read.
+     */
+    public interface LineHandler {
+
+        /**
+         * Handles a line.
+         *
+         * @param line the line, without its terminator
+         */
+        void handle(String line);
+    }
+
+    /** The default size of the chunks read by one task, 4 MB. */
+    public static final int DEFAULT_CHUNK_SIZE = 4 * 1024 * 1024;
+
+    /** The default maximum number of chunks read or waiting to be handled. */
+    public static final int DEFAULT_MAX_PENDING_CHUNKS = 16;
+
+    /** The size of the reads that look for the end of a chunk. */
+    private static final int SCAN_SIZE = 8192;
+
+    private final ExecutorService executor;
+    private final int chunkSize;
+    private final int maxPendingChunks;
+
+    /**
+     * Constructs a reader with the default chunk size and number of pending chunks.
+     *
+     * @param executor the executor that runs the tasks reading the chunks
+     * @throws NullPointerException if the executor is {@code null}
+     */
+    public ParallelLineReader(final ExecutorService executor) {
+        this(executor, DEFAULT_CHUNK_SIZE, DEFAULT_MAX_PENDING_CHUNKS);
+    }
+
+    /**
+     * Constructs a reader.
+     *
+     * @param executor the executor that runs the tasks reading the chunks
+     * @param chunkSize the size in bytes of the chunks read by one task, positive
+     * @param maxPendingChunks the maximum number of chunks read or waiting to be handled, positive
+     * @throws NullPointerException if the executor is {@code null}
+     * @throws IllegalArgumentException if the chunk size or number of pending chunks is not positive
+     */
+    public ParallelLineReader(final ExecutorService executor, final int chunkSize, final int maxPendingChunks) {
+        if (executor == null) {
+            throw new NullPointerException("Executor must not be null");
+        }
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be positive: " + chunkSize);
+        }
+        if (maxPendingChunks <= 0) {
+            throw new IllegalArgumentException("maxPendingChunks must be positive: " + maxPendingChunks);
+        }
+        this.executor = executor;
+        this.chunkSize = chunkSize;
+        this.maxPendingChunks = maxPendingChunks;
+    }
+
+    /**
+     * Reads the lines of a file and waits until all of them have been handled.
+     *
+     * @param file the file to read, must not be {@code null}
+     * @param encoding the encoding to use, {@code null} means platform default
+     * @param ordered true to handle the lines in file order on the calling thread,
+     * false to handle them in any order on the executor threads
+     * @param handler the handler of the lines, must not be {@code null}
+     * @return the number of lines read
+     * @throws IOException if the file cannot be read
+     * @throws InterruptedIOException if the calling thread is interrupted while waiting
+     */
+    public long read(final File file, final Charset encoding, final boolean ordered, final LineHandler handler)
+            throws IOException {
+        if (handler == null) {
+            throw new NullPointerException("Handler must not be null");
+        }
+        final Charset charset = Charsets.toCharset(encoding);
+        final RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            final FileChannel channel = raf.getChannel();
+            if (!isSingleByte('\n', charset) || !isSingleByte('\r', charset)) {
+                return readSequentially(channel, charset, handler);
+            }
+            return ordered ? readOrdered(channel, charset, handler) : readUnordered(channel, charset, handler);
+        } finally {
+            IOUtils.closeQuietly(raf);
+        }
+    }
+
+    private long readOrdered(final FileChannel channel, final Charset charset, final LineHandler handler)
+            throws IOException {
+        final long size = channel.size();
+        final LinkedList<FutureTask<List<String>>> pending = new LinkedList<FutureTask<List<String>>>();
+        long position = 0;
+        long count = 0;
+        try {
+            while (position < size || !pending.isEmpty()) {
+                while (position < size && pending.size() < maxPendingChunks) {
+                    final long end = findChunkEnd(channel, position + chunkSize, size);
+                    final FutureTask<List<String>> task = new FutureTask<List<String>>(
+                            new Chunk(channel, position, end, charset));
+                    submit(task);
+                    pending.add(task);
+                    position = end;
+                }
+                final List<String> lines = get(pending.removeFirst());
+                for (final String line : lines) {
+                    handler.handle(line);
+                }
+                count += lines.size();
+            }
+            return count;
+        } finally {
+            for (final FutureTask<List<String>> task : pending) {
+                // not interrupted: an interrupted read closes the channel
+                task.cancel(false);
+            }
+        }
+    }
+
+    private long readUnordered(final FileChannel channel, final Charset charset, final LineHandler handler)
+            throws IOException {
+        final long size = channel.size();
+        final Semaphore permits = new Semaphore(maxPendingChunks);
+        final AtomicLong count = new AtomicLong();
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        long position = 0;
+        try {
+            while (position < size && failure.get() == null) {
+                final long end = findChunkEnd(channel, position + chunkSize, size);
+                permits.acquire();
+                final Chunk chunk = new Chunk(channel, position, end, charset);
+                submit(new FutureTask<Void>(new Runnable() {
+                    public void run() {
+                        try {
+                            count.addAndGet(split(chunk.decode(), handler));
+                        } catch (final Throwable t) {
+                            failure.compareAndSet(null, t);
+                        } finally {
+                            permits.release();
+                        }
+                    }
+                }, null));
+                position = end;
+            }
+            // wait for the last chunks
+            permits.acquire(maxPendingChunks);
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while reading lines");
+        }
+        rethrow(failure.get());
+        return count.get();
+    }
+
+    private long readSequentially(final FileChannel channel, final Charset charset, final LineHandler handler)
+            throws IOException {
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(Channels.newInputStream(channel),
+                charset));
+        long count = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            handler.handle(line);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Runs a task on the executor, or on the calling thread if the executor rejects it.
+     */
+    private void submit(final FutureTask<?> task) {
+        try {
+            executor.execute(task);
+        } catch (final RejectedExecutionException ex) {
+            task.run();
+        }
+    }
+
+    private static <T> T get(final FutureTask<T> task) throws IOException {
+        try {
+            return task.get();
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while reading lines");
+        } catch (final ExecutionException ex) {
+            rethrow(ex.getCause());
+            return null; // not reached
+        }
+    }
+
+    private static void rethrow(final Throwable failure) throws IOException {
+        if (failure instanceof IOException) {
+            throw (IOException) failure;
+        } else if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        } else if (failure instanceof Error) {
+            throw (Error) failure;
+        } else if (failure != null) {
+            throw new IOException(failure);
+        }
+    }
+
+    /**
+     * Finds the end of the line a chunk ends with: the position after the
+     * first line terminator at or after a position, never between the CR and
+     * the LF of a CR LF.
+     *
+     * @param channel the channel of the file
+     * @param from the position to look from
+     * @param size the size of the file
+     * @return the end of the chunk
+     * @throws IOException if the file cannot be read
+     */
+    static long findChunkEnd(final FileChannel channel, final long from, final long size) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(SCAN_SIZE);
+        final byte[] bytes = buffer.array();
+        long position = from;
+        while (position < size) {
+            buffer.clear();
+            final int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (bytes[i] == '\n') {
+                    return position + i + 1;
+                }
+                if (bytes[i] == '\r') {
+                    final long next = position + i + 1;
+                    if (i + 1 < read) {
+                        return bytes[i + 1] == '\n' ? next + 1 : next;
+                    }
+                    buffer.clear();
+                    buffer.limit(1);
+                    return next < size && channel.read(buffer, next) > 0 && bytes[0] == '\n' ? next + 1 : next;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    private static boolean isSingleByte(final char terminator, final Charset charset) {
+        final byte[] bytes = String.valueOf(terminator).getBytes(charset);
+        return bytes.length == 1 && bytes[0] == terminator;
+    }
+
+    /**
+     * Splits text into lines.
+     *
+     * @param text the text, ending with a line terminator unless it ends the file
+     * @param handler the handler of the lines
+     * @return the number of lines
+     */
+    static int split(final String text, final LineHandler handler) {
+        int count = 0;
+        int lineStart = 0;
+        final int length = text.length();
+        for (int i = 0; i < length; i++) {
+            final char ch = text.charAt(i);
+            if (ch != '\n' && ch != '\r') {
+                continue;
+            }
+            handler.handle(text.substring(lineStart, i));
+            count++;
+            if (ch == '\r' && i + 1 < length && text.charAt(i + 1) == '\n') {
+                i++;
+            }
+            lineStart = i + 1;
+        }
+        if (lineStart < length) {
+            // the last line of the file, unterminated
+            handler.handle(text.substring(lineStart));
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Reads, decodes and splits one chunk of the file, returning its lines.
+     */
+    private static final class Chunk implements Callable<List<String>> {
+
+        private final FileChannel channel;
+        private final long start;
+        private final long end;
+        private final Charset charset;
+
+        Chunk(final FileChannel channel, final long start, final long end, final Charset charset) {
+            this.channel = channel;
+            this.start = start;
+            this.end = end;
+            this.charset = charset;
+        }
+
+        /**
+         * Reads and decodes the chunk.
+         *
+         * @return the text of the chunk
+         * @throws IOException if the file cannot be read
+         */
+        String decode() throws IOException {
+            if (end - start > Integer.MAX_VALUE) {
+                throw new IOException("Line too long at position " + start);
+            }
+            final ByteBuffer buffer = ByteBuffer.allocate((int) (end - start));
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, start + buffer.position()) <= 0) {
+                    break; // truncated meanwhile
+                }
+            }
+            return new String(buffer.array(), 0, buffer.position(), charset);
+        }
+
+        public List<String> call() throws IOException {
+            final List<String> lines = new ArrayList<String>();
+            split(decode(), new LineHandler() {
+                public void handle(final String line) {
+                    lines.add(line);
+                }
+            });
+            return lines;
+        }
+    }
+}
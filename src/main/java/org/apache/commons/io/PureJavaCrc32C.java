@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.io;
+
+import java.util.zip.Checksum;
+
+/**
+ * Computes the CRC-32C checksum (Castagnoli polynomial, as used by iSCSI,
+ * ext4 and many storage formats) of a data stream.
+ * <p>
+ * This implementation reads eight bytes per step using eight lookup tables
+ * ("slicing-by-8"). From Java 9, <code>java.util.zip.CRC32C</code> computes the
+ * same checksum with the CRC32 instructions of the processor;
+ * {@link ChecksumAlgorithm#newCrc32C()} returns it when it is available and
+ * an instance of this class otherwise.
+ * <p>
+ * Instances are not safe for use by multiple threads.
+ *
+ * @version $Id$
+ * @since 2.5
+ */
+public final class PureJavaCrc32C implements Checksum {
+
+    /** The reversed Castagnoli polynomial. */
+    private static final int POLYNOMIAL = 0x82F63B78;
+
+    /** Eight tables of 256 entries: table k gives the CRC of a byte followed by k zero bytes. */
+    private static final int[] TABLE = new int[8 * 256];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            int crc = i;
+            for (int bit = 0; bit < 8; bit++) {
+                crc = (crc & 1) != 0 ? crc >>> 1 ^ POLYNOMIAL : crc >>> 1;
+            }
+            TABLE[i] = crc;
+        }
+        for (int i = 0; i < 256; i++) {
+            int crc = TABLE[i];
+            for (int k = 1; k < 8; k++) {
+                crc = crc >>> 8 ^ TABLE[crc & 0xff];
+                TABLE[k * 256 + i] = crc;
+            }
+        }
+    }
+
+    /** The complemented CRC. */
+    private int crc = 0xffffffff;
+
+    /**
+     * Updates the checksum with a byte.
+     *
+     * @param b the byte to update the checksum with
+     */
+    public void update(final int b) {
+        crc = crc >>> 8 ^ TABLE[(crc ^ b) & 0xff];
+    }
+
+    /**
+     * Updates the checksum with an array of bytes.
+     *
+     * @param b the byte array to update the checksum with
+     * @param off the start offset of the data
+     * @param len the number of bytes to use for the update
+     */
+    public void update(final byte[] b, final int off, final int len) {
+        if (off < 0 || len < 0 || off > b.length - len) {
+            throw new ArrayIndexOutOfBoundsException();
+        }
+        int c = crc;
+        int i = off;
+        final int end = off + len;
+        for (final int end8 = end - 7; i < end8; i += 8) {
+            c ^= b[i] & 0xff | (b[i + 1] & 0xff) << 8 | (b[i + 2] & 0xff) << 16 | (b[i + 3] & 0xff) << 24;
+            c = TABLE[7 * 256 + (c & 0xff)] ^ TABLE[6 * 256 + (c >>> 8 & 0xff)]
+                    ^ TABLE[5 * 256 + (c >>> 16 & 0xff)] ^ TABLE[4 * 256 + (c >>> 24)]
+                    ^ TABLE[3 * 256 + (b[i + 4] & 0xff)] ^ TABLE[2 * 256 + (b[i + 5] & 0xff)]
+                    ^ TABLE[256 + (b[i + 6] & 0xff)] ^ TABLE[b[i + 7] & 0xff];
+        }
+        for (; i < end; i++) {
+            c = c >>> 8 ^ TABLE[(c ^ b[i]) & 0xff];
+        }
+        crc = c;
+    }
+
+    /**
+     * Returns the CRC-32C value.
+     *
+     * @return the current checksum value
+     */
+    public long getValue() {
+        return ~crc & 0xffffffffL;
+    }
+
+    /**
+     * Resets the checksum to its initial value.
+     */
+    public void reset() {
+        crc = 0xffffffff;
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.io;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Computes a rolling rate from samples of a growing total.
+ * <p>
+ * Samples are taken by the readers of the rate, at most one every eighth of the
+ * window, so the code that increments the total never touches this class. The
+ * rate is measured against the oldest sample that is still inside the window.
+ * <p>
+ * This class is thread-safe; its readers synchronize with each other only.
+ *
+ * @version $Id$
+ * @since 2.5
+ */
+class RateWindow {
+
+    /** The number of samples kept, one more than the number of steps per window. */
+    private static final int SAMPLES = 9;
+
+    /** The length of the window, in nanoseconds. */
+    private final long windowNanos;
+    /** The minimum time between two samples, in nanoseconds. */
+    private final long stepNanos;
+    /** The sample times, a ring starting at <code>first</code>. */
+    private final long[] times = new long[SAMPLES];
+    /** The sampled totals, a ring starting at <code>first</code>. */
+    private final long[] totals = new long[SAMPLES];
+    /** The index of the oldest sample. */
+    private int first;
+    /** The number of samples. */
+    private int size;
+
+    /**
+     * Constructs a window, seeded with a sample of the given total taken now.
+     *
+     * @param windowMillis the length of the window, in milliseconds, positive
+     * @param total the total now
+     * @throws IllegalArgumentException if <code>windowMillis</code> is not positive
+     */
+    RateWindow(final long windowMillis, final long total) {
+        if (windowMillis <= 0) {
+            throw new IllegalArgumentException("Window must be positive: " + windowMillis);
+        }
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+        this.stepNanos = windowNanos / (SAMPLES - 1);
+        times[0] = System.nanoTime();
+        totals[0] = total;
+        size = 1;
+    }
+
+    /**
+     * Returns the length of the window.
+     *
+     * @return the window, in milliseconds
+     */
+    long getWindowMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(windowNanos);
+    }
+
+    /**
+     * Records the given total, if a step has passed since the last sample, and
+     * returns the rate at which the total grew over the window.
+     *
+     * @param total the total now
+     * @return the rate, in units per second, zero if the total did not grow
+     */
+    synchronized double rate(final long total) {
+        final long now = System.nanoTime();
+        final int last = (first + size - 1) % SAMPLES;
+        if (now - times[last] >= stepNanos) {
+            if (size == SAMPLES) {
+                first = (first + 1) % SAMPLES;
+                size--;
+            }
+            final int next = (first + size) % SAMPLES;
+            times[next] = now;
+            totals[next] = total;
+            size++;
+        }
+        // drop samples that have left the window, keeping one to measure against
+        while (size > 1 && now - times[(first + 1) % SAMPLES] >= windowNanos) {
+            first = (first + 1) % SAMPLES;
+            size--;
+        }
+        final long elapsed = now - times[first];
+        final long grown = total - totals[first];
+        if (elapsed <= 0 || grown <= 0) {
+            return 0;
+        }
+        return grown * (double) TimeUnit.SECONDS.toNanos(1) / elapsed;
+    }
+
+}
@@ -0,0 +1,236 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.io.buffer;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Base class for pools that keep buffers in a fixed set of size classes.
+ * <p>
+ * A borrow request is rounded up to the smallest size class that can hold it.
+ * Requests larger than the largest size class are never pooled, and a released
+ * buffer is only kept if its length is exactly one of the size classes.
+ * Subclasses only decide where the buffers of each size class are kept.
+ *
+ * @version $Id$
+ * @since 2.5
+ */
+public abstract class AbstractBufferPool implements BufferPool {
+
+    /**
+     * The default size classes: 4 KB, the default buffer size of <code>IOUtils</code>,
+     * 8 KB and 64 KB.
+     */
+    private static final int[] DEFAULT_SIZE_CLASSES = { 1024 * 4, 1024 * 8, 1024 * 64 };
+
+    /** The buffer lengths that are pooled, in ascending order. */
+    private final int[] sizeClasses;
+    /** The number of borrow requests served from the pool. */
+    private final AtomicLong hits = new AtomicLong();
+    /** The number of borrow requests that needed a new buffer. */
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Constructs a pool using the default size classes of 4 KB, 8 KB and 64 KB.
+     */
+    protected AbstractBufferPool() {
+        this(DEFAULT_SIZE_CLASSES);
+    }
+
+    /**
+     * Constructs a pool using the given size classes.
+     *
+     * @param sizeClasses the buffer lengths to pool, positive and in strictly ascending order
+     * @throws IllegalArgumentException if no size class is given, or they are not
+     * positive and strictly ascending
+     */
+    protected AbstractBufferPool(final int... sizeClasses) {
+        if (sizeClasses == null || sizeClasses.length == 0) {
+            throw new IllegalArgumentException("At least one size class is required");
+        }
+        for (int i = 0; i < sizeClasses.length; i++) {
+            if (sizeClasses[i] <= 0 || i > 0 && sizeClasses[i] <= sizeClasses[i - 1]) {
+                throw new IllegalArgumentException(
+                        "Size classes must be positive and strictly ascending: " + sizeClasses[i]);
+            }
+        }
+        this.sizeClasses = sizeClasses.clone();
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * {@inheritDoc}
+     */
+    public byte[] borrowBytes(final int minLength) {
+        final int sizeClass = sizeClassFor(minLength);
+        if (sizeClass >= 0) {
+            final byte[] buffer = pollBytes(sizeClass);
+            if (buffer != null) {
+                hits.incrementAndGet();
+                return buffer;
+            }
+            misses.incrementAndGet();
+            return new byte[sizeClasses[sizeClass]];
+        }
+        misses.incrementAndGet();
+        return new byte[minLength];
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void releaseBytes(final byte[] buffer) {
+        if (buffer != null) {
+            final int sizeClass = sizeClassOf(buffer.length);
+            if (sizeClass >= 0) {
+                offerBytes(sizeClass, buffer);
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public char[] borrowChars(final int minLength) {
+        final int sizeClass = sizeClassFor(minLength);
+        if (sizeClass >= 0) {
+            final char[] buffer = pollChars(sizeClass);
+            if (buffer != null) {
+                hits.incrementAndGet();
+                return buffer;
+            }
+            misses.incrementAndGet();
+            return new char[sizeClasses[sizeClass]];
+        }
+        misses.incrementAndGet();
+        return new char[minLength];
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void releaseChars(final char[] buffer) {
+        if (buffer != null) {
+            final int sizeClass = sizeClassOf(buffer.length);
+            if (sizeClass >= 0) {
+                offerChars(sizeClass, buffer);
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * Returns the buffer lengths kept by this pool.
+     *
+     * @return a copy of the size classes, in ascending order
+     */
+    public int[] getSizeClasses() {
+        return sizeClasses.clone();
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * Takes a pooled byte buffer of the given size class.
+     *
+     * @param sizeClass the index of the size class
+     * @return a buffer of length <code>getSizeClasses()[sizeClass]</code>, or
+     * {@code null} if none is available
+     */
+    protected abstract byte[] pollBytes(int sizeClass);
+
+    /**
+     * Keeps a byte buffer of the given size class, or discards it if the pool is full.
+     *
+     * @param sizeClass the index of the size class
+     * @param buffer the buffer, of length <code>getSizeClasses()[sizeClass]</code>
+     */
+    protected abstract void offerBytes(int sizeClass, byte[] buffer);
+
+    /**
+     * Takes a pooled char buffer of the given size class.
+     *
+     * @param sizeClass the index of the size class
+     * @return a buffer of length <code>getSizeClasses()[sizeClass]</code>, or
+     * {@code null} if none is available
+     */
+    protected abstract char[] pollChars(int sizeClass);
+
+    /**
+     * Keeps a char buffer of the given size class, or discards it if the pool is full.
+     *
+     * @param sizeClass the index of the size class
+     * @param buffer the buffer, of length <code>getSizeClasses()[sizeClass]</code>
+     */
+    protected abstract void offerChars(int sizeClass, char[] buffer);
+
+    /**
+     * Returns the number of size classes.
+     *
+     * @return the number of size classes
+     */
+    protected int getSizeClassCount() {
+        return sizeClasses.length;
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * Finds the smallest size class that can hold the given length.
+     *
+     * @param minLength the requested length
+     * @return the index of the size class, or -1 if the length exceeds the largest one
+     */
+    private int sizeClassFor(final int minLength) {
+        if (minLength < 0) {
+            throw new IllegalArgumentException("Negative buffer length: " + minLength);
+        }
+        for (int i = 0; i < sizeClasses.length; i++) {
+            if (sizeClasses[i] >= minLength) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Finds the size class of exactly the given length.
+     *
+     * @param length the buffer length
+     * @return the index of the size class, or -1 if the length is not pooled
+     */
+    private int sizeClassOf(final int length) {
+        for (int i = 0; i < sizeClasses.length; i++) {
+            if (sizeClasses[i] == length) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+}
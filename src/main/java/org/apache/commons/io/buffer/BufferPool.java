@@ -0,0 +1,85 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.io.buffer;
+
+/**
+ * A pool of reusable <code>byte</code> and <code>char</code> buffers.
+ * <p>
+ * A buffer obtained from one of the <code>borrow</code> methods is owned by the
+ * caller until it is handed back with the matching <code>release</code> method.
+ * The caller must not use the buffer after releasing it, and the contents of a
+ * borrowed buffer are undefined.
+ * <p>
+ * Implementations must be safe for use by multiple threads.
+ *
+ * @version $Id$
+ * @since 2.5
+ * @see org.apache.commons.io.IOUtils#setBufferPool(BufferPool)
+ */
+public interface BufferPool {
+
+    /**
+     * Borrows a byte buffer of at least the given length.
+     *
+     * @param minLength the minimum length of the buffer, not negative
+     * @return a buffer of at least <code>minLength</code> bytes, never {@code null}
+     * @throws IllegalArgumentException if <code>minLength</code> is negative
+     */
+    byte[] borrowBytes(int minLength);
+
+    /**
+     * Hands a byte buffer back to the pool.
+     * <p>
+     * Buffers that the pool cannot use are discarded. {@code null} is ignored.
+     *
+     * @param buffer the buffer to release
+     */
+    void releaseBytes(byte[] buffer);
+
+    /**
+     * Borrows a char buffer of at least the given length.
+     *
+     * @param minLength the minimum length of the buffer, not negative
+     * @return a buffer of at least <code>minLength</code> chars, never {@code null}
+     * @throws IllegalArgumentException if <code>minLength</code> is negative
+     */
+    char[] borrowChars(int minLength);
+
+    /**
+     * Hands a char buffer back to the pool.
+     * <p>
+     * Buffers that the pool cannot use are discarded. {@code null} is ignored.
+     *
+     * @param buffer the buffer to release
+     */
+    void releaseChars(char[] buffer);
+
+    /**
+     * Returns the number of borrow requests that were served from the pool.
+     *
+     * @return the hit count
+     */
+    long getHitCount();
+
+    /**
+     * Returns the number of borrow requests that needed a new buffer.
+     *
+     * @return the miss count
+     */
+    long getMissCount();
+
+}
@@ -0,0 +1,171 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.io.buffer;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A lock-free {@link BufferPool} shared by all threads.
+ * <p>
+ * Each size class has a fixed number of slots. A thread starts looking for a
+ * buffer, or for a free slot, at a position derived from its id and probes a
+ * few neighbouring slots with compare-and-set, so that threads mostly work on
+ * different slots. A borrow that finds no buffer allocates a new one, and a
+ * release that finds no free slot drops the buffer, so the pool never holds
+ * more than <code>slots</code> buffers of each type and size class.
+ * <p>
+ * Unlike {@link ThreadLocalBufferPool}, buffers released by one thread can be
+ * borrowed by another, which suits thread pools whose threads come and go.
+ *
+ * @version $Id$
+ * @since 2.5
+ */
+public class StripedBufferPool extends AbstractBufferPool {
+
+    /** The maximum number of slots inspected by one borrow or release. */
+    private static final int MAX_PROBES = 8;
+
+    private final AtomicReferenceArray<byte[]>[] byteSlots;
+    private final AtomicReferenceArray<char[]>[] charSlots;
+    private final int slots;
+    private final int probes;
+
+    /**
+     * Constructs a pool using the default size classes of 4 KB, 8 KB and 64 KB
+     * and four slots per available processor.
+     */
+    public StripedBufferPool() {
+        this(Runtime.getRuntime().availableProcessors() * 4);
+    }
+
+    /**
+     * Constructs a pool using the default size classes and the given number of slots.
+     *
+     * @param slots the number of buffers kept per type and size class, positive
+     * @throws IllegalArgumentException if <code>slots</code> is not positive
+     */
+    public StripedBufferPool(final int slots) {
+        super();
+        this.slots = checkSlots(slots);
+        this.probes = Math.min(slots, MAX_PROBES);
+        this.byteSlots = newSlots(getSizeClassCount(), slots);
+        this.charSlots = newSlots(getSizeClassCount(), slots);
+    }
+
+    /**
+     * Constructs a pool using the given number of slots and size classes.
+     *
+     * @param slots the number of buffers kept per type and size class, positive
+     * @param sizeClasses the buffer lengths to pool, positive and in strictly ascending order
+     * @throws IllegalArgumentException if <code>slots</code> is not positive, no size
+     * class is given, or they are not positive and strictly ascending
+     */
+    public StripedBufferPool(final int slots, final int... sizeClasses) {
+        super(sizeClasses);
+        this.slots = checkSlots(slots);
+        this.probes = Math.min(slots, MAX_PROBES);
+        this.byteSlots = newSlots(getSizeClassCount(), slots);
+        this.charSlots = newSlots(getSizeClassCount(), slots);
+    }
+
+    /**
+     * Returns the number of buffers kept per type and size class.
+     *
+     * @return the number of slots
+     */
+    public int getSlots() {
+        return slots;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected byte[] pollBytes(final int sizeClass) {
+        return poll(byteSlots[sizeClass]);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void offerBytes(final int sizeClass, final byte[] buffer) {
+        offer(byteSlots[sizeClass], buffer);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected char[] pollChars(final int sizeClass) {
+        return poll(charSlots[sizeClass]);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void offerChars(final int sizeClass, final char[] buffer) {
+        offer(charSlots[sizeClass], buffer);
+    }
+
+    //-----------------------------------------------------------------------
+    private <T> T poll(final AtomicReferenceArray<T> array) {
+        int index = start();
+        for (int i = 0; i < probes; i++) {
+            final T buffer = array.get(index);
+            if (buffer != null && array.compareAndSet(index, buffer, null)) {
+                return buffer;
+            }
+            index = next(index);
+        }
+        return null;
+    }
+
+    private <T> void offer(final AtomicReferenceArray<T> array, final T buffer) {
+        int index = start();
+        for (int i = 0; i < probes; i++) {
+            if (array.get(index) == null && array.compareAndSet(index, null, buffer)) {
+                return;
+            }
+            index = next(index);
+        }
+    }
+
+    /**
+     * Returns the first slot inspected by the current thread.
+     */
+    private int start() {
+        long id = Thread.currentThread().getId();
+        // mix the bits so that consecutive thread ids do not share a start slot
+        id = (id ^ id >>> 16) * 0x45d9f3b;
+        return (int) ((id ^ id >>> 16) & Integer.MAX_VALUE) % slots;
+    }
+
+    private int next(final int index) {
+        return index + 1 == slots ? 0 : index + 1;
+    }
+
+    private static int checkSlots(final int slots) {
+        if (slots <= 0) {
+            throw new IllegalArgumentException("Slots must be positive: " + slots);
+        }
+        return slots;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> AtomicReferenceArray<T>[] newSlots(final int sizeClassCount, final int slots) {
+        final AtomicReferenceArray<T>[] result = new AtomicReferenceArray[sizeClassCount];
+        for (int i = 0; i < sizeClassCount; i++) {
+            result[i] = new AtomicReferenceArray<T>(slots);
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.io.buffer;
+
+/**
+ * A {@link BufferPool} that keeps one byte buffer and one char buffer of each
+ * size class per thread.
+ * <p>
+ * Borrowing and releasing never contend with other threads. A thread that
+ * borrows a second buffer of the same size class before releasing the first
+ * gets a newly allocated one. The buffers of a thread are only reclaimed when
+ * the thread ends, so this pool suits a bounded set of long-lived threads.
+ *
+ * @version $Id$
+ * @since 2.5
+ */
+public class ThreadLocalBufferPool extends AbstractBufferPool {
+
+    /**
+     * The buffers kept for one thread.
+     */
+    private static final class Cache {
+        private final byte[][] bytes;
+        private final char[][] chars;
+
+        Cache(final int sizeClassCount) {
+            bytes = new byte[sizeClassCount][];
+            chars = new char[sizeClassCount][];
+        }
+    }
+
+    private final ThreadLocal<Cache> caches = new ThreadLocal<Cache>() {
+        @Override
+        protected Cache initialValue() {
+            return new Cache(getSizeClassCount());
+        }
+    };
+
+    /**
+     * Constructs a pool using the default size classes of 4 KB, 8 KB and 64 KB.
+     */
+    public ThreadLocalBufferPool() {
+        super();
+    }
+
+    /**
+     * Constructs a pool using the given size classes.
+     *
+     * @param sizeClasses the buffer lengths to pool, positive and in strictly ascending order
+     * @throws IllegalArgumentException if no size class is given, or they are not
+     * positive and strictly ascending
+     */
+    public ThreadLocalBufferPool(final int... sizeClasses) {
+        super(sizeClasses);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected byte[] pollBytes(final int sizeClass) {
+        final Cache cache = caches.get();
+        final byte[] buffer = cache.bytes[sizeClass];
+        cache.bytes[sizeClass] = null;
+        return buffer;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void offerBytes(final int sizeClass, final byte[] buffer) {
+        caches.get().bytes[sizeClass] = buffer;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected char[] pollChars(final int sizeClass) {
+        final Cache cache = caches.get();
+        final char[] buffer = cache.chars[sizeClass];
+        cache.chars[sizeClass] = null;
+        return buffer;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void offerChars(final int sizeClass, final char[] buffer) {
+        caches.get().chars[sizeClass] = buffer;
+    }
+
+}
@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.io.buffer;
+
+/**
+ * A {@link BufferPool} that keeps nothing: every borrow allocates a new buffer
+ * of exactly the requested length and released buffers are left to the garbage
+ * collector.
+ * <p>
+ * This is the default pool of <code>IOUtils</code>. It does not count hits or
+ * misses, so that the default copy path does not touch any shared state.
+ *
+ * @version $Id$
+ * @since 2.5
+ */
+public class UnpooledBufferPool implements BufferPool {
+
+    /** Singleton instance. */
+    public static final UnpooledBufferPool INSTANCE = new UnpooledBufferPool();
+
+    /**
+     * Restrictive constructor.
+     */
+    protected UnpooledBufferPool() {
+    }
+
+    /**
+     * Allocates a new byte buffer.
+     *
+     * @param minLength the length of the buffer
+     * @return a new buffer of exactly <code>minLength</code> bytes
+     * @throws IllegalArgumentException if <code>minLength</code> is negative
+     */
+    public byte[] borrowBytes(final int minLength) {
+        checkLength(minLength);
+        return new byte[minLength];
+    }
+
+    /**
+     * Does nothing.
+     *
+     * @param buffer ignored
+     */
+    public void releaseBytes(final byte[] buffer) {
+    }
+
+    /**
+     * Allocates a new char buffer.
+     *
+     * @param minLength the length of the buffer
+     * @return a new buffer of exactly <code>minLength</code> chars
+     * @throws IllegalArgumentException if <code>minLength</code> is negative
+     */
+    public char[] borrowChars(final int minLength) {
+        checkLength(minLength);
+        return new char[minLength];
+    }
+
+    /**
+     * Does nothing.
+     *
+     * @param buffer ignored
+     */
+    public void releaseChars(final char[] buffer) {
+    }
+
+    /**
+     * Always returns zero.
+     *
+     * @return zero
+     */
+    public long getHitCount() {
+        return 0;
+    }
+
+    /**
+     * Always returns zero, as this pool does not count.
+     *
+     * @return zero
+     */
+    public long getMissCount() {
+        return 0;
+    }
+
+    private static void checkLength(final int length) {
+        if (length < 0) {
+            throw new IllegalArgumentException("Negative buffer length: " + length);
+        }
+    }
+
+}
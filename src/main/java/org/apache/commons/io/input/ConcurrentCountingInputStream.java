@@ -0,0 +1,179 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.io.input;
+
+import static org.apache.commons.io.IOUtils.EOF;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.commons.io.ByteCounter;
+import org.apache.commons.io.ByteCounterRegistry;
+
+/**
+ * A decorating input stream that counts the number of bytes that have passed
+ * through the stream so far, and whose count can be read by other threads
+ * without blocking the reading thread.
+ * <p>
+ * Unlike {@link CountingInputStream}, no method of this class is synchronized.
+ * The count is kept in a {@link ByteCounter}, which also measures a rolling rate,
+ * and the stream can add its counter to a {@link ByteCounterRegistry} that
+ * samples the throughput of many streams together. The counter is removed from
+ * the registry when the stream is closed.
+ *
+ * @version $Id$
+ * @since 2.5
+ */
+public class ConcurrentCountingInputStream extends ProxyInputStream {
+
+    /** The count of bytes that have passed. */
+    private final ByteCounter counter;
+
+    /** The registry the counter was added to, or {@code null}. */
+    private final ByteCounterRegistry registry;
+
+    /** Whether the counter is still to be removed from the registry. */
+    private boolean registered;
+
+    /**
+     * Constructs a new ConcurrentCountingInputStream.
+     *
+     * @param in  the InputStream to delegate to
+     */
+    public ConcurrentCountingInputStream(final InputStream in) {
+        this(in, new ByteCounter(), null);
+    }
+
+    /**
+     * Constructs a new ConcurrentCountingInputStream whose counter is added to the
+     * given registry until the stream is closed.
+     *
+     * @param in  the InputStream to delegate to
+     * @param registry  the registry to add the counter to, or {@code null} for none
+     */
+    public ConcurrentCountingInputStream(final InputStream in, final ByteCounterRegistry registry) {
+        this(in, new ByteCounter(), registry);
+    }
+
+    /**
+     * Constructs a new ConcurrentCountingInputStream that counts with the given
+     * counter, which may be shared with other streams.
+     *
+     * @param in  the InputStream to delegate to
+     * @param counter  the counter to use, not {@code null}
+     * @param registry  the registry to add the counter to, or {@code null} for none
+     */
+    public ConcurrentCountingInputStream(final InputStream in, final ByteCounter counter,
+            final ByteCounterRegistry registry) {
+        super(in);
+        if (counter == null) {
+            throw new NullPointerException("counter");
+        }
+        this.counter = counter;
+        this.registry = registry;
+        if (registry != null) {
+            registry.add(counter);
+            registered = true;
+        }
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * Skips the stream over the specified number of bytes, adding the skipped
+     * amount to the count.
+     *
+     * @param length  the number of bytes to skip
+     * @return the actual number of bytes skipped
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    public long skip(final long length) throws IOException {
+        final long skip = super.skip(length);
+        counter.add(skip);
+        return skip;
+    }
+
+    /**
+     * Adds the number of read bytes to the count.
+     *
+     * @param n number of bytes read, or -1 if no more bytes are available
+     */
+    @Override
+    protected void afterRead(final int n) {
+        if (n != EOF) {
+            counter.add(n);
+        }
+    }
+
+    /**
+     * Closes the stream and removes the counter from the registry, if any.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            super.close();
+        } finally {
+            // once per stream, as a shared counter is added once per stream
+            if (registered) {
+                registered = false;
+                registry.remove(counter);
+            }
+        }
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * Returns the counter, for example to read its total or to share it.
+     *
+     * @return the counter
+     */
+    public ByteCounter getCounter() {
+        return counter;
+    }
+
+    /**
+     * The number of bytes that have passed through this stream.
+     *
+     * @return the number of bytes accumulated
+     */
+    public long getByteCount() {
+        return counter.getByteCount();
+    }
+
+    /**
+     * Set the byte count back to 0.
+     *
+     * @return the count previous to resetting
+     */
+    public long resetByteCount() {
+        return counter.resetByteCount();
+    }
+
+    /**
+     * The rate at which bytes passed through this stream over the counter's
+     * rate window.
+     *
+     * @return the rate, in bytes per second
+     * @see ByteCounter#getBytesPerSecond()
+     */
+    public double getBytesPerSecond() {
+        return counter.getBytesPerSecond();
+    }
+
+}
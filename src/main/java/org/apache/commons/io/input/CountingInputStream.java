@@ -27,6 +27,9 @@ import java.io.InputStream;
  * <p>
  * A typical use case would be during debugging, to ensure that data is being
  * read as expected.
+ * <p>
+ * The count is guarded by this stream's lock. Where other threads poll the count
+ * while the stream is in use, {@link ConcurrentCountingInputStream} avoids the locking.
  *
  * @version $Id$
  */
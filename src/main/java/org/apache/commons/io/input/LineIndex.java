@@ -0,0 +1,644 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.io.input;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * A sparse index of the line offsets of a text file, to read lines from the
+ * middle of a large file without reading it from the start.
+ * <p>
+ * The index holds the position of about every <i>interval</i>-th line.
+ * {@link #readLines(long, int, Charset)} seeks to the indexed line at or
+ * before the first line requested and reads forward from there, so it reads
+ * at most about two intervals of lines more than requested. Lines are ended
+ * by LF, CR or CR LF, as {@link BufferedReader#readLine()} ends them, and the
+ * file must be in an encoding in which those are single bytes that do not
+ * occur inside another character, such as a single byte encoding or UTF-8.
+ * <p>
+ * The index is built by scanning the file in chunks, which can be scanned in
+ * parallel by an {@link ExecutorService}. When the file grows, {@link #update}
+ * scans only the new content; when it is truncated or replaced, the index is
+ * rebuilt. {@link #open(File, int, ExecutorService)} loads the index saved
+ * beside the file, brings it up to date and saves it again:
+ * <pre>
+ * LineIndex index = LineIndex.open(logFile, 1000, executor);
+ * List&lt;String&gt; page = index.readLines(1500000, 50, Charsets.UTF_8);
+ * </pre>
+ * <p>
+ * Only complete lines are counted; the content after the last line
+ * terminator is indexed once it is terminated, but can be read before.
+ * Instances are thread-safe.
+ *
+ * @version $Id$
+ * @since 2.5
+ */
+public final class LineIndex {
+
+    /** The suffix of the name of the file an index is saved to by default. */
+    public static final String INDEX_FILE_SUFFIX = ".lineindex";
+
+    /** The default size of the chunks scanned by one task. */
+    static final long CHUNK_SIZE = 16 * 1024 * 1024;
+
+    private static final int MAGIC = 0x434c4958; // "CLIX"
+    private static final int VERSION = 1;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    /** The length of the saved header, before the entries. */
+    private static final int HEADER_LENGTH = 44;
+    /** The length of a saved entry: its line and offset. */
+    private static final int ENTRY_LENGTH = 16;
+
+    private final File file;
+    private final int interval;
+    /** The lines indexed, in increasing order, starting with line 0. */
+    private long[] lines;
+    /** The position of each indexed line. */
+    private long[] offsets;
+    private int size;
+    /** The number of complete lines. */
+    private long lineCount;
+    /** The position after the last complete line. */
+    private long indexedLength;
+    private long fingerprint;
+    private int fingerprintLength;
+    /** The size of the chunks scanned by one task, smaller in tests. */
+    long chunkSize = CHUNK_SIZE;
+
+    /**
+     * Constructs an empty index, brought up to date by {@link #update}.
+     *
+     * @param file the file to index
+     * @param interval the number of lines between indexed lines
+     */
+    LineIndex(final File file, final int interval) {
+        if (interval < 1) {
+            throw new IllegalArgumentException("Interval must be positive: " + interval);
+        }
+        this.file = file;
+        this.interval = interval;
+        clear();
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * Builds the index of a file.
+     *
+     * @param file the file to index
+     * @param interval the number of lines between indexed lines
+     * @param executor the executor to scan chunks of the file in parallel, null to scan in the calling thread
+     * @return the index
+     * @throws IOException if the file cannot be read
+     */
+    public static LineIndex build(final File file, final int interval, final ExecutorService executor)
+            throws IOException {
+        final LineIndex index = new LineIndex(file, interval);
+        index.update(executor);
+        return index;
+    }
+
+    /**
+     * Opens the index saved beside a file with {@link #save()}, brings it up
+     * to date, and saves it if it changed. If there is no saved index, or it
+     * has another interval or cannot be read, the index is built.
+     *
+     * @param file the file to index
+     * @param interval the number of lines between indexed lines
+     * @param executor the executor to scan chunks of the file in parallel, null to scan in the calling thread
+     * @return the index
+     * @throws IOException if the file cannot be read or the index cannot be saved
+     */
+    public static LineIndex open(final File file, final int interval, final ExecutorService executor)
+            throws IOException {
+        LineIndex index = null;
+        try {
+            index = load(file, getIndexFile(file));
+        } catch (final IOException ex) {
+            // corrupt or from another version: rebuild
+        }
+        if (index == null || index.interval != interval) {
+            index = new LineIndex(file, interval);
+        }
+        if (index.update(executor)) {
+            index.save();
+        }
+        return index;
+    }
+
+    /**
+     * Returns the file an index is saved to by default: the file name
+     * followed by {@link #INDEX_FILE_SUFFIX}, beside the file.
+     *
+     * @param file the indexed file
+     * @return the index file
+     */
+    public static File getIndexFile(final File file) {
+        return new File(file.getPath() + INDEX_FILE_SUFFIX);
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * Returns the indexed file.
+     *
+     * @return the file
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Returns the number of lines between indexed lines.
+     *
+     * @return the interval
+     */
+    public int getInterval() {
+        return interval;
+    }
+
+    /**
+     * Returns the number of complete lines in the file when last updated.
+     *
+     * @return the line count
+     */
+    public synchronized long getLineCount() {
+        return lineCount;
+    }
+
+    /**
+     * Returns the position after the last complete line in the file when
+     * last updated.
+     *
+     * @return the length indexed
+     */
+    public synchronized long getIndexedLength() {
+        return indexedLength;
+    }
+
+    /**
+     * Brings the index up to date with the file: scans the content added
+     * since the last update, or rebuilds the index if the file was truncated
+     * or replaced.
+     *
+     * @param executor the executor to scan chunks of the file in parallel, null to scan in the calling thread
+     * @return true if the index changed
+     * @throws IOException if the file cannot be read
+     */
+    public synchronized boolean update(final ExecutorService executor) throws IOException {
+        final RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            final FileChannel channel = raf.getChannel();
+            final long length = channel.size();
+            boolean rebuilt = false;
+            if (length < indexedLength
+                    || TailerCheckpoint.fingerprint(channel, fingerprintLength) != fingerprint) {
+                clear();
+                rebuilt = true;
+            }
+            if (fingerprintLength < TailerCheckpoint.FINGERPRINT_SIZE && length > fingerprintLength) {
+                fingerprintLength = (int) Math.min(TailerCheckpoint.FINGERPRINT_SIZE, length);
+                fingerprint = TailerCheckpoint.fingerprint(channel, fingerprintLength);
+            }
+            if (length == indexedLength) {
+                return rebuilt;
+            }
+            final long oldLength = indexedLength;
+            scan(channel, indexedLength, length, executor);
+            return rebuilt || indexedLength != oldLength;
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * Returns the position in the file of a line, reading forward from the
+     * indexed line at or before it.
+     *
+     * @param line the line number, starting at 0
+     * @return the position, -1 if the file has fewer lines
+     * @throws IOException if the file cannot be read
+     */
+    public long getOffset(final long line) throws IOException {
+        if (line < 0) {
+            throw new IllegalArgumentException("Line must not be negative: " + line);
+        }
+        final long entryLine;
+        final long entryOffset;
+        synchronized (this) {
+            final int entry = find(line);
+            entryLine = lines[entry];
+            entryOffset = offsets[entry];
+        }
+        if (entryLine == line) {
+            return entryOffset;
+        }
+        final RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            final ChunkScan scan = new ChunkScan(raf.getChannel(), entryOffset, raf.length(), raf.length(), 0,
+                    Integer.MAX_VALUE);
+            scan.scan(line - entryLine);
+            return scan.count == line - entryLine ? scan.lastLineStart : -1;
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * Reads lines from the file.
+     *
+     * @param from the number of the first line to read, starting at 0
+     * @param count the maximum number of lines to read
+     * @param charset the encoding of the file
+     * @return the lines, fewer than requested at the end of the file
+     * @throws IOException if the file cannot be read
+     * @throws UnsupportedEncodingException if LF and CR are not single bytes in the encoding
+     */
+    public List<String> readLines(final long from, final int count, final Charset charset) throws IOException {
+        if (from < 0 || count < 0) {
+            throw new IllegalArgumentException("Invalid line range: " + from + ", " + count);
+        }
+        if (!isSingleByte("\n", charset) || !isSingleByte("\r", charset)) {
+            throw new UnsupportedEncodingException("Line terminators are not single bytes in " + charset);
+        }
+        final long entryLine;
+        final long entryOffset;
+        synchronized (this) {
+            final int entry = find(from);
+            entryLine = lines[entry];
+            entryOffset = offsets[entry];
+        }
+        final List<String> result = new ArrayList<String>(Math.min(count, 1024));
+        final FileInputStream in = new FileInputStream(file);
+        try {
+            in.getChannel().position(entryOffset);
+            final BufferedReader reader = new BufferedReader(new InputStreamReader(in, charset));
+            for (long skip = from - entryLine; skip > 0; skip--) {
+                if (reader.readLine() == null) {
+                    return result;
+                }
+            }
+            String line;
+            while (result.size() < count && (line = reader.readLine()) != null) {
+                result.add(line);
+            }
+            return result;
+        } finally {
+            IOUtils.closeQuietly(in);
+        }
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * Saves the index beside the file, to the {@link #getIndexFile(File) index file}.
+     *
+     * @throws IOException if the index cannot be written
+     */
+    public void save() throws IOException {
+        save(getIndexFile(file));
+    }
+
+    /**
+     * Saves the index. The index is written under a temporary name and then
+     * renamed, so that a crash while saving leaves the previous index in place.
+     *
+     * @param indexFile the file to save to
+     * @throws IOException if the index cannot be written
+     */
+    public synchronized void save(final File indexFile) throws IOException {
+        final File temp = new File(indexFile.getPath() + ".tmp");
+        final FileOutputStream fos = new FileOutputStream(temp);
+        try {
+            final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(interval);
+            out.writeLong(lineCount);
+            out.writeLong(indexedLength);
+            out.writeInt(fingerprintLength);
+            out.writeLong(fingerprint);
+            out.writeInt(size);
+            for (int i = 0; i < size; i++) {
+                out.writeLong(lines[i]);
+                out.writeLong(offsets[i]);
+            }
+            out.flush();
+            fos.getFD().sync();
+        } finally {
+            IOUtils.closeQuietly(fos);
+        }
+        if (!temp.renameTo(indexFile)) {
+            // some platforms do not rename over an existing file
+            indexFile.delete();
+            if (!temp.renameTo(indexFile)) {
+                throw new IOException("Cannot rename " + temp + " to " + indexFile);
+            }
+        }
+    }
+
+    /**
+     * Loads an index saved with {@link #save(File)}. The index is not brought
+     * up to date with the file.
+     *
+     * @param file the indexed file
+     * @param indexFile the file the index was saved to
+     * @return the index, null if the index file does not exist
+     * @throws IOException if the index file cannot be read or is not a valid index
+     */
+    public static LineIndex load(final File file, final File indexFile) throws IOException {
+        final DataInputStream in;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)));
+        } catch (final FileNotFoundException ex) {
+            return null;
+        }
+        try {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a line index: " + indexFile);
+            }
+            final int interval = in.readInt();
+            final long lineCount = in.readLong();
+            final long indexedLength = in.readLong();
+            final int fingerprintLength = in.readInt();
+            final long fingerprint = in.readLong();
+            final int size = in.readInt();
+            if (interval < 1 || lineCount < 0 || indexedLength < 0
+                    || fingerprintLength < 0 || fingerprintLength > TailerCheckpoint.FINGERPRINT_SIZE
+                    || size < 1 || size > (indexFile.length() - HEADER_LENGTH) / ENTRY_LENGTH) {
+                throw new IOException("Invalid line index header: " + indexFile);
+            }
+            final LineIndex index = new LineIndex(file, interval);
+            index.lineCount = lineCount;
+            index.indexedLength = indexedLength;
+            index.fingerprintLength = fingerprintLength;
+            index.fingerprint = fingerprint;
+            index.lines = new long[size];
+            index.offsets = new long[size];
+            index.size = size;
+            for (int i = 0; i < size; i++) {
+                final long line = in.readLong();
+                final long offset = in.readLong();
+                // line 0 at offset 0 first, then increasing lines at increasing offsets within the counts
+                if (i == 0 ? line != 0 || offset != 0
+                        : line <= index.lines[i - 1] || offset <= index.offsets[i - 1]
+                        || line > lineCount || offset > indexedLength) {
+                    throw new IOException("Invalid line index entry " + i + ": " + indexFile);
+                }
+                index.lines[i] = line;
+                index.offsets[i] = offset;
+            }
+            return index;
+        } finally {
+            IOUtils.closeQuietly(in);
+        }
+    }
+
+    /**
+     * Returns a string representation of this index.
+     *
+     * @return a string representation
+     */
+    @Override
+    public synchronized String toString() {
+        return getClass().getSimpleName() + "[file=" + file + ", interval=" + interval + ", lines=" + lineCount
+                + ", indexedLength=" + indexedLength + ", entries=" + size + "]";
+    }
+
+    //-----------------------------------------------------------------------
+    private void clear() {
+        lines = new long[16];
+        offsets = new long[16];
+        size = 1; // line 0 at offset 0
+        lineCount = 0;
+        indexedLength = 0;
+        fingerprint = 0; // the checksum of nothing
+        fingerprintLength = 0;
+    }
+
+    /**
+     * Finds the last entry at or before a line.
+     *
+     * @param line the line
+     * @return the index of the entry
+     */
+    private int find(final long line) {
+        int low = 0;
+        int high = size - 1;
+        while (low < high) {
+            final int mid = (low + high + 1) >>> 1;
+            if (lines[mid] <= line) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    private void add(final long line, final long offset) {
+        if (size == lines.length) {
+            final long[] newLines = new long[size << 1];
+            final long[] newOffsets = new long[size << 1];
+            System.arraycopy(lines, 0, newLines, 0, size);
+            System.arraycopy(offsets, 0, newOffsets, 0, size);
+            lines = newLines;
+            offsets = newOffsets;
+        }
+        lines[size] = line;
+        offsets[size] = offset;
+        size++;
+    }
+
+    /**
+     * Scans new content in chunks and adds its lines to the index.
+     *
+     * @param channel the channel of the file
+     * @param start the position after the last complete line
+     * @param end the length of the file
+     * @param executor the executor, null to scan in the calling thread
+     * @throws IOException if the file cannot be read
+     */
+    private void scan(final FileChannel channel, final long start, final long end, final ExecutorService executor)
+            throws IOException {
+        final List<ChunkScan> chunks = new ArrayList<ChunkScan>();
+        // the first chunk knows its first line, so its entries fall on multiples of the interval
+        final int phase = (int) (lineCount % interval);
+        for (long chunkStart = start; chunkStart < end; chunkStart += chunkSize) {
+            chunks.add(new ChunkScan(channel, chunkStart, Math.min(end, chunkStart + chunkSize), end,
+                    chunks.isEmpty() ? phase : 0, interval));
+        }
+        if (executor == null || chunks.size() == 1) {
+            for (final ChunkScan chunk : chunks) {
+                chunk.scan(Long.MAX_VALUE);
+            }
+        } else {
+            final List<Future<?>> futures = new ArrayList<Future<?>>();
+            for (final ChunkScan chunk : chunks) {
+                futures.add(executor.submit(chunk));
+            }
+            for (final Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (final InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while indexing " + file);
+                } catch (final ExecutionException ex) {
+                    if (ex.getCause() instanceof IOException) {
+                        throw (IOException) ex.getCause();
+                    }
+                    throw new IOException(ex.getCause());
+                }
+            }
+        }
+        for (final ChunkScan chunk : chunks) {
+            for (int i = 0; i < chunk.size; i++) {
+                add(lineCount + chunk.lines[i], chunk.offsets[i]);
+            }
+            lineCount += chunk.count;
+            if (chunk.count > 0) {
+                indexedLength = chunk.lastLineStart;
+            }
+        }
+    }
+
+    private static boolean isSingleByte(final String terminator, final Charset charset) {
+        final byte[] bytes = terminator.getBytes(charset);
+        return bytes.length == 1 && bytes[0] == terminator.charAt(0);
+    }
+
+    /**
+     * Scans a chunk of the file for line terminators.
+     */
+    private static final class ChunkScan implements Callable<Void> {
+
+        private final FileChannel channel;
+        private final long start;
+        private final long end;
+        private final long fileEnd;
+        private final int phase;
+        private final int interval;
+        /** The number of lines ended in the chunk. */
+        long count;
+        /** The position after the last line ended, the start of the line after it. */
+        long lastLineStart = -1;
+        /** The numbers, counted from the chunk start, of the lines indexed. */
+        long[] lines = new long[16];
+        long[] offsets = new long[16];
+        int size;
+
+        ChunkScan(final FileChannel channel, final long start, final long end, final long fileEnd,
+                final int phase, final int interval) {
+            this.channel = channel;
+            this.start = start;
+            this.end = end;
+            this.fileEnd = fileEnd;
+            this.phase = phase;
+            this.interval = interval;
+        }
+
+        public Void call() throws IOException {
+            scan(Long.MAX_VALUE);
+            return null;
+        }
+
+        /**
+         * Scans the chunk. A line ends at a LF, and at a CR not followed by
+         * a LF; a CR at the end of the file is not known to end a line yet.
+         *
+         * @param maxLines the number of lines after which to stop
+         * @throws IOException if the file cannot be read
+         */
+        void scan(final long maxLines) throws IOException {
+            final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            final byte[] bytes = buffer.array();
+            long position = start;
+            while (position < end) {
+                buffer.clear();
+                buffer.limit((int) Math.min(BUFFER_SIZE, end - position));
+                final int read = channel.read(buffer, position);
+                if (read <= 0) {
+                    return; // truncated meanwhile
+                }
+                for (int i = 0; i < read; i++) {
+                    final byte b = bytes[i];
+                    if (b != '\n' && b != '\r') {
+                        continue;
+                    }
+                    final long next = position + i + 1;
+                    if (b == '\r') {
+                        if (next == fileEnd) {
+                            return;
+                        }
+                        final byte following;
+                        if (i + 1 < read) {
+                            following = bytes[i + 1];
+                        } else {
+                            final ByteBuffer one = ByteBuffer.allocate(1);
+                            if (channel.read(one, next) <= 0) {
+                                return;
+                            }
+                            following = one.get(0);
+                        }
+                        if (following == '\n') {
+                            continue; // ended by the LF
+                        }
+                    }
+                    count++;
+                    lastLineStart = next;
+                    if ((phase + count) % interval == 0) {
+                        if (size == lines.length) {
+                            final long[] newLines = new long[size << 1];
+                            final long[] newOffsets = new long[size << 1];
+                            System.arraycopy(lines, 0, newLines, 0, size);
+                            System.arraycopy(offsets, 0, newOffsets, 0, size);
+                            lines = newLines;
+                            offsets = newOffsets;
+                        }
+                        lines[size] = count;
+                        offsets[size] = next;
+                        size++;
+                    }
+                    if (count == maxLines) {
+                        return;
+                    }
+                }
+                position += read;
+            }
+        }
+    }
+}
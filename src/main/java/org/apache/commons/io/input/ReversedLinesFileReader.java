@@ -21,6 +21,8 @@ import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.CharsetEncoder;
 import java.nio.charset.UnsupportedCharsetException;
@@ -30,6 +32,11 @@ import org.apache.commons.io.Charsets;
 /**
  * Reads lines in a file reversely (similar to a BufferedReader, but starting at
  * the last line). Useful for e.g. searching in log files.
+ * <p>
+ * For encodings in which CR and LF are single bytes that never occur inside
+ * another character, such as the single byte encodings, UTF-8 and Shift_JIS,
+ * the file is read block by block into one reused buffer with positional
+ * reads, and line terminators are searched for eight bytes at a time.
  *
  * @since 2.2
  */
@@ -49,6 +56,21 @@ public class ReversedLinesFileReader implements Closeable {
 
     private FilePart currentFilePart;
 
+    /** The channel of the file, used when the line terminators are single bytes. */
+    private final FileChannel channel;
+
+    /** The buffer holding the unread part of the current line, preceded by the block read before it. */
+    private byte[] buffer;
+
+    /** A view of {@link #buffer} to read eight bytes at a time. */
+    private ByteBuffer bufferView;
+
+    /** The position in the file of the first byte of {@link #buffer}. */
+    private long bufferStart;
+
+    /** The index in {@link #buffer} after the last unread byte. */
+    private int bufferEnd;
+
     private boolean trailingNewlineOfFileSkipped = false;
 
     /**
@@ -108,8 +130,6 @@ public class ReversedLinesFileReader implements Closeable {
                 lastBlockLength = blockSize;
             }
         }
-        currentFilePart = new FilePart(totalBlockCount, lastBlockLength, null);
-
         // --- check & prepare encoding ---
         final Charset charset = Charsets.toCharset(encoding);
         final CharsetEncoder charsetEncoder = charset.newEncoder();
@@ -138,6 +158,21 @@ public class ReversedLinesFileReader implements Closeable {
         newLineSequences = new byte[][] { "\r\n".getBytes(encoding), "\n".getBytes(encoding), "\r".getBytes(encoding) };
 
         avoidNewlineSplitBufferSize = newLineSequences[0].length;
+
+        if (byteDecrement == 1 && isByte(newLineSequences[1], '\n') && isByte(newLineSequences[2], '\r')) {
+            channel = randomAccessFile.getChannel();
+            buffer = new byte[blockSize];
+            bufferView = ByteBuffer.wrap(buffer);
+            bufferStart = totalByteLength;
+            bufferEnd = 0;
+        } else {
+            channel = null;
+            currentFilePart = new FilePart(totalBlockCount, lastBlockLength, null);
+        }
+    }
+
+    private static boolean isByte(final byte[] sequence, final char ch) {
+        return sequence.length == 1 && sequence[0] == ch;
     }
 
     /**
@@ -167,6 +202,24 @@ public class ReversedLinesFileReader implements Closeable {
      */
     public String readLine() throws IOException {
 
+        String line = channel != null ? readLineFromBuffer() : readLineFromFileParts();
+
+        // aligned behaviour with BufferedReader that doesn't return a last, empty line
+        if("".equals(line) && !trailingNewlineOfFileSkipped) {
+            trailingNewlineOfFileSkipped = true;
+            line = readLine();
+        }
+
+        return line;
+    }
+
+    /**
+     * Reads the previous line through the file parts.
+     *
+     * @return the line or null if the start of the file is reached
+     * @throws IOException  if an I/O error occurs
+     */
+    private String readLineFromFileParts() throws IOException {
         String line = currentFilePart.readLine();
         while (line == null) {
             currentFilePart = currentFilePart.rollOver();
@@ -177,14 +230,105 @@ public class ReversedLinesFileReader implements Closeable {
                 break;
             }
         }
+        return line;
+    }
 
-        // aligned behaviour with BufferedReader that doesn't return a last, empty line
-        if("".equals(line) && !trailingNewlineOfFileSkipped) {
-            trailingNewlineOfFileSkipped = true;
-            line = readLine();
+    /**
+     * Reads the previous line when CR and LF are single bytes, reading blocks
+     * into the buffer as needed.
+     *
+     * @return the line or null if the start of the file is reached
+     * @throws IOException  if an I/O error occurs
+     */
+    private String readLineFromBuffer() throws IOException {
+        int i = bufferEnd - 1;
+        while (true) {
+            i = lastIndexOfNewLine(i);
+            // a LF at the start of the buffer may be preceded by a CR in the previous block
+            if (bufferStart > 0 && (i < 0 || i == 0 && buffer[0] == '\n')) {
+                i += readPreviousBlock();
+                continue;
+            }
+            if (i < 0) {
+                if (bufferEnd == 0) {
+                    return null;
+                }
+                // the first line of the file
+                final String line = new String(buffer, 0, bufferEnd, encoding);
+                bufferEnd = 0;
+                return line;
+            }
+            final String line = new String(buffer, i + 1, bufferEnd - i - 1, encoding);
+            // match \r\n before \n and \r, as newLineSequences does
+            bufferEnd = buffer[i] == '\n' && i > 0 && buffer[i - 1] == '\r' ? i - 1 : i;
+            return line;
         }
+    }
 
-        return line;
+    /**
+     * Finds the last CR or LF in the buffer at or before an index, testing
+     * eight bytes at a time where possible.
+     *
+     * @param from the index to search backwards from
+     * @return the index of the CR or LF, -1 if none
+     */
+    private int lastIndexOfNewLine(int from) {
+        while (from >= 0) {
+            if (from >= 7 && !hasNewLine(bufferView.getLong(from - 7))) {
+                from -= 8;
+                continue;
+            }
+            final byte b = buffer[from];
+            if (b == '\n' || b == '\r') {
+                return from;
+            }
+            from--;
+        }
+        return -1;
+    }
+
+    /**
+     * Indicates whether any of the eight bytes of a word is a CR or a LF.
+     *
+     * @param word the bytes
+     * @return true if a byte is a CR or a LF
+     */
+    private static boolean hasNewLine(final long word) {
+        final long lf = word ^ 0x0A0A0A0A0A0A0A0AL;
+        final long cr = word ^ 0x0D0D0D0D0D0D0D0DL;
+        // a byte of lf or cr is zero where word has a LF or a CR
+        return (((lf - 0x0101010101010101L) & ~lf | (cr - 0x0101010101010101L) & ~cr) & 0x8080808080808080L) != 0;
+    }
+
+    /**
+     * Reads the block before the buffered bytes into the start of the
+     * buffer, moving the unread bytes after it.
+     *
+     * @return the number of bytes read, by which the unread bytes were moved
+     * @throws IOException  if an I/O error occurs
+     */
+    private int readPreviousBlock() throws IOException {
+        final long start = (bufferStart - 1) / blockSize * blockSize;
+        final int length = (int) (bufferStart - start);
+        if (length + bufferEnd > buffer.length) {
+            // a line longer than a block
+            final byte[] newBuffer = new byte[Math.max(length + bufferEnd, buffer.length << 1)];
+            System.arraycopy(buffer, 0, newBuffer, length, bufferEnd);
+            buffer = newBuffer;
+            bufferView = ByteBuffer.wrap(buffer);
+        } else {
+            System.arraycopy(buffer, 0, buffer, length, bufferEnd);
+        }
+        bufferView.limit(length).position(0);
+        while (bufferView.hasRemaining()) {
+            if (channel.read(bufferView, start + bufferView.position()) < 0) {
+                throw new IllegalStateException("Count of requested bytes and actually read bytes don't match");
+            }
+        }
+        bufferView.clear();
+        bufferStart = start;
+        bufferEnd += length;
+        return length;
     }
 
     /**
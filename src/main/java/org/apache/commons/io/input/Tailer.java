@@ -16,14 +16,18 @@
  */
 package org.apache.commons.io.input;
 
-import static org.apache.commons.io.IOUtils.EOF;
-
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
@@ -46,6 +50,20 @@ import org.apache.commons.io.IOUtils;
  *      }
  *  }</pre>
  *
+ * <p>
+ * A listener that also implements {@link TailerCharSequenceListener} receives
+ * each line as a {@link CharSequence} view of a buffer that is reused for the
+ * next line, so that no objects are allocated per line.
+ * </p>
+ *
+ * <p>
+ * A listener that implements {@link TailerBatchListener} instead receives the
+ * complete lines of each read in batches, with the positions in the file where
+ * each batch starts and ends. The size of the batches, and the time a line may
+ * wait for its batch to fill up while a large amount of content is read, are
+ * limited by {@link #setMaxBatchSize(int)} and {@link #setMaxBatchLatency(long)}.
+ * </p>
+ *
  * <h2>2. Using a Tailer</h2>
  *
  * <p>
@@ -64,6 +82,11 @@ import org.apache.commons.io.IOUtils;
  * </ul>
  *
  * <p>
+ * To follow many files, add their tailers to a {@link TailerService}, which
+ * checks them all on a few threads.
+ * </p>
+ *
+ * <p>
  * An example of each of these is shown below.
  * </p>
  *
@@ -111,6 +134,27 @@ import org.apache.commons.io.IOUtils;
  * </pre>
  * <p>If you interrupt a tailer, the tailer listener is called with the {@link InterruptedException}.</p>
  *
+ * <h2>5. Reading large backlogs</h2>
+ * <p>The file is read with positional reads through its {@link FileChannel}, one buffer
+ * at a time. When tailing a file that has grown by much more than the buffer size, for
+ * example when resuming after downtime, a map size can be given to the constructor:
+ * while at least that many bytes are unread, the tailer maps a window of that size
+ * into memory and scans it in place, so that catching up takes one mapping per window
+ * instead of one read per buffer. Mapping is off by default, as some platforms do not
+ * allow a mapped file to be deleted or renamed until the mapping is garbage collected.</p>
+ *
+ * <h2>6. Resuming after a restart</h2>
+ * <p>A tailer given a checkpoint file with {@link #setCheckpoint(File, long)} saves a
+ * {@link TailerCheckpoint} there periodically and when it stops, and resumes from it
+ * when it starts, ignoring the <code>end</code> flag. If the file was rotated in the
+ * meantime, the rotated file is looked up next to it and its remaining lines are read
+ * before the new file. While a checkpoint file is set, a file replaced by another one
+ * is also recognized as rotated when the new file is already longer than the
+ * position, on Java versions that give files a key. This holds with <code>reOpen</code>
+ * too: the key and fingerprint of the file are kept while it is closed, and when the
+ * reopened file turns out to be another one, the rotated file is looked up by its
+ * fingerprint.</p>
+ *
  * <p>The file is read using the default charset; this can be overriden if necessary</p>
  * @see TailerListener
  * @see TailerListenerAdapter
@@ -126,13 +170,26 @@ public class Tailer implements Runnable {
 
     private static final int DEFAULT_BUFSIZE = 4096;
 
+    private static final int DEFAULT_MAX_BATCH_SIZE = 1024;
+
     // The default charset used for reading files
     private static final Charset DEFAULT_CHARSET = Charset.defaultCharset();
 
     /**
-     * Buffer on top of RandomAccessFile.
+     * Buffer for positional reads from the file channel.
      */
-    private final byte inbuf[];
+    private final ByteBuffer inbuf;
+
+    /**
+     * A second view of {@link #inbuf}, to decode lines without disturbing the scan.
+     */
+    private final ByteBuffer inView;
+
+    /**
+     * The minimum number of unread bytes for which the file is mapped, and the
+     * size of the mapped window; zero if the file is never mapped.
+     */
+    private final int mapSize;
 
     /**
      * The file which will be tailed.
@@ -159,6 +216,71 @@ public class Tailer implements Runnable {
      */
     private final TailerListener listener;
 
+    /**
+     * The listener if it accepts lines as character sequences, null otherwise.
+     */
+    private final TailerCharSequenceListener charSequenceListener;
+
+    /**
+     * The listener if it accepts lines in batches, null otherwise.
+     */
+    private final TailerBatchListener batchListener;
+
+    /**
+     * The maximum number of lines in a batch.
+     */
+    private volatile int maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+
+    /**
+     * The maximum time in milliseconds between reading the first line of a batch and passing the batch on.
+     */
+    private volatile long maxBatchLatency;
+
+    /**
+     * The lines of the current batch, null when there is no batch listener.
+     */
+    private List<String> batch;
+
+    /**
+     * The position of the first line of the current batch.
+     */
+    private long batchStart;
+
+    /**
+     * The position after the last line of the current batch.
+     */
+    private long batchEnd;
+
+    /**
+     * The time the first line of the current batch was read.
+     */
+    private long batchTime;
+
+    /**
+     * The decoder for the character set, reused for every line.
+     */
+    private final CharsetDecoder decoder;
+
+    /**
+     * The start of a line that continues beyond the end of a chunk read.
+     */
+    private byte lineBuf[] = new byte[64];
+
+    /**
+     * A view of {@link #lineBuf}, reused to decode lines from it.
+     */
+    private ByteBuffer lineBuffer = ByteBuffer.wrap(lineBuf);
+
+    /**
+     * The number of bytes in {@link #lineBuf}.
+     */
+    private int lineLength;
+
+    /**
+     * The decoded line, reused for every line.
+     */
+    private CharBuffer charBuf = CharBuffer.allocate(64);
+
     /**
      * Whether to close and reopen the file whilst waiting for more input.
      */
@@ -169,6 +291,63 @@ public class Tailer implements Runnable {
      */
     private volatile boolean run = true;
 
+    /**
+     * The open file, null before it is first opened and while it is closed between reads.
+     */
+    private RandomAccessFile reader;
+
+    /**
+     * Whether the file has been opened and the start position set.
+     */
+    private boolean opened;
+
+    /**
+     * The position within the file.
+     */
+    private long position;
+
+    /**
+     * The last time the file was checked for changes.
+     */
+    private long last;
+
+    /**
+     * The file checkpoints are saved to, null if none.
+     */
+    private volatile File checkpointFile;
+
+    /**
+     * The minimum time between checkpoints in milliseconds.
+     */
+    private volatile long checkpointInterval;
+
+    /**
+     * The time of the last checkpoint.
+     */
+    private long lastCheckpoint;
+
+    /**
+     * The position saved by the last checkpoint, -1 if none.
+     */
+    private long checkpointPosition = -1;
+
+    /**
+     * The key of the file the position is in when checkpointing, null if unknown.
+     * It is kept while the file is closed between reads, so that a reopened file
+     * can be compared with it.
+     */
+    private String readerKey;
+
+    /**
+     * The head fingerprint of the file the position is in when checkpointing.
+     */
+    private long readerFingerprint;
+
+    /**
+     * The number of bytes in <code>readerFingerprint</code>, -1 if not computed yet.
+     */
+    private int readerFingerprintLength = -1;
+
     /**
      * Creates a Tailer for the given file, starting from the beginning, with the default delay of 1.0s.
      * @param file The file to follow.
@@ -248,17 +427,49 @@ public class Tailer implements Runnable {
      */
     public Tailer(final File file, final Charset cset, final TailerListener listener, final long delayMillis, final boolean end, final boolean reOpen
             , final int bufSize) {
+        this(file, cset, listener, delayMillis, end, reOpen, bufSize, 0);
+    }
+
+    /**
+     * Creates a Tailer for the given file, with a specified buffer size, that
+     * maps the file into memory to read large amounts of unread content.
+     * @param file the file to follow.
+     * @param cset the Charset to be used for reading the file
+     * @param listener the TailerListener to use.
+     * @param delayMillis the delay between checks of the file for new content in milliseconds.
+     * @param end Set to true to tail from the end of the file, false to tail from the beginning of the file.
+     * @param reOpen if true, close and reopen the file between reading chunks
+     * @param bufSize Buffer size
+     * @param mapSize while at least this many bytes are unread, read them through a memory-mapped
+     * window of this size; zero to always read through the buffer
+     * @since 2.5
+     */
+    public Tailer(final File file, final Charset cset, final TailerListener listener, final long delayMillis, final boolean end, final boolean reOpen
+            , final int bufSize, final int mapSize) {
+        if (mapSize < 0) {
+            throw new IllegalArgumentException("Map size must not be negative: " + mapSize);
+        }
         this.file = file;
         this.delayMillis = delayMillis;
         this.end = end;
 
-        this.inbuf = new byte[bufSize];
+        this.inbuf = ByteBuffer.allocate(bufSize);
+        this.inView = inbuf.duplicate();
+        this.mapSize = mapSize;
 
         // Save and prepare the listener
         this.listener = listener;
+        this.charSequenceListener = listener instanceof TailerCharSequenceListener
+                ? (TailerCharSequenceListener) listener : null;
+        this.batchListener = listener instanceof TailerBatchListener ? (TailerBatchListener) listener : null;
+        this.maxBatchLatency = delayMillis;
         listener.init(this);
         this.reOpen = reOpen;
         this.cset = cset; 
+        // replace malformed input as new String(byte[], Charset) does
+        this.decoder = cset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
     }
 
     /**
@@ -372,6 +583,80 @@ public class Tailer implements Runnable {
         return file;
     }
 
+    /**
+     * Return the maximum number of lines passed to a {@link TailerBatchListener} at once.
+     *
+     * @return the maximum batch size
+     * @since 2.5
+     */
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    /**
+     * Set the maximum number of lines passed to a {@link TailerBatchListener}
+     * at once. The default is 1024.
+     *
+     * @param maxBatchSize the maximum batch size
+     * @throws IllegalArgumentException if the size is not positive
+     * @since 2.5
+     */
+    public void setMaxBatchSize(final int maxBatchSize) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be positive: " + maxBatchSize);
+        }
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * Return the maximum time between reading the first line of a batch and
+     * passing the batch to a {@link TailerBatchListener}.
+     *
+     * @return the maximum latency in milliseconds
+     * @since 2.5
+     */
+    public long getMaxBatchLatency() {
+        return maxBatchLatency;
+    }
+
+    /**
+     * Set the maximum time between reading the first line of a batch and
+     * passing the batch to a {@link TailerBatchListener}. A batch is passed on
+     * at the end of each read in any case, so this only matters while a large
+     * amount of content is read. The default is the delay.
+     *
+     * @param maxBatchLatency the maximum latency in milliseconds
+     * @since 2.5
+     */
+    public void setMaxBatchLatency(final long maxBatchLatency) {
+        this.maxBatchLatency = maxBatchLatency;
+    }
+
+    /**
+     * Return the file checkpoints are saved to.
+     *
+     * @return the checkpoint file, null if none
+     * @since 2.5
+     */
+    public File getCheckpointFile() {
+        return checkpointFile;
+    }
+
+    /**
+     * Set the file to save checkpoints to, and resume from, so that a restarted
+     * tailer neither reads lines again nor misses any. This must be set before
+     * the tailer starts.
+     *
+     * @param checkpointFile the file to save checkpoints to, null for none
+     * @param intervalMillis the minimum time between checkpoints in milliseconds;
+     * a checkpoint is also saved when the tailer stops
+     * @since 2.5
+     */
+    public void setCheckpoint(final File checkpointFile, final long intervalMillis) {
+        this.checkpointFile = checkpointFile;
+        this.checkpointInterval = intervalMillis;
+    }
+
     /**
      * Gets whether to keep on running.
      *
@@ -395,80 +680,11 @@ public class Tailer implements Runnable {
      * Follows changes in the file, calling the TailerListener's handle method for each new line.
      */
     public void run() {
-        RandomAccessFile reader = null;
         try {
-            long last = 0; // The last time the file was checked for changes
-            long position = 0; // position within the file
-            // Open the file
-            while (getRun() && reader == null) {
-                try {
-                    reader = new RandomAccessFile(file, RAF_MODE);
-                } catch (final FileNotFoundException e) {
-                    listener.fileNotFound();
-                }
-                if (reader == null) {
-                    Thread.sleep(delayMillis);
-                } else {
-                    // The current position in the file
-                    position = end ? file.length() : 0;
-                    last = file.lastModified();
-                    reader.seek(position);
-                }
-            }
             while (getRun()) {
-                final boolean newer = FileUtils.isFileNewer(file, last); // IO-279, must be done first
-                // Check the file length to see if it was rotated
-                final long length = file.length();
-                if (length < position) {
-                    // File was rotated
-                    listener.fileRotated();
-                    // Reopen the reader after rotation
-                    try {
-                        // Ensure that the old file is closed iff we re-open it successfully
-                        final RandomAccessFile save = reader;
-                        reader = new RandomAccessFile(file, RAF_MODE);
-                        // At this point, we're sure that the old file is rotated
-                        // Finish scanning the old file and then we'll start with the new one
-                        try {
-                            readLines(save);
-                        }  catch (IOException ioe) {
-                            listener.handle(ioe);
-                        }
-                        position = 0;
-                        // close old file explicitly rather than relying on GC picking up previous RAF
-                        IOUtils.closeQuietly(save);
-                    } catch (final FileNotFoundException e) {
-                        // in this case we continue to use the previous reader and position values
-                        listener.fileNotFound();
-                    }
-                    continue;
-                } else {
-                    // File was not rotated
-                    // See if the file needs to be read again
-                    if (length > position) {
-                        // The file has more content than it did last time
-                        position = readLines(reader);
-                        last = file.lastModified();
-                    } else if (newer) {
-                        /*
-                         * This can happen if the file is truncated or overwritten with the exact same length of
-                         * information. In cases like this, the file position needs to be reset
-                         */
-                        position = 0;
-                        reader.seek(position); // cannot be null here
-
-                        // Now we can read new lines
-                        position = readLines(reader);
-                        last = file.lastModified();
-                    }
-                }
-                if (reOpen) {
-                    IOUtils.closeQuietly(reader);
-                }
-                Thread.sleep(delayMillis);
-                if (getRun() && reOpen) {
-                    reader = new RandomAccessFile(file, RAF_MODE);
-                    reader.seek(position);
+                poll();
+                if (getRun()) {
+                    Thread.sleep(delayMillis);
                 }
             }
         } catch (final InterruptedException e) {
@@ -477,11 +693,243 @@ public class Tailer implements Runnable {
         } catch (final Exception e) {
             stop(e);
         } finally {
-            IOUtils.closeQuietly(reader);
+            close();
+        }
+    }
+
+    /**
+     * Checks the file once for new lines, calling the TailerListener for each
+     * of them, without waiting for the file to change.
+     * <p>
+     * This is the body of {@link #run()}, which calls it every delay. A
+     * {@link TailerService} calls it to follow many files on a few threads.
+     *
+     * @return true if the file was rotated or lines may have been read, false
+     * if the file is missing or has not changed
+     * @throws IOException if an I/O error occurs
+     */
+    boolean poll() throws IOException {
+        boolean reopened = false;
+        if (reader == null) {
+            try {
+                reader = new RandomAccessFile(file, RAF_MODE);
+            } catch (final FileNotFoundException e) {
+                listener.fileNotFound();
+                return false;
+            }
+            if (!opened) {
+                identify();
+                // The current position in the file
+                last = file.lastModified();
+                position = checkpointFile != null ? resume() : end ? file.length() : 0;
+                opened = true;
+            } else {
+                reopened = true;
+            }
+        }
+        final boolean newer = FileUtils.isFileNewer(file, last); // IO-279, must be done first
+        // Check the file length to see if it was rotated
+        final long length = file.length();
+        boolean changed = false;
+        if (length < position || isReplaced()) {
+            // File was rotated
+            listener.fileRotated();
+            // Reopen the reader after rotation
+            try {
+                // Ensure that the old file is closed iff we re-open it successfully
+                final RandomAccessFile save;
+                if (reopened) {
+                    // the reader was just reopened on the new file, so look the old one up
+                    save = openRotated();
+                } else {
+                    save = reader;
+                    reader = new RandomAccessFile(file, RAF_MODE);
+                }
+                identify();
+                // At this point, we're sure that the old file is rotated
+                // Finish scanning the old file and then we'll start with the new one
+                try {
+                    if (save != null) {
+                        readLines(save, position);
+                    }
+                }  catch (IOException ioe) {
+                    listener.handle(ioe);
+                }
+                position = 0;
+                // close old file explicitly rather than relying on GC picking up previous RAF
+                IOUtils.closeQuietly(save);
+            } catch (final FileNotFoundException e) {
+                // in this case we continue to use the previous reader and position values
+                listener.fileNotFound();
+                return true;
+            }
+            // start reading the new file straight away
+            poll();
+            return true;
+        } else {
+            // File was not rotated
+            // See if the file needs to be read again
+            if (length > position) {
+                // The file has more content than it did last time
+                position = readLines(reader, position);
+                last = file.lastModified();
+                changed = true;
+            } else if (newer) {
+                /*
+                 * This can happen if the file is truncated or overwritten with the exact same length of
+                 * information. In cases like this, the file position needs to be reset
+                 */
+                position = readLines(reader, 0);
+                last = file.lastModified();
+                changed = true;
+            }
+        }
+        checkpoint(false);
+        if (reOpen) {
+            closeReader();
+        }
+        return changed;
+    }
+
+    /**
+     * Determines the position to start from with the saved checkpoint,
+     * reading the rest of the file the checkpoint was taken of if it was
+     * rotated.
+     *
+     * @return the position to start from
+     */
+    private long resume() {
+        TailerCheckpoint checkpoint = null;
+        try {
+            checkpoint = TailerCheckpoint.load(checkpointFile);
+        } catch (final IOException e) {
+            listener.handle(e);
+        }
+        if (checkpoint == null) {
+            return end ? file.length() : 0;
+        }
+        checkpointPosition = checkpoint.getPosition();
+        if (checkpoint.matches(file)) {
+            return checkpoint.getPosition();
+        }
+        listener.fileRotated();
+        final File rotated = checkpoint.findRotated(file);
+        if (rotated != null) {
+            RandomAccessFile save = null;
+            try {
+                save = new RandomAccessFile(rotated, RAF_MODE);
+                readLines(save, checkpoint.getPosition());
+            } catch (final IOException e) {
+                listener.handle(e);
+            } finally {
+                IOUtils.closeQuietly(save);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Records the key of the file as the key of the file the position is in,
+     * if a checkpoint file is set. Its fingerprint is computed at the next
+     * checkpoint.
+     */
+    private void identify() {
+        if (checkpointFile != null) {
+            readerKey = TailerCheckpoint.fileKey(file);
+            readerFingerprintLength = -1;
+        }
+    }
+
+    /**
+     * Opens the file the position was in after it was rotated, found next to the
+     * file by its fingerprint.
+     *
+     * @return the rotated file, null if no checkpoint file is set or it is not found
+     */
+    private RandomAccessFile openRotated() {
+        if (checkpointFile == null || readerFingerprintLength < 0) {
+            return null;
+        }
+        final File rotated = new TailerCheckpoint(position, readerFingerprint, readerFingerprintLength, readerKey)
+                .findRotated(file);
+        if (rotated == null) {
+            return null;
+        }
+        try {
+            return new RandomAccessFile(rotated, RAF_MODE);
+        } catch (final FileNotFoundException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Indicates whether the file was replaced by another one, according to
+     * the file keys.
+     *
+     * @return true if the open file is known not to be the file any more
+     */
+    private boolean isReplaced() {
+        if (checkpointFile == null || readerKey == null) {
+            return false;
+        }
+        final String key = TailerCheckpoint.fileKey(file);
+        return key != null && !key.equals(readerKey);
+    }
+
+    /**
+     * Saves a checkpoint if a checkpoint file is set and the position changed.
+     *
+     * @param force whether to save even if the interval has not elapsed
+     */
+    private void checkpoint(final boolean force) {
+        if (checkpointFile == null || position == checkpointPosition) {
+            return;
+        }
+        try {
+            // the head may still be growing, and the file is closed between reads with reOpen
+            if (reader != null && readerFingerprintLength < TailerCheckpoint.FINGERPRINT_SIZE) {
+                final FileChannel channel = reader.getChannel();
+                readerFingerprintLength = (int) Math.min(TailerCheckpoint.FINGERPRINT_SIZE, channel.size());
+                readerFingerprint = TailerCheckpoint.fingerprint(channel, readerFingerprintLength);
+            }
+            if (readerFingerprintLength < 0) {
+                return;
+            }
+            final long now = System.currentTimeMillis();
+            if (!force && now - lastCheckpoint < checkpointInterval) {
+                return;
+            }
+            new TailerCheckpoint(position, readerFingerprint, readerFingerprintLength, readerKey)
+                    .save(checkpointFile);
+            lastCheckpoint = now;
+            checkpointPosition = position;
+        } catch (final IOException e) {
+            listener.handle(e);
         }
     }
 
-    private void stop(final Exception e) {
+    /**
+     * Closes the file until the next {@link #poll()}.
+     */
+    void closeReader() {
+        IOUtils.closeQuietly(reader);
+        reader = null;
+    }
+
+    /**
+     * Saves a checkpoint if a checkpoint file is set, and closes the file.
+     */
+    void close() {
+        checkpoint(true);
+        closeReader();
+    }
+
+    /**
+     * Passes an exception to the listener and stops the tailer.
+     *
+     * @param e the exception
+     */
+    void stop(final Exception e) {
         listener.handle(e);
         stop();
     }
@@ -495,48 +943,154 @@ public class Tailer implements Runnable {
 
     /**
      * Read new lines.
+     * <p>
+     * The file is read with positional reads, so the file pointer of the
+     * reader is not used. Lines that lie within the read buffer or mapped
+     * window are decoded from it in place; only a line that continues beyond
+     * its end is copied.
      *
      * @param reader The file to read
+     * @param position The position to read from
      * @return The new position after the lines have been read
      * @throws java.io.IOException if an I/O error occurs.
      */
-    private long readLines(final RandomAccessFile reader) throws IOException {
-        ByteArrayOutputStream lineBuf = new ByteArrayOutputStream(64);
-        long pos = reader.getFilePointer();
-        long rePos = pos; // position to re-read
-        int num;
+    private long readLines(final RandomAccessFile reader, long position) throws IOException {
+        final FileChannel channel = reader.getChannel();
+        long rePos = position; // position to re-read
         boolean seenCR = false;
-        while (getRun() && ((num = reader.read(inbuf)) != EOF)) {
-            for (int i = 0; i < num; i++) {
-                final byte ch = inbuf[i];
-                switch (ch) {
-                case '\n':
-                    seenCR = false; // swallow CR before LF
-                    listener.handle(new String(lineBuf.toByteArray(), cset));
-                    lineBuf.reset();
-                    rePos = pos + i + 1;
-                    break;
-                case '\r':
-                    if (seenCR) {
-                        lineBuf.write('\r');
+        lineLength = 0;
+        try {
+            while (getRun()) {
+                final ByteBuffer chunk;
+                final ByteBuffer view;
+                final long unread = mapSize > 0 ? channel.size() - position : 0;
+                if (mapSize > 0 && unread >= mapSize) {
+                    chunk = channel.map(FileChannel.MapMode.READ_ONLY, position, mapSize);
+                    view = chunk.duplicate();
+                } else {
+                    inbuf.clear();
+                    if (channel.read(inbuf, position) <= 0) {
+                        break;
                     }
-                    seenCR = true;
-                    break;
-                default:
-                    if (seenCR) {
-                        seenCR = false; // swallow final CR
-                        listener.handle(new String(lineBuf.toByteArray(), cset));
-                        lineBuf.reset();
-                        rePos = pos + i + 1;
+                    inbuf.flip();
+                    chunk = inbuf;
+                    view = inView;
+                }
+                final int num = chunk.limit();
+                int start = 0; // start of the current line in the chunk
+                for (int i = 0; i < num; i++) {
+                    switch (chunk.get(i)) {
+                    case '\n':
+                        handleLine(view, start, i, seenCR, rePos, position + i + 1); // swallow CR before LF
+                        seenCR = false;
+                        start = i + 1;
+                        rePos = position + i + 1;
+                        break;
+                    case '\r':
+                        seenCR = true; // a CR followed by another CR is part of the line
+                        break;
+                    default:
+                        if (seenCR) {
+                            seenCR = false;
+                            handleLine(view, start, i, true, rePos, position + i); // swallow final CR
+                            start = i;
+                            rePos = position + i;
+                        }
                     }
-                    lineBuf.write(ch);
                 }
+                appendToLine(view, start, num);
+                position += num;
             }
-            pos = reader.getFilePointer();
+        } finally {
+            flushBatch(); // even if reading failed, the lines read are complete
         }
-        IOUtils.closeQuietly(lineBuf); // not strictly necessary
-        reader.seek(rePos); // Ensure we can re-read if necessary
         return rePos;
     }
 
+    /**
+     * Appends part of a chunk to the start of a line.
+     *
+     * @param chunk the chunk
+     * @param start the index of the first byte to append
+     * @param end the index after the last byte to append
+     */
+    private void appendToLine(final ByteBuffer chunk, final int start, final int end) {
+        final int count = end - start;
+        if (lineLength + count > lineBuf.length) {
+            final byte[] newBuf = new byte[Math.max(lineBuf.length << 1, lineLength + count)];
+            System.arraycopy(lineBuf, 0, newBuf, 0, lineLength);
+            lineBuf = newBuf;
+            lineBuffer = ByteBuffer.wrap(lineBuf);
+        }
+        chunk.limit(end).position(start);
+        chunk.get(lineBuf, lineLength, count);
+        lineLength += count;
+    }
+
+    /**
+     * Decodes a complete line and passes it to the listener.
+     *
+     * @param chunk the chunk holding the line's last part
+     * @param start the index in the chunk where the line's last part starts
+     * @param end the index in the chunk after the line
+     * @param dropCR whether the last byte of the line is a CR to drop
+     * @param lineStart the position of the line in the file
+     * @param lineEnd the position after the line and its terminator in the file
+     */
+    private void handleLine(final ByteBuffer chunk, final int start, int end, final boolean dropCR,
+            final long lineStart, final long lineEnd) {
+        final ByteBuffer bytes;
+        if (lineLength == 0) {
+            if (dropCR) {
+                end--;
+            }
+            chunk.limit(end).position(start);
+            bytes = chunk;
+        } else {
+            appendToLine(chunk, start, end);
+            if (dropCR) {
+                lineLength--;
+            }
+            lineBuffer.limit(lineLength).position(0);
+            bytes = lineBuffer;
+            lineLength = 0;
+        }
+        final int maxChars = (int) Math.ceil(bytes.remaining() * (double) decoder.maxCharsPerByte());
+        if (charBuf.capacity() < maxChars) {
+            charBuf = CharBuffer.allocate(Math.max(charBuf.capacity() << 1, maxChars));
+        }
+        charBuf.clear();
+        decoder.reset();
+        decoder.decode(bytes, charBuf, true);
+        decoder.flush(charBuf);
+        charBuf.flip();
+        if (batchListener != null) {
+            if (batch == null) {
+                batch = new ArrayList<String>();
+                batchStart = lineStart;
+                batchTime = System.currentTimeMillis();
+            }
+            batch.add(charBuf.toString());
+            batchEnd = lineEnd;
+            if (batch.size() >= maxBatchSize || System.currentTimeMillis() - batchTime >= maxBatchLatency) {
+                flushBatch();
+            }
+        } else if (charSequenceListener != null) {
+            charSequenceListener.handle(charBuf);
+        } else {
+            listener.handle(charBuf.toString());
+        }
+    }
+
+    /**
+     * Passes the lines of the current batch, if any, to the batch listener.
+     */
+    private void flushBatch() {
+        if (batch != null) {
+            final List<String> lines = batch;
+            batch = null;
+            batchListener.handle(lines, batchStart, batchEnd);
+        }
+    }
+
 }
@@ -0,0 +1,53 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.io.input;
+
+import java.util.List;
+
+/**
+ * A {@link TailerListener} that receives lines in batches instead of one at a
+ * time, so that work such as inserting into a buffer or compressing can be
+ * done once per batch.
+ * <p>
+ * A {@link Tailer} passes the complete lines of each read of the file in one
+ * or more batches, limited by {@link Tailer#setMaxBatchSize(int)} and
+ * {@link Tailer#setMaxBatchLatency(long)}. It never calls
+ * {@link TailerListener#handle(String)} on a listener that implements this
+ * interface; extend {@link TailerBatchListenerAdapter} to handle the lines of
+ * a batch one by one.
+ *
+ * @version $Id$
+ * @since 2.5
+ */
+public interface TailerBatchListener extends TailerListener {
+
+    /**
+     * Handles a batch of lines from a Tailer.
+     * <p>
+     * The positions can be saved to resume tailing after the last line handled.
+     * After the file was rotated, the positions of the lines remaining in the
+     * old file are positions in the old file.
+     * <p>
+     * <b>Note:</b> this is called from the tailer thread.
+     * @param lines the lines, without line terminators, never empty; the
+     * listener may keep the list
+     * @param startPosition the position in the file of the first line
+     * @param endPosition the position in the file after the last line and its terminator
+     */
+    void handle(List<String> lines, long startPosition, long endPosition);
+
+}
@@ -0,0 +1,42 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.io.input;
+
+import java.util.List;
+
+/**
+ * {@link TailerBatchListener} Adapter, passing each line of a batch to
+ * {@link #handle(String)}.
+ *
+ * @version $Id$
+ * @since 2.5
+ */
+public class TailerBatchListenerAdapter extends TailerListenerAdapter implements TailerBatchListener {
+
+    /**
+     * Handles a batch of lines by handling each line in turn.
+     * @param lines the lines.
+     * @param startPosition the position in the file of the first line.
+     * @param endPosition the position in the file after the last line.
+     */
+    public void handle(final List<String> lines, final long startPosition, final long endPosition) {
+        for (final String line : lines) {
+            handle(line);
+        }
+    }
+
+}
@@ -0,0 +1,45 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.io.input;
+
+/**
+ * A {@link TailerListener} that receives lines as character sequences
+ * instead of strings, so that a {@link Tailer} can pass each line without
+ * allocating objects for it.
+ * <p>
+ * A {@link Tailer} calls {@link #handle(CharSequence)} for each line and never
+ * calls {@link TailerListener#handle(String)} on a listener that implements
+ * this interface.
+ *
+ * @version $Id$
+ * @since 2.5
+ */
+public interface TailerCharSequenceListener extends TailerListener {
+
+    /**
+     * Handles a line from a Tailer.
+     * <p>
+     * The sequence is a view of a buffer that the tailer reuses for the next
+     * line: it is only valid during this call and must not be retained or
+     * modified. Call <code>toString()</code> on it to keep the line.
+     * <p>
+     * <b>Note:</b> this is called from the tailer thread.
+     * @param line the line, without the line terminator.
+     */
+    void handle(CharSequence line);
+
+}
@@ -0,0 +1,334 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.io.input;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.zip.CRC32;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * The state a {@link Tailer} saves to resume after a restart: the position
+ * after the last line handled, and what identifies the file that position is
+ * in.
+ * <p>
+ * A file is identified by a checksum of its first bytes, its head
+ * fingerprint, and, on Java versions that provide one, the key the file system
+ * gives it (on Unix, the device and inode). A file that has been renamed by a
+ * log rotation keeps both, so the rotated file can be found next to the tailed
+ * one and drained before tailing the new file.
+ * <p>
+ * Checkpoints are saved as a properties file. The file is written under a
+ * temporary name and then renamed, so that a crash while saving leaves the
+ * previous checkpoint in place.
+ *
+ * @see Tailer#setCheckpoint(File, long)
+ * @version $Id$
+ * @since 2.5
+ */
+public final class TailerCheckpoint {
+
+    /** The maximum number of bytes in the head fingerprint. */
+    static final int FINGERPRINT_SIZE = 1024;
+
+    private static final String POSITION = "position";
+    private static final String FINGERPRINT = "fingerprint";
+    private static final String FINGERPRINT_LENGTH = "fingerprintLength";
+    private static final String FILE_KEY = "fileKey";
+
+    /** <code>File.toPath()</code>, null before Java 7. */
+    private static final Method TO_PATH;
+    /** <code>Files.readAttributes(Path, Class, LinkOption...)</code>. */
+    private static final Method READ_ATTRIBUTES;
+    /** <code>BasicFileAttributes.fileKey()</code>. */
+    private static final Method FILE_KEY_METHOD;
+    /** <code>BasicFileAttributes.class</code>. */
+    private static final Class<?> ATTRIBUTES_CLASS;
+    /** An empty <code>LinkOption[]</code>. */
+    private static final Object NO_LINK_OPTIONS;
+
+    static {
+        Method toPath = null;
+        Method readAttributes = null;
+        Method fileKey = null;
+        Class<?> attributesClass = null;
+        Object noLinkOptions = null;
+        try {
+            final Class<?> pathClass = Class.forName("java.nio.file.Path");
+            final Class<?> linkOptionClass = Class.forName("java.nio.file.LinkOption");
+            attributesClass = Class.forName("java.nio.file.attribute.BasicFileAttributes");
+            noLinkOptions = Array.newInstance(linkOptionClass, 0);
+            readAttributes = Class.forName("java.nio.file.Files").getMethod("readAttributes",
+                    pathClass, Class.class, noLinkOptions.getClass());
+            fileKey = attributesClass.getMethod("fileKey");
+            toPath = File.class.getMethod("toPath");
+        } catch (final Exception ex) {
+            // Java 6: files are identified by their fingerprint only
+            toPath = null;
+        }
+        TO_PATH = toPath;
+        READ_ATTRIBUTES = readAttributes;
+        FILE_KEY_METHOD = fileKey;
+        ATTRIBUTES_CLASS = attributesClass;
+        NO_LINK_OPTIONS = noLinkOptions;
+    }
+
+    private final long position;
+    private final long fingerprint;
+    private final int fingerprintLength;
+    private final String fileKey;
+
+    /**
+     * Constructs a checkpoint.
+     *
+     * @param position the position after the last line handled
+     * @param fingerprint the checksum of the first <code>fingerprintLength</code> bytes of the file
+     * @param fingerprintLength the number of bytes in the fingerprint
+     * @param fileKey the key the file system gives the file, null if unknown
+     */
+    public TailerCheckpoint(final long position, final long fingerprint, final int fingerprintLength,
+            final String fileKey) {
+        this.position = position;
+        this.fingerprint = fingerprint;
+        this.fingerprintLength = fingerprintLength;
+        this.fileKey = fileKey;
+    }
+
+    /**
+     * Returns the position after the last line handled.
+     *
+     * @return the position
+     */
+    public long getPosition() {
+        return position;
+    }
+
+    /**
+     * Returns the checksum of the first {@link #getFingerprintLength()} bytes of the file.
+     *
+     * @return the fingerprint
+     */
+    public long getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * Returns the number of bytes the fingerprint was computed over.
+     *
+     * @return the fingerprint length
+     */
+    public int getFingerprintLength() {
+        return fingerprintLength;
+    }
+
+    /**
+     * Returns the key the file system gives the file.
+     *
+     * @return the file key, null if unknown
+     */
+    public String getFileKey() {
+        return fileKey;
+    }
+
+    /**
+     * Indicates whether a file is the file this checkpoint was taken of: it
+     * has the same key, if known, and the same head fingerprint, and it is
+     * not shorter than the position.
+     *
+     * @param file the file
+     * @return true if the file matches
+     */
+    public boolean matches(final File file) {
+        if (fileKey != null) {
+            final String key = fileKey(file);
+            if (key != null && !key.equals(fileKey)) {
+                return false;
+            }
+        }
+        return matchesContent(file);
+    }
+
+    /**
+     * Finds the file this checkpoint was taken of after it was rotated: a
+     * file in the same directory whose name starts with the name of the
+     * tailed file and that matches this checkpoint's fingerprint. If several
+     * do, the one with the same file key is preferred.
+     *
+     * @param file the tailed file
+     * @return the rotated file, null if not found
+     */
+    public File findRotated(final File file) {
+        final File directory = file.getAbsoluteFile().getParentFile();
+        final File[] candidates = directory == null ? null : directory.listFiles();
+        if (candidates == null) {
+            return null;
+        }
+        Arrays.sort(candidates);
+        File found = null;
+        for (final File candidate : candidates) {
+            if (!candidate.getName().startsWith(file.getName()) || candidate.getName().equals(file.getName())
+                    || !candidate.isFile() || !matchesContent(candidate)) {
+                continue;
+            }
+            if (fileKey != null && fileKey.equals(fileKey(candidate))) {
+                return candidate;
+            }
+            if (found == null) {
+                found = candidate;
+            }
+        }
+        return found;
+    }
+
+    private boolean matchesContent(final File file) {
+        if (file.length() < position) {
+            return false;
+        }
+        RandomAccessFile raf = null;
+        try {
+            raf = new RandomAccessFile(file, "r");
+            return fingerprint(raf.getChannel(), fingerprintLength) == fingerprint;
+        } catch (final IOException ex) {
+            return false;
+        } finally {
+            IOUtils.closeQuietly(raf);
+        }
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * Loads a checkpoint.
+     *
+     * @param checkpointFile the file the checkpoint was saved to
+     * @return the checkpoint, null if the file does not exist
+     * @throws IOException if the file cannot be read or is not a checkpoint
+     */
+    public static TailerCheckpoint load(final File checkpointFile) throws IOException {
+        final Properties properties = new Properties();
+        InputStream in = null;
+        try {
+            in = new FileInputStream(checkpointFile);
+            properties.load(in);
+        } catch (final FileNotFoundException ex) {
+            return null;
+        } finally {
+            IOUtils.closeQuietly(in);
+        }
+        try {
+            return new TailerCheckpoint(Long.parseLong(properties.getProperty(POSITION)),
+                    Long.parseLong(properties.getProperty(FINGERPRINT)),
+                    Integer.parseInt(properties.getProperty(FINGERPRINT_LENGTH)),
+                    properties.getProperty(FILE_KEY));
+        } catch (final NumberFormatException ex) {
+            throw new IOException("Invalid checkpoint " + checkpointFile + ": " + properties, ex);
+        }
+    }
+
+    /**
+     * Saves this checkpoint, replacing the checkpoint previously saved.
+     *
+     * @param checkpointFile the file to save to
+     * @throws IOException if the checkpoint cannot be written
+     */
+    public void save(final File checkpointFile) throws IOException {
+        final Properties properties = new Properties();
+        properties.setProperty(POSITION, Long.toString(position));
+        properties.setProperty(FINGERPRINT, Long.toString(fingerprint));
+        properties.setProperty(FINGERPRINT_LENGTH, Integer.toString(fingerprintLength));
+        if (fileKey != null) {
+            properties.setProperty(FILE_KEY, fileKey);
+        }
+        final File temp = new File(checkpointFile.getPath() + ".tmp");
+        final FileOutputStream out = new FileOutputStream(temp);
+        try {
+            properties.store(out, null);
+            out.getFD().sync();
+        } finally {
+            IOUtils.closeQuietly(out);
+        }
+        if (!temp.renameTo(checkpointFile)) {
+            // some platforms do not rename over an existing file
+            checkpointFile.delete();
+            if (!temp.renameTo(checkpointFile)) {
+                throw new IOException("Cannot rename " + temp + " to " + checkpointFile);
+            }
+        }
+    }
+
+    /**
+     * Computes the checksum of the head of a file.
+     *
+     * @param channel the channel to read
+     * @param length the number of bytes to read
+     * @return the checksum, -1 if the file is shorter
+     * @throws IOException if the file cannot be read
+     */
+    static long fingerprint(final FileChannel channel, final int length) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, buffer.position()) <= 0) {
+                return -1;
+            }
+        }
+        final CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, length);
+        return crc.getValue();
+    }
+
+    /**
+     * Returns the key the file system gives a file.
+     *
+     * @param file the file
+     * @return the key, null if it is unknown or the file does not exist
+     */
+    static String fileKey(final File file) {
+        if (TO_PATH == null) {
+            return null;
+        }
+        try {
+            final Object attributes = READ_ATTRIBUTES.invoke(null, TO_PATH.invoke(file), ATTRIBUTES_CLASS,
+                    NO_LINK_OPTIONS);
+            final Object key = FILE_KEY_METHOD.invoke(attributes);
+            return key == null ? null : key.toString();
+        } catch (final Exception ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns a string representation of this checkpoint.
+     *
+     * @return a string representation
+     */
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[position=" + position + ", fingerprint=" + fingerprint
+                + ", fingerprintLength=" + fingerprintLength + ", fileKey=" + fileKey + "]";
+    }
+}
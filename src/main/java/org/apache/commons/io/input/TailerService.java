@@ -0,0 +1,418 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.io.input;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.monitor.FileAlterationListener;
+import org.apache.commons.io.monitor.FileAlterationListenerAdaptor;
+
+/**
+ * Follows many files on a few threads.
+ * <p>
+ * A {@link Tailer} run on its own thread sleeps between checks of its file,
+ * so following thousands of files takes thousands of mostly sleeping threads.
+ * A <code>TailerService</code> instead schedules the checks of all the tailers
+ * added to it on a {@link ScheduledExecutorService}. Each tailer keeps its own
+ * file, character set, delay and {@link TailerListener}:
+ * <pre>
+ *      TailerService service = new TailerService(2);
+ *      service.add(new Tailer(file1, listener1, 500));
+ *      service.add(new Tailer(file2, listener2, 1000, true));
+ *      ...
+ *      service.stop();</pre>
+ * <p>
+ * A file that has not changed is checked less and less often: the delay
+ * between checks doubles, up to the service's maximum delay, and returns to
+ * the tailer's own delay as soon as the file changes. The listener of a
+ * tailer is called by one thread at a time, although not always the same one.
+ * A tailer added to a service must not also be run by a thread.
+ * <p>
+ * To react to changes without waiting for the next check, call
+ * {@link #wakeUp(File)} when a file changes, or register the
+ * {@link #getWakeUpListener() wake-up listener} with a
+ * {@link org.apache.commons.io.monitor.FileAlterationObserver} watched by a
+ * {@link org.apache.commons.io.monitor.FileAlterationWatchMonitor}, which
+ * uses the file system's watch service where there is one:
+ * <pre>
+ *      FileAlterationObserver observer = new FileAlterationObserver(logDirectory);
+ *      observer.addListener(service.getWakeUpListener());
+ *      new FileAlterationWatchMonitor(60000, observer).start();</pre>
+ * <p>
+ * Calling {@link Tailer#stop()} removes the tailer from the service before its
+ * next check.
+ *
+ * @see Tailer
+ * @version $Id$
+ * @since 2.5
+ */
+public class TailerService {
+
+    private static final long DEFAULT_MAX_DELAY_MILLIS = 10000;
+
+    private final ScheduledExecutorService executor;
+    private final boolean ownExecutor;
+    private final long maxDelayMillis;
+    /** The scheduled tailers by file, guarded by this. */
+    private final Map<File, List<Entry>> entries = new HashMap<File, List<Entry>>();
+    private final FileAlterationListener wakeUpListener = new WakeUpListener();
+    private volatile boolean running = true;
+
+    /**
+     * Construct a service running on the specified number of daemon threads,
+     * with a maximum delay of 10 seconds between checks of an unchanged file.
+     *
+     * @param threads the number of threads
+     */
+    public TailerService(final int threads) {
+        this(threads, DEFAULT_MAX_DELAY_MILLIS);
+    }
+
+    /**
+     * Construct a service running on the specified number of daemon threads.
+     *
+     * @param threads the number of threads
+     * @param maxDelayMillis the maximum delay between checks of an unchanged file in milliseconds;
+     * tailers with a longer delay keep their own
+     */
+    public TailerService(final int threads, final long maxDelayMillis) {
+        this(new ScheduledThreadPoolExecutor(threads, new DaemonThreadFactory()), true, maxDelayMillis);
+    }
+
+    /**
+     * Construct a service running on the specified executor. The executor is
+     * not shut down when the service is stopped.
+     *
+     * @param executor the executor
+     * @param maxDelayMillis the maximum delay between checks of an unchanged file in milliseconds;
+     * tailers with a longer delay keep their own
+     */
+    public TailerService(final ScheduledExecutorService executor, final long maxDelayMillis) {
+        this(executor, false, maxDelayMillis);
+    }
+
+    private TailerService(final ScheduledExecutorService executor, final boolean ownExecutor,
+            final long maxDelayMillis) {
+        if (executor == null) {
+            throw new NullPointerException("Executor must not be null");
+        }
+        this.executor = executor;
+        this.ownExecutor = ownExecutor;
+        this.maxDelayMillis = maxDelayMillis;
+    }
+
+    /**
+     * Return the maximum delay between checks of an unchanged file.
+     *
+     * @return the maximum delay in milliseconds
+     */
+    public long getMaxDelay() {
+        return maxDelayMillis;
+    }
+
+    /**
+     * Add a tailer to this service. Its file is checked straight away.
+     *
+     * @param tailer the tailer to add
+     * @throws IllegalStateException if the service has been stopped
+     */
+    public void add(final Tailer tailer) {
+        final Entry entry = new Entry(tailer);
+        synchronized (this) {
+            if (!running) {
+                throw new IllegalStateException("TailerService has been stopped");
+            }
+            List<Entry> list = entries.get(tailer.getFile());
+            if (list == null) {
+                list = new ArrayList<Entry>(1);
+                entries.put(tailer.getFile(), list);
+            }
+            list.add(entry);
+        }
+        entry.wakeUp();
+    }
+
+    /**
+     * Remove a tailer from this service. Its file is closed, and its listener
+     * is not called after the check in progress, if any.
+     *
+     * @param tailer the tailer to remove
+     */
+    public void remove(final Tailer tailer) {
+        Entry removed = null;
+        synchronized (this) {
+            final List<Entry> list = entries.get(tailer.getFile());
+            if (list != null) {
+                for (int i = 0; i < list.size(); i++) {
+                    if (list.get(i).tailer == tailer) {
+                        removed = list.remove(i);
+                        break;
+                    }
+                }
+                if (list.isEmpty()) {
+                    entries.remove(tailer.getFile());
+                }
+            }
+        }
+        if (removed != null) {
+            removed.cancel();
+        }
+    }
+
+    /**
+     * Returns the tailers of this service.
+     *
+     * @return a copy of the tailers of this service
+     */
+    public synchronized List<Tailer> getTailers() {
+        final List<Tailer> tailers = new ArrayList<Tailer>();
+        for (final List<Entry> list : entries.values()) {
+            for (final Entry entry : list) {
+                tailers.add(entry.tailer);
+            }
+        }
+        return tailers;
+    }
+
+    /**
+     * Check the tailers of a file straight away, for example because the
+     * file is known to have changed.
+     *
+     * @param file the file, as passed to the tailers
+     */
+    public void wakeUp(final File file) {
+        final List<Entry> list;
+        synchronized (this) {
+            final List<Entry> current = entries.get(file);
+            if (current == null) {
+                return;
+            }
+            list = new ArrayList<Entry>(current);
+        }
+        for (final Entry entry : list) {
+            entry.wakeUp();
+        }
+    }
+
+    /**
+     * Returns a listener that {@link #wakeUp(File) wakes up} the tailers of
+     * files created or changed, to register with a
+     * {@link org.apache.commons.io.monitor.FileAlterationObserver}. The
+     * observer's directory must be given as the tailed files' parent.
+     *
+     * @return the wake-up listener
+     */
+    public FileAlterationListener getWakeUpListener() {
+        return wakeUpListener;
+    }
+
+    /**
+     * Stop this service: remove all its tailers, closing their files, and
+     * shut down its threads if it created them.
+     */
+    public void stop() {
+        final List<Entry> all = new ArrayList<Entry>();
+        synchronized (this) {
+            running = false;
+            for (final List<Entry> list : entries.values()) {
+                all.addAll(list);
+            }
+            entries.clear();
+        }
+        for (final Entry entry : all) {
+            entry.cancel();
+        }
+        if (ownExecutor) {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Removes a tailer that stopped itself.
+     *
+     * @param entry the entry of the tailer
+     */
+    private synchronized void removeStopped(final Entry entry) {
+        final List<Entry> list = entries.get(entry.tailer.getFile());
+        if (list != null && list.remove(entry) && list.isEmpty()) {
+            entries.remove(entry.tailer.getFile());
+        }
+    }
+
+    /**
+     * A tailer and its scheduled check. Checks of one tailer never overlap:
+     * each check schedules the next one when it finishes, and only the check
+     * scheduled last runs.
+     */
+    private final class Entry {
+
+        private final Tailer tailer;
+        /** The delay before the next check of an unchanged file. */
+        private long delay;
+        private ScheduledFuture<?> future;
+        /**
+         * The number of the check scheduled last. A check that was replaced,
+         * but had already started when its future was cancelled, finds a
+         * different number and does nothing.
+         */
+        private long scheduled;
+        private boolean checking;
+        private boolean wakeUpRequested;
+        private boolean cancelled;
+
+        Entry(final Tailer tailer) {
+            this.tailer = tailer;
+            this.delay = tailer.getDelay();
+        }
+
+        /**
+         * Schedules a check straight away unless one is in progress, in
+         * which case the next check follows it without delay.
+         */
+        synchronized void wakeUp() {
+            if (cancelled) {
+                return;
+            }
+            if (checking) {
+                wakeUpRequested = true;
+                return;
+            }
+            // replaces the next check, which does nothing if it already started
+            if (future != null) {
+                future.cancel(false);
+            }
+            schedule(0);
+        }
+
+        /**
+         * Cancels the next check and closes the file, saving a checkpoint,
+         * unless a check is in progress, which then closes it.
+         */
+        void cancel() {
+            synchronized (this) {
+                cancelled = true;
+                if (future != null) {
+                    future.cancel(false);
+                }
+                if (checking) {
+                    return;
+                }
+            }
+            tailer.close();
+        }
+
+        /**
+         * Checks the file and schedules the next check.
+         *
+         * @param number the number of the check
+         */
+        void check(final long number) {
+            synchronized (this) {
+                if (cancelled || checking || number != scheduled) {
+                    return;
+                }
+                checking = true;
+                wakeUpRequested = false;
+            }
+            boolean changed = false;
+            if (tailer.getRun()) {
+                try {
+                    changed = tailer.poll();
+                } catch (final Exception e) {
+                    tailer.stop(e);
+                }
+            }
+            synchronized (this) {
+                checking = false;
+                if (!cancelled && tailer.getRun()) {
+                    if (changed || wakeUpRequested) {
+                        delay = tailer.getDelay();
+                        schedule(changed && !wakeUpRequested ? delay : 0);
+                    } else {
+                        schedule(delay);
+                        delay = Math.min(delay << 1, Math.max(maxDelayMillis, tailer.getDelay()));
+                    }
+                    return;
+                }
+                cancelled = true;
+            }
+            tailer.close();
+            removeStopped(this);
+        }
+
+        /**
+         * Schedules the next check.
+         *
+         * @param delayMillis the delay in milliseconds
+         */
+        private void schedule(final long delayMillis) {
+            final long number = ++scheduled;
+            try {
+                future = executor.schedule(new Runnable() {
+                    public void run() {
+                        check(number);
+                    }
+                }, delayMillis, TimeUnit.MILLISECONDS);
+            } catch (final RuntimeException e) {
+                // the executor was shut down
+                cancelled = true;
+            }
+        }
+    }
+
+    /**
+     * Wakes up the tailers of created and changed files.
+     */
+    private final class WakeUpListener extends FileAlterationListenerAdaptor {
+
+        @Override
+        public void onFileCreate(final File file) {
+            wakeUp(file);
+        }
+
+        @Override
+        public void onFileChange(final File file) {
+            wakeUp(file);
+        }
+    }
+
+    /**
+     * Creates daemon threads, as {@link Tailer#create(File, TailerListener)} does.
+     */
+    private static final class DaemonThreadFactory implements ThreadFactory {
+
+        private static final AtomicInteger POOL = new AtomicInteger();
+        private final int pool = POOL.incrementAndGet();
+        private final AtomicInteger count = new AtomicInteger();
+
+        public Thread newThread(final Runnable runnable) {
+            final Thread thread = new Thread(runnable, "TailerService-" + pool + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.io.monitor;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.util.Collection;
+
+import org.apache.commons.io.IOCase;
+
+/**
+ * A {@link FileAlterationObserver} that records the state of the observed
+ * tree in a {@link FileTreeSnapshot} instead of a tree of {@link FileEntry}
+ * objects.
+ * <p>
+ * Listeners receive the same events, in the same order, as from a
+ * <code>FileAlterationObserver</code> with the same directory, filter and case
+ * sensitivity, while the recorded state needs a fraction of the memory. Each
+ * check scans the tree into a new snapshot and compares it with the previous
+ * one, so two snapshots are held during a check.
+ * <p>
+ * The snapshot can be saved with {@link FileTreeSnapshot#writeTo(java.io.OutputStream)}
+ * and passed to {@link #initialize(FileTreeSnapshot)} after a restart, so that
+ * the first check reports the changes made in between without a cold scan to
+ * establish a baseline. The snapshot must have been taken with the same filter.
+ * <p>
+ * {@link #setIncremental(boolean) Incremental} checks are not supported: the
+ * setting is ignored and every check scans the whole tree, as does
+ * {@link #checkAndNotify(Collection)}.
+ *
+ * @see FileTreeSnapshot
+ * @version $Id$
+ * @since 2.5
+ */
+public class CompactFileAlterationObserver extends FileAlterationObserver {
+
+    private static final long serialVersionUID = -1820368916462398754L;
+
+    private final IOCase caseSensitivity;
+    private FileTreeSnapshot snapshot;
+
+    /**
+     * Construct an observer for the specified directory.
+     *
+     * @param directory the directory to observe
+     */
+    public CompactFileAlterationObserver(final File directory) {
+        this(directory, null, null);
+    }
+
+    /**
+     * Construct an observer for the specified directory and file filter.
+     *
+     * @param directory the directory to observe
+     * @param fileFilter The file filter or null if none
+     */
+    public CompactFileAlterationObserver(final File directory, final FileFilter fileFilter) {
+        this(directory, fileFilter, null);
+    }
+
+    /**
+     * Construct an observer for the specified directory, file filter and
+     * file comparator.
+     *
+     * @param directory the directory to observe
+     * @param fileFilter The file filter or null if none
+     * @param caseSensitivity  what case sensitivity to use comparing file names, null means system sensitive
+     */
+    public CompactFileAlterationObserver(final File directory, final FileFilter fileFilter,
+            final IOCase caseSensitivity) {
+        super(directory, fileFilter, caseSensitivity);
+        this.caseSensitivity = caseSensitivity == null ? IOCase.SYSTEM : caseSensitivity;
+    }
+
+    /**
+     * Returns the snapshot of the last check.
+     *
+     * @return the snapshot, null before the observer is initialized
+     */
+    public FileTreeSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Does nothing: incremental checks are not supported, so every check lists
+     * every directory and {@link #isIncremental()} stays false.
+     *
+     * @param incremental ignored
+     */
+    @Override
+    public void setIncremental(final boolean incremental) {
+        // full scans only
+    }
+
+    /**
+     * Initialize the observer by scanning the directory.
+     *
+     * @throws Exception if an error occurs
+     */
+    @Override
+    public void initialize() throws Exception {
+        snapshot = FileTreeSnapshot.scan(getDirectory(), getFileFilter(), caseSensitivity);
+    }
+
+    /**
+     * Initialize the observer with a snapshot taken earlier, for example by a
+     * previous run of the application. The next check reports the changes
+     * made since the snapshot was taken.
+     *
+     * @param previous the snapshot to compare the next check with
+     * @throws IllegalArgumentException if the snapshot is of another directory or case sensitivity
+     */
+    public void initialize(final FileTreeSnapshot previous) {
+        if (!previous.getDirectory().equals(getDirectory())) {
+            throw new IllegalArgumentException("Snapshot of " + previous.getDirectory()
+                    + " cannot be used to observe " + getDirectory());
+        }
+        if (!previous.getCaseSensitivity().equals(caseSensitivity)) {
+            throw new IllegalArgumentException("Snapshot ordered by " + previous.getCaseSensitivity()
+                    + " cannot be used with " + caseSensitivity);
+        }
+        snapshot = previous;
+    }
+
+    /**
+     * Check whether the file and its chlidren have been created, modified or deleted.
+     */
+    @Override
+    public void checkAndNotify() {
+
+        /* fire onStart() */
+        for (final FileAlterationListener listener : getListeners()) {
+            listener.onStart(this);
+        }
+
+        /* fire directory/file events */
+        final FileTreeSnapshot current = FileTreeSnapshot.scan(getDirectory(), getFileFilter(), caseSensitivity);
+        if (snapshot != null) {
+            snapshot.notifyChanges(current, getListeners());
+        }
+        snapshot = current;
+
+        /* fire onStop() */
+        for (final FileAlterationListener listener : getListeners()) {
+            listener.onStop(this);
+        }
+    }
+
+    /**
+     * Check the whole tree, as the snapshot cannot be updated in parts.
+     *
+     * @param files ignored
+     */
+    @Override
+    public void checkAndNotify(final Collection<File> files) {
+        checkAndNotify();
+    }
+}
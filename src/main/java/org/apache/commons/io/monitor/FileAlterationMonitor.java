@@ -16,8 +16,13 @@
  */
 package org.apache.commons.io.monitor;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.ThreadFactory;
 
 /**
@@ -34,6 +39,7 @@ public final class FileAlterationMonitor implements Runnable {
     private final List<FileAlterationObserver> observers = new CopyOnWriteArrayList<FileAlterationObserver>();
     private Thread thread = null;
     private ThreadFactory threadFactory;
+    private volatile ExecutorService executor;
     private volatile boolean running = false;
 
     /**
@@ -87,6 +93,22 @@ public final class FileAlterationMonitor implements Runnable {
         this.threadFactory = threadFactory;
     }
 
+    /**
+     * Set the executor that checks the observers.
+     * <p>
+     * By default the monitoring thread checks one observer after the other.
+     * With an executor, the observers of each interval are checked in parallel
+     * and the monitoring thread waits for all of them before sleeping; the
+     * listeners are then called by the executor threads. The executor is not
+     * shut down by this monitor.
+     *
+     * @param executor the executor, null to check the observers on the monitoring thread
+     * @since 2.5
+     */
+    public void setExecutor(final ExecutorService executor) {
+        this.executor = executor;
+    }
+
     /**
      * Add a file system observer to this monitor.
      *
@@ -178,8 +200,13 @@ public final class FileAlterationMonitor implements Runnable {
      */
     public void run() {
         while (running) {
-            for (final FileAlterationObserver observer : observers) {
-                observer.checkAndNotify();
+            final ExecutorService service = executor;
+            if (service == null) {
+                for (final FileAlterationObserver observer : observers) {
+                    observer.checkAndNotify();
+                }
+            } else {
+                checkAndNotify(service);
             }
             if (!running) {
                 break;
@@ -190,4 +217,36 @@ public final class FileAlterationMonitor implements Runnable {
             }
         }
     }
+
+    /**
+     * Check all observers in parallel and wait for them to finish.
+     *
+     * @param service the executor
+     */
+    private void checkAndNotify(final ExecutorService service) {
+        final List<Callable<Object>> checks = new ArrayList<Callable<Object>>();
+        for (final FileAlterationObserver observer : observers) {
+            checks.add(new Callable<Object>() {
+                public Object call() {
+                    observer.checkAndNotify();
+                    return null;
+                }
+            });
+        }
+        try {
+            for (final Future<Object> future : service.invokeAll(checks)) {
+                future.get();
+            }
+        } catch (final InterruptedException ignored) {
+        } catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
 }
@@ -20,6 +20,7 @@ import java.io.File;
 import java.io.FileFilter;
 import java.io.Serializable;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Comparator;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
@@ -114,6 +115,18 @@ import org.apache.commons.io.comparator.NameFileComparator;
  * method is used to determine if a file or directory has changed since the last
  * check and stores the current state of the {@link File}'s properties.
  *
+ * <a name="incremental"></a>
+ * <h2>Incremental Checks</h2>
+ * Creating, renaming or deleting an entry changes the last modified time of its
+ * directory. With {@link #setIncremental(boolean) incremental} checks, a
+ * directory whose last modified time has not changed since the previous check
+ * is not listed and sorted again: the files recorded for it are checked for
+ * changes instead. This saves most of the work of checking trees that rarely
+ * change. A directory is listed again while its last modified time is less than
+ * two seconds older than its previous listing, as file systems that record
+ * times in whole seconds could otherwise hide a change made in the same tick
+ * as that listing.
+ *
  * @see FileAlterationListener
  * @see FileAlterationMonitor
  * @version $Id$
@@ -122,10 +135,20 @@ import org.apache.commons.io.comparator.NameFileComparator;
 public class FileAlterationObserver implements Serializable {
 
     private static final long serialVersionUID = 1185122225658782848L;
+
+    /**
+     * The coarsest last modified time granularity allowed for, in milliseconds.
+     * In incremental checks, a directory whose last modified time is within this
+     * interval before its previous listing is listed again although the time has
+     * not changed.
+     */
+    private static final long RACY_INTERVAL = 2000;
+
     private final List<FileAlterationListener> listeners = new CopyOnWriteArrayList<FileAlterationListener>();
     private final FileEntry rootEntry;
     private final FileFilter fileFilter;
     private final Comparator<File> comparator;
+    private boolean incremental;
 
     /**
      * Construct an observer for the specified directory.
@@ -234,6 +257,29 @@ public class FileAlterationObserver implements Serializable {
         return fileFilter;
     }
 
+    /**
+     * Indicates whether directories whose last modified time has not changed
+     * are listed again.
+     *
+     * @return true if only changed directories are listed
+     * @since 2.5
+     */
+    public boolean isIncremental() {
+        return incremental;
+    }
+
+    /**
+     * Sets whether directories whose last modified time has not changed
+     * are listed again; see <a href="#incremental">Incremental Checks</a>.
+     * The default is false.
+     *
+     * @param incremental true to list only changed directories
+     * @since 2.5
+     */
+    public void setIncremental(final boolean incremental) {
+        this.incremental = incremental;
+    }
+
     /**
      * Add a file system listener.
      *
@@ -273,7 +319,7 @@ public class FileAlterationObserver implements Serializable {
      */
     public void initialize() throws Exception {
         rootEntry.refresh(rootEntry.getFile());
-        final File[] files = listFiles(rootEntry.getFile());
+        final File[] files = listFiles(rootEntry, rootEntry.getFile());
         final FileEntry[] children = files.length > 0 ? new FileEntry[files.length] : FileEntry.EMPTY_ENTRIES;
         for (int i = 0; i < files.length; i++) {
             children[i] = createFileEntry(rootEntry, files[i]);
@@ -302,7 +348,8 @@ public class FileAlterationObserver implements Serializable {
         /* fire directory/file events */
         final File rootFile = rootEntry.getFile();
         if (rootFile.exists()) {
-            checkAndNotify(rootEntry, rootEntry.getChildren(), listFiles(rootFile));
+            final boolean changed = !incremental || rootEntry.refresh(rootFile);
+            checkAndNotify(rootEntry, rootEntry.getChildren(), listFiles(rootEntry, rootFile, changed));
         } else if (rootEntry.isExists()) {
             checkAndNotify(rootEntry, rootEntry.getChildren(), FileUtils.EMPTY_FILE_ARRAY);
         } else {
@@ -315,6 +362,141 @@ public class FileAlterationObserver implements Serializable {
         }
     }
 
+    /**
+     * Check whether the specified files and their children have been created,
+     * modified or deleted, without checking the rest of the tree.
+     * <p>
+     * This is for callers that learn from elsewhere, for example from file
+     * system change notifications, which parts of the tree may have changed.
+     * Each file is compared with the state recorded for it and the subtree
+     * below it is re-listed; a file whose parent directory is not yet known
+     * is checked by checking the nearest known ancestor. Files that are not
+     * below the observed directory are ignored. Listeners receive the same
+     * events as for {@link #checkAndNotify()}, between one
+     * <code>onStart()</code> and one <code>onStop()</code>.
+     *
+     * @param files the files or directories to check
+     * @since 2.5
+     */
+    public void checkAndNotify(final Collection<File> files) {
+
+        /* fire onStart() */
+        for (final FileAlterationListener listener : listeners) {
+            listener.onStart(this);
+        }
+
+        /* fire directory/file events */
+        for (final File file : files) {
+            checkAndNotify(file);
+        }
+
+        /* fire onStop() */
+        for (final FileAlterationListener listener : listeners) {
+            listener.onStop(this);
+        }
+    }
+
+    /**
+     * Check a single file, and its children, against the recorded state.
+     *
+     * @param file The file to check
+     */
+    private void checkAndNotify(final File file) {
+        final File rootFile = rootEntry.getFile();
+        if (file.equals(rootFile)) {
+            if (rootFile.exists()) {
+                checkAndNotify(rootEntry, rootEntry.getChildren(), listFiles(rootEntry, rootFile));
+            } else if (rootEntry.isExists()) {
+                checkAndNotify(rootEntry, rootEntry.getChildren(), FileUtils.EMPTY_FILE_ARRAY);
+            }
+            return;
+        }
+        final File parentFile = file.getParentFile();
+        if (parentFile == null) {
+            return; // not below the observed directory
+        }
+        final FileEntry parent = findEntry(parentFile);
+        if (parent == null) {
+            checkAndNotify(parentFile);
+            return;
+        }
+        final FileEntry[] children = parent.getChildren();
+        final int index = indexOf(children, file);
+        final boolean listed = parentFile.isDirectory() && file.exists()
+                && (fileFilter == null || fileFilter.accept(file));
+        if (index >= 0) {
+            final FileEntry entry = children[index];
+            if (listed) {
+                doMatch(entry, file);
+                checkAndNotify(entry, entry.getChildren(), listFiles(entry, file));
+            } else {
+                checkAndNotify(entry, entry.getChildren(), FileUtils.EMPTY_FILE_ARRAY);
+                doDelete(entry);
+                final FileEntry[] current = children.length > 1 ? new FileEntry[children.length - 1]
+                        : FileEntry.EMPTY_ENTRIES;
+                System.arraycopy(children, 0, current, 0, index);
+                System.arraycopy(children, index + 1, current, index, children.length - index - 1);
+                parent.setChildren(current);
+            }
+        } else if (listed) {
+            final int insert = -index - 1;
+            final FileEntry entry = createFileEntry(parent, file);
+            doCreate(entry);
+            final FileEntry[] current = new FileEntry[children.length + 1];
+            System.arraycopy(children, 0, current, 0, insert);
+            current[insert] = entry;
+            System.arraycopy(children, insert, current, insert + 1, children.length - insert);
+            parent.setChildren(current);
+        }
+    }
+
+    /**
+     * Find the recorded entry of a directory.
+     *
+     * @param directory The directory
+     * @return the entry or null if the directory is not recorded below the observed directory
+     */
+    private FileEntry findEntry(final File directory) {
+        if (directory.equals(rootEntry.getFile())) {
+            return rootEntry;
+        }
+        final File parentFile = directory.getParentFile();
+        if (parentFile == null) {
+            return null;
+        }
+        final FileEntry parent = findEntry(parentFile);
+        if (parent == null) {
+            return null;
+        }
+        final FileEntry[] children = parent.getChildren();
+        final int index = indexOf(children, directory);
+        return index >= 0 ? children[index] : null;
+    }
+
+    /**
+     * Find a file in a sorted array of entries.
+     *
+     * @param entries The entries, sorted by the comparator
+     * @param file The file to find
+     * @return the index of the entry, or <code>(-(insertion point) - 1)</code> if not found
+     */
+    private int indexOf(final FileEntry[] entries, final File file) {
+        int low = 0;
+        int high = entries.length - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final int cmp = comparator.compare(entries[mid].getFile(), file);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
     /**
      * Compare two file lists for files which have been created, modified or deleted.
      *
@@ -332,8 +514,8 @@ public class FileAlterationObserver implements Serializable {
                 c++;
             }
             if (c < files.length && comparator.compare(entry.getFile(), files[c]) == 0) {
-                doMatch(entry, files[c]);
-                checkAndNotify(entry, entry.getChildren(), listFiles(files[c]));
+                final boolean changed = doMatch(entry, files[c]);
+                checkAndNotify(entry, entry.getChildren(), listFiles(entry, files[c], changed));
                 current[c] = entry;
                 c++;
             } else {
@@ -358,7 +540,7 @@ public class FileAlterationObserver implements Serializable {
     private FileEntry createFileEntry(final FileEntry parent, final File file) {
         final FileEntry entry = parent.newChildInstance(file);
         entry.refresh(file);
-        final File[] files = listFiles(file);
+        final File[] files = listFiles(entry, file);
         final FileEntry[] children = files.length > 0 ? new FileEntry[files.length] : FileEntry.EMPTY_ENTRIES;
         for (int i = 0; i < files.length; i++) {
             children[i] = createFileEntry(entry, files[i]);
@@ -391,8 +573,9 @@ public class FileAlterationObserver implements Serializable {
      *
      * @param entry The previous file system entry
      * @param file The current file
+     * @return true if the entry has changed
      */
-    private void doMatch(final FileEntry entry, final File file) {
+    private boolean doMatch(final FileEntry entry, final File file) {
         if (entry.refresh(file)) {
             for (final FileAlterationListener listener : listeners) {
                 if (entry.isDirectory()) {
@@ -401,7 +584,9 @@ public class FileAlterationObserver implements Serializable {
                     listener.onFileChange(file);
                 }
             }
+            return true;
         }
+        return false;
     }
 
     /**
@@ -419,6 +604,46 @@ public class FileAlterationObserver implements Serializable {
         }
     }
 
+    /**
+     * List the contents of a recorded directory, or in incremental checks
+     * return the recorded contents of a directory that has not changed.
+     *
+     * @param entry The refreshed entry of the file
+     * @param file The file to list the contents of
+     * @param changed Whether the entry changed when it was refreshed
+     * @return the directory contents or a zero length array if
+     * the empty or the file is not a directory
+     */
+    private File[] listFiles(final FileEntry entry, final File file, final boolean changed) {
+        if (!incremental || changed || !entry.isDirectory()
+                || entry.getLastModified() >= entry.getLastListed() - RACY_INTERVAL) {
+            return listFiles(entry, file);
+        }
+        final FileEntry[] children = entry.getChildren();
+        if (children.length == 0) {
+            return FileUtils.EMPTY_FILE_ARRAY;
+        }
+        final File[] files = new File[children.length];
+        for (int i = 0; i < children.length; i++) {
+            files[i] = children[i].getFile();
+        }
+        return files;
+    }
+
+    /**
+     * List the contents of a directory, recording the time of the listing in its entry.
+     *
+     * @param entry The entry of the file
+     * @param file The file to list the contents of
+     * @return the directory contents or a zero length array if
+     * the empty or the file is not a directory
+     */
+    private File[] listFiles(final FileEntry entry, final File file) {
+        // taken before listing, so that changes made during the listing count as later
+        entry.setLastListed(System.currentTimeMillis());
+        return listFiles(file);
+    }
+
     /**
      * List the contents of a directory
      *
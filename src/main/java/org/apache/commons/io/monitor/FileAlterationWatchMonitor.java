@@ -0,0 +1,388 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.io.monitor;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * A runnable that spawns a monitoring thread which notifies the registered
+ * {@link FileAlterationObserver}s of the changes reported by the file system.
+ * <p>
+ * Where the running Java version and the file system support it, the
+ * directories below each observed directory are registered with a
+ * <code>java.nio.file.WatchService</code>. The observer then only re-checks
+ * the files the service reports as changed, through
+ * {@link FileAlterationObserver#checkAndNotify(java.util.Collection)}, and
+ * listeners are notified soon after a change rather than up to one interval
+ * later. If the service reports that events were lost, the subtree of the
+ * directory concerned is re-checked.
+ * <p>
+ * Observers whose directory cannot be watched, because it does not exist,
+ * because the file system does not support watching, or because the running
+ * Java version has no watch service, are checked every interval, as
+ * {@link FileAlterationMonitor} does. Watching is tried again each interval.
+ *
+ * @see FileAlterationMonitor
+ * @version $Id$
+ * @since 2.5
+ */
+public final class FileAlterationWatchMonitor implements Runnable {
+
+    private final long interval;
+    private final boolean useWatchService;
+    private final List<FileAlterationObserver> observers = new CopyOnWriteArrayList<FileAlterationObserver>();
+    /** The observers whose directory is watched, used by the monitoring thread only. */
+    private final Set<FileAlterationObserver> watched = new HashSet<FileAlterationObserver>();
+    private volatile WatchServiceBridge watchService;
+    private Thread thread = null;
+    private ThreadFactory threadFactory;
+    private volatile boolean running = false;
+
+    /**
+     * Construct a monitor with a default interval of 10 seconds.
+     */
+    public FileAlterationWatchMonitor() {
+        this(10000);
+    }
+
+    /**
+     * Construct a monitor with the specified interval.
+     *
+     * @param interval The amount of time in milliseconds to wait between
+     * checks of the observers that are not watched
+     */
+    public FileAlterationWatchMonitor(final long interval) {
+        this(interval, true);
+    }
+
+    /**
+     * Construct a monitor with the specified interval and set of observers.
+     *
+     * @param interval The amount of time in milliseconds to wait between
+     * checks of the observers that are not watched
+     * @param observers The set of observers to add to the monitor.
+     */
+    public FileAlterationWatchMonitor(final long interval, final FileAlterationObserver... observers) {
+        this(interval);
+        if (observers != null) {
+            for (final FileAlterationObserver observer : observers) {
+                addObserver(observer);
+            }
+        }
+    }
+
+    /**
+     * Construct a monitor with the specified interval that may be restricted
+     * to polling.
+     *
+     * @param interval The amount of time in milliseconds to wait between
+     * checks of the observers that are not watched
+     * @param useWatchService false to check all observers every interval
+     * without using the watch service
+     */
+    public FileAlterationWatchMonitor(final long interval, final boolean useWatchService) {
+        this.interval = interval;
+        this.useWatchService = useWatchService;
+    }
+
+    /**
+     * Return the interval.
+     *
+     * @return the interval
+     */
+    public long getInterval() {
+        return interval;
+    }
+
+    /**
+     * Indicates whether a watch service is used. This is false before the
+     * monitor is started, when it was constructed not to use one, and when the
+     * running Java version or the default file system has none.
+     *
+     * @return true if changes are reported by a watch service
+     */
+    public boolean isWatching() {
+        return watchService != null;
+    }
+
+    /**
+     * Set the thread factory.
+     *
+     * @param threadFactory the thread factory
+     */
+    public synchronized void setThreadFactory(final ThreadFactory threadFactory) {
+        this.threadFactory = threadFactory;
+    }
+
+    /**
+     * Add a file system observer to this monitor.
+     *
+     * @param observer The file system observer to add
+     */
+    public void addObserver(final FileAlterationObserver observer) {
+        if (observer != null) {
+            observers.add(observer);
+        }
+    }
+
+    /**
+     * Remove a file system observer from this monitor.
+     *
+     * @param observer The file system observer to remove
+     */
+    public void removeObserver(final FileAlterationObserver observer) {
+        if (observer != null) {
+            while (observers.remove(observer)) {
+            }
+        }
+    }
+
+    /**
+     * Returns the set of {@link FileAlterationObserver} registered with
+     * this monitor.
+     *
+     * @return The set of {@link FileAlterationObserver}
+     */
+    public Iterable<FileAlterationObserver> getObservers() {
+        return observers;
+    }
+
+    /**
+     * Start monitoring. The directories of the observers are registered with
+     * the watch service before this method returns.
+     *
+     * @throws Exception if an error occurs initializing the observer
+     */
+    public synchronized void start() throws Exception {
+        if (running) {
+            throw new IllegalStateException("Monitor is already running");
+        }
+        for (final FileAlterationObserver observer : observers) {
+            observer.initialize();
+        }
+        watched.clear();
+        watchService = useWatchService ? WatchServiceBridge.open() : null;
+        for (final FileAlterationObserver observer : observers) {
+            watch(watchService, observer);
+        }
+        running = true;
+        if (threadFactory != null) {
+            thread = threadFactory.newThread(this);
+        } else {
+            thread = new Thread(this);
+        }
+        thread.start();
+    }
+
+    /**
+     * Stop monitoring.
+     *
+     * @throws Exception if an error occurs initializing the observer
+     */
+    public synchronized void stop() throws Exception {
+        stop(interval);
+    }
+
+    /**
+     * Stop monitoring.
+     *
+     * @param stopInterval the amount of time in milliseconds to wait for the thread to finish.
+     * A value of zero will wait until the thread is finished (see {@link Thread#join(long)}).
+     * @throws Exception if an error occurs initializing the observer
+     */
+    public synchronized void stop(final long stopInterval) throws Exception {
+        if (running == false) {
+            throw new IllegalStateException("Monitor is not running");
+        }
+        running = false;
+        try {
+            thread.join(stopInterval);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (watchService != null) {
+            watchService.close();
+            watchService = null;
+        }
+        for (final FileAlterationObserver observer : observers) {
+            observer.destroy();
+        }
+    }
+
+    /**
+     * Run.
+     */
+    public void run() {
+        WatchServiceBridge service = watchService;
+        final Set<File> overflowed = new HashSet<File>();
+        long nextCheck = 0;
+        while (running) {
+            final long now = System.currentTimeMillis();
+            if (now >= nextCheck) {
+                for (final FileAlterationObserver observer : observers) {
+                    if (!watch(service, observer)) {
+                        observer.checkAndNotify();
+                    }
+                }
+                nextCheck = now + interval;
+            }
+            if (!running) {
+                break;
+            }
+            try {
+                if (service == null) {
+                    Thread.sleep(interval);
+                } else {
+                    overflowed.clear();
+                    final List<File> changed = service.poll(Math.max(1, nextCheck - System.currentTimeMillis()),
+                            overflowed);
+                    notifyObservers(service, changed, overflowed);
+                }
+            } catch (final InterruptedException ignored) {
+            } catch (final IOException ex) {
+                // the watch service was closed or failed: poll from now on
+                if (watchService == service) {
+                    watchService = null;
+                }
+                service.close();
+                service = null;
+                watched.clear();
+                nextCheck = 0;
+            }
+        }
+    }
+
+    /**
+     * Passes changed files to the watched observers whose directory contains them.
+     *
+     * @param service the watch service
+     * @param changed the changed files
+     * @param overflowed the directories for which events were lost
+     */
+    private void notifyObservers(final WatchServiceBridge service, final List<File> changed,
+            final Set<File> overflowed) {
+        if (changed.isEmpty()) {
+            return;
+        }
+        for (final FileAlterationObserver observer : observers) {
+            if (!watched.contains(observer)) {
+                continue;
+            }
+            final File root = observer.getDirectory();
+            final List<File> files = new ArrayList<File>();
+            for (final File file : changed) {
+                if (isBelow(root, file)) {
+                    files.add(file);
+                    if (overflowed.contains(file) || !service.isRegistered(file) && file.isDirectory()) {
+                        register(service, observer, file);
+                    }
+                }
+            }
+            if (!files.isEmpty()) {
+                observer.checkAndNotify(files);
+            }
+            if (!root.isDirectory()) {
+                watched.remove(observer);
+            }
+        }
+    }
+
+    /**
+     * Registers the directory of an observer with the watch service unless
+     * it is registered already.
+     *
+     * @param service the watch service, null if none
+     * @param observer the observer
+     * @return true if the directory is watched
+     */
+    private boolean watch(final WatchServiceBridge service, final FileAlterationObserver observer) {
+        if (watched.contains(observer)) {
+            return true;
+        }
+        if (service == null || !observer.getDirectory().isDirectory()) {
+            return false;
+        }
+        if (!register(service, observer, observer.getDirectory())) {
+            return false;
+        }
+        watched.add(observer);
+        // catch up with changes made before the directories were registered
+        observer.checkAndNotify();
+        return true;
+    }
+
+    /**
+     * Registers a directory and the subdirectories the observer's filter
+     * accepts with the watch service.
+     *
+     * @param service the watch service
+     * @param observer the observer
+     * @param directory the directory
+     * @return false if the file system does not support watching
+     */
+    private boolean register(final WatchServiceBridge service, final FileAlterationObserver observer,
+            final File directory) {
+        final FileFilter filter = observer.getFileFilter();
+        final List<File> pending = new ArrayList<File>();
+        pending.add(directory);
+        while (!pending.isEmpty()) {
+            final File dir = pending.remove(pending.size() - 1);
+            try {
+                if (!service.isRegistered(dir) && !service.register(dir)) {
+                    return false;
+                }
+            } catch (final IOException ex) {
+                continue; // deleted meanwhile, its parent reports that
+            }
+            final File[] children = dir.listFiles();
+            if (children != null) {
+                for (final File child : children) {
+                    if (child.isDirectory() && (filter == null || filter.accept(child))) {
+                        pending.add(child);
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Indicates whether a file is the directory or below it.
+     *
+     * @param directory the directory
+     * @param file the file
+     * @return true if the file is the directory or below it
+     */
+    private static boolean isBelow(final File directory, final File file) {
+        final String dirPath = directory.getPath();
+        final String path = file.getPath();
+        if (!path.startsWith(dirPath)) {
+            return false;
+        }
+        return path.length() == dirPath.length()
+                || dirPath.endsWith(File.separator)
+                || path.charAt(dirPath.length()) == File.separatorChar;
+    }
+}
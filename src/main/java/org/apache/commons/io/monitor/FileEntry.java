@@ -54,6 +54,7 @@ public class FileEntry implements Serializable {
     private boolean directory;
     private long lastModified;
     private long length;
+    private long lastListed;
 
     /**
      * Construct a new monitor for a specified {@link File}.
@@ -213,6 +214,26 @@ public class FileEntry implements Serializable {
         this.lastModified = lastModified;
     }
 
+    /**
+     * Return the time at which the directory's contents were last listed.
+     *
+     * @return the time in milliseconds, or zero if never listed
+     * @since 2.5
+     */
+    public long getLastListed() {
+        return lastListed;
+    }
+
+    /**
+     * Set the time at which the directory's contents were last listed.
+     *
+     * @param lastListed The time in milliseconds
+     * @since 2.5
+     */
+    public void setLastListed(final long lastListed) {
+        this.lastListed = lastListed;
+    }
+
     /**
      * Return the length.
      *
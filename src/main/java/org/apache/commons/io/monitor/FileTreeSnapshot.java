@@ -0,0 +1,558 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.io.monitor;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedList;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOCase;
+import org.apache.commons.io.comparator.NameFileComparator;
+
+/**
+ * The state of the files below a directory, held in primitive arrays.
+ * <p>
+ * Where a tree of {@link FileEntry} objects needs a <code>File</code>, a name
+ * <code>String</code>, a child array and the object headers for every entry,
+ * a snapshot stores each entry as a row of a few arrays: the index of its
+ * parent, the range of its children, its last modified time, length, flags and
+ * the offset of its name in a shared character array. That is roughly 33 bytes
+ * plus two bytes per name character per entry, and the garbage collector sees
+ * a dozen arrays rather than millions of objects.
+ * <p>
+ * Entry 0 is the root directory. The children of a directory are stored next
+ * to each other, sorted by name, so two snapshots are compared with a merge of
+ * sorted ranges, exactly like {@link FileAlterationObserver} compares its
+ * entries, and {@link #notifyChanges(FileTreeSnapshot, Iterable)} reports the
+ * same events in the same order.
+ * <p>
+ * A snapshot can be written to a stream and read back, so that a restarted
+ * process can report the changes made while it was not running without first
+ * scanning the whole tree to get a baseline.
+ * <p>
+ * Snapshots are immutable and may be shared between threads.
+ *
+ * @see CompactFileAlterationObserver
+ * @version $Id$
+ * @since 2.5
+ */
+public final class FileTreeSnapshot implements Serializable {
+
+    private static final long serialVersionUID = 6311947346236617489L;
+
+    /** The first int of the stream format. */
+    private static final int MAGIC = 0x43494f53;
+    /** The version of the stream format. */
+    private static final int VERSION = 1;
+
+    private static final byte EXISTS = 1;
+    private static final byte DIRECTORY = 2;
+
+    private final File root;
+    private final IOCase caseSensitivity;
+    private int size;
+    private int[] parents;
+    private int[] firstChildren;
+    private int[] childCounts;
+    private long[] lastModifieds;
+    private long[] lengths;
+    private byte[] flags;
+    /** The offset of each name in names, plus the end of the last one. */
+    private int[] nameOffsets;
+    private char[] names;
+
+    /**
+     * Creates an empty snapshot.
+     *
+     * @param root the root directory
+     * @param caseSensitivity the case sensitivity of the name order
+     * @param capacity the initial number of entries
+     */
+    private FileTreeSnapshot(final File root, final IOCase caseSensitivity, final int capacity) {
+        this.root = root;
+        this.caseSensitivity = caseSensitivity;
+        parents = new int[capacity];
+        firstChildren = new int[capacity];
+        childCounts = new int[capacity];
+        lastModifieds = new long[capacity];
+        lengths = new long[capacity];
+        flags = new byte[capacity];
+        nameOffsets = new int[capacity + 1];
+        names = new char[capacity * 16];
+    }
+
+    /**
+     * Scans the files below a directory.
+     *
+     * @param directory the root directory
+     * @param fileFilter the filter of the files and directories to record, null for all
+     * @param caseSensitivity what case sensitivity to use comparing file names, null means system sensitive
+     * @return the snapshot
+     */
+    public static FileTreeSnapshot scan(final File directory, final FileFilter fileFilter,
+            final IOCase caseSensitivity) {
+        if (directory == null) {
+            throw new NullPointerException("directory");
+        }
+        final IOCase sensitivity = caseSensitivity == null ? IOCase.SYSTEM : caseSensitivity;
+        final Comparator<File> comparator = comparator(sensitivity);
+        final FileTreeSnapshot snapshot = new FileTreeSnapshot(directory, sensitivity, 1024);
+        snapshot.add(-1, directory.getName(), directory);
+
+        // breadth first, so that the children of each directory are adjacent
+        final LinkedList<File> directories = new LinkedList<File>();
+        if (snapshot.isDirectory(0)) {
+            directories.add(directory);
+        }
+        for (int i = 0; i < snapshot.size; i++) {
+            snapshot.firstChildren[i] = snapshot.size;
+            if (!snapshot.isDirectory(i)) {
+                continue;
+            }
+            final File dir = directories.removeFirst();
+            File[] children = fileFilter == null ? dir.listFiles() : dir.listFiles(fileFilter);
+            if (children == null) {
+                children = FileUtils.EMPTY_FILE_ARRAY;
+            }
+            if (children.length > 1) {
+                Arrays.sort(children, comparator);
+            }
+            snapshot.childCounts[i] = children.length;
+            for (final File child : children) {
+                if (snapshot.add(i, child.getName(), child)) {
+                    directories.add(child);
+                }
+            }
+        }
+        snapshot.trim();
+        return snapshot;
+    }
+
+    private static Comparator<File> comparator(final IOCase caseSensitivity) {
+        if (caseSensitivity.equals(IOCase.SYSTEM)) {
+            return NameFileComparator.NAME_SYSTEM_COMPARATOR;
+        } else if (caseSensitivity.equals(IOCase.INSENSITIVE)) {
+            return NameFileComparator.NAME_INSENSITIVE_COMPARATOR;
+        }
+        return NameFileComparator.NAME_COMPARATOR;
+    }
+
+    /**
+     * Appends an entry, reading the attributes of the file like {@link FileEntry#refresh(File)}.
+     *
+     * @return true if the entry is a directory
+     */
+    private boolean add(final int parent, final String name, final File file) {
+        ensureCapacity(size + 1, name.length());
+        final boolean exists = file.exists();
+        final boolean directory = exists && file.isDirectory();
+        parents[size] = parent;
+        lastModifieds[size] = exists ? file.lastModified() : 0;
+        lengths[size] = exists && !directory ? file.length() : 0;
+        flags[size] = (byte) ((exists ? EXISTS : 0) | (directory ? DIRECTORY : 0));
+        final int offset = nameOffsets[size];
+        name.getChars(0, name.length(), names, offset);
+        nameOffsets[size + 1] = offset + name.length();
+        size++;
+        return directory;
+    }
+
+    private void ensureCapacity(final int entries, final int nameLength) {
+        if (entries > parents.length) {
+            final int capacity = Math.max(entries, parents.length + (parents.length >> 1));
+            parents = copyOf(parents, capacity);
+            firstChildren = copyOf(firstChildren, capacity);
+            childCounts = copyOf(childCounts, capacity);
+            lastModifieds = copyOf(lastModifieds, capacity);
+            lengths = copyOf(lengths, capacity);
+            flags = copyOf(flags, capacity);
+            nameOffsets = copyOf(nameOffsets, capacity + 1);
+        }
+        final int nameEnd = nameOffsets[size] + nameLength;
+        if (nameEnd > names.length) {
+            final char[] grown = new char[Math.max(nameEnd, names.length + (names.length >> 1))];
+            System.arraycopy(names, 0, grown, 0, nameOffsets[size]);
+            names = grown;
+        }
+    }
+
+    private void trim() {
+        if (parents.length > size) {
+            parents = copyOf(parents, size);
+            firstChildren = copyOf(firstChildren, size);
+            childCounts = copyOf(childCounts, size);
+            lastModifieds = copyOf(lastModifieds, size);
+            lengths = copyOf(lengths, size);
+            flags = copyOf(flags, size);
+            nameOffsets = copyOf(nameOffsets, size + 1);
+        }
+        if (names.length > nameOffsets[size]) {
+            final char[] trimmed = new char[nameOffsets[size]];
+            System.arraycopy(names, 0, trimmed, 0, trimmed.length);
+            names = trimmed;
+        }
+    }
+
+    private static int[] copyOf(final int[] array, final int length) {
+        final int[] copy = new int[length];
+        System.arraycopy(array, 0, copy, 0, Math.min(array.length, length));
+        return copy;
+    }
+
+    private static long[] copyOf(final long[] array, final int length) {
+        final long[] copy = new long[length];
+        System.arraycopy(array, 0, copy, 0, Math.min(array.length, length));
+        return copy;
+    }
+
+    private static byte[] copyOf(final byte[] array, final int length) {
+        final byte[] copy = new byte[length];
+        System.arraycopy(array, 0, copy, 0, Math.min(array.length, length));
+        return copy;
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * Returns the root directory.
+     *
+     * @return the root directory
+     */
+    public File getDirectory() {
+        return root;
+    }
+
+    /**
+     * Returns the case sensitivity of the name order.
+     *
+     * @return the case sensitivity
+     */
+    public IOCase getCaseSensitivity() {
+        return caseSensitivity;
+    }
+
+    /**
+     * Returns the number of entries, including the root directory.
+     *
+     * @return the number of entries
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the file of an entry.
+     *
+     * @param index the index of the entry, 0 for the root directory
+     * @return the file
+     */
+    public File getFile(final int index) {
+        return index == 0 ? root : new File(getFile(parents[index]), getName(index));
+    }
+
+    /**
+     * Returns the name of an entry.
+     *
+     * @param index the index of the entry
+     * @return the name
+     */
+    public String getName(final int index) {
+        return new String(names, nameOffsets[index], nameOffsets[index + 1] - nameOffsets[index]);
+    }
+
+    /**
+     * Returns the index of the parent of an entry.
+     *
+     * @param index the index of the entry
+     * @return the index of the parent, -1 for the root directory
+     */
+    public int getParent(final int index) {
+        return parents[index];
+    }
+
+    /**
+     * Returns the last modified time of an entry.
+     *
+     * @param index the index of the entry
+     * @return the last modified time, 0 if the file did not exist
+     */
+    public long getLastModified(final int index) {
+        return lastModifieds[index];
+    }
+
+    /**
+     * Returns the length of an entry.
+     *
+     * @param index the index of the entry
+     * @return the length, 0 for directories
+     */
+    public long getLength(final int index) {
+        return lengths[index];
+    }
+
+    /**
+     * Indicates whether an entry existed.
+     *
+     * @param index the index of the entry
+     * @return true if the file existed
+     */
+    public boolean isExists(final int index) {
+        return (flags[index] & EXISTS) != 0;
+    }
+
+    /**
+     * Indicates whether an entry is a directory.
+     *
+     * @param index the index of the entry
+     * @return true if the file is a directory
+     */
+    public boolean isDirectory(final int index) {
+        return (flags[index] & DIRECTORY) != 0;
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * Notifies listeners of the differences between this snapshot and a later
+     * one of the same directory. The events and their order are those that
+     * {@link FileAlterationObserver#checkAndNotify()} fires, except that
+     * <code>onStart()</code> and <code>onStop()</code> are not called.
+     *
+     * @param current the later snapshot
+     * @param listeners the listeners to notify
+     */
+    public void notifyChanges(final FileTreeSnapshot current, final Iterable<FileAlterationListener> listeners) {
+        compareChildren(0, current, 0, root, listeners);
+    }
+
+    /**
+     * Compares the children of an entry of this snapshot with those of an
+     * entry of the current snapshot.
+     *
+     * @param previous the entry of this snapshot, -1 if none
+     * @param current the current snapshot
+     * @param matched the entry of the current snapshot, -1 if none
+     * @param directory the file of the entries
+     * @param listeners the listeners to notify
+     */
+    private void compareChildren(final int previous, final FileTreeSnapshot current, final int matched,
+            final File directory, final Iterable<FileAlterationListener> listeners) {
+        final int oldFirst = previous < 0 ? 0 : firstChildren[previous];
+        final int oldCount = previous < 0 ? 0 : childCounts[previous];
+        final int newFirst = matched < 0 ? 0 : current.firstChildren[matched];
+        final int newCount = matched < 0 ? 0 : current.childCounts[matched];
+        int c = 0;
+        for (int o = oldFirst; o < oldFirst + oldCount; o++) {
+            final String name = getName(o);
+            int cmp = 0;
+            while (c < newCount && (cmp = caseSensitivity.checkCompareTo(name, current.getName(newFirst + c))) > 0) {
+                current.doCreate(newFirst + c, new File(directory, current.getName(newFirst + c)), listeners);
+                c++;
+            }
+            if (c < newCount && cmp == 0) {
+                final int n = newFirst + c;
+                final File file = new File(directory, current.getName(n));
+                if (flags[o] != current.flags[n] || lastModifieds[o] != current.lastModifieds[n]
+                        || lengths[o] != current.lengths[n]) {
+                    for (final FileAlterationListener listener : listeners) {
+                        if (current.isDirectory(n)) {
+                            listener.onDirectoryChange(file);
+                        } else {
+                            listener.onFileChange(file);
+                        }
+                    }
+                }
+                compareChildren(o, current, n, file, listeners);
+                c++;
+            } else {
+                final File file = new File(directory, name);
+                compareChildren(o, current, -1, file, listeners);
+                for (final FileAlterationListener listener : listeners) {
+                    if (isDirectory(o)) {
+                        listener.onDirectoryDelete(file);
+                    } else {
+                        listener.onFileDelete(file);
+                    }
+                }
+            }
+        }
+        for (; c < newCount; c++) {
+            current.doCreate(newFirst + c, new File(directory, current.getName(newFirst + c)), listeners);
+        }
+    }
+
+    /**
+     * Fires created events for an entry and everything below it.
+     */
+    private void doCreate(final int index, final File file, final Iterable<FileAlterationListener> listeners) {
+        for (final FileAlterationListener listener : listeners) {
+            if (isDirectory(index)) {
+                listener.onDirectoryCreate(file);
+            } else {
+                listener.onFileCreate(file);
+            }
+        }
+        final int first = firstChildren[index];
+        for (int child = first; child < first + childCounts[index]; child++) {
+            doCreate(child, new File(file, getName(child)), listeners);
+        }
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * Writes this snapshot to a stream in a compact binary format.
+     * The stream is not closed.
+     *
+     * @param output the stream to write to
+     * @throws IOException if an I/O error occurs
+     */
+    public void writeTo(final OutputStream output) throws IOException {
+        final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(output));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeUTF(root.getPath());
+        out.writeUTF(caseSensitivity.getName());
+        out.writeInt(size);
+        for (int i = 0; i < size; i++) {
+            out.writeInt(parents[i]);
+            out.writeInt(firstChildren[i]);
+            out.writeInt(childCounts[i]);
+            out.writeLong(lastModifieds[i]);
+            out.writeLong(lengths[i]);
+            out.writeByte(flags[i]);
+            out.writeInt(nameOffsets[i + 1]);
+        }
+        final int nameLength = nameOffsets[size];
+        for (int i = 0; i < nameLength; i++) {
+            out.writeChar(names[i]);
+        }
+        out.flush();
+    }
+
+    /**
+     * Reads a snapshot written by {@link #writeTo(OutputStream)}.
+     * The stream is buffered, so it may be read beyond the end of the
+     * snapshot. It is not closed.
+     *
+     * @param input the stream to read from
+     * @return the snapshot
+     * @throws IOException if an I/O error occurs or the stream does not hold a snapshot
+     */
+    public static FileTreeSnapshot readFrom(final InputStream input) throws IOException {
+        final DataInputStream in = new DataInputStream(new BufferedInputStream(input));
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a file tree snapshot");
+        }
+        final int version = in.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported file tree snapshot version " + version);
+        }
+        final File root = new File(in.readUTF());
+        final IOCase caseSensitivity;
+        try {
+            caseSensitivity = IOCase.forName(in.readUTF());
+        } catch (final IllegalArgumentException ex) {
+            throw new IOException("Invalid file tree snapshot: " + ex.getMessage());
+        }
+        final int size = in.readInt();
+        if (size < 1) {
+            throw new IOException("Invalid file tree snapshot size " + size);
+        }
+        // grown as entries are read, so that a corrupt size fails at the end of the stream
+        final FileTreeSnapshot snapshot = new FileTreeSnapshot(root, caseSensitivity, Math.min(size, 1024));
+        for (int i = 0; i < size; i++) {
+            snapshot.ensureCapacity(i + 1, 0);
+            snapshot.parents[i] = in.readInt();
+            snapshot.firstChildren[i] = in.readInt();
+            snapshot.childCounts[i] = in.readInt();
+            snapshot.lastModifieds[i] = in.readLong();
+            snapshot.lengths[i] = in.readLong();
+            snapshot.flags[i] = in.readByte();
+            snapshot.nameOffsets[i + 1] = in.readInt();
+        }
+        snapshot.validate(size);
+        final int nameLength = snapshot.nameOffsets[size];
+        char[] names = new char[Math.min(nameLength, 1024 * 16)];
+        for (int i = 0; i < nameLength; i++) {
+            if (i == names.length) {
+                final char[] grown = new char[(int) Math.min(nameLength, 2L * names.length)];
+                System.arraycopy(names, 0, grown, 0, i);
+                names = grown;
+            }
+            names[i] = in.readChar();
+        }
+        snapshot.names = names;
+        snapshot.size = size;
+        snapshot.trim();
+        return snapshot;
+    }
+
+    /**
+     * Checks that the entries read from a stream form a tree laid out the way
+     * {@link #scan(File, FileFilter, IOCase)} lays it out, so that no index
+     * in them is out of range.
+     *
+     * @param count the number of entries read
+     * @throws IOException if the entries do not form such a tree
+     */
+    private void validate(final int count) throws IOException {
+        if (parents[0] != -1) {
+            throw new IOException("Invalid file tree snapshot root parent " + parents[0]);
+        }
+        for (int i = 0; i < count; i++) {
+            if (i > 0 && (parents[i] < 0 || parents[i] >= i)) {
+                throw new IOException("Invalid file tree snapshot parent " + parents[i] + " of entry " + i);
+            }
+            final int first = firstChildren[i];
+            final int childCount = childCounts[i];
+            if (childCount < 0 || first < 0 || first > count - childCount
+                    || childCount > 0 && first <= i) {
+                throw new IOException("Invalid file tree snapshot children " + first + ".." + childCount
+                        + " of entry " + i);
+            }
+            for (int child = first; child < first + childCount; child++) {
+                if (parents[child] != i) {
+                    throw new IOException("Invalid file tree snapshot parent " + parents[child]
+                            + " of entry " + child);
+                }
+            }
+            if (nameOffsets[i + 1] < nameOffsets[i]) {
+                throw new IOException("Invalid file tree snapshot name offset " + nameOffsets[i + 1]
+                        + " of entry " + i);
+            }
+        }
+    }
+
+    /**
+     * Provide a String representation of this snapshot.
+     *
+     * @return a String representation of this snapshot
+     */
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[file='" + root.getPath() + "', size=" + size + "]";
+    }
+}
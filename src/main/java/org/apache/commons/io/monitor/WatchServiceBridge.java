@@ -0,0 +1,286 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.io.monitor;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Access to the <code>java.nio.file.WatchService</code> of the default file
+ * system through reflection, so that this library keeps running on Java
+ * versions without it.
+ * <p>
+ * Instances are not thread-safe; they are used by the thread of one
+ * {@link FileAlterationWatchMonitor}.
+ *
+ * @version $Id$
+ * @since 2.5
+ */
+final class WatchServiceBridge {
+
+    /** <code>File.toPath()</code>. */
+    private static final Method TO_PATH;
+    /** <code>FileSystem.newWatchService()</code> of the default file system. */
+    private static final Method NEW_WATCH_SERVICE;
+    /** The default <code>FileSystem</code>. */
+    private static final Object FILE_SYSTEM;
+    /** <code>Path.register(WatchService, WatchEvent.Kind...)</code>. */
+    private static final Method REGISTER;
+    /** <code>WatchService.poll(long, TimeUnit)</code>. */
+    private static final Method POLL_TIMEOUT;
+    /** <code>WatchService.poll()</code>. */
+    private static final Method POLL;
+    /** <code>WatchService.close()</code>. */
+    private static final Method CLOSE;
+    /** <code>WatchKey.pollEvents()</code>. */
+    private static final Method POLL_EVENTS;
+    /** <code>WatchKey.reset()</code>. */
+    private static final Method RESET;
+    /** <code>WatchEvent.kind()</code>. */
+    private static final Method KIND;
+    /** <code>WatchEvent.context()</code>. */
+    private static final Method CONTEXT;
+    /** The create, delete and modify event kinds. */
+    private static final Object KINDS;
+    /** The overflow event kind. */
+    private static final Object OVERFLOW;
+
+    static {
+        Method toPath = null;
+        Method newWatchService = null;
+        Object fileSystem = null;
+        Method register = null;
+        Method pollTimeout = null;
+        Method poll = null;
+        Method close = null;
+        Method pollEvents = null;
+        Method reset = null;
+        Method kind = null;
+        Method context = null;
+        Object kinds = null;
+        Object overflow = null;
+        try {
+            final Class<?> pathClass = Class.forName("java.nio.file.Path");
+            final Class<?> fileSystemClass = Class.forName("java.nio.file.FileSystem");
+            final Class<?> watchServiceClass = Class.forName("java.nio.file.WatchService");
+            final Class<?> watchKeyClass = Class.forName("java.nio.file.WatchKey");
+            final Class<?> watchEventClass = Class.forName("java.nio.file.WatchEvent");
+            final Class<?> kindClass = Class.forName("java.nio.file.WatchEvent$Kind");
+            final Class<?> kindsClass = Class.forName("java.nio.file.StandardWatchEventKinds");
+
+            toPath = File.class.getMethod("toPath");
+            fileSystem = Class.forName("java.nio.file.FileSystems").getMethod("getDefault").invoke(null);
+            newWatchService = fileSystemClass.getMethod("newWatchService");
+            register = pathClass.getMethod("register", watchServiceClass, Array.newInstance(kindClass, 0).getClass());
+            pollTimeout = watchServiceClass.getMethod("poll", long.class, TimeUnit.class);
+            poll = watchServiceClass.getMethod("poll");
+            close = watchServiceClass.getMethod("close");
+            pollEvents = watchKeyClass.getMethod("pollEvents");
+            reset = watchKeyClass.getMethod("reset");
+            kind = watchEventClass.getMethod("kind");
+            context = watchEventClass.getMethod("context");
+            kinds = Array.newInstance(kindClass, 3);
+            Array.set(kinds, 0, kindsClass.getField("ENTRY_CREATE").get(null));
+            Array.set(kinds, 1, kindsClass.getField("ENTRY_DELETE").get(null));
+            Array.set(kinds, 2, kindsClass.getField("ENTRY_MODIFY").get(null));
+            overflow = kindsClass.getField("OVERFLOW").get(null);
+        } catch (final Exception ex) {
+            // Java 6, or a runtime without java.nio.file
+            toPath = null;
+        }
+        TO_PATH = toPath;
+        NEW_WATCH_SERVICE = newWatchService;
+        FILE_SYSTEM = fileSystem;
+        REGISTER = register;
+        POLL_TIMEOUT = pollTimeout;
+        POLL = poll;
+        CLOSE = close;
+        POLL_EVENTS = pollEvents;
+        RESET = reset;
+        KIND = kind;
+        CONTEXT = context;
+        KINDS = kinds;
+        OVERFLOW = overflow;
+    }
+
+    /** The watch service. */
+    private final Object watchService;
+    /** The directory of each watch key. */
+    private final Map<Object, File> directories = new HashMap<Object, File>();
+    /** The watched directories. */
+    private final Set<File> registered = new HashSet<File>();
+
+    /**
+     * Indicates whether the running Java version has a watch service.
+     *
+     * @return true if {@link #open()} can succeed
+     */
+    static boolean isAvailable() {
+        return TO_PATH != null;
+    }
+
+    /**
+     * Opens a watch service of the default file system.
+     *
+     * @return the bridge, null if the running Java version or the file system has no watch service
+     */
+    static WatchServiceBridge open() {
+        if (!isAvailable()) {
+            return null;
+        }
+        try {
+            return new WatchServiceBridge(NEW_WATCH_SERVICE.invoke(FILE_SYSTEM));
+        } catch (final Exception ex) {
+            return null;
+        }
+    }
+
+    private WatchServiceBridge(final Object watchService) {
+        this.watchService = watchService;
+    }
+
+    /**
+     * Watches a directory for entries being created, deleted or modified.
+     * Registering a directory again has no effect.
+     *
+     * @param directory the directory
+     * @return false if the file system of the directory does not support watching
+     * @throws IOException if the directory cannot be watched, for example because it was deleted
+     */
+    boolean register(final File directory) throws IOException {
+        try {
+            final Object key = REGISTER.invoke(TO_PATH.invoke(directory), watchService, KINDS);
+            directories.put(key, directory);
+            registered.add(directory);
+            return true;
+        } catch (final InvocationTargetException ex) {
+            final Throwable cause = ex.getCause();
+            if (cause instanceof UnsupportedOperationException) {
+                return false;
+            }
+            throw rethrow(cause);
+        } catch (final IllegalAccessException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Indicates whether a directory is watched.
+     *
+     * @param directory the directory
+     * @return true if the directory was registered and can still be watched
+     */
+    boolean isRegistered(final File directory) {
+        return registered.contains(directory);
+    }
+
+    /**
+     * Waits for changes and returns the changed files. An overflow, or a
+     * directory that can no longer be watched, is reported as a change of the
+     * watched directory itself.
+     *
+     * @param timeout the time to wait for the first change in milliseconds
+     * @param overflowed receives the directories for which events were lost
+     * @return the changed files in the order the events were received, empty if none
+     * @throws InterruptedException if interrupted while waiting
+     * @throws IOException if the watch service fails or was closed
+     */
+    List<File> poll(final long timeout, final Collection<File> overflowed) throws InterruptedException, IOException {
+        final Set<File> changed = new LinkedHashSet<File>();
+        try {
+            Object key = POLL_TIMEOUT.invoke(watchService, Long.valueOf(timeout), TimeUnit.MILLISECONDS);
+            while (key != null) {
+                final File directory = directories.get(key);
+                for (final Object event : (List<?>) POLL_EVENTS.invoke(key)) {
+                    if (directory == null) {
+                        continue;
+                    }
+                    final Object context = CONTEXT.invoke(event);
+                    if (KIND.invoke(event) == OVERFLOW || context == null) {
+                        changed.add(directory);
+                        overflowed.add(directory);
+                    } else {
+                        changed.add(new File(directory, context.toString()));
+                    }
+                }
+                if (!((Boolean) RESET.invoke(key)).booleanValue()) {
+                    directories.remove(key);
+                    if (directory != null) {
+                        registered.remove(directory);
+                        changed.add(directory);
+                    }
+                }
+                key = POLL.invoke(watchService);
+            }
+        } catch (final InvocationTargetException ex) {
+            if (ex.getCause() instanceof InterruptedException) {
+                throw (InterruptedException) ex.getCause();
+            }
+            throw rethrow(ex.getCause());
+        } catch (final IllegalAccessException ex) {
+            throw new IOException(ex);
+        }
+        return new ArrayList<File>(changed);
+    }
+
+    /**
+     * Closes the watch service.
+     */
+    void close() {
+        try {
+            CLOSE.invoke(watchService);
+        } catch (final Exception ex) {
+            // ignore
+        }
+        directories.clear();
+        registered.clear();
+    }
+
+    /**
+     * Rethrows the cause of a reflective call, wrapping checked exceptions
+     * other than IOException.
+     *
+     * @param cause the cause
+     * @return never returns, declared so that callers can <code>throw</code> it
+     * @throws IOException the cause or an IOException wrapping it
+     */
+    private static IOException rethrow(final Throwable cause) throws IOException {
+        if (cause instanceof IOException) {
+            throw (IOException) cause;
+        }
+        if (cause instanceof RuntimeException) {
+            // e.g. ClosedWatchServiceException
+            throw new IOException(cause);
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        throw new IOException(cause);
+    }
+}
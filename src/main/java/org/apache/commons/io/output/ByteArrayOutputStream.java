@@ -24,6 +24,8 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.SequenceInputStream;
 import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -37,7 +39,9 @@ import org.apache.commons.io.input.ClosedInputStream;
  * is written to it.
  * <p>
  * The data can be retrieved using <code>toByteArray()</code> and
- * <code>toString()</code>.
+ * <code>toString()</code>, or without copying it into one array through
+ * <code>toByteBuffers()</code>, <code>toInputStream()</code> and
+ * <code>writeTo(GatheringByteChannel)</code>.
  * <p>
  * Closing a {@code ByteArrayOutputStream} has no effect. The methods in
  * this class can be called after the stream has been closed without
@@ -59,6 +63,9 @@ public class ByteArrayOutputStream extends OutputStream {
     /** A singleton empty byte array. */
     private static final byte[] EMPTY_BYTE_ARRAY = new byte[0];
 
+    /** A singleton empty buffer array. */
+    private static final ByteBuffer[] EMPTY_BYTE_BUFFER_ARRAY = new ByteBuffer[0];
+
     /** The list of buffers, which grows and never reduces. */
     private final List<byte[]> buffers = new ArrayList<byte[]>();
     /** The index of the current buffer. */
@@ -266,6 +273,23 @@ public class ByteArrayOutputStream extends OutputStream {
         }
     }
 
+    /**
+     * Writes the entire contents of this byte stream to the specified
+     * channel with gathering writes over the internal buffers, without
+     * copying them into one array.
+     * <p>
+     * The channel should be in blocking mode: this method keeps writing
+     * until every byte has been accepted.
+     *
+     * @param channel  the channel to write to
+     * @return the number of bytes written, the same as {@link #size()}
+     * @throws IOException if an I/O error occurs, such as if the channel is closed
+     * @since 2.5
+     */
+    public synchronized long writeTo(final GatheringByteChannel channel) throws IOException {
+        return writeFully(channel, toByteBuffers(false));
+    }
+
     /**
      * Fetches entire contents of an <code>InputStream</code> and represent
      * same data as result InputStream.
@@ -351,6 +375,72 @@ public class ByteArrayOutputStream extends OutputStream {
         return new SequenceInputStream(Collections.enumeration(list));
     }
 
+    /**
+     * Gets the current contents of this byte stream as read-only buffers
+     * over the internal buffers, avoiding memory allocation and copy.
+     * <p>
+     * Each buffer's position is zero and its limit is the number of bytes
+     * it holds, so together they form a composite view of the contents that
+     * can be passed to a gathering write as is. As with {@link #toInputStream()},
+     * the internal buffers are not reused after the next {@link #reset()}, so
+     * the view stays valid; it does not cover bytes written later.
+     *
+     * @return the buffers, empty if nothing was written
+     * @see #toInputStream()
+     * @since 2.5
+     */
+    public synchronized ByteBuffer[] toByteBuffers() {
+        final ByteBuffer[] result = toByteBuffers(true);
+        if (result.length > 0) {
+            reuseBuffers = false;
+        }
+        return result;
+    }
+
+    /**
+     * Wraps the filled part of each internal buffer.
+     *
+     * @param readOnly whether to return read-only buffers
+     * @return the buffers, empty if nothing was written
+     */
+    private ByteBuffer[] toByteBuffers(final boolean readOnly) {
+        int remaining = count;
+        if (remaining == 0) {
+            return EMPTY_BYTE_BUFFER_ARRAY;
+        }
+        final List<ByteBuffer> list = new ArrayList<ByteBuffer>(buffers.size());
+        for (final byte[] buf : buffers) {
+            final int c = Math.min(buf.length, remaining);
+            final ByteBuffer buffer = ByteBuffer.wrap(buf, 0, c);
+            list.add(readOnly ? buffer.asReadOnlyBuffer() : buffer);
+            remaining -= c;
+            if (remaining == 0) {
+                break;
+            }
+        }
+        return list.toArray(new ByteBuffer[list.size()]);
+    }
+
+    /**
+     * Writes all remaining bytes of the given buffers to a channel.
+     *
+     * @param channel  the channel to write to
+     * @param buffers  the buffers to write
+     * @return the number of bytes written
+     * @throws IOException if an I/O error occurs
+     */
+    static long writeFully(final GatheringByteChannel channel, final ByteBuffer[] buffers) throws IOException {
+        long written = 0;
+        int first = 0;
+        while (first < buffers.length) {
+            written += channel.write(buffers, first, buffers.length - first);
+            while (first < buffers.length && !buffers[first].hasRemaining()) {
+                first++;
+            }
+        }
+        return written;
+    }
+
     /**
      * Gets the curent contents of this byte stream as a byte array.
      * The result is independent of this stream.
@@ -24,6 +24,9 @@ import java.io.OutputStream;
  * <p>
  * A typical use case would be during debugging, to ensure that data is being
  * written as expected.
+ * <p>
+ * The count is guarded by this stream's lock. Where other threads poll the count
+ * while the stream is in use, {@link ConcurrentCountingOutputStream} avoids the locking.
  *
  * @version $Id$
  */
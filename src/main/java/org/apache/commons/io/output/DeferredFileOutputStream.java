@@ -35,6 +35,10 @@ import org.apache.commons.io.IOUtils;
  * not know in advance the size of the file being uploaded. If the file is small
  * you want to store it in memory (for speed), but if the file is large you want
  * to store it to file (to avoid memory issues).
+ * <p>
+ * When many streams buffer at once, they can share a {@link MemoryGovernor},
+ * which makes some of them spill before their threshold if the memory they hold
+ * together exceeds its limit.
  *
  * @version $Id$
  */
@@ -81,6 +85,12 @@ public class DeferredFileOutputStream
     private final File directory;
 
 
+    /**
+     * The link to the memory governor, or {@code null} if there is none.
+     */
+    private final MemoryGovernor.Registration registration;
+
+
     /**
      * True when close() has been called successfully.
      */
@@ -98,7 +108,27 @@ public class DeferredFileOutputStream
      */
     public DeferredFileOutputStream(final int threshold, final File outputFile)
     {
-        this(threshold,  outputFile, null, null, null);
+        this(threshold,  outputFile, null, null, null, null);
+    }
+
+
+    /**
+     * Constructs an instance of this class which will trigger an event at the
+     * specified threshold, or earlier if asked to by the governor, and save data
+     * to a file beyond that point.
+     *
+     * @param threshold  The number of bytes at which to trigger an event.
+     * @param outputFile The file to which data is saved beyond the threshold.
+     * @param governor The governor of the memory held by this and other streams.
+     *
+     * @since 2.5
+     */
+    public DeferredFileOutputStream(final int threshold, final File outputFile, final MemoryGovernor governor)
+    {
+        this(threshold,  outputFile, null, null, null, governor);
+        if (governor == null) {
+            throw new NullPointerException("governor");
+        }
     }
 
 
@@ -115,10 +145,36 @@ public class DeferredFileOutputStream
      */
     public DeferredFileOutputStream(final int threshold, final String prefix, final String suffix, final File directory)
     {
-        this(threshold, null, prefix, suffix, directory);
+        this(threshold, null, prefix, suffix, directory, null);
+        if (prefix == null) {
+            throw new IllegalArgumentException("Temporary file prefix is missing");
+        }
+    }
+
+
+    /**
+     * Constructs an instance of this class which will trigger an event at the
+     * specified threshold, or earlier if asked to by the governor, and save data
+     * to a temporary file beyond that point.
+     *
+     * @param threshold  The number of bytes at which to trigger an event.
+     * @param prefix Prefix to use for the temporary file.
+     * @param suffix Suffix to use for the temporary file.
+     * @param directory Temporary file directory.
+     * @param governor The governor of the memory held by this and other streams.
+     *
+     * @since 2.5
+     */
+    public DeferredFileOutputStream(final int threshold, final String prefix, final String suffix,
+            final File directory, final MemoryGovernor governor)
+    {
+        this(threshold, null, prefix, suffix, directory, governor);
         if (prefix == null) {
             throw new IllegalArgumentException("Temporary file prefix is missing");
         }
+        if (governor == null) {
+            throw new NullPointerException("governor");
+        }
     }
 
     /**
@@ -130,10 +186,13 @@ public class DeferredFileOutputStream
      * @param prefix Prefix to use for the temporary file.
      * @param suffix Suffix to use for the temporary file.
      * @param directory Temporary file directory.
+     * @param governor The memory governor, or {@code null} for none.
      */
-    private DeferredFileOutputStream(final int threshold, final File outputFile, final String prefix, final String suffix, final File directory) {
+    private DeferredFileOutputStream(final int threshold, final File outputFile, final String prefix, final String suffix,
+            final File directory, final MemoryGovernor governor) {
         super(threshold);
         this.outputFile = outputFile;
+        this.registration = governor != null ? governor.register() : null;
 
         memoryOutputStream = new ByteArrayOutputStream();
         currentOutputStream = memoryOutputStream;
@@ -146,6 +205,27 @@ public class DeferredFileOutputStream
     // --------------------------------------- ThresholdingOutputStream methods
 
 
+    /**
+     * Checks the threshold as the superclass does, then reports the bytes about
+     * to be kept in memory to the governor, if any, and spills early if the
+     * governor asks for it.
+     *
+     * @param count The number of bytes about to be written to the underlying
+     *              output stream.
+     *
+     * @exception IOException if an error occurs.
+     */
+    @Override
+    protected void checkThreshold(final int count) throws IOException
+    {
+        super.checkThreshold(count);
+        if (registration != null && memoryOutputStream != null && registration.allocate(count))
+        {
+            triggerThreshold();
+        }
+    }
+
+
     /**
      * Returns the current output stream. This may be memory based or disk
      * based, depending on the current state with respect to the threshold.
@@ -179,6 +259,10 @@ public class DeferredFileOutputStream
         memoryOutputStream.writeTo(fos);
         currentOutputStream = fos;
         memoryOutputStream = null;
+        if (registration != null)
+        {
+            registration.release();
+        }
     }
 
 
@@ -194,7 +278,7 @@ public class DeferredFileOutputStream
      */
     public boolean isInMemory()
     {
-        return !isThresholdExceeded();
+        return memoryOutputStream != null;
     }
 
 
@@ -237,7 +321,8 @@ public class DeferredFileOutputStream
 
 
     /**
-     * Closes underlying output stream, and mark this as closed
+     * Closes underlying output stream, and mark this as closed. The data is
+     * no longer counted by the governor, if any, as it can no longer spill.
      *
      * @exception IOException if an error occurs.
      */
@@ -246,6 +331,10 @@ public class DeferredFileOutputStream
     {
         super.close();
         closed = true;
+        if (registration != null)
+        {
+            registration.release();
+        }
     }
 
 
@@ -0,0 +1,180 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.io.output;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * A bounded supply of direct memory, handed out in fixed size chunks.
+ * <p>
+ * The off-heap tier of {@link TieredDeferredFileOutputStream} borrows its chunks
+ * from a budget, so the direct memory held by all the streams sharing it never
+ * exceeds the budget's limit. When no chunk is available, the streams write to
+ * their file instead.
+ * <p>
+ * Direct buffers are only freed by the garbage collector, so released chunks
+ * are kept and handed out again rather than dropped. The memory held is
+ * therefore the high water mark of the chunks in use, up to the limit.
+ * <p>
+ * This class is thread-safe.
+ *
+ * @version $Id$
+ * @since 2.5
+ */
+public class DirectMemoryBudget {
+
+    /** The default chunk size, 64 KB. */
+    public static final int DEFAULT_CHUNK_SIZE = 1024 * 64;
+
+    /** The default limit of the shared budget, 64 MB. */
+    public static final long DEFAULT_LIMIT = 1024L * 1024 * 64;
+
+    /** The budget shared by default. */
+    private static final DirectMemoryBudget DEFAULT = new DirectMemoryBudget(DEFAULT_LIMIT, DEFAULT_CHUNK_SIZE);
+
+    /** The size of each chunk. */
+    private final int chunkSize;
+    /** The chunks released and not yet handed out again. */
+    private final Deque<ByteBuffer> freeChunks = new ArrayDeque<ByteBuffer>();
+    /** The maximum number of bytes held in chunks. */
+    private long limit;
+    /** The number of bytes held in chunks, in use or free. */
+    private long allocated;
+    /** The number of bytes in chunks that are in use. */
+    private long used;
+
+    /**
+     * Returns the process-wide budget used by streams that are not given one.
+     * Its limit is 64 MB unless changed with {@link #setLimit(long)}.
+     *
+     * @return the shared budget
+     */
+    public static DirectMemoryBudget getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Constructs a budget.
+     *
+     * @param limit the maximum number of bytes held in chunks, not negative
+     * @param chunkSize the size of each chunk, positive
+     * @throws IllegalArgumentException if <code>limit</code> is negative or
+     * <code>chunkSize</code> is not positive
+     */
+    public DirectMemoryBudget(final long limit, final int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+        }
+        this.chunkSize = chunkSize;
+        setLimit(limit);
+    }
+
+    /**
+     * Borrows a cleared chunk.
+     *
+     * @return a direct buffer of <code>getChunkSize()</code> bytes, or {@code null}
+     * if the budget is exhausted
+     */
+    public synchronized ByteBuffer allocate() {
+        ByteBuffer chunk = freeChunks.pollFirst();
+        if (chunk == null) {
+            if (allocated + chunkSize > limit) {
+                return null;
+            }
+            chunk = ByteBuffer.allocateDirect(chunkSize);
+            allocated += chunkSize;
+        }
+        chunk.clear();
+        used += chunkSize;
+        return chunk;
+    }
+
+    /**
+     * Hands a chunk back. It is kept for reuse unless the limit has been lowered
+     * below the memory held. {@code null} is ignored.
+     *
+     * @param chunk a chunk borrowed from this budget, which must no longer be used
+     */
+    public synchronized void release(final ByteBuffer chunk) {
+        if (chunk == null) {
+            return;
+        }
+        used -= chunkSize;
+        if (allocated > limit) {
+            allocated -= chunkSize;
+        } else {
+            freeChunks.addFirst(chunk);
+        }
+    }
+
+    /**
+     * Returns the size of each chunk.
+     *
+     * @return the chunk size
+     */
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Returns the maximum number of bytes held in chunks.
+     *
+     * @return the limit
+     */
+    public synchronized long getLimit() {
+        return limit;
+    }
+
+    /**
+     * Sets the maximum number of bytes held in chunks. Lowering the limit below
+     * the memory in use takes effect as chunks are released.
+     *
+     * @param limit the new limit, not negative
+     * @throws IllegalArgumentException if <code>limit</code> is negative
+     */
+    public synchronized void setLimit(final long limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Negative limit: " + limit);
+        }
+        this.limit = limit;
+        while (allocated > limit && !freeChunks.isEmpty()) {
+            freeChunks.pollFirst();
+            allocated -= chunkSize;
+        }
+    }
+
+    /**
+     * Returns the number of bytes in chunks that are in use.
+     *
+     * @return the used bytes
+     */
+    public synchronized long getUsedBytes() {
+        return used;
+    }
+
+    /**
+     * Returns the number of bytes held in chunks, whether in use or kept for reuse.
+     *
+     * @return the allocated bytes
+     */
+    public synchronized long getAllocatedBytes() {
+        return allocated;
+    }
+
+}
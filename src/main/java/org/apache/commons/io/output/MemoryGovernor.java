@@ -0,0 +1,377 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.io.output;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A shared limit on the heap memory held by many buffering streams, which asks
+ * streams to spill to disk early when the limit is exceeded.
+ * <p>
+ * Each stream decides to spill based on its own threshold. With many streams open
+ * at once, the memory they hold together can still exhaust the heap. Streams such
+ * as {@link DeferredFileOutputStream} that are given a governor report every byte
+ * they keep in memory. When the total goes over the limit, the governor picks
+ * streams according to its {@link SpillPolicy}, the largest or the oldest first,
+ * and flags them until enough memory would be freed to bring the total down to
+ * the low water mark of three quarters of the limit. A flagged stream spills on
+ * its next write, on its own thread, so streams need not be thread-safe. If the
+ * total has meanwhile dropped to the low water mark, because other streams
+ * spilled or were closed, the flag is cleared instead and the stream keeps its
+ * data in memory up to its own threshold.
+ * <p>
+ * The usage figures can be polled as metrics. This class is thread-safe.
+ *
+ * @version $Id$
+ * @since 2.5
+ */
+public class MemoryGovernor {
+
+    /**
+     * The order in which streams are asked to spill.
+     */
+    public enum SpillPolicy {
+        /** Streams holding the most memory spill first. */
+        LARGEST,
+        /** Streams registered first spill first. */
+        OLDEST
+    }
+
+    /** The maximum number of bytes held before streams are asked to spill. */
+    private final long limit;
+    /** The total below which pending spill requests are withdrawn. */
+    private final long lowWaterMark;
+    /** The order in which streams are asked to spill. */
+    private final SpillPolicy policy;
+    /** The registered streams. */
+    private final Set<Registration> registrations =
+            Collections.newSetFromMap(new ConcurrentHashMap<Registration, Boolean>());
+    /** The number of bytes held by all registered streams. */
+    private final AtomicLong used = new AtomicLong();
+    /**
+     * The number of bytes held by the streams asked to spill when they were asked,
+     * which covers that much of the excess until they spill or the request is withdrawn.
+     */
+    private final AtomicLong pending = new AtomicLong();
+    /** The highest value of <code>used</code>. */
+    private final AtomicLong peak = new AtomicLong();
+    /** The number of registrations, used to order them by age. */
+    private final AtomicLong sequence = new AtomicLong();
+    /** The number of spill requests issued. */
+    private final AtomicLong spillRequests = new AtomicLong();
+
+    /**
+     * Constructs a governor that asks the largest streams to spill first.
+     *
+     * @param limit the number of bytes the registered streams may hold together, positive
+     * @throws IllegalArgumentException if <code>limit</code> is not positive
+     */
+    public MemoryGovernor(final long limit) {
+        this(limit, SpillPolicy.LARGEST);
+    }
+
+    /**
+     * Constructs a governor.
+     *
+     * @param limit the number of bytes the registered streams may hold together, positive
+     * @param policy the order in which streams are asked to spill, not {@code null}
+     * @throws IllegalArgumentException if <code>limit</code> is not positive
+     * @throws NullPointerException if <code>policy</code> is {@code null}
+     */
+    public MemoryGovernor(final long limit, final SpillPolicy policy) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive: " + limit);
+        }
+        if (policy == null) {
+            throw new NullPointerException("policy");
+        }
+        this.limit = limit;
+        this.lowWaterMark = limit - limit / 4;
+        this.policy = policy;
+    }
+
+    /**
+     * Registers a stream. The stream reports the bytes it holds through the returned
+     * registration, and releases it once its data leaves memory.
+     *
+     * @return the registration for the stream
+     */
+    public Registration register() {
+        final Registration registration = new Registration(sequence.incrementAndGet());
+        registrations.add(registration);
+        return registration;
+    }
+
+    /**
+     * Returns the number of bytes the registered streams may hold together.
+     *
+     * @return the limit
+     */
+    public long getLimit() {
+        return limit;
+    }
+
+    /**
+     * Returns the total below which pending spill requests are withdrawn.
+     *
+     * @return the low water mark
+     */
+    public long getLowWaterMark() {
+        return lowWaterMark;
+    }
+
+    /**
+     * Returns the order in which streams are asked to spill.
+     *
+     * @return the spill policy
+     */
+    public SpillPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Returns the number of bytes currently held by the registered streams.
+     *
+     * @return the used bytes
+     */
+    public long getUsedBytes() {
+        return used.get();
+    }
+
+    /**
+     * Returns the highest number of bytes held by the registered streams at once.
+     *
+     * @return the peak used bytes
+     */
+    public long getPeakUsedBytes() {
+        return peak.get();
+    }
+
+    /**
+     * Returns the number of registered streams that hold their data in memory.
+     *
+     * @return the stream count
+     */
+    public int getStreamCount() {
+        return registrations.size();
+    }
+
+    /**
+     * Returns the number of times a stream was asked to spill early.
+     *
+     * @return the spill request count
+     */
+    public long getSpillRequestCount() {
+        return spillRequests.get();
+    }
+
+    /**
+     * Returns the number of streams that have been asked to spill and have not
+     * done so yet.
+     *
+     * @return the pending spill count
+     */
+    public int getPendingSpillCount() {
+        int pending = 0;
+        for (final Registration registration : registrations) {
+            if (registration.spillRequested) {
+                pending++;
+            }
+        }
+        return pending;
+    }
+
+    /**
+     * Returns the number of bytes the streams asked to spill held when they were
+     * asked, which is the memory expected to be freed by pending spills.
+     *
+     * @return the pending spill bytes
+     */
+    public long getPendingSpillBytes() {
+        return pending.get();
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * Flags streams to spill until the memory they hold would bring the total down
+     * to the low water mark.
+     */
+    private synchronized void relieve() {
+        long excess = used.get() - pending.get() - lowWaterMark;
+        if (excess <= 0) {
+            return;
+        }
+        // the held bytes change while sorting, so the candidates are sorted by a copy
+        final List<Candidate> candidates = new ArrayList<Candidate>(registrations.size());
+        for (final Registration registration : registrations) {
+            final long held = registration.held;
+            if (!registration.spillRequested && held > 0) {
+                candidates.add(new Candidate(registration, held));
+            }
+        }
+        Collections.sort(candidates, policy == SpillPolicy.LARGEST ? LARGEST_FIRST : OLDEST_FIRST);
+        for (final Candidate candidate : candidates) {
+            if (excess <= 0) {
+                break;
+            }
+            candidate.registration.pendingBytes = candidate.held;
+            pending.addAndGet(candidate.held);
+            candidate.registration.spillRequested = true;
+            spillRequests.incrementAndGet();
+            excess -= candidate.held;
+        }
+    }
+
+    /**
+     * Withdraws the spill request of a stream, if any. Synchronized with
+     * <code>relieve()</code>, so that a request issued to a stream being
+     * released is withdrawn.
+     *
+     * @param registration the registration of the stream
+     */
+    private synchronized void withdraw(final Registration registration) {
+        if (registration.spillRequested) {
+            registration.spillRequested = false;
+            pending.addAndGet(-registration.pendingBytes);
+            registration.pendingBytes = 0;
+        }
+    }
+
+    private void updatePeak(final long total) {
+        long current = peak.get();
+        while (total > current && !peak.compareAndSet(current, total)) {
+            current = peak.get();
+        }
+    }
+
+    private static final Comparator<Candidate> LARGEST_FIRST = new Comparator<Candidate>() {
+        public int compare(final Candidate c1, final Candidate c2) {
+            return c1.held > c2.held ? -1 : c1.held < c2.held ? 1 : 0;
+        }
+    };
+
+    private static final Comparator<Candidate> OLDEST_FIRST = new Comparator<Candidate>() {
+        public int compare(final Candidate c1, final Candidate c2) {
+            final long o1 = c1.registration.order;
+            final long o2 = c2.registration.order;
+            return o1 < o2 ? -1 : o1 > o2 ? 1 : 0;
+        }
+    };
+
+    /**
+     * A stream that may be asked to spill, with the bytes it held when the
+     * candidates were collected.
+     */
+    private static final class Candidate {
+
+        private final Registration registration;
+        private final long held;
+
+        Candidate(final Registration registration, final long held) {
+            this.registration = registration;
+            this.held = held;
+        }
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * The link between a stream and its governor. A registration is only used by
+     * the thread that writes to its stream.
+     */
+    public final class Registration {
+
+        /** The registration order. */
+        private final long order;
+        /** The number of bytes the stream holds, read by other threads in relieve(). */
+        private volatile long held;
+        /** Whether the stream has been asked to spill. */
+        private volatile boolean spillRequested;
+        /** The bytes the stream held when asked to spill, guarded by the governor. */
+        private long pendingBytes;
+        /** Whether the registration has been released. */
+        private boolean released;
+
+        private Registration(final long order) {
+            this.order = order;
+        }
+
+        /**
+         * Reports that the stream is about to keep more bytes in memory.
+         *
+         * @param count the number of bytes
+         * @return {@code true} if the stream should spill its data now
+         */
+        public boolean allocate(final int count) {
+            if (released) {
+                return false;
+            }
+            held += count;
+            final long total = used.addAndGet(count);
+            updatePeak(total);
+            if (total > limit) {
+                // only look for streams to spill if the pending spills do not cover the excess
+                if (total - pending.get() > lowWaterMark) {
+                    relieve();
+                }
+            } else if (spillRequested && total <= lowWaterMark) {
+                // memory was freed since the request, so the stream may keep its data
+                withdraw(this);
+            }
+            return spillRequested;
+        }
+
+        /**
+         * Reports that the stream no longer holds its data in memory, because it
+         * spilled or was closed. Does nothing if already released.
+         */
+        public void release() {
+            if (released) {
+                return;
+            }
+            released = true;
+            registrations.remove(this);
+            used.addAndGet(-held);
+            held = 0;
+            withdraw(this);
+        }
+
+        /**
+         * Returns the number of bytes the stream has reported.
+         *
+         * @return the held bytes
+         */
+        public long getHeldBytes() {
+            return held;
+        }
+
+        /**
+         * Returns whether the stream has been asked to spill.
+         *
+         * @return {@code true} if the stream should spill on its next write
+         */
+        public boolean isSpillRequested() {
+            return spillRequested;
+        }
+    }
+
+}
@@ -225,6 +225,23 @@ public abstract class ThresholdingOutputStream
         }
     }
 
+    /**
+     * Triggers the threshold event now, before the threshold is reached, unless
+     * it has already been triggered. Subclasses call this to give up buffering
+     * early, for example when asked to by a {@link MemoryGovernor}.
+     *
+     * @exception IOException if an error occurs.
+     * @since 2.5
+     */
+    protected void triggerThreshold() throws IOException
+    {
+        if (!thresholdExceeded)
+        {
+            thresholdExceeded = true;
+            thresholdReached();
+        }
+    }
+
     /**
      * Resets the byteCount to zero.  You can call this from 
      * {@link #thresholdReached()} if you want the event to be triggered again. 
@@ -0,0 +1,693 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.io.output;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.io.IOUtils;
+
+
+/**
+ * An output stream which retains data on the heap until a first threshold is
+ * reached, then in direct memory until a second threshold is reached, and only
+ * then commits it to disk.
+ * <p>
+ * This is a variant of {@link DeferredFileOutputStream} for servers that buffer
+ * many large bodies at once. The middle, off-heap tier keeps bodies that are too
+ * large for the heap out of the way of the garbage collector and postpones the
+ * file creation. Its memory is borrowed in chunks from a {@link DirectMemoryBudget},
+ * by default the process-wide {@link DirectMemoryBudget#getDefault() shared budget},
+ * which bounds the direct memory held by all streams together. When the budget is
+ * exhausted, a stream goes straight to its file.
+ * <p>
+ * Once closed, the data can be read back without copying through
+ * {@link #toByteBuffers()}, which maps the file if the data is on disk, or
+ * {@link #writeTo(WritableByteChannel)}, which transfers the file channel.
+ * <p>
+ * <b>The off-heap chunks only go back to the budget on {@link #release()}.</b>
+ * Closing the stream keeps them, so that the data can still be read, and nothing
+ * reclaims them from a stream that is dropped: its chunks stay counted against the
+ * budget for good, and once the budget is used up every stream goes straight to its
+ * file. Release each stream in a <code>finally</code> block once its data has been read:
+ * <pre>
+ * TieredDeferredFileOutputStream out = new TieredDeferredFileOutputStream(...);
+ * try {
+ *     // write, close, then read the data
+ * } finally {
+ *     out.release();
+ * }
+ * </pre>
+ *
+ * @version $Id$
+ * @since 2.5
+ */
+public class TieredDeferredFileOutputStream
+    extends ThresholdingOutputStream
+{
+
+    /**
+     * The places where a {@link TieredDeferredFileOutputStream} keeps its data.
+     */
+    public enum Tier
+    {
+        /** The data is kept in byte arrays on the heap. */
+        HEAP,
+        /** The data is kept in direct memory borrowed from a budget. */
+        OFF_HEAP,
+        /** The data is written to a file. */
+        FILE
+    }
+
+    // ----------------------------------------------------------- Data members
+
+
+    /**
+     * The stream to which data is written before the first threshold is
+     * reached, or {@code null} once the data has moved on.
+     */
+    private ByteArrayOutputStream memoryOutputStream;
+
+
+    /**
+     * The stream to which data is written between the two thresholds, or
+     * {@code null} if the data is not off-heap.
+     */
+    private OffHeapOutputStream offHeapOutputStream;
+
+
+    /**
+     * The output stream to which data will be written at any given time.
+     */
+    private OutputStream currentOutputStream;
+
+
+    /**
+     * The current tier.
+     */
+    private Tier tier = Tier.HEAP;
+
+
+    /**
+     * The number of bytes at which data moves from direct memory to the file.
+     */
+    private final int offHeapThreshold;
+
+
+    /**
+     * The budget the off-heap chunks are borrowed from.
+     */
+    private final DirectMemoryBudget budget;
+
+
+    /**
+     * The file to which output will be directed if the second threshold is exceeded.
+     */
+    private File outputFile;
+
+    /**
+     * The temporary file prefix.
+     */
+    private final String prefix;
+
+    /**
+     * The temporary file suffix.
+     */
+    private final String suffix;
+
+    /**
+     * The directory to use for temporary files.
+     */
+    private final File directory;
+
+
+    /**
+     * True when close() has been called successfully.
+     */
+    private boolean closed = false;
+
+    // ----------------------------------------------------------- Constructors
+
+
+    /**
+     * Constructs an instance of this class which keeps data on the heap up to
+     * <code>threshold</code> bytes, in direct memory from the shared budget up to
+     * <code>offHeapThreshold</code> bytes, and saves it to a file beyond that point.
+     * <p>
+     * The stream must be {@link #release() released} once its data has been read,
+     * or the direct memory it borrowed stays counted against the budget.
+     *
+     * @param threshold  The number of bytes at which data moves off the heap.
+     * @param offHeapThreshold The number of bytes at which data moves to the file.
+     * @param outputFile The file to which data is saved beyond the second threshold.
+     */
+    public TieredDeferredFileOutputStream(final int threshold, final int offHeapThreshold, final File outputFile)
+    {
+        this(threshold, offHeapThreshold, DirectMemoryBudget.getDefault(), outputFile, null, null, null);
+    }
+
+
+    /**
+     * Constructs an instance of this class which keeps data on the heap up to
+     * <code>threshold</code> bytes, in direct memory from the shared budget up to
+     * <code>offHeapThreshold</code> bytes, and saves it to a temporary file beyond
+     * that point.
+     * <p>
+     * The stream must be {@link #release() released} once its data has been read,
+     * or the direct memory it borrowed stays counted against the budget.
+     *
+     * @param threshold  The number of bytes at which data moves off the heap.
+     * @param offHeapThreshold The number of bytes at which data moves to the file.
+     * @param prefix Prefix to use for the temporary file.
+     * @param suffix Suffix to use for the temporary file.
+     * @param directory Temporary file directory.
+     */
+    public TieredDeferredFileOutputStream(final int threshold, final int offHeapThreshold,
+            final String prefix, final String suffix, final File directory)
+    {
+        this(threshold, offHeapThreshold, DirectMemoryBudget.getDefault(), prefix, suffix, directory);
+    }
+
+
+    /**
+     * Constructs an instance of this class which keeps data on the heap up to
+     * <code>threshold</code> bytes, in direct memory from the given budget up to
+     * <code>offHeapThreshold</code> bytes, and saves it to a temporary file beyond
+     * that point.
+     * <p>
+     * The stream must be {@link #release() released} once its data has been read,
+     * or the direct memory it borrowed stays counted against the budget.
+     *
+     * @param threshold  The number of bytes at which data moves off the heap.
+     * @param offHeapThreshold The number of bytes at which data moves to the file.
+     * @param budget The budget to borrow direct memory from.
+     * @param prefix Prefix to use for the temporary file.
+     * @param suffix Suffix to use for the temporary file.
+     * @param directory Temporary file directory.
+     */
+    public TieredDeferredFileOutputStream(final int threshold, final int offHeapThreshold,
+            final DirectMemoryBudget budget, final String prefix, final String suffix, final File directory)
+    {
+        this(threshold, offHeapThreshold, budget, null, prefix, suffix, directory);
+        if (prefix == null) {
+            throw new IllegalArgumentException("Temporary file prefix is missing");
+        }
+    }
+
+    /**
+     * Constructs an instance of this class.
+     *
+     * @param threshold  The number of bytes at which data moves off the heap.
+     * @param offHeapThreshold The number of bytes at which data moves to the file.
+     * @param budget The budget to borrow direct memory from.
+     * @param outputFile The file to which data is saved beyond the second threshold.
+     * @param prefix Prefix to use for the temporary file.
+     * @param suffix Suffix to use for the temporary file.
+     * @param directory Temporary file directory.
+     */
+    private TieredDeferredFileOutputStream(final int threshold, final int offHeapThreshold,
+            final DirectMemoryBudget budget, final File outputFile,
+            final String prefix, final String suffix, final File directory) {
+        super(threshold);
+        if (budget == null) {
+            throw new NullPointerException("budget");
+        }
+        this.offHeapThreshold = offHeapThreshold;
+        this.budget = budget;
+        this.outputFile = outputFile;
+
+        memoryOutputStream = new ByteArrayOutputStream();
+        currentOutputStream = memoryOutputStream;
+        this.prefix = prefix;
+        this.suffix = suffix;
+        this.directory = directory;
+    }
+
+
+    // --------------------------------------- ThresholdingOutputStream methods
+
+
+    /**
+     * Returns the current output stream, which depends on the current tier.
+     *
+     * @return The underlying output stream.
+     *
+     * @exception IOException if an error occurs.
+     */
+    @Override
+    protected OutputStream getStream() throws IOException
+    {
+        return currentOutputStream;
+    }
+
+
+    /**
+     * Moves the data off the heap, into direct memory if the second threshold is
+     * higher than the first, or else to the file.
+     *
+     * @exception IOException if an error occurs.
+     */
+    @Override
+    protected void thresholdReached() throws IOException
+    {
+        if (offHeapThreshold <= getThreshold())
+        {
+            spillToFile();
+            return;
+        }
+        final ByteArrayOutputStream heap = memoryOutputStream;
+        offHeapOutputStream = new OffHeapOutputStream();
+        currentOutputStream = offHeapOutputStream;
+        tier = Tier.OFF_HEAP;
+        memoryOutputStream = null;
+        // spills to the file if the budget runs out
+        heap.writeTo(offHeapOutputStream);
+    }
+
+
+    /**
+     * Moves the data from the heap or direct memory to the file, and returns
+     * any direct memory to the budget.
+     *
+     * @exception IOException if an error occurs.
+     */
+    private void spillToFile() throws IOException
+    {
+        if (prefix != null) {
+            outputFile = File.createTempFile(prefix, suffix, directory);
+        }
+        final FileOutputStream fos = new FileOutputStream(outputFile);
+        try
+        {
+            if (offHeapOutputStream != null)
+            {
+                ByteArrayOutputStream.writeFully(fos.getChannel(), offHeapOutputStream.toByteBuffers());
+                offHeapOutputStream.release();
+            }
+            else
+            {
+                memoryOutputStream.writeTo(fos.getChannel());
+            }
+        }
+        catch (final IOException e)
+        {
+            IOUtils.closeQuietly(fos);
+            throw e;
+        }
+        currentOutputStream = fos;
+        tier = Tier.FILE;
+        memoryOutputStream = null;
+        offHeapOutputStream = null;
+    }
+
+
+    // --------------------------------------------------------- Public methods
+
+
+    /**
+     * Returns the tier in which the data is currently kept.
+     *
+     * @return The current tier.
+     */
+    public Tier getTier()
+    {
+        return tier;
+    }
+
+
+    /**
+     * Returns the number of bytes at which data moves from direct memory to the file.
+     *
+     * @return The second threshold, in bytes.
+     */
+    public int getOffHeapThreshold()
+    {
+        return offHeapThreshold;
+    }
+
+
+    /**
+     * Determines whether or not the data for this output stream has been
+     * retained in memory, on or off the heap.
+     *
+     * @return {@code true} if the data is available in memory;
+     *         {@code false} otherwise.
+     */
+    public boolean isInMemory()
+    {
+        return tier != Tier.FILE;
+    }
+
+
+    /**
+     * Returns the data for this output stream as an array of bytes, assuming
+     * that the data has been retained in memory. If the data was written to
+     * disk, this method returns {@code null}.
+     *
+     * @return The data for this output stream, or {@code null} if no such
+     *         data is available.
+     */
+    public byte[] getData()
+    {
+        if (memoryOutputStream != null)
+        {
+            return memoryOutputStream.toByteArray();
+        }
+        if (offHeapOutputStream != null)
+        {
+            return offHeapOutputStream.toByteArray();
+        }
+        return null;
+    }
+
+
+    /**
+     * Returns either the output file specified in the constructor or
+     * the temporary file created or null.
+     *
+     * @return The file for this output stream, or {@code null} if no such
+     *         file exists.
+     * @see DeferredFileOutputStream#getFile()
+     */
+    public File getFile()
+    {
+        return outputFile;
+    }
+
+
+    /**
+     * Closes underlying output stream, and mark this as closed
+     *
+     * @exception IOException if an error occurs.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        super.close();
+        closed = true;
+    }
+
+
+    /**
+     * Returns the off-heap chunks to the budget, discarding the data held in
+     * them. Buffers returned by {@link #toByteBuffers()} for the off-heap tier
+     * must no longer be used. Does nothing in the other tiers.
+     */
+    public void release()
+    {
+        if (offHeapOutputStream != null)
+        {
+            offHeapOutputStream.release();
+        }
+    }
+
+
+    /**
+     * Returns the data for this output stream as read-only buffers, after it
+     * has been closed, without copying it.
+     * <p>
+     * On the heap and off the heap, the buffers are views of the memory this
+     * stream holds. On disk, the file is mapped into one buffer.
+     *
+     * @return The buffers, whose positions are zero and limits the number of
+     *         bytes they hold.
+     * @exception IOException if this stream is not yet closed or an error occurs.
+     */
+    public ByteBuffer[] toByteBuffers() throws IOException
+    {
+        checkClosed();
+        if (memoryOutputStream != null)
+        {
+            return memoryOutputStream.toByteBuffers();
+        }
+        if (offHeapOutputStream != null)
+        {
+            final ByteBuffer[] buffers = offHeapOutputStream.toByteBuffers();
+            for (int i = 0; i < buffers.length; i++)
+            {
+                buffers[i] = buffers[i].asReadOnlyBuffer();
+            }
+            return buffers;
+        }
+        final RandomAccessFile raf = new RandomAccessFile(outputFile, "r");
+        try
+        {
+            final FileChannel channel = raf.getChannel();
+            return new ByteBuffer[] { channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()) };
+        }
+        finally
+        {
+            IOUtils.closeQuietly(raf);
+        }
+    }
+
+
+    /**
+     * Writes the data from this output stream to the specified output stream,
+     * after it has been closed.
+     *
+     * @param out output stream to write to.
+     * @exception IOException if this stream is not yet closed or an error occurs.
+     */
+    public void writeTo(final OutputStream out) throws IOException
+    {
+        checkClosed();
+        if (memoryOutputStream != null)
+        {
+            memoryOutputStream.writeTo(out);
+        }
+        else if (offHeapOutputStream != null)
+        {
+            writeFully(Channels.newChannel(out), offHeapOutputStream.toByteBuffers());
+        }
+        else
+        {
+            final FileInputStream fis = new FileInputStream(outputFile);
+            try {
+                IOUtils.copy(fis, out);
+            } finally {
+                IOUtils.closeQuietly(fis);
+            }
+        }
+    }
+
+
+    /**
+     * Writes the data from this output stream to the specified channel, after
+     * it has been closed. Data on disk is transferred from the file channel, which
+     * lets the operating system copy it directly where it supports that.
+     *
+     * @param channel channel to write to.
+     * @return The number of bytes written.
+     * @exception IOException if this stream is not yet closed or an error occurs.
+     */
+    public long writeTo(final WritableByteChannel channel) throws IOException
+    {
+        checkClosed();
+        if (memoryOutputStream != null)
+        {
+            return writeFully(channel, memoryOutputStream.toByteBuffers());
+        }
+        if (offHeapOutputStream != null)
+        {
+            return writeFully(channel, offHeapOutputStream.toByteBuffers());
+        }
+        final FileInputStream fis = new FileInputStream(outputFile);
+        try
+        {
+            final FileChannel source = fis.getChannel();
+            final long size = source.size();
+            long position = 0;
+            while (position < size)
+            {
+                position += source.transferTo(position, size - position, channel);
+            }
+            return size;
+        }
+        finally
+        {
+            IOUtils.closeQuietly(fis);
+        }
+    }
+
+
+    // ------------------------------------------------------ Private methods
+
+
+    private void checkClosed() throws IOException
+    {
+        if (!closed)
+        {
+            throw new IOException("Stream not closed");
+        }
+    }
+
+
+    private static long writeFully(final WritableByteChannel channel, final ByteBuffer[] buffers) throws IOException
+    {
+        long written = 0;
+        for (final ByteBuffer buffer : buffers)
+        {
+            while (buffer.hasRemaining())
+            {
+                written += channel.write(buffer);
+            }
+        }
+        return written;
+    }
+
+
+    /**
+     * The off-heap tier: writes into chunks borrowed from the budget and moves
+     * the data to the file when a write would pass the second threshold or no
+     * more chunks are available.
+     */
+    private final class OffHeapOutputStream extends OutputStream
+    {
+        /** The chunks in use, all full except the last. */
+        private final List<ByteBuffer> chunks = new ArrayList<ByteBuffer>();
+        /** The number of bytes written to the chunks. */
+        private int size;
+
+        @Override
+        public void write(final int b) throws IOException
+        {
+            if (tier == Tier.FILE)
+            {
+                // spilled while the heap was being copied in
+                currentOutputStream.write(b);
+                return;
+            }
+            if (!reserve(1))
+            {
+                spillToFile();
+                currentOutputStream.write(b);
+                return;
+            }
+            chunks.get(size / budget.getChunkSize()).put((byte) b);
+            size++;
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) throws IOException
+        {
+            if (tier == Tier.FILE)
+            {
+                // spilled while the heap was being copied in
+                currentOutputStream.write(b, off, len);
+                return;
+            }
+            if (!reserve(len))
+            {
+                spillToFile();
+                currentOutputStream.write(b, off, len);
+                return;
+            }
+            int remaining = len;
+            int pos = off;
+            int index = size / budget.getChunkSize();
+            while (remaining > 0)
+            {
+                final ByteBuffer chunk = chunks.get(index++);
+                final int part = Math.min(remaining, chunk.remaining());
+                chunk.put(b, pos, part);
+                pos += part;
+                remaining -= part;
+            }
+            size += len;
+        }
+
+        /**
+         * Makes room for the given number of bytes, borrowing chunks as needed.
+         *
+         * @return {@code false} if the bytes do not fit below the second threshold
+         *         or the budget is exhausted
+         */
+        private boolean reserve(final int len)
+        {
+            if ((long) size + len > offHeapThreshold)
+            {
+                return false;
+            }
+            final int chunkSize = budget.getChunkSize();
+            long capacity = (long) chunks.size() * chunkSize;
+            while (capacity - size < len)
+            {
+                final ByteBuffer chunk = budget.allocate();
+                if (chunk == null)
+                {
+                    return false;
+                }
+                chunks.add(chunk);
+                capacity += chunkSize;
+            }
+            return true;
+        }
+
+        /**
+         * Returns flipped duplicates of the chunks that hold data.
+         */
+        ByteBuffer[] toByteBuffers()
+        {
+            final List<ByteBuffer> buffers = new ArrayList<ByteBuffer>(chunks.size());
+            for (final ByteBuffer chunk : chunks)
+            {
+                if (chunk.position() == 0)
+                {
+                    break;
+                }
+                final ByteBuffer buffer = chunk.duplicate();
+                buffer.flip();
+                buffers.add(buffer);
+            }
+            return buffers.toArray(new ByteBuffer[buffers.size()]);
+        }
+
+        byte[] toByteArray()
+        {
+            final byte[] data = new byte[size];
+            int pos = 0;
+            for (final ByteBuffer buffer : toByteBuffers())
+            {
+                final int n = buffer.remaining();
+                buffer.get(data, pos, n);
+                pos += n;
+            }
+            return data;
+        }
+
+        void release()
+        {
+            for (final ByteBuffer chunk : chunks)
+            {
+                budget.release(chunk);
+            }
+            chunks.clear();
+            size = 0;
+        }
+    }
+}
@@ -0,0 +1,349 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.io.output;
+
+import static org.apache.commons.io.IOUtils.EOF;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.buffer.BufferPool;
+
+/**
+ * An output stream in which the data is written into a list of byte array
+ * segments, for use by a single thread.
+ * <p>
+ * This is a variant of {@link ByteArrayOutputStream} for hot paths where a stream
+ * is only ever used by one thread. None of its methods are synchronized, and its
+ * segments are borrowed from a {@link BufferPool} as data is written rather than
+ * allocated with doubling sizes. {@link #reset()} and {@link #close()} hand the
+ * segments back to the pool, so a steady stream of short lived instances reuses
+ * the same memory.
+ * <p>
+ * The contents can be retrieved using <code>toByteArray()</code>,
+ * <code>toString(Charset)</code> and <code>writeTo(OutputStream)</code>, or without
+ * copying through {@link #writeTo(GatheringByteChannel)} and as read-only buffers
+ * through {@link #toByteBuffers()}.
+ * <p>
+ * Unlike {@code ByteArrayOutputStream}, closing this stream discards its contents.
+ * The stream can be written to again after it has been closed.
+ *
+ * @version $Id$
+ * @since 2.5
+ */
+public class UnsynchronizedByteArrayOutputStream extends OutputStream {
+
+    /** The default segment size, 8 KB, which is one of the default size classes of the pools. */
+    public static final int DEFAULT_SEGMENT_SIZE = 1024 * 8;
+
+    /** A singleton empty byte array. */
+    private static final byte[] EMPTY_BYTE_ARRAY = new byte[0];
+
+    /** A singleton empty buffer array. */
+    private static final ByteBuffer[] EMPTY_BYTE_BUFFER_ARRAY = new ByteBuffer[0];
+
+    /** The pool the segments are borrowed from. */
+    private final BufferPool pool;
+    /** The minimum length of each segment. */
+    private final int segmentSize;
+    /** The segments in use, all full except the last. */
+    private final List<byte[]> segments = new ArrayList<byte[]>();
+    /** The last segment, or {@code null} if there is none. */
+    private byte[] currentSegment;
+    /** The number of bytes written to the last segment. */
+    private int currentPos;
+    /** The total count of bytes written. */
+    private int count;
+
+    /**
+     * Creates a new stream with 8 KB segments borrowed from the
+     * {@link IOUtils#getBufferPool() IOUtils buffer pool}.
+     */
+    public UnsynchronizedByteArrayOutputStream() {
+        this(DEFAULT_SEGMENT_SIZE, IOUtils.getBufferPool());
+    }
+
+    /**
+     * Creates a new stream with segments of the given size borrowed from the
+     * {@link IOUtils#getBufferPool() IOUtils buffer pool}.
+     *
+     * @param segmentSize the minimum length of each segment, positive
+     * @throws IllegalArgumentException if <code>segmentSize</code> is not positive
+     */
+    public UnsynchronizedByteArrayOutputStream(final int segmentSize) {
+        this(segmentSize, IOUtils.getBufferPool());
+    }
+
+    /**
+     * Creates a new stream with segments of the given size borrowed from the given pool.
+     * <p>
+     * Segments are only reused if <code>segmentSize</code> is one of the sizes the
+     * pool keeps.
+     *
+     * @param segmentSize the minimum length of each segment, positive
+     * @param pool the pool to borrow the segments from, not {@code null}
+     * @throws IllegalArgumentException if <code>segmentSize</code> is not positive
+     * @throws NullPointerException if <code>pool</code> is {@code null}
+     */
+    public UnsynchronizedByteArrayOutputStream(final int segmentSize, final BufferPool pool) {
+        if (segmentSize <= 0) {
+            throw new IllegalArgumentException("Segment size must be positive: " + segmentSize);
+        }
+        if (pool == null) {
+            throw new NullPointerException("pool");
+        }
+        this.segmentSize = segmentSize;
+        this.pool = pool;
+    }
+
+    /**
+     * Borrows a new segment from the pool and makes it the current one.
+     */
+    private void nextSegment() {
+        currentSegment = pool.borrowBytes(segmentSize);
+        currentPos = 0;
+        segments.add(currentSegment);
+    }
+
+    /**
+     * Write the bytes to the segments.
+     * @param b the bytes to write
+     * @param off The start offset
+     * @param len The number of bytes to write
+     */
+    @Override
+    public void write(final byte[] b, final int off, final int len) {
+        if ((off < 0)
+                || (off > b.length)
+                || (len < 0)
+                || ((off + len) > b.length)
+                || ((off + len) < 0)) {
+            throw new IndexOutOfBoundsException();
+        } else if (len == 0) {
+            return;
+        }
+        int remaining = len;
+        int pos = off;
+        while (remaining > 0) {
+            if (currentSegment == null || currentPos == currentSegment.length) {
+                nextSegment();
+            }
+            final int part = Math.min(remaining, currentSegment.length - currentPos);
+            System.arraycopy(b, pos, currentSegment, currentPos, part);
+            currentPos += part;
+            pos += part;
+            remaining -= part;
+        }
+        count += len;
+    }
+
+    /**
+     * Write a byte to the segments.
+     * @param b the byte to write
+     */
+    @Override
+    public void write(final int b) {
+        if (currentSegment == null || currentPos == currentSegment.length) {
+            nextSegment();
+        }
+        currentSegment[currentPos++] = (byte) b;
+        count++;
+    }
+
+    /**
+     * Writes the entire contents of the specified input stream to this
+     * byte stream. Bytes from the input stream are read directly into the
+     * segments of this stream.
+     *
+     * @param in the input stream to read from
+     * @return total number of bytes read from the input stream
+     *         (and written to this stream)
+     * @throws IOException if an I/O error occurs while reading the input stream
+     */
+    public int write(final InputStream in) throws IOException {
+        int readCount = 0;
+        while (true) {
+            if (currentSegment == null || currentPos == currentSegment.length) {
+                nextSegment();
+            }
+            final int n = in.read(currentSegment, currentPos, currentSegment.length - currentPos);
+            if (n == EOF) {
+                return readCount;
+            }
+            readCount += n;
+            currentPos += n;
+            count += n;
+        }
+    }
+
+    /**
+     * Return the current size of the contents.
+     * @return the number of bytes written
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Returns the minimum length of the segments borrowed from the pool.
+     *
+     * @return the segment size
+     */
+    public int getSegmentSize() {
+        return segmentSize;
+    }
+
+    /**
+     * Discards the contents and returns the segments to the pool.
+     * <p>
+     * Buffers previously returned by {@link #toByteBuffers()} must no longer be used.
+     *
+     * @see java.io.ByteArrayOutputStream#reset()
+     */
+    public void reset() {
+        for (final byte[] segment : segments) {
+            pool.releaseBytes(segment);
+        }
+        segments.clear();
+        currentSegment = null;
+        currentPos = 0;
+        count = 0;
+    }
+
+    /**
+     * Discards the contents and returns the segments to the pool, as
+     * {@link #reset()} does.
+     */
+    @Override
+    public void close() {
+        reset();
+    }
+
+    /**
+     * Writes the entire contents of this byte stream to the
+     * specified output stream.
+     *
+     * @param out  the output stream to write to
+     * @throws IOException if an I/O error occurs, such as if the stream is closed
+     * @see java.io.ByteArrayOutputStream#writeTo(OutputStream)
+     */
+    public void writeTo(final OutputStream out) throws IOException {
+        final int last = segments.size() - 1;
+        for (int i = 0; i < last; i++) {
+            final byte[] segment = segments.get(i);
+            out.write(segment, 0, segment.length);
+        }
+        if (last >= 0) {
+            out.write(currentSegment, 0, currentPos);
+        }
+    }
+
+    /**
+     * Writes the entire contents of this byte stream to the specified
+     * channel with gathering writes over the segments, without copying them.
+     * <p>
+     * The channel should be in blocking mode: this method keeps writing
+     * until every byte has been accepted.
+     *
+     * @param channel  the channel to write to
+     * @return the number of bytes written, the same as {@link #size()}
+     * @throws IOException if an I/O error occurs, such as if the channel is closed
+     */
+    public long writeTo(final GatheringByteChannel channel) throws IOException {
+        return ByteArrayOutputStream.writeFully(channel, toByteBuffers());
+    }
+
+    /**
+     * Returns the contents as read-only buffers over the segments, without copying.
+     * <p>
+     * Each buffer's position is zero and its limit is the number of bytes in its
+     * segment, so the array can be passed to a gathering write as is. The buffers
+     * do not cover bytes written later, and must not be used after {@link #reset()}
+     * or {@link #close()}, as the segments then go back to the pool.
+     *
+     * @return the buffers, empty if nothing was written
+     */
+    public ByteBuffer[] toByteBuffers() {
+        if (count == 0) {
+            return EMPTY_BYTE_BUFFER_ARRAY;
+        }
+        final int last = segments.size() - 1;
+        final ByteBuffer[] buffers = new ByteBuffer[last + 1];
+        for (int i = 0; i < last; i++) {
+            buffers[i] = ByteBuffer.wrap(segments.get(i)).asReadOnlyBuffer();
+        }
+        buffers[last] = ByteBuffer.wrap(currentSegment, 0, currentPos).asReadOnlyBuffer();
+        return buffers;
+    }
+
+    /**
+     * Gets the current contents of this byte stream as a byte array.
+     * The result is independent of this stream.
+     *
+     * @return the current contents of this output stream, as a byte array
+     * @see java.io.ByteArrayOutputStream#toByteArray()
+     */
+    public byte[] toByteArray() {
+        if (count == 0) {
+            return EMPTY_BYTE_ARRAY;
+        }
+        final byte[] newbuf = new byte[count];
+        int pos = 0;
+        final int last = segments.size() - 1;
+        for (int i = 0; i < last; i++) {
+            final byte[] segment = segments.get(i);
+            System.arraycopy(segment, 0, newbuf, pos, segment.length);
+            pos += segment.length;
+        }
+        System.arraycopy(currentSegment, 0, newbuf, pos, currentPos);
+        return newbuf;
+    }
+
+    /**
+     * Gets the current contents of this byte stream as a string
+     * using the specified encoding.
+     *
+     * @param enc  the name of the character encoding
+     * @return the string converted from the byte array
+     * @throws UnsupportedEncodingException if the encoding is not supported
+     * @see java.io.ByteArrayOutputStream#toString(String)
+     */
+    public String toString(final String enc) throws UnsupportedEncodingException {
+        return new String(toByteArray(), enc);
+    }
+
+    /**
+     * Gets the current contents of this byte stream as a string
+     * using the specified encoding.
+     *
+     * @param charset  the character encoding
+     * @return the string converted from the byte array
+     * @see java.io.ByteArrayOutputStream#toString(String)
+     */
+    public String toString(final Charset charset) {
+        return new String(toByteArray(), charset);
+    }
+
+}
@@ -0,0 +1,164 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link ByteCounter} and {@link ByteCounterRegistry}.
+ *
+ * @version $Id$
+ */
+public class ByteCounterTest {
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidWindow() {
+        new ByteCounter(0);
+    }
+
+    @Test
+    public void testCountAndReset() {
+        final ByteCounter counter = new ByteCounter();
+        counter.add(10);
+        counter.add(5);
+        assertEquals(15, counter.getByteCount());
+        assertEquals(15, counter.resetByteCount());
+        assertEquals(0, counter.getByteCount());
+        counter.add(3);
+        assertEquals(3, counter.getByteCount());
+        assertEquals(18, counter.getTotalByteCount());
+    }
+
+    @Test
+    public void testRate() throws InterruptedException {
+        final ByteCounter counter = new ByteCounter(60000);
+        assertEquals(0, counter.getBytesPerSecond(), 0);
+        final long start = System.nanoTime();
+        counter.add(1000);
+        Thread.sleep(50);
+        // the rate is measured over at least this long
+        final double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+        final double rate = counter.getBytesPerSecond();
+        assertTrue(rate > 0);
+        assertTrue(rate <= 1000 / elapsedSeconds);
+    }
+
+    @Test
+    public void testConcurrentAdds() throws InterruptedException {
+        final ByteCounter counter = new ByteCounter();
+        final List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < 4; i++) {
+            threads.add(new Thread() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < 100000; j++) {
+                        counter.add(1);
+                    }
+                }
+            });
+        }
+        for (final Thread thread : threads) {
+            thread.start();
+        }
+        // reading does not block the writers
+        while (counter.getByteCount() < 400000) {
+            counter.getBytesPerSecond();
+            Thread.yield();
+        }
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(400000, counter.getTotalByteCount());
+    }
+
+    @Test
+    public void testRegistry() throws InterruptedException {
+        final ByteCounterRegistry registry = new ByteCounterRegistry(60000);
+        final ByteCounter first = new ByteCounter();
+        final ByteCounter second = new ByteCounter();
+        registry.add(first);
+        registry.add(second);
+        assertEquals(2, registry.getCounterCount());
+        first.add(100);
+        second.add(50);
+        assertEquals(150, registry.getTotalByteCount());
+
+        // removed counters stay in the total, resets do not affect it
+        registry.remove(first);
+        registry.remove(first);
+        second.resetByteCount();
+        assertEquals(1, registry.getCounterCount());
+        assertEquals(150, registry.getTotalByteCount());
+        first.add(1000);
+        assertEquals(150, registry.getTotalByteCount());
+
+        Thread.sleep(20);
+        assertTrue(registry.getBytesPerSecond() > 0);
+    }
+
+    @Test
+    public void testRegistrySharedCounter() {
+        final ByteCounterRegistry registry = new ByteCounterRegistry();
+        final ByteCounter shared = new ByteCounter();
+        registry.add(shared);
+        registry.add(shared);
+        assertEquals(1, registry.getCounterCount());
+        shared.add(10);
+
+        // still live until removed as many times as it was added
+        registry.remove(shared);
+        assertEquals(1, registry.getCounterCount());
+        shared.add(5);
+        assertEquals(15, registry.getTotalByteCount());
+        registry.remove(shared);
+        assertEquals(0, registry.getCounterCount());
+        shared.add(100);
+        assertEquals(15, registry.getTotalByteCount());
+    }
+
+    @Test
+    public void testRegistryTotalNeverDecreases() throws InterruptedException {
+        final ByteCounterRegistry registry = new ByteCounterRegistry();
+        final Thread churn = new Thread() {
+            @Override
+            public void run() {
+                for (int i = 0; i < 100000; i++) {
+                    final ByteCounter counter = new ByteCounter();
+                    registry.add(counter);
+                    counter.add(1000);
+                    registry.remove(counter);
+                }
+            }
+        };
+        churn.start();
+        long previous = 0;
+        while (churn.isAlive()) {
+            final long total = registry.getTotalByteCount();
+            assertTrue(total >= previous);
+            previous = total;
+        }
+        churn.join();
+        assertEquals(100000L * 1000, registry.getTotalByteCount());
+    }
+
+}
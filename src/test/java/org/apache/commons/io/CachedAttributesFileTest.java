@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.io;
+
+import java.io.File;
+
+import org.apache.commons.io.testtools.FileBasedTestCase;
+
+/**
+ * Tests {@link CachedAttributesFile}.
+ *
+ * @version $Id$
+ */
+public class CachedAttributesFileTest extends FileBasedTestCase {
+
+    public CachedAttributesFileTest(final String name) {
+        super(name);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        FileUtils.deleteDirectory(getTestDirectory());
+    }
+
+    public void testAttributesAreReadOnce() throws Exception {
+        final File plain = new File(getTestDirectory(), "cached.txt");
+        createFile(plain, 123);
+        plain.setLastModified(1000000002000L);
+        final CachedAttributesFile cached = new CachedAttributesFile(getTestDirectory(), "cached.txt");
+
+        assertEquals(plain, cached);
+        assertEquals(plain.hashCode(), cached.hashCode());
+        assertTrue(cached.exists());
+        assertTrue(cached.isFile());
+        assertFalse(cached.isDirectory());
+        assertEquals(123, cached.length());
+        assertEquals(1000000002000L, cached.lastModified());
+
+        // the snapshot is not refreshed
+        assertTrue(plain.delete());
+        assertTrue(cached.exists());
+        assertTrue(cached.isFile());
+        assertEquals(123, cached.length());
+        assertEquals(1000000002000L, cached.lastModified());
+    }
+
+    public void testDirectory() throws Exception {
+        final CachedAttributesFile cached =
+                new CachedAttributesFile(getTestDirectory().getParentFile(), getTestDirectory().getName());
+        assertTrue(cached.isDirectory());
+        assertFalse(cached.isFile());
+        assertTrue(cached.exists());
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.io;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests {@link CharSequenceLineIterator}.
+ *
+ * @version $Id$
+ */
+public class CharSequenceLineIteratorTest extends TestCase {
+
+    public void testConstructor() {
+        try {
+            new CharSequenceLineIterator(null);
+            fail("Expected IllegalArgumentException");
+        } catch (final IllegalArgumentException expected) {
+            // expected
+        }
+        try {
+            new CharSequenceLineIterator(new StringReader(""), 0);
+            fail("Expected IllegalArgumentException");
+        } catch (final IllegalArgumentException expected) {
+            // expected
+        }
+    }
+
+    public void testSameLinesAsBufferedReader() throws Exception {
+        final Random random = new Random(42);
+        final String chars = "ab\r\n";
+        for (int round = 0; round < 200; round++) {
+            final StringBuilder builder = new StringBuilder();
+            final int length = random.nextInt(100);
+            for (int i = 0; i < length; i++) {
+                builder.append(chars.charAt(random.nextInt(chars.length())));
+            }
+            final String text = builder.toString();
+            // small buffers, so that lines and CR LF pairs span reads and the buffer grows
+            for (final int bufferSize : new int[] {1, 2, 3, 16, 8192}) {
+                assertEquals("'" + text + "' with buffer " + bufferSize, readAll(text),
+                        iterate(new CharSequenceLineIterator(new StringReader(text), bufferSize)));
+            }
+        }
+    }
+
+    public void testReusedView() throws Exception {
+        final CharSequenceLineIterator iterator = new CharSequenceLineIterator(new StringReader("one\ntwo\r\n"));
+        final CharSequence first = iterator.next();
+        assertEquals("one", first.toString());
+        assertEquals(3, first.length());
+        assertEquals('n', first.charAt(1));
+        final CharSequence kept = first.subSequence(1, 3);
+        final CharSequence second = iterator.next();
+        assertSame(first, second);
+        assertEquals("two", second.toString());
+        assertEquals("ne", kept.toString());
+        try {
+            second.charAt(3);
+            fail("Expected IndexOutOfBoundsException");
+        } catch (final IndexOutOfBoundsException expected) {
+            // expected
+        }
+        assertFalse(iterator.hasNext());
+        try {
+            iterator.next();
+            fail("Expected NoSuchElementException");
+        } catch (final NoSuchElementException expected) {
+            // expected
+        }
+        try {
+            iterator.remove();
+            fail("Expected UnsupportedOperationException");
+        } catch (final UnsupportedOperationException expected) {
+            // expected
+        }
+    }
+
+    public void testFiltering() throws Exception {
+        final CharSequenceLineIterator iterator = new CharSequenceLineIterator(
+                new StringReader("# comment\nkept\n#\nalso kept")) {
+            @Override
+            protected boolean isValidLine(final CharSequence line) {
+                return line.length() == 0 || line.charAt(0) != '#';
+            }
+        };
+        final List<String> lines = iterate(iterator);
+        assertEquals(2, lines.size());
+        assertEquals("kept", lines.get(0));
+        assertEquals("also kept", lines.get(1));
+    }
+
+    public void testCloseAndException() throws Exception {
+        final CharSequenceLineIterator closed = new CharSequenceLineIterator(new StringReader("a\nb\n"));
+        assertTrue(closed.hasNext());
+        closed.close();
+        assertFalse(closed.hasNext());
+        CharSequenceLineIterator.closeQuietly(closed);
+        CharSequenceLineIterator.closeQuietly(null);
+
+        final Reader failing = new StringReader("") {
+            @Override
+            public int read(final char[] cbuf, final int off, final int len) throws IOException {
+                throw new IOException("failed");
+            }
+        };
+        final CharSequenceLineIterator iterator = new CharSequenceLineIterator(failing);
+        try {
+            iterator.hasNext();
+            fail("Expected IllegalStateException");
+        } catch (final IllegalStateException expected) {
+            assertTrue(expected.getCause() instanceof IOException);
+        }
+        assertFalse(iterator.hasNext());
+    }
+
+    private static List<String> iterate(final CharSequenceLineIterator iterator) {
+        final List<String> lines = new ArrayList<String>();
+        try {
+            while (iterator.hasNext()) {
+                lines.add(iterator.nextLine().toString());
+            }
+        } finally {
+            iterator.close();
+        }
+        return lines;
+    }
+
+    private static List<String> readAll(final String text) throws IOException {
+        final List<String> lines = new ArrayList<String>();
+        final BufferedReader reader = new BufferedReader(new StringReader(text));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lines.add(line);
+        }
+        return lines;
+    }
+}
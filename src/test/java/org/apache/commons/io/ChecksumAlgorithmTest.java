@@ -0,0 +1,200 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.io;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Checksum;
+
+import org.apache.commons.io.buffer.ThreadLocalBufferPool;
+import org.apache.commons.io.testtools.FileBasedTestCase;
+
+/**
+ * Tests {@link ChecksumAlgorithm} and {@link PureJavaCrc32C}.
+ *
+ * @version $Id$
+ */
+public class ChecksumAlgorithmTest extends FileBasedTestCase {
+
+    private static final byte[] CHECK = "123456789".getBytes(Charsets.US_ASCII);
+
+    private ExecutorService executor;
+
+    public ChecksumAlgorithmTest(final String name) {
+        super(name);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        getTestDirectory().mkdirs();
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        executor.shutdownNow();
+        FileUtils.deleteDirectory(getTestDirectory());
+    }
+
+    public void testPureJavaCrc32C() {
+        final PureJavaCrc32C crc = new PureJavaCrc32C();
+        assertEquals(0, crc.getValue());
+        crc.update(CHECK, 0, CHECK.length);
+        assertEquals(0xE3069283L, crc.getValue());
+
+        // byte by byte and with every split of the slicing loop
+        final byte[] data = new byte[1000];
+        new Random(7).nextBytes(data);
+        crc.reset();
+        crc.update(data, 0, data.length);
+        final long expected = crc.getValue();
+        for (int split = 0; split < 20; split++) {
+            crc.reset();
+            crc.update(data, 0, split);
+            for (int i = split; i < split + 3; i++) {
+                crc.update(data[i]);
+            }
+            crc.update(data, split + 3, data.length - split - 3);
+            assertEquals("Split " + split, expected, crc.getValue());
+        }
+        final Checksum platform = ChecksumAlgorithm.newCrc32C();
+        platform.update(data, 0, data.length);
+        assertEquals(expected, platform.getValue());
+    }
+
+    public void testChecksum() throws Exception {
+        final File file = new File(getTestDirectory(), "check.txt");
+        // larger than the read buffer
+        final byte[] data = new byte[ChecksumAlgorithm.BUFFER_SIZE * 2 + 123];
+        new Random(3).nextBytes(data);
+        FileUtils.writeByteArrayToFile(file, data);
+
+        final CRC32 crc32 = new CRC32();
+        crc32.update(data);
+        assertEquals(Long.toHexString(crc32.getValue() | 0x100000000L).substring(1),
+                ChecksumAlgorithm.CRC32.checksumHex(file));
+        final Adler32 adler32 = new Adler32();
+        adler32.update(data);
+        assertEquals(adler32.getValue() & 0xff, ChecksumAlgorithm.ADLER32.checksum(file)[3] & 0xff);
+        assertEquals(4, ChecksumAlgorithm.CRC32C.checksum(file).length);
+
+        final ChecksumAlgorithm sha = ChecksumAlgorithm.forDigest("SHA-1");
+        assertEquals("SHA-1", sha.getName());
+        assertEquals(ChecksumAlgorithm.toHex(MessageDigest.getInstance("SHA-1").digest(data)), sha.checksumHex(file));
+
+        FileUtils.writeByteArrayToFile(file, CHECK);
+        assertEquals("e3069283", ChecksumAlgorithm.CRC32C.checksumHex(file));
+        assertEquals("25f9e794", ChecksumAlgorithm.forDigest("MD5").checksumHex(file).substring(0, 8));
+
+        try {
+            ChecksumAlgorithm.forDigest("NO-SUCH-DIGEST");
+            fail("Expected IllegalArgumentException");
+        } catch (final IllegalArgumentException expected) {
+            // expected
+        }
+        try {
+            ChecksumAlgorithm.CRC32.checksum(getTestDirectory());
+            fail("Expected IllegalArgumentException");
+        } catch (final IllegalArgumentException expected) {
+            // expected
+        }
+    }
+
+    public void testChecksumWithThreadLocalBufferPool() throws Exception {
+        final ThreadLocalBufferPool pool = new ThreadLocalBufferPool();
+        IOUtils.setBufferPool(pool);
+        try {
+            // small files and large ones are read with pooled buffers
+            final File small = new File(getTestDirectory(), "small.bin");
+            createFile(small, 1000);
+            final File large = new File(getTestDirectory(), "large.bin");
+            createFile(large, ChecksumAlgorithm.BUFFER_SIZE * 3);
+            for (int i = 0; i < 3; i++) {
+                ChecksumAlgorithm.CRC32.checksum(small);
+                ChecksumAlgorithm.CRC32.checksum(large);
+            }
+            assertEquals(2, pool.getMissCount());
+            assertEquals(4, pool.getHitCount());
+        } finally {
+            IOUtils.setBufferPool(null);
+        }
+    }
+
+    public void testChecksumDirectory() throws Exception {
+        final File dir = new File(getTestDirectory(), "tree");
+        final List<File> files = new ArrayList<File>();
+        for (int i = 0; i < 30; i++) {
+            final File file = new File(dir, "sub" + i % 4 + "/file" + i + ".bin");
+            file.getParentFile().mkdirs();
+            createFile(file, 100 * i);
+            files.add(file);
+        }
+        final Map<File, String> sequential = ChecksumAlgorithm.CRC32C.checksumAll(files, null);
+        assertEquals(files, new ArrayList<File>(sequential.keySet()));
+        for (final File file : files) {
+            assertEquals(ChecksumAlgorithm.CRC32C.checksumHex(file), sequential.get(file));
+        }
+        assertEquals(sequential, ChecksumAlgorithm.CRC32C.checksumAll(files, executor));
+
+        final Map<File, String> tree = ChecksumAlgorithm.CRC32C.checksumDirectory(dir, executor);
+        assertEquals(sequential, tree);
+        final Iterator<File> iterator = tree.keySet().iterator();
+        File previous = iterator.next();
+        while (iterator.hasNext()) {
+            final File file = iterator.next();
+            assertTrue(previous.compareTo(file) < 0);
+            previous = file;
+        }
+
+        files.add(new File(dir, "missing.bin"));
+        try {
+            ChecksumAlgorithm.CRC32C.checksumAll(files, executor);
+            fail("Expected FileNotFoundException");
+        } catch (final FileNotFoundException expected) {
+            // expected
+        }
+    }
+
+    public void testChecksumAllRethrowsError() throws Exception {
+        final File file = new File(getTestDirectory(), "error.bin");
+        createFile(file, 100);
+        final Error error = new Error("engine failed");
+        final ChecksumAlgorithm failing = new ChecksumAlgorithm("Failing") {
+            @Override
+            Engine newEngine() {
+                throw error;
+            }
+        };
+        try {
+            failing.checksumAll(Collections.singletonList(file), executor);
+            fail("Expected Error");
+        } catch (final Error expected) {
+            assertSame(error, expected);
+        }
+    }
+}
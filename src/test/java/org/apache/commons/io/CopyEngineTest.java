@@ -0,0 +1,197 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+
+import org.apache.commons.io.CopyEngine.Strategy;
+import org.apache.commons.io.output.ByteArrayOutputStream;
+import org.apache.commons.io.testtools.FileBasedTestCase;
+
+/**
+ * Tests {@link CopyEngine}.
+ *
+ * @version $Id$
+ */
+public class CopyEngineTest extends FileBasedTestCase {
+
+    private static final int FILE_SIZE = 100000;
+
+    private File source;
+    private File target;
+    private byte[] data;
+
+    public CopyEngineTest(final String name) {
+        super(name);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        source = new File(getTestDirectory(), "copy-engine-source.bin");
+        target = new File(getTestDirectory(), "copy-engine-target.bin");
+        createFile(source, FILE_SIZE);
+        data = FileUtils.readFileToByteArray(source);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        FileUtils.deleteDirectory(getTestDirectory());
+    }
+
+    public void testInvalidSizes() {
+        try {
+            new CopyEngine(0, 1, 1, 1);
+            fail("Expected IllegalArgumentException");
+        } catch (final IllegalArgumentException expected) {
+            // expected
+        }
+    }
+
+    public void testFileStreamToFileStreamUsesTransferTo() throws Exception {
+        final CopyEngine engine = new CopyEngine(1000, CopyEngine.DEFAULT_MAP_THRESHOLD, 1000, 1000);
+        final FileInputStream in = new FileInputStream(source);
+        final FileOutputStream out = new FileOutputStream(target);
+        try {
+            // a partly consumed source is copied from its current position
+            assertEquals(10, in.read(new byte[10]));
+            assertEquals(FILE_SIZE - 10, engine.copy(in, out));
+            assertEquals(IOUtils.EOF, in.read());
+        } finally {
+            IOUtils.closeQuietly(out, in);
+        }
+        final byte[] expected = new byte[FILE_SIZE - 10];
+        System.arraycopy(data, 10, expected, 0, expected.length);
+        assertEqualContent(expected, target);
+        assertEquals(1, engine.getCopyCount(Strategy.TRANSFER_TO));
+        assertEquals(FILE_SIZE - 10, engine.getByteCount(Strategy.TRANSFER_TO));
+        assertEquals(0, engine.getCopyCount(Strategy.HEAP));
+    }
+
+    public void testFileStreamToStreamUsesHeapBelowMapThreshold() throws Exception {
+        final CopyEngine engine = new CopyEngine();
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final FileInputStream in = new FileInputStream(source);
+        try {
+            assertEquals(FILE_SIZE, engine.copy(in, out));
+        } finally {
+            in.close();
+        }
+        assertTrue(Arrays.equals(data, out.toByteArray()));
+        assertEquals(1, engine.getCopyCount(Strategy.HEAP));
+        assertEquals(0, engine.getCopyCount(Strategy.MAPPED));
+    }
+
+    public void testFileStreamToStreamUsesMapped() throws Exception {
+        final CopyEngine engine = new CopyEngine(CopyEngine.DEFAULT_TRANSFER_CHUNK_SIZE, 1, 30000, 1000);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final FileInputStream in = new FileInputStream(source);
+        try {
+            assertEquals(FILE_SIZE, engine.copy(in, out));
+            assertEquals(IOUtils.EOF, in.read());
+        } finally {
+            in.close();
+        }
+        assertTrue(Arrays.equals(data, out.toByteArray()));
+        assertEquals(1, engine.getCopyCount(Strategy.MAPPED));
+        assertEquals(FILE_SIZE, engine.getByteCount(Strategy.MAPPED));
+    }
+
+    public void testStreamToStreamUsesHeap() throws Exception {
+        final CopyEngine engine = new CopyEngine();
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(FILE_SIZE, engine.copy(new ByteArrayInputStream(data), out));
+        assertTrue(Arrays.equals(data, out.toByteArray()));
+        assertEquals(1, engine.getCopyCount(Strategy.HEAP));
+        assertEquals(FILE_SIZE, engine.getByteCount(Strategy.HEAP));
+    }
+
+    public void testChannelToFileUsesTransferFrom() throws Exception {
+        final CopyEngine engine = new CopyEngine(1000, CopyEngine.DEFAULT_MAP_THRESHOLD, 1000, 1000);
+        final ReadableByteChannel in = Channels.newChannel(new ByteArrayInputStream(data));
+        final FileOutputStream out = new FileOutputStream(target);
+        try {
+            out.write(1);
+            assertEquals(FILE_SIZE, engine.copy(in, out.getChannel()));
+            assertEquals(FILE_SIZE + 1, out.getChannel().position());
+        } finally {
+            out.close();
+        }
+        final byte[] expected = new byte[FILE_SIZE + 1];
+        expected[0] = 1;
+        System.arraycopy(data, 0, expected, 1, FILE_SIZE);
+        assertEqualContent(expected, target);
+        assertEquals(1, engine.getCopyCount(Strategy.TRANSFER_FROM));
+    }
+
+    public void testChannelToChannelUsesDirectBuffer() throws Exception {
+        final CopyEngine engine = new CopyEngine(1000, CopyEngine.DEFAULT_MAP_THRESHOLD, 1000, 1000);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final WritableByteChannel channel = Channels.newChannel(out);
+        assertEquals(FILE_SIZE, engine.copy(Channels.newChannel(new ByteArrayInputStream(data)), channel));
+        assertTrue(Arrays.equals(data, out.toByteArray()));
+        assertEquals(1, engine.getCopyCount(Strategy.DIRECT_BUFFER));
+        assertEquals(FILE_SIZE, engine.getByteCount(Strategy.DIRECT_BUFFER));
+    }
+
+    public void testFileChannelToChannelUsesTransferTo() throws Exception {
+        final CopyEngine engine = new CopyEngine();
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final FileInputStream in = new FileInputStream(source);
+        try {
+            assertEquals(FILE_SIZE, engine.copy(in.getChannel(), Channels.newChannel(out)));
+        } finally {
+            in.close();
+        }
+        assertTrue(Arrays.equals(data, out.toByteArray()));
+        assertEquals(1, engine.getCopyCount(Strategy.TRANSFER_TO));
+        assertEquals(0, engine.getCopyCount(Strategy.DIRECT_BUFFER));
+    }
+
+    public void testEmptyFile() throws Exception {
+        final CopyEngine engine = new CopyEngine();
+        createFile(source, 0);
+        final FileInputStream in = new FileInputStream(source);
+        final FileOutputStream out = new FileOutputStream(target);
+        try {
+            assertEquals(0, engine.copy(in, out));
+        } finally {
+            IOUtils.closeQuietly(out, in);
+        }
+        assertEquals(0, target.length());
+    }
+
+    public void testIOUtilsUsesEngine() throws Exception {
+        final CopyEngine engine = new CopyEngine();
+        IOUtils.setCopyEngine(engine);
+        try {
+            assertSame(engine, IOUtils.getCopyEngine());
+            FileUtils.copyFile(source, target);
+            assertEqualContent(data, target);
+            assertEquals(FILE_SIZE, engine.getByteCount(Strategy.TRANSFER_TO));
+        } finally {
+            IOUtils.setCopyEngine(null);
+        }
+        assertNotSame(engine, IOUtils.getCopyEngine());
+    }
+}
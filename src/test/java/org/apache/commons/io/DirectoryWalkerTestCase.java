@@ -26,7 +26,10 @@ import java.io.FileFilter;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.junit.Assert;
 
@@ -375,6 +378,77 @@ public class DirectoryWalkerTestCase {
         checkContainsString("Output File", outputFiles, results);
     }
 
+    /**
+     * Test parallel walk in the order of a single-threaded walk
+     */
+    @Test
+    public void testParallelOrdered() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final TestFileFinder finder = new TestFileFinder(NOT_SVN, -1);
+            final List<File> expected = finder.find(javaDir);
+            assertEquals(expected, finder.find(javaDir, executor, true));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Test parallel walk in completion order
+     */
+    @Test
+    public void testParallelUnordered() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final TestFileFinder finder = new TestFileFinder(NOT_SVN, -1);
+            final List<File> expected = finder.find(javaDir);
+            final List<File> results = finder.find(javaDir, executor, false);
+            assertEquals(expected.size(), results.size());
+            assertEquals(new HashSet<File>(expected), new HashSet<File>(results));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Test parallel walk with filtering and depth limit
+     */
+    @Test
+    public void testParallelFilterAndLimit() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<File> results = new TestFileFinder(dirsAndFilesFilter, 5).find(javaDir, executor, true);
+            assertEquals("Result Size", 1 + dirs.length + ioFiles.length, results.size());
+            assertEquals("Start Dir", javaDir, results.get(results.size() - 1));
+            checkContainsFiles("Dir", dirs, results);
+            checkContainsFiles("File", ioFiles, results);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Test parallel walk cancellation
+     */
+    @Test
+    public void testParallelCancel() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final String cancelName = "commons";
+            try {
+                new TestCancelWalker(cancelName, false).find(javaDir, executor);
+                fail("CancelException not thrown for '" + cancelName + "'");
+            } catch (final DirectoryWalker.CancelException cancel) {
+                assertEquals("File:  " + cancelName, cancelName, cancel.getFile().getName());
+                assertEquals("Depth: " + cancelName, 3, cancel.getDepth());
+            }
+            final List<File> results = new TestCancelWalker(cancelName, true).find(javaDir, executor);
+            assertEquals("Suppress:  " + cancelName, cancelName, results.get(results.size() - 1).getName());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
     // ------------ Test DirectoryWalker implementation --------------------------
 
     /**
@@ -402,6 +476,14 @@ public class DirectoryWalkerTestCase {
            return results;
         }
 
+        /** find files in parallel. */
+        protected List<File> find(final File startDirectory, final ExecutorService executor, final boolean ordered)
+                throws IOException {
+           final List<File> results = new ArrayList<File>();
+           walk(startDirectory, results, executor, ordered);
+           return results;
+        }
+
         /** Handles a directory end by adding the File to the result set. */
         @Override
         protected void handleDirectoryEnd(final File directory, final int depth, final Collection<File> results) {
@@ -457,6 +539,13 @@ public class DirectoryWalkerTestCase {
            return results;
         }
 
+        /** find files in parallel, in the order of a single-threaded walk. */
+        protected List<File> find(final File startDirectory, final ExecutorService executor) throws IOException {
+           final List<File> results = new ArrayList<File>();
+           walk(startDirectory, results, executor, true);
+           return results;
+        }
+
         /** Handles a directory end by adding the File to the result set. */
         @Override
         protected void handleDirectoryEnd(final File directory, final int depth, final Collection<File> results) throws IOException {
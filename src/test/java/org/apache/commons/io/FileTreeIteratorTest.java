@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.io;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.apache.commons.io.filefilter.FileFilterUtils;
+import org.apache.commons.io.filefilter.TrueFileFilter;
+import org.apache.commons.io.testtools.FileBasedTestCase;
+
+/**
+ * Tests {@link FileTreeIterator}.
+ *
+ * @version $Id$
+ */
+public class FileTreeIteratorTest extends FileBasedTestCase {
+
+    private File root;
+
+    public FileTreeIteratorTest(final String name) {
+        super(name);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        root = new File(getTestDirectory(), "tree");
+        for (int d = 0; d < 3; d++) {
+            final File dir = new File(root, "dir" + d + "/sub" + d);
+            dir.mkdirs();
+            for (int f = 0; f < 4; f++) {
+                FileUtils.touch(new File(dir, "file" + f + ".txt"));
+                FileUtils.touch(new File(dir.getParentFile(), "file" + f + ".xml"));
+            }
+        }
+        FileUtils.touch(new File(root, "top.txt"));
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        FileUtils.deleteDirectory(getTestDirectory());
+    }
+
+    public void testSameOrderAsListFiles() throws Exception {
+        assertEquals(new ArrayList<File>(FileUtils.listFiles(root, TrueFileFilter.INSTANCE, TrueFileFilter.INSTANCE)),
+                toList(FileUtils.iterateFiles(root, TrueFileFilter.INSTANCE, TrueFileFilter.INSTANCE)));
+        assertEquals(
+                new ArrayList<File>(FileUtils.listFilesAndDirs(root, TrueFileFilter.INSTANCE, TrueFileFilter.INSTANCE)),
+                toList(FileUtils.iterateFilesAndDirs(root, TrueFileFilter.INSTANCE, TrueFileFilter.INSTANCE)));
+        assertEquals(new ArrayList<File>(FileUtils.listFiles(root, new String[] {"txt"}, true)),
+                toList(FileUtils.iterateFiles(root, new String[] {"txt"}, true)));
+    }
+
+    public void testFilters() throws Exception {
+        final List<File> files = toList(FileUtils.fileTreeIterator(root, FileFilterUtils.suffixFileFilter(".txt"),
+                FileFilterUtils.nameFileFilter("dir1"), true));
+        assertEquals(3, files.size());
+        assertEquals(root, files.get(0));
+        assertTrue(files.contains(new File(root, "dir1")));
+        assertTrue(files.contains(new File(root, "top.txt")));
+    }
+
+    public void testWalksLazily() throws Exception {
+        final FileTreeIterator iterator = FileUtils.fileTreeIterator(root, TrueFileFilter.INSTANCE,
+                TrueFileFilter.INSTANCE, true);
+        assertEquals(root, iterator.next());
+        // a directory not yet reached is listed when the iterator gets there
+        final File late = new File(root, "dir2/sub2/late.txt");
+        FileUtils.touch(late);
+        assertTrue(toList(iterator).contains(late));
+        assertFalse(iterator.hasNext());
+    }
+
+    public void testClose() throws Exception {
+        final FileTreeIterator iterator = FileUtils.fileTreeIterator(root, TrueFileFilter.INSTANCE,
+                TrueFileFilter.INSTANCE, false);
+        assertTrue(iterator.hasNext());
+        iterator.next();
+        iterator.close();
+        assertFalse(iterator.hasNext());
+        try {
+            iterator.next();
+            fail("Expected NoSuchElementException");
+        } catch (final NoSuchElementException expected) {
+            // expected
+        }
+        try {
+            iterator.remove();
+            fail("Expected UnsupportedOperationException");
+        } catch (final UnsupportedOperationException expected) {
+            // expected
+        }
+    }
+
+    private static List<File> toList(final Iterator<File> iterator) {
+        final List<File> files = new ArrayList<File>();
+        while (iterator.hasNext()) {
+            files.add(iterator.next());
+        }
+        return files;
+    }
+}
@@ -21,6 +21,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
 
+import org.apache.commons.io.filefilter.AbstractFileFilter;
 import org.apache.commons.io.filefilter.FileFilterUtils;
 import org.apache.commons.io.filefilter.IOFileFilter;
 import org.apache.commons.io.testtools.FileBasedTestCase;
@@ -199,5 +200,23 @@ public class FileUtilsListFilesTestCase extends FileBasedTestCase {
         }
     }
 
+    public void testListFilesFilterSeesCachedAttributes() throws Exception {
+        final Collection<Class<?>> filterClasses = new ArrayList<Class<?>>();
+        final IOFileFilter recording = new AbstractFileFilter() {
+            @Override
+            public boolean accept(final File file) {
+                filterClasses.add(file.getClass());
+                return file.isDirectory() || file.length() == 0 && file.lastModified() > 0;
+            }
+        };
+        final Collection<File> files = FileUtils.listFiles(getLocalTestDirectory(), recording, recording);
+        assertEquals(8, files.size());
+        for (final File file : files) {
+            assertEquals(File.class, file.getClass());
+        }
+        for (final Class<?> filterClass : filterClasses) {
+            assertEquals(CachedAttributesFile.class, filterClass);
+        }
+    }
 
 }
@@ -25,11 +25,14 @@ import java.io.Reader;
 import java.io.Writer;
 import java.util.Arrays;
 
+import org.apache.commons.io.buffer.ThreadLocalBufferPool;
+import org.apache.commons.io.buffer.UnpooledBufferPool;
 import org.apache.commons.io.input.NullInputStream;
 import org.apache.commons.io.input.NullReader;
 import org.apache.commons.io.output.ByteArrayOutputStream;
 import org.apache.commons.io.output.NullOutputStream;
 import org.apache.commons.io.output.NullWriter;
+import org.apache.commons.io.output.StringBuilderWriter;
 import org.apache.commons.io.testtools.FileBasedTestCase;
 import org.apache.commons.io.testtools.YellOnCloseInputStream;
 import org.apache.commons.io.testtools.YellOnFlushAndCloseOutputStream;
@@ -87,6 +90,29 @@ public class IOUtilsCopyTestCase extends FileBasedTestCase {
         assertEquals(inData.length,count);
     }
 
+    public void testCopy_inputStreamToOutputStreamWithBufferPool() throws Exception {
+        final ThreadLocalBufferPool pool = new ThreadLocalBufferPool();
+        IOUtils.setBufferPool(pool);
+        try {
+            assertSame(pool, IOUtils.getBufferPool());
+            for (int i = 0; i < 3; i++) {
+                final ByteArrayOutputStream baout = new ByteArrayOutputStream();
+                assertEquals(inData.length, IOUtils.copy(new ByteArrayInputStream(inData), baout));
+                assertTrue("Content differs", Arrays.equals(inData, baout.toByteArray()));
+
+                final Writer writer = new StringBuilderWriter();
+                assertEquals(inData.length, IOUtils.copyLarge(
+                        new InputStreamReader(new ByteArrayInputStream(inData), "US-ASCII"), writer));
+            }
+            // the first byte and char copies allocate, every later one reuses the pooled buffers
+            assertEquals(2, pool.getMissCount());
+            assertEquals(4, pool.getHitCount());
+        } finally {
+            IOUtils.setBufferPool(null);
+        }
+        assertSame(UnpooledBufferPool.INSTANCE, IOUtils.getBufferPool());
+    }
+
     public void testCopy_inputStreamToOutputStreamWithBufferSize() throws Exception {
         testCopy_inputStreamToOutputStreamWithBufferSize(1);
         testCopy_inputStreamToOutputStreamWithBufferSize(2);
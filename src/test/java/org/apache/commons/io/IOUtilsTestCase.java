@@ -49,6 +49,7 @@ import java.nio.channels.Selector;
 import java.util.Arrays;
 import java.util.List;
 
+import org.apache.commons.io.buffer.ThreadLocalBufferPool;
 import org.apache.commons.io.testtools.FileBasedTestCase;
 import org.junit.Assert;
 
@@ -241,6 +242,47 @@ public class IOUtilsTestCase extends FileBasedTestCase {
                 new ByteArrayInputStream("ABCD".getBytes(Charsets.UTF_8))));
     }
 
+    public void testContentEquals_InputStream_InputStreamLargerThanBuffer() throws Exception {
+        final byte[] data = new byte[10000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+        final byte[] lastDiffers = data.clone();
+        lastDiffers[data.length - 1]++;
+        final byte[] longer = new byte[data.length + 1];
+        System.arraycopy(data, 0, longer, 0, data.length);
+
+        assertTrue(IOUtils.contentEquals(new ByteArrayInputStream(data), new ByteArrayInputStream(data.clone())));
+        assertFalse(IOUtils.contentEquals(new ByteArrayInputStream(data), new ByteArrayInputStream(lastDiffers)));
+        assertFalse(IOUtils.contentEquals(new ByteArrayInputStream(data), new ByteArrayInputStream(longer)));
+        assertFalse(IOUtils.contentEquals(new ByteArrayInputStream(longer), new ByteArrayInputStream(data)));
+        // a stream that returns less than requested is not treated as shorter
+        assertTrue(IOUtils.contentEquals(new ByteArrayInputStream(data), new BufferedInputStream(
+                new ByteArrayInputStream(data), 7) {
+            @Override
+            public synchronized int read(final byte[] b, final int off, final int len) throws IOException {
+                return super.read(b, off, Math.min(len, 3));
+            }
+        }));
+    }
+
+    public void testContentEqualsWithThreadLocalBufferPool() throws Exception {
+        final ThreadLocalBufferPool pool = new ThreadLocalBufferPool();
+        IOUtils.setBufferPool(pool);
+        try {
+            for (int i = 0; i < 3; i++) {
+                assertTrue(IOUtils.contentEquals(new ByteArrayInputStream(new byte[10000]),
+                        new ByteArrayInputStream(new byte[10000])));
+                assertTrue(IOUtils.contentEquals(new StringReader("ABC"), new StringReader("ABC")));
+            }
+            // the first byte and char comparisons allocate, every later one reuses the pooled buffers
+            assertEquals(2, pool.getMissCount());
+            assertEquals(4, pool.getHitCount());
+        } finally {
+            IOUtils.setBufferPool(null);
+        }
+    }
+
     public void testContentEquals_Reader_Reader() throws Exception {
         {
             final StringReader input1 = new StringReader("");
@@ -0,0 +1,177 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.commons.io.filefilter.FileFilterUtils;
+import org.apache.commons.io.filefilter.TrueFileFilter;
+import org.apache.commons.io.testtools.FileBasedTestCase;
+
+/**
+ * Tests {@link ParallelDirectoryCopier} and
+ * {@link FileUtils#copyDirectory(File, File, java.io.FileFilter, boolean, ExecutorService)}.
+ *
+ * @version $Id$
+ */
+public class ParallelDirectoryCopierTest extends FileBasedTestCase {
+
+    private static final long DATE = 1000000002000L;
+
+    private ExecutorService executor;
+    private File srcDir;
+    private File destDir;
+
+    public ParallelDirectoryCopierTest(final String name) {
+        super(name);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        executor = Executors.newFixedThreadPool(4);
+        srcDir = new File(getTestDirectory(), "parallel-source");
+        destDir = new File(getTestDirectory(), "parallel-target");
+        for (int d = 0; d < 5; d++) {
+            final File dir = new File(srcDir, "dir" + d + "/sub");
+            dir.mkdirs();
+            for (int f = 0; f < 20; f++) {
+                final File file = new File(f % 2 == 0 ? dir : dir.getParentFile(), "file" + f + ".txt");
+                createFile(file, 10 + f);
+                file.setLastModified(DATE);
+            }
+            dir.setLastModified(DATE);
+            dir.getParentFile().setLastModified(DATE);
+        }
+        new File(srcDir, "empty").mkdirs();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        executor.shutdownNow();
+        FileUtils.deleteDirectory(getTestDirectory());
+    }
+
+    public void testConstructorArguments() {
+        try {
+            new ParallelDirectoryCopier(null);
+            fail("Expected NullPointerException");
+        } catch (final NullPointerException expected) {
+            // expected
+        }
+        try {
+            new ParallelDirectoryCopier(executor, 0);
+            fail("Expected IllegalArgumentException");
+        } catch (final IllegalArgumentException expected) {
+            // expected
+        }
+    }
+
+    public void testCopyTree() throws Exception {
+        final ParallelDirectoryCopier.Result result =
+                new ParallelDirectoryCopier(executor).copy(srcDir, destDir, null, true, null);
+
+        assertTrue(result.getFailures().isEmpty());
+        assertEquals(100, result.getFileCount());
+        assertEquals(12, result.getDirectoryCount());
+        assertSameTree(srcDir, destDir);
+        assertTrue(new File(destDir, "empty").isDirectory());
+        assertEquals(DATE, new File(destDir, "dir3/sub").lastModified());
+        assertEquals(DATE, new File(destDir, "dir3").lastModified());
+        assertEquals(DATE, new File(destDir, "dir3/file1.txt").lastModified());
+    }
+
+    public void testCopyTreeRunningTasksInline() throws Exception {
+        final ParallelDirectoryCopier.Result result =
+                new ParallelDirectoryCopier(executor, 1).copy(srcDir, destDir, null, false, null);
+        assertTrue(result.getFailures().isEmpty());
+        assertSameTree(srcDir, destDir);
+    }
+
+    public void testFilter() throws Exception {
+        FileUtils.copyDirectory(srcDir, destDir,
+                FileFilterUtils.or(FileFilterUtils.directoryFileFilter(), FileFilterUtils.suffixFileFilter("1.txt")),
+                false, executor);
+        final Collection<File> copied = FileUtils.listFiles(destDir, TrueFileFilter.INSTANCE, TrueFileFilter.INSTANCE);
+        // file1.txt and file11.txt in each of the five directories
+        assertEquals(10, copied.size());
+    }
+
+    public void testFailuresDoNotStopTheCopy() throws Exception {
+        // a directory where a file should go makes that one file fail
+        final File blocked = new File(destDir, "dir2/file3.txt");
+        blocked.mkdirs();
+
+        final List<File> copiedFiles = new CopyOnWriteArrayList<File>();
+        final List<File> failedFiles = new CopyOnWriteArrayList<File>();
+        final ParallelDirectoryCopier.Result result = new ParallelDirectoryCopier(executor).copy(srcDir, destDir, null,
+                false, new ParallelDirectoryCopier.Listener() {
+                    public void fileCopied(final File srcFile, final File destFile) {
+                        copiedFiles.add(destFile);
+                    }
+
+                    public void copyFailed(final File source, final File destination, final IOException exception) {
+                        failedFiles.add(destination);
+                    }
+                });
+
+        assertEquals(1, result.getFailures().size());
+        assertEquals(blocked, result.getFailures().get(0).getDestination());
+        assertEquals(99, result.getFileCount());
+        assertEquals(99, copiedFiles.size());
+        assertEquals(1, failedFiles.size());
+
+        try {
+            FileUtils.copyDirectory(srcDir, destDir, null, false, executor);
+            fail("Expected IOException");
+        } catch (final IOException expected) {
+            assertNotNull(expected.getCause());
+        }
+    }
+
+    public void testInvalidSource() throws Exception {
+        try {
+            new ParallelDirectoryCopier(executor).copy(new File(srcDir, "missing"), destDir, null, false, null);
+            fail("Expected IOException");
+        } catch (final IOException expected) {
+            // expected
+        }
+    }
+
+    public void testDestinationInsideSource() throws Exception {
+        final File inside = new File(srcDir, "copy");
+        new ParallelDirectoryCopier(executor).copy(srcDir, inside, null, false, null);
+        assertTrue(new File(inside, "dir0/sub/file0.txt").isFile());
+        assertFalse(new File(inside, "copy").exists());
+    }
+
+    private void assertSameTree(final File expected, final File actual) throws IOException {
+        final Collection<File> files = FileUtils.listFiles(expected, TrueFileFilter.INSTANCE, TrueFileFilter.INSTANCE);
+        assertEquals(files.size(),
+                FileUtils.listFiles(actual, TrueFileFilter.INSTANCE, TrueFileFilter.INSTANCE).size());
+        final int prefix = expected.getPath().length();
+        for (final File file : files) {
+            final File copy = new File(actual, file.getPath().substring(prefix));
+            assertTrue("Missing " + copy, FileUtils.contentEquals(file, copy));
+        }
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.io;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.commons.io.testtools.FileBasedTestCase;
+
+/**
+ * Tests {@link ParallelLineReader} and
+ * {@link FileUtils#readLines(File, Charset, ExecutorService)}.
+ *
+ * @version $Id$
+ */
+public class ParallelLineReaderTest extends FileBasedTestCase {
+
+    private static final String[] TERMINATORS = {"\n", "\r\n", "\r"};
+
+    private ExecutorService executor;
+    private File file;
+
+    public ParallelLineReaderTest(final String name) {
+        super(name);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        getTestDirectory().mkdirs();
+        executor = Executors.newFixedThreadPool(4);
+        file = new File(getTestDirectory(), "lines.txt");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        executor.shutdownNow();
+        FileUtils.deleteDirectory(getTestDirectory());
+    }
+
+    public void testConstructorArguments() {
+        try {
+            new ParallelLineReader(null);
+            fail("Expected NullPointerException");
+        } catch (final NullPointerException expected) {
+            // expected
+        }
+        try {
+            new ParallelLineReader(executor, 0, 1);
+            fail("Expected IllegalArgumentException");
+        } catch (final IllegalArgumentException expected) {
+            // expected
+        }
+        try {
+            new ParallelLineReader(executor, 1, 0);
+            fail("Expected IllegalArgumentException");
+        } catch (final IllegalArgumentException expected) {
+            // expected
+        }
+    }
+
+    public void testOrdered() throws Exception {
+        write(content(2000) + "last, unterminated", Charsets.UTF_8);
+        final List<String> expected = FileUtils.readLines(file, Charsets.UTF_8);
+        assertEquals("last, unterminated", expected.get(expected.size() - 1));
+        // chunks much smaller than the file, and one chunk per line
+        for (final int chunkSize : new int[] {1, 97, 4096, ParallelLineReader.DEFAULT_CHUNK_SIZE}) {
+            final List<String> lines = new ArrayList<String>();
+            final long count = new ParallelLineReader(executor, chunkSize, 3).read(file, Charsets.UTF_8, true,
+                    new ParallelLineReader.LineHandler() {
+                        public void handle(final String line) {
+                            lines.add(line);
+                        }
+                    });
+            assertEquals("Chunk size " + chunkSize, expected, lines);
+            assertEquals(expected.size(), count);
+        }
+        assertEquals(expected, FileUtils.readLines(file, Charsets.UTF_8, executor));
+    }
+
+    public void testUnordered() throws Exception {
+        write(content(2000), Charsets.ISO_8859_1);
+        final List<String> expected = FileUtils.readLines(file, Charsets.ISO_8859_1);
+        final List<String> lines = Collections.synchronizedList(new ArrayList<String>());
+        final long count = new ParallelLineReader(executor, 113, 4).read(file, Charsets.ISO_8859_1, false,
+                new ParallelLineReader.LineHandler() {
+                    public void handle(final String line) {
+                        lines.add(line);
+                    }
+                });
+        assertEquals(expected.size(), count);
+        final List<String> sorted = new ArrayList<String>(lines);
+        Collections.sort(sorted);
+        final List<String> sortedExpected = new ArrayList<String>(expected);
+        Collections.sort(sortedExpected);
+        assertEquals(sortedExpected, sorted);
+    }
+
+    public void testMultiByteTerminators() throws Exception {
+        write(content(100), Charsets.UTF_16);
+        assertEquals(FileUtils.readLines(file, Charsets.UTF_16),
+                FileUtils.readLines(file, Charsets.UTF_16, executor));
+    }
+
+    public void testEmptyFile() throws Exception {
+        write("", Charsets.UTF_8);
+        assertEquals(0, FileUtils.readLines(file, Charsets.UTF_8, executor).size());
+    }
+
+    public void testHandlerFailure() throws Exception {
+        write(content(500), Charsets.UTF_8);
+        for (final boolean ordered : new boolean[] {true, false}) {
+            try {
+                new ParallelLineReader(executor, 64, 2).read(file, Charsets.UTF_8, ordered,
+                        new ParallelLineReader.LineHandler() {
+                            public void handle(final String line) {
+                                if (line.startsWith("line 300 ")) {
+                                    throw new IllegalStateException(line);
+                                }
+                            }
+                        });
+                fail("Expected IllegalStateException");
+            } catch (final IllegalStateException expected) {
+                assertTrue(expected.getMessage().startsWith("line 300 "));
+            }
+        }
+        try {
+            FileUtils.readLines(new File(getTestDirectory(), "missing.txt"), Charsets.UTF_8, executor);
+            fail("Expected IOException");
+        } catch (final IOException expected) {
+            // expected
+        }
+    }
+
+    /**
+     * Returns lines of different lengths, some empty, with mixed terminators.
+     */
+    private static String content(final int lineCount) {
+        final StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < lineCount; i++) {
+            if (i % 11 != 5) {
+                builder.append("line ").append(i).append(' ');
+                for (int j = 0; j < i % 23; j++) {
+                    builder.append('\u00e9');
+                }
+            }
+            builder.append(TERMINATORS[i % 3]);
+        }
+        return builder.toString();
+    }
+
+    private void write(final String content, final Charset charset) throws IOException {
+        final FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(content.getBytes(charset));
+        } finally {
+            IOUtils.closeQuietly(out);
+        }
+    }
+}
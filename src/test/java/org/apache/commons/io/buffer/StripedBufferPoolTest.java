@@ -0,0 +1,139 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.io.buffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link StripedBufferPool}.
+ *
+ * @version $Id$
+ */
+public class StripedBufferPoolTest {
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidSlots() {
+        new StripedBufferPool(0);
+    }
+
+    @Test
+    public void testReleaseAndBorrowAgain() {
+        final StripedBufferPool pool = new StripedBufferPool(4, 32);
+        assertEquals(4, pool.getSlots());
+        final byte[] bytes = pool.borrowBytes(32);
+        final char[] chars = pool.borrowChars(32);
+        pool.releaseBytes(bytes);
+        pool.releaseChars(chars);
+        assertSame(bytes, pool.borrowBytes(20));
+        assertSame(chars, pool.borrowChars(20));
+        assertEquals(2, pool.getHitCount());
+        assertEquals(2, pool.getMissCount());
+    }
+
+    @Test
+    public void testPoolIsBounded() {
+        final StripedBufferPool pool = new StripedBufferPool(2, 32);
+        final List<byte[]> buffers = new ArrayList<byte[]>();
+        for (int i = 0; i < 3; i++) {
+            buffers.add(pool.borrowBytes(32));
+        }
+        for (final byte[] buffer : buffers) {
+            pool.releaseBytes(buffer);
+        }
+        // only two of the three buffers were kept
+        pool.borrowBytes(32);
+        pool.borrowBytes(32);
+        final byte[] third = pool.borrowBytes(32);
+        for (final byte[] buffer : buffers) {
+            assertNotSame(buffer, third);
+        }
+        assertEquals(2, pool.getHitCount());
+        assertEquals(4, pool.getMissCount());
+    }
+
+    @Test
+    public void testBuffersAreSharedBetweenThreads() throws Exception {
+        final StripedBufferPool pool = new StripedBufferPool(1, 32);
+        final byte[] buffer = pool.borrowBytes(32);
+        pool.releaseBytes(buffer);
+
+        final AtomicReference<byte[]> other = new AtomicReference<byte[]>();
+        final Thread thread = new Thread() {
+            @Override
+            public void run() {
+                other.set(pool.borrowBytes(32));
+            }
+        };
+        thread.start();
+        thread.join();
+        assertSame(buffer, other.get());
+    }
+
+    @Test
+    public void testConcurrentBorrowNeverSharesABuffer() throws Exception {
+        final StripedBufferPool pool = new StripedBufferPool(4, 16);
+        final int threadCount = 8;
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicBoolean corrupted = new AtomicBoolean();
+        final Thread[] threads = new Thread[threadCount];
+        for (int t = 0; t < threadCount; t++) {
+            final byte marker = (byte) t;
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (final InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < 10000; i++) {
+                        final byte[] buffer = pool.borrowBytes(16);
+                        Arrays.fill(buffer, marker);
+                        Thread.yield();
+                        for (final byte b : buffer) {
+                            if (b != marker) {
+                                corrupted.set(true);
+                            }
+                        }
+                        pool.releaseBytes(buffer);
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        start.countDown();
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+        assertFalse("A buffer was handed to two threads at once", corrupted.get());
+        assertEquals(threadCount * 10000, pool.getHitCount() + pool.getMissCount());
+        assertTrue(pool.getHitCount() > 0);
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.io.buffer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link ThreadLocalBufferPool} and the size class handling of {@link AbstractBufferPool}.
+ *
+ * @version $Id$
+ */
+public class ThreadLocalBufferPoolTest {
+
+    @Test
+    public void testDefaultSizeClasses() {
+        assertArrayEquals(new int[] { 4096, 8192, 65536 }, new ThreadLocalBufferPool().getSizeClasses());
+    }
+
+    @Test
+    public void testInvalidSizeClasses() {
+        try {
+            new ThreadLocalBufferPool(new int[0]);
+            fail("Expected IllegalArgumentException");
+        } catch (final IllegalArgumentException expected) {
+            // expected
+        }
+        try {
+            new ThreadLocalBufferPool(8, 8);
+            fail("Expected IllegalArgumentException");
+        } catch (final IllegalArgumentException expected) {
+            // expected
+        }
+        try {
+            new ThreadLocalBufferPool(0, 8);
+            fail("Expected IllegalArgumentException");
+        } catch (final IllegalArgumentException expected) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testBorrowRoundsUpToSizeClass() {
+        final BufferPool pool = new ThreadLocalBufferPool(16, 64);
+        assertEquals(16, pool.borrowBytes(0).length);
+        assertEquals(16, pool.borrowBytes(16).length);
+        assertEquals(64, pool.borrowBytes(17).length);
+        assertEquals(64, pool.borrowChars(50).length);
+        assertEquals(100, pool.borrowBytes(100).length);
+        assertEquals(100, pool.borrowChars(100).length);
+        assertEquals(0, pool.getHitCount());
+        assertEquals(6, pool.getMissCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBorrowNegative() {
+        new ThreadLocalBufferPool().borrowBytes(-1);
+    }
+
+    @Test
+    public void testReleaseAndBorrowAgain() {
+        final BufferPool pool = new ThreadLocalBufferPool(16, 64);
+        final byte[] bytes = pool.borrowBytes(10);
+        final char[] chars = pool.borrowChars(10);
+        pool.releaseBytes(bytes);
+        pool.releaseChars(chars);
+        assertSame(bytes, pool.borrowBytes(16));
+        assertSame(chars, pool.borrowChars(1));
+        assertEquals(2, pool.getHitCount());
+        assertEquals(2, pool.getMissCount());
+
+        // nothing left in the pool
+        assertNotSame(bytes, pool.borrowBytes(16));
+        assertEquals(3, pool.getMissCount());
+    }
+
+    @Test
+    public void testReleaseIgnoresForeignBuffers() {
+        final BufferPool pool = new ThreadLocalBufferPool(16, 64);
+        pool.releaseBytes(null);
+        pool.releaseBytes(new byte[17]);
+        pool.releaseChars(new char[100]);
+        assertEquals(64, pool.borrowBytes(17).length);
+        assertEquals(0, pool.getHitCount());
+    }
+
+    @Test
+    public void testBuffersAreNotSharedBetweenThreads() throws Exception {
+        final BufferPool pool = new ThreadLocalBufferPool(16);
+        final byte[] buffer = pool.borrowBytes(16);
+        pool.releaseBytes(buffer);
+
+        final AtomicReference<byte[]> other = new AtomicReference<byte[]>();
+        final Thread thread = new Thread() {
+            @Override
+            public void run() {
+                other.set(pool.borrowBytes(16));
+            }
+        };
+        thread.start();
+        thread.join();
+
+        assertNotSame(buffer, other.get());
+        assertSame(buffer, pool.borrowBytes(16));
+    }
+}
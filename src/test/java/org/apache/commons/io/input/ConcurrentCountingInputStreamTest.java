@@ -0,0 +1,56 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.io.input;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import org.apache.commons.io.ByteCounterRegistry;
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+/**
+ * Tests {@link ConcurrentCountingInputStream}.
+ *
+ * @version $Id$
+ */
+public class ConcurrentCountingInputStreamTest {
+
+    @Test
+    public void testCounting() throws IOException {
+        final ByteCounterRegistry registry = new ByteCounterRegistry();
+        final ConcurrentCountingInputStream in =
+                new ConcurrentCountingInputStream(new ByteArrayInputStream(new byte[100]), registry);
+        assertEquals(1, registry.getCounterCount());
+        assertEquals(0, in.read(new byte[0]));
+        in.read();
+        in.read(new byte[9]);
+        assertEquals(10, in.getByteCount());
+        assertEquals(20, in.skip(20));
+        assertEquals(30, in.resetByteCount());
+        IOUtils.toByteArray(in);
+        assertEquals(70, in.getByteCount());
+        assertEquals(-1, in.read());
+        assertEquals(70, in.getByteCount());
+        in.close();
+        assertEquals(0, registry.getCounterCount());
+        assertEquals(100, registry.getTotalByteCount());
+    }
+
+}
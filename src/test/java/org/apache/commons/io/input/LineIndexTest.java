@@ -0,0 +1,240 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.io.input;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.commons.io.Charsets;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.testtools.FileBasedTestCase;
+
+/**
+ * Tests for {@link LineIndex}.
+ *
+ * @version $Id$
+ */
+public class LineIndexTest extends FileBasedTestCase {
+
+    private static final String[] TERMINATORS = {"\n", "\r\n", "\r"};
+
+    private ExecutorService executor;
+
+    public LineIndexTest(final String name) {
+        super(name);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        getTestDirectory().mkdirs();
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        executor.shutdownNow();
+        FileUtils.deleteDirectory(getTestDirectory());
+    }
+
+    public void testParallelBuild() throws Exception {
+        final File file = new File(getTestDirectory(), "parallel.txt");
+        final String content = lines(0, 1000);
+        append(file, content);
+        final List<String> expected = readAll(content);
+
+        final LineIndex parallel = new LineIndex(file, 7);
+        // small chunks, so that lines and CR LF pairs span chunks
+        parallel.chunkSize = 101;
+        assertTrue(parallel.update(executor));
+        final LineIndex sequential = LineIndex.build(file, 7, null);
+
+        assertEquals(1000, parallel.getLineCount());
+        assertEquals(1000, sequential.getLineCount());
+        assertEquals(file.length(), parallel.getIndexedLength());
+        for (final long from : new long[] {0, 1, 6, 7, 8, 500, 993, 999}) {
+            final List<String> range = expected.subList((int) from, (int) Math.min(1000, from + 10));
+            assertEquals("Parallel from " + from, range, parallel.readLines(from, 10, Charsets.UTF_8));
+            assertEquals("Sequential from " + from, range, sequential.readLines(from, 10, Charsets.UTF_8));
+        }
+        assertEquals(0, parallel.readLines(1000, 10, Charsets.UTF_8).size());
+        assertEquals(0, parallel.getOffset(0));
+        assertEquals(lines(0, 500).getBytes(Charsets.UTF_8).length, parallel.getOffset(500));
+        assertEquals(-1, parallel.getOffset(1001));
+        assertFalse(parallel.update(executor));
+    }
+
+    public void testIncrementalUpdateAndSave() throws Exception {
+        final File file = new File(getTestDirectory(), "growing.txt");
+        append(file, lines(0, 25));
+        final LineIndex index = LineIndex.open(file, 10, null);
+        assertEquals(25, index.getLineCount());
+        assertTrue(LineIndex.getIndexFile(file).exists());
+
+        // a partial line is readable but not counted, nor is a line ended by a CR that may precede a LF
+        append(file, "partial");
+        assertFalse(index.update(null));
+        assertEquals(25, index.getLineCount());
+        assertEquals("[" + line(24) + ", partial]", index.readLines(24, 5, Charsets.UTF_8).toString());
+        append(file, " line\r");
+        assertFalse(index.update(null));
+        append(file, "\n" + lines(26, 40));
+        assertTrue(index.update(executor));
+        assertEquals(40, index.getLineCount());
+        assertEquals("[partial line, " + line(26) + "]", index.readLines(25, 2, Charsets.UTF_8).toString());
+        index.save();
+
+        // reopening loads the saved index and extends it
+        append(file, lines(40, 46));
+        final LineIndex reopened = LineIndex.open(file, 10, null);
+        assertEquals(46, reopened.getLineCount());
+        assertEquals("[" + line(39) + ", " + line(40) + "]", reopened.readLines(39, 2, Charsets.UTF_8).toString());
+        final LineIndex loaded = LineIndex.load(file, LineIndex.getIndexFile(file));
+        assertEquals(reopened.toString(), loaded.toString());
+
+        // a replaced file is indexed again
+        file.delete();
+        append(file, lines(100, 103));
+        assertTrue(reopened.update(null));
+        assertEquals(3, reopened.getLineCount());
+        assertEquals("[" + line(101) + ", " + line(102) + "]", reopened.readLines(1, 5, Charsets.UTF_8).toString());
+    }
+
+    public void testCorruptIndexRebuilt() throws Exception {
+        final File file = new File(getTestDirectory(), "corrupt.txt");
+        append(file, lines(0, 25));
+        LineIndex.open(file, 10, null);
+        final byte[] saved = FileUtils.readFileToByteArray(LineIndex.getIndexFile(file));
+
+        // the header: interval, line count, indexed length, fingerprint length, size
+        assertRebuilt(file, saved, 8, 0, false);
+        assertRebuilt(file, saved, 12, -1, true);
+        assertRebuilt(file, saved, 20, -1, true);
+        assertRebuilt(file, saved, 28, -1, false);
+        assertRebuilt(file, saved, 40, 0, false);
+        assertRebuilt(file, saved, 40, 4, false);
+        assertRebuilt(file, saved, 40, Integer.MAX_VALUE, false);
+        // the entries: the first line, then the second line and its offset
+        assertRebuilt(file, saved, 44, 1, true);
+        assertRebuilt(file, saved, 60, 0, true);
+        assertRebuilt(file, saved, 68, -1, true);
+    }
+
+    private void assertRebuilt(final File file, final byte[] saved, final int position, final long value,
+            final boolean isLong) throws IOException {
+        final File indexFile = LineIndex.getIndexFile(file);
+        final byte[] corrupt = saved.clone();
+        if (isLong) {
+            ByteBuffer.wrap(corrupt).putLong(position, value);
+        } else {
+            ByteBuffer.wrap(corrupt).putInt(position, (int) value);
+        }
+        FileUtils.writeByteArrayToFile(indexFile, corrupt);
+        try {
+            LineIndex.load(file, indexFile);
+            fail("Expected IOException for " + value + " at " + position);
+        } catch (final IOException expected) {
+            // expected
+        }
+        final LineIndex rebuilt = LineIndex.open(file, 10, null);
+        assertEquals(25, rebuilt.getLineCount());
+        assertEquals("[" + line(20) + "]", rebuilt.readLines(20, 1, Charsets.UTF_8).toString());
+        assertEquals(rebuilt.toString(), LineIndex.load(file, indexFile).toString());
+    }
+
+    public void testInvalidArguments() throws Exception {
+        final File file = new File(getTestDirectory(), "invalid.txt");
+        append(file, lines(0, 3));
+        try {
+            LineIndex.build(file, 0, null);
+            fail("Expected IllegalArgumentException");
+        } catch (final IllegalArgumentException expected) {
+            // expected
+        }
+        final LineIndex index = LineIndex.build(file, 2, null);
+        try {
+            index.readLines(-1, 1, Charsets.UTF_8);
+            fail("Expected IllegalArgumentException");
+        } catch (final IllegalArgumentException expected) {
+            // expected
+        }
+        try {
+            index.readLines(0, 1, Charsets.UTF_16);
+            fail("Expected UnsupportedEncodingException");
+        } catch (final UnsupportedEncodingException expected) {
+            // expected
+        }
+        final File notAnIndex = new File(getTestDirectory(), "invalid.idx");
+        append(notAnIndex, "not an index");
+        try {
+            LineIndex.load(file, notAnIndex);
+            fail("Expected IOException");
+        } catch (final IOException expected) {
+            // expected
+        }
+        assertNull(LineIndex.load(file, new File(getTestDirectory(), "missing.idx")));
+    }
+
+    /**
+     * Returns lines of different lengths with mixed terminators, each ending
+     * with a letter telling its terminator.
+     */
+    private static String lines(final int from, final int to) {
+        final StringBuilder builder = new StringBuilder();
+        for (int i = from; i < to; i++) {
+            builder.append(line(i)).append(TERMINATORS[i % 3]);
+        }
+        return builder.toString();
+    }
+
+    private static String line(final int i) {
+        final StringBuilder builder = new StringBuilder();
+        builder.append("line ").append(i).append(' ').append((char) ('a' + i % 3));
+        for (int j = 0; j < i % 17; j++) {
+            builder.append('\u00e9');
+        }
+        return builder.toString();
+    }
+
+    private static List<String> readAll(final String content) throws IOException {
+        final List<String> lines = new ArrayList<String>();
+        final BufferedReader reader = new BufferedReader(new StringReader(content));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lines.add(line);
+        }
+        return lines;
+    }
+
+    private static void append(final File file, final String string) throws IOException {
+        final FileOutputStream out = new FileOutputStream(file, true);
+        try {
+            out.write(string.getBytes(Charsets.UTF_8));
+        } finally {
+            IOUtils.closeQuietly(out);
+        }
+    }
+}
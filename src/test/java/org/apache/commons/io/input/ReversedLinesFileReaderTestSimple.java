@@ -18,11 +18,22 @@ package org.apache.commons.io.input;
 
 import static org.apache.commons.io.input.ReversedLinesFileReaderTestParamBlockSize.assertEqualsAndNoLineBreaks;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
+import java.io.StringReader;
 import java.io.UnsupportedEncodingException;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
 
+import org.apache.commons.io.Charsets;
+import org.apache.commons.io.FileUtils;
 import org.junit.After;
 import org.junit.Test;
 
@@ -62,6 +73,42 @@ public class ReversedLinesFileReaderTestSimple {
         new ReversedLinesFileReader(testFileEncodingBig5, 4096, "Big5").close();
     }
 
+    @Test
+    public void testMixedLineTerminatorsAcrossBlocks() throws IOException {
+        final Random random = new Random(42);
+        final String[] terminators = {"\n", "\r\n", "\r"};
+        final StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 500; i++) {
+            // lines from empty to several blocks long, with multi-byte characters
+            final int length = random.nextInt(10) == 0 ? random.nextInt(100) : random.nextInt(12);
+            for (int j = 0; j < length; j++) {
+                content.append(random.nextInt(8) == 0 ? '\u20ac' : (char) ('a' + random.nextInt(26)));
+            }
+            content.append(terminators[random.nextInt(terminators.length)]);
+        }
+        final List<String> expected = new ArrayList<String>();
+        final BufferedReader reader = new BufferedReader(new StringReader(content.toString()));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            expected.add(line);
+        }
+        Collections.reverse(expected);
 
+        final File file = new File(FileUtils.getTempDirectory(), "reversed-lines-mixed.txt");
+        FileUtils.writeStringToFile(file, content.toString(), Charsets.UTF_8);
+        try {
+            for (final int blockSize : new int[] {1, 2, 7, 8, 9, 64, 4096}) {
+                reversedLinesFileReader = new ReversedLinesFileReader(file, blockSize, Charsets.UTF_8);
+                for (int i = 0; i < expected.size(); i++) {
+                    assertEquals("block size " + blockSize + ", line " + i, expected.get(i),
+                            reversedLinesFileReader.readLine());
+                }
+                assertNull(reversedLinesFileReader.readLine());
+                reversedLinesFileReader.close();
+            }
+        } finally {
+            file.delete();
+        }
+    }
 
 }
@@ -0,0 +1,225 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.io.input;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.testtools.FileBasedTestCase;
+
+/**
+ * Tests for {@link TailerService}.
+ *
+ * @version $Id$
+ */
+public class TailerServiceTest extends FileBasedTestCase {
+
+    private TailerService service;
+
+    public TailerServiceTest(final String name) {
+        super(name);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        getTestDirectory().mkdirs();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        if (service != null) {
+            service.stop();
+        }
+        FileUtils.deleteDirectory(getTestDirectory());
+    }
+
+    public void testManyFilesOnOneThread() throws Exception {
+        service = new TailerService(1, 200);
+        final int fileCount = 20;
+        final List<File> files = new ArrayList<File>();
+        final List<CollectingListener> listeners = new ArrayList<CollectingListener>();
+        for (int i = 0; i < fileCount; i++) {
+            final File file = new File(getTestDirectory(), "tail" + i + ".txt");
+            createFile(file, 0);
+            final CollectingListener listener = new CollectingListener();
+            service.add(new Tailer(file, listener, 20));
+            files.add(file);
+            listeners.add(listener);
+        }
+        assertEquals(fileCount, service.getTailers().size());
+        for (int i = 0; i < fileCount; i++) {
+            writeString(files.get(i), "line " + i + "\n");
+        }
+        for (int i = 0; i < fileCount; i++) {
+            listeners.get(i).await(1, 5000);
+            assertEquals("file " + i, Collections.singletonList("line " + i), listeners.get(i).lines);
+            assertNull(listeners.get(i).exception);
+        }
+    }
+
+    public void testWakeUp() throws Exception {
+        service = new TailerService(1);
+        final File file = new File(getTestDirectory(), "wakeup.txt");
+        createFile(file, 0);
+        final CollectingListener listener = new CollectingListener();
+        // a delay far longer than the test: lines can only come from a wake-up
+        service.add(new Tailer(file, listener, 60000));
+        Thread.sleep(200);
+
+        writeString(file, "woken\n");
+        service.wakeUp(file);
+        listener.await(1, 5000);
+        assertEquals(Collections.singletonList("woken"), listener.lines);
+
+        writeString(file, "by listener\n");
+        service.getWakeUpListener().onFileChange(file);
+        listener.await(2, 5000);
+        assertEquals("by listener", listener.lines.get(1));
+    }
+
+    public void testWakeUpDuringCheck() throws Exception {
+        service = new TailerService(4);
+        final File file = new File(getTestDirectory(), "wakeup-slow.txt");
+        createFile(file, 0);
+        // the listener is slow, so wake-ups arrive while the tailer is inside poll()
+        final CollectingListener listener = new CollectingListener() {
+            @Override
+            public void handle(final String line) {
+                super.handle(line);
+                try {
+                    Thread.sleep(1);
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        service.add(new Tailer(file, listener, 60000));
+        Thread.sleep(200);
+
+        final List<Thread> wakers = new ArrayList<Thread>();
+        final AtomicBoolean writing = new AtomicBoolean(true);
+        for (int i = 0; i < 4; i++) {
+            wakers.add(new Thread() {
+                @Override
+                public void run() {
+                    while (writing.get()) {
+                        service.wakeUp(file);
+                    }
+                }
+            });
+        }
+        for (final Thread waker : wakers) {
+            waker.start();
+        }
+        final List<String> expected = new ArrayList<String>();
+        for (int i = 0; i < 500; i++) {
+            expected.add("line " + i);
+            writeString(file, "line " + i + "\n");
+        }
+        writing.set(false);
+        for (final Thread waker : wakers) {
+            waker.join();
+        }
+        service.wakeUp(file);
+        listener.await(500, 10000);
+        Thread.sleep(200);
+        assertEquals(expected, listener.lines);
+        assertNull(listener.exception);
+    }
+
+    public void testStopAndRemove() throws Exception {
+        service = new TailerService(2, 100);
+        final File file = new File(getTestDirectory(), "stop.txt");
+        createFile(file, 0);
+        final CollectingListener listener1 = new CollectingListener();
+        final CollectingListener listener2 = new CollectingListener();
+        final Tailer tailer1 = new Tailer(file, listener1, 20);
+        final Tailer tailer2 = new Tailer(file, listener2, 20);
+        service.add(tailer1);
+        service.add(tailer2);
+
+        writeString(file, "both\n");
+        listener1.await(1, 5000);
+        listener2.await(1, 5000);
+
+        // a stopped tailer leaves the service
+        tailer1.stop();
+        service.remove(tailer2);
+        final long end = System.currentTimeMillis() + 5000;
+        while (!service.getTailers().isEmpty() && System.currentTimeMillis() < end) {
+            Thread.sleep(20);
+        }
+        assertTrue("Tailers removed", service.getTailers().isEmpty());
+
+        writeString(file, "neither\n");
+        Thread.sleep(300);
+        assertEquals(1, listener1.lines.size());
+        assertEquals(1, listener2.lines.size());
+
+        service.stop();
+        try {
+            service.add(new Tailer(file, listener1, 20));
+            fail("Expected IllegalStateException");
+        } catch (final IllegalStateException expected) {
+            // expected
+        }
+        service = null;
+    }
+
+    private void writeString(final File file, final String string) throws Exception {
+        final FileWriter writer = new FileWriter(file, true);
+        try {
+            writer.write(string);
+        } finally {
+            IOUtils.closeQuietly(writer);
+        }
+    }
+
+    /**
+     * Collects the lines of one tailer.
+     */
+    private static class CollectingListener extends TailerListenerAdapter {
+
+        final List<String> lines = Collections.synchronizedList(new ArrayList<String>());
+
+        volatile Exception exception;
+
+        @Override
+        public void handle(final String line) {
+            lines.add(line);
+        }
+
+        @Override
+        public void handle(final Exception ex) {
+            exception = ex;
+        }
+
+        void await(final int count, final long timeoutMillis) throws InterruptedException {
+            final long end = System.currentTimeMillis() + timeoutMillis;
+            while (lines.size() < count && System.currentTimeMillis() < end) {
+                Thread.sleep(10);
+            }
+            assertEquals("Lines received", count, lines.size());
+        }
+    }
+}
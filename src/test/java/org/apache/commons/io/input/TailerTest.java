@@ -29,6 +29,7 @@ import java.io.RandomAccessFile;
 import java.io.Writer;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.Executor;
@@ -404,6 +405,227 @@ public class TailerTest extends FileBasedTestCase {
         Thread.sleep(testDelayMillis);
     }
 
+    public void testCheckpoint() throws Exception {
+        final long delayMillis = 50;
+        final File file = new File(getTestDirectory(), "tailer-checkpoint.txt");
+        final File checkpointFile = new File(getTestDirectory(), "tailer-checkpoint.properties");
+        createFile(file, 0);
+        writeString(file, "one\n", "two\n", "thr");
+
+        TestTailerListener listener = runUntilStopped(file, checkpointFile, delayMillis);
+        assertEquals(Arrays.asList("one", "two"), listener.getLines());
+        final TailerCheckpoint checkpoint = TailerCheckpoint.load(checkpointFile);
+        assertEquals("position", 8, checkpoint.getPosition());
+        assertEquals("fingerprint length", 11, checkpoint.getFingerprintLength());
+        assertTrue("matches", checkpoint.matches(file));
+
+        // resume where the last run stopped
+        writeString(file, "ee\n");
+        listener = runUntilStopped(file, checkpointFile, delayMillis);
+        assertEquals(Arrays.asList("three"), listener.getLines());
+        assertEquals("rotated", 0, listener.rotated);
+
+        // rotated while stopped: drain the rotated file, then read the new one
+        writeString(file, "four\n");
+        final File rotated = new File(getTestDirectory(), file.getName() + ".1");
+        assertTrue(file.renameTo(rotated));
+        createFile(file, 0);
+        writeString(file, "five\n");
+        assertFalse("matches rotated", TailerCheckpoint.load(checkpointFile).matches(file));
+        assertEquals(rotated, TailerCheckpoint.load(checkpointFile).findRotated(file));
+        listener = runUntilStopped(file, checkpointFile, delayMillis);
+        assertEquals(Arrays.asList("four", "five"), listener.getLines());
+        assertEquals("rotated", 1, listener.rotated);
+        assertNull("exception", listener.exception);
+        assertEquals("position", 5, TailerCheckpoint.load(checkpointFile).getPosition());
+    }
+
+    public void testCheckpointReOpen() throws Exception {
+        final File file = new File(getTestDirectory(), "tailer-checkpoint-reopen.txt");
+        final File checkpointFile = new File(getTestDirectory(), "tailer-checkpoint-reopen.properties");
+        createFile(file, 0);
+        writeString(file, "one\n", "two\n", "thr");
+        final TestTailerListener listener = new TestTailerListener();
+        final Tailer tailer = new Tailer(file, listener, 50, false, true);
+        tailer.setCheckpoint(checkpointFile, 60000);
+        tailer.poll();
+        assertEquals("position", 8, TailerCheckpoint.load(checkpointFile).getPosition());
+
+        // the file is closed between reads, the forced checkpoint is still saved
+        writeString(file, "ee\n");
+        tailer.poll();
+        assertEquals("position", 8, TailerCheckpoint.load(checkpointFile).getPosition());
+        tailer.close();
+        assertEquals("position", 14, TailerCheckpoint.load(checkpointFile).getPosition());
+
+        // replaced by a longer file between reads: drain the rotated file, then read the new one
+        writeString(file, "four\n");
+        final File rotated = new File(getTestDirectory(), file.getName() + ".1");
+        assertTrue(file.renameTo(rotated));
+        createFile(file, 0);
+        writeString(file, "five\n", "six\n", "seven\n");
+        tailer.poll();
+        tailer.close();
+        assertEquals(Arrays.asList("one", "two", "three", "four", "five", "six", "seven"), listener.getLines());
+        assertEquals("rotated", 1, listener.rotated);
+        assertNull("exception", listener.exception);
+        final TailerCheckpoint checkpoint = TailerCheckpoint.load(checkpointFile);
+        assertEquals("position", 15, checkpoint.getPosition());
+        assertTrue("matches", checkpoint.matches(file));
+    }
+
+    private TestTailerListener runUntilStopped(final File file, final File checkpointFile, final long delayMillis)
+            throws Exception {
+        final TestTailerListener listener = new TestTailerListener();
+        final Tailer tailer = new Tailer(file, listener, delayMillis, false);
+        tailer.setCheckpoint(checkpointFile, 60000);
+        assertEquals(checkpointFile, tailer.getCheckpointFile());
+        final Thread thread = new Thread(tailer);
+        thread.start();
+        Thread.sleep(delayMillis * 5);
+        tailer.stop();
+        thread.join();
+        return listener;
+    }
+
+    public void testBatchListener() throws Exception {
+        final long delayMillis = 50;
+        final File file = new File(getTestDirectory(), "tailer-batch.txt");
+        createFile(file, 0);
+        writeString(file, "one\n", "two\r\n", "three\n", "four\n", "fi");
+        final List<List<String>> batches = Collections.synchronizedList(new ArrayList<List<String>>());
+        final List<long[]> positions = Collections.synchronizedList(new ArrayList<long[]>());
+        final TestTailerListener lineListener = new TestTailerListener();
+        final TailerBatchListenerAdapter listener = new TailerBatchListenerAdapter() {
+            @Override
+            public void handle(final List<String> lines, final long startPosition, final long endPosition) {
+                batches.add(lines);
+                positions.add(new long[] {startPosition, endPosition});
+                super.handle(lines, startPosition, endPosition);
+            }
+
+            @Override
+            public void handle(final String line) {
+                lineListener.handle(line);
+            }
+        };
+        tailer = new Tailer(file, listener, delayMillis, false);
+        tailer.setMaxBatchSize(3);
+        assertEquals(3, tailer.getMaxBatchSize());
+        assertEquals(delayMillis, tailer.getMaxBatchLatency());
+        final Thread thread = new Thread(tailer);
+        thread.start();
+
+        final long testDelayMillis = delayMillis * 10;
+        Thread.sleep(testDelayMillis);
+        assertEquals("batch count", 2, batches.size());
+        assertEquals(Arrays.asList("one", "two", "three"), batches.get(0));
+        assertEquals(Arrays.asList("four"), batches.get(1));
+        assertEquals("start 1", 0, positions.get(0)[0]);
+        assertEquals("end 1", 15, positions.get(0)[1]);
+        assertEquals("start 2", 15, positions.get(1)[0]);
+        assertEquals("end 2", 20, positions.get(1)[1]);
+        assertEquals("adapted lines", 4, lineListener.getLines().size());
+
+        writeString(file, "ve\n");
+        Thread.sleep(testDelayMillis);
+        assertEquals("batch count", 3, batches.size());
+        assertEquals(Arrays.asList("five"), batches.get(2));
+        assertEquals("start 3", 20, positions.get(2)[0]);
+        assertEquals("end 3", 25, positions.get(2)[1]);
+
+        tailer.stop();
+        tailer = null;
+        thread.interrupt();
+        Thread.sleep(testDelayMillis);
+    }
+
+    public void testMappedCatchUp() throws Exception {
+        final long delayMillis = 50;
+        final File file = new File(getTestDirectory(), "tailer-mapped.txt");
+        createFile(file, 0);
+        final StringBuilder content = new StringBuilder();
+        final int lineCount = 5000;
+        for (int i = 0; i < lineCount; i++) {
+            content.append("Line ").append(i).append(i % 2 == 0 ? "\n" : "\r\n");
+        }
+        FileUtils.writeStringToFile(file, content.toString(), Charsets.UTF_8, true);
+
+        // map windows that do not end on line boundaries, then read the rest through the buffer
+        final TestTailerListener listener = new TestTailerListener();
+        tailer = new Tailer(file, Charsets.UTF_8, listener, delayMillis, false, false, 64, 1000);
+        final Thread thread = new Thread(tailer);
+        thread.start();
+
+        final long testDelayMillis = delayMillis * 10;
+        Thread.sleep(testDelayMillis);
+        writeString(file, "Last\n");
+        Thread.sleep(testDelayMillis);
+        final List<String> lines = listener.getLines();
+        assertEquals("line count", lineCount + 1, lines.size());
+        for (int i = 0; i < lineCount; i++) {
+            assertEquals("line " + i, "Line " + i, lines.get(i));
+        }
+        assertEquals("last line", "Last", lines.get(lineCount));
+        assertNull("exception", listener.exception);
+
+        tailer.stop();
+        tailer = null;
+        thread.interrupt();
+        Thread.sleep(testDelayMillis);
+    }
+
+    public void testCharSequenceListener() throws Exception {
+        final long delayMillis = 50;
+        final File file = new File(getTestDirectory(), "tailer-charsequence.txt");
+        createFile(file, 0);
+        final TestCharSequenceListener listener = new TestCharSequenceListener();
+        // a buffer smaller than the lines, so that lines and CRLF pairs span reads
+        tailer = new Tailer(file, Charsets.UTF_8, listener, delayMillis, false, false, 3);
+        final Thread thread = new Thread(tailer);
+        thread.start();
+
+        FileUtils.writeStringToFile(file, "CRLF\r\nLF\n\nCR\rCRCR\r\r\u00e9t\u00e9\ntrail", Charsets.UTF_8, true);
+        final long testDelayMillis = delayMillis * 10;
+        Thread.sleep(testDelayMillis);
+        final List<String> lines = listener.getLines();
+        assertEquals("line count", 6, lines.size());
+        assertEquals("line 1", "CRLF", lines.get(0));
+        assertEquals("line 2", "LF", lines.get(1));
+        assertEquals("line 3", "", lines.get(2));
+        assertEquals("line 4", "CR", lines.get(3));
+        assertEquals("line 5", "CRCR\r", lines.get(4));
+        assertEquals("line 6", "\u00e9t\u00e9", lines.get(5));
+        assertEquals("handle(String) calls", 0, listener.stringLines);
+
+        writeString(file, "ing\n");
+        Thread.sleep(testDelayMillis);
+        assertEquals("line count", 7, lines.size());
+        assertEquals("line 7", "trailing", lines.get(6));
+
+        tailer.stop();
+        tailer = null;
+        thread.interrupt();
+        Thread.sleep(testDelayMillis);
+    }
+
+    /**
+     * Test {@link TailerCharSequenceListener} implementation.
+     */
+    private static class TestCharSequenceListener extends TestTailerListener implements TailerCharSequenceListener {
+
+        volatile int stringLines = 0;
+
+        @Override
+        public void handle(final String line) {
+            stringLines++;
+        }
+
+        public void handle(final CharSequence line) {
+            getLines().add(line.toString());
+        }
+    }
+
     /**
      * Test {@link TailerListener} implementation.
      */
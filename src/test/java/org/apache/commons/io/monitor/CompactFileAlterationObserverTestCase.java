@@ -0,0 +1,209 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.io.monitor;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+
+import org.apache.commons.io.IOCase;
+
+/**
+ * {@link CompactFileAlterationObserver} Test Case, running the
+ * {@link FileAlterationObserver} tests against the compact observer.
+ */
+public class CompactFileAlterationObserverTestCase extends FileAlterationObserverTestCase {
+
+    /**
+     * Construct a new test case.
+     *
+     * @param name The name of the test
+     */
+    public CompactFileAlterationObserverTestCase(final String name) {
+        super(name);
+        testDirName = "test-compact-observer";
+    }
+
+    @Override
+    protected void createObserver(final File file, final FileFilter fileFilter) {
+        observer = new CompactFileAlterationObserver(file, fileFilter);
+        observer.addListener(listener);
+        observer.addListener(new FileAlterationListenerAdaptor());
+        try {
+            observer.initialize();
+        } catch (final Exception e) {
+            fail("Observer init() threw " + e);
+        }
+    }
+
+    /**
+     * Test checkAndNotify(Collection) checks the whole tree.
+     */
+    @Override
+    public void testCheckAndNotifyFiles() throws Exception {
+        final File testDirA = new File(testDir, "test-dir-A");
+        testDirA.mkdir();
+        final File fileA1 = touch(new File(testDirA, "A-file1.java"));
+        observer.checkAndNotify(Collections.singletonList(testDir));
+        checkCollectionSizes("A", 1, 0, 0, 1, 0, 0);
+        assertTrue("A fileA1", listener.getCreatedFiles().contains(fileA1));
+    }
+
+    /**
+     * Test asking for incremental checks keeps full scans.
+     */
+    @Override
+    public void testIncremental() throws Exception {
+        observer.setIncremental(true);
+        assertFalse(observer.isIncremental());
+        final long past = System.currentTimeMillis() - 60000;
+        final File testDirA = new File(testDir, "test-dir-A");
+        testDirA.mkdir();
+        testDirA.setLastModified(past);
+        testDir.setLastModified(past);
+        checkAndNotify();
+        checkCollectionSizes("A", 1, 0, 0, 0, 0, 0);
+
+        // a directory whose time did not change is still listed
+        final File fileA1 = touch(new File(testDirA, "A-file1.java"));
+        testDirA.setLastModified(past);
+        checkAndNotify();
+        checkCollectionSizes("B", 0, 0, 0, 1, 0, 0);
+        assertTrue("B fileA1", listener.getCreatedFiles().contains(fileA1));
+    }
+
+    /**
+     * Test a saved snapshot reports the changes made while not observing.
+     */
+    public void testSnapshotRoundTrip() throws Exception {
+        final File testDirA = new File(testDir, "test-dir-A");
+        testDirA.mkdir();
+        final File fileA1 = touch(new File(testDirA, "A-file1.java"));
+        final File fileA2 = touch(new File(testDirA, "A-file2.java"));
+        checkAndNotify();
+        checkCollectionSizes("A", 1, 0, 0, 2, 0, 0);
+
+        final FileTreeSnapshot snapshot = ((CompactFileAlterationObserver) observer).getSnapshot();
+        assertEquals("Size", 4, snapshot.size());
+        assertEquals("Root", testDir, snapshot.getFile(0));
+        assertEquals("Dir", testDirA, snapshot.getFile(1));
+        assertTrue("Dir is directory", snapshot.isDirectory(1));
+        assertEquals("Parent", 1, snapshot.getParent(3));
+        assertEquals("Name", "A-file2.java", snapshot.getName(3));
+        assertEquals("Length", fileA1.length(), snapshot.getLength(2));
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        snapshot.writeTo(out);
+        final FileTreeSnapshot restored = FileTreeSnapshot.readFrom(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals("Restored", snapshot.toString(), restored.toString());
+        assertEquals("Restored size", snapshot.size(), restored.size());
+        for (int i = 0; i < snapshot.size(); i++) {
+            assertEquals("File " + i, snapshot.getFile(i), restored.getFile(i));
+            assertEquals("Modified " + i, snapshot.getLastModified(i), restored.getLastModified(i));
+            assertEquals("Length " + i, snapshot.getLength(i), restored.getLength(i));
+        }
+
+        // changes made while not observing
+        fileA1.delete();
+        final File fileA3 = touch(new File(testDirA, "A-file3.java"));
+        touch(fileA2);
+
+        final CompactFileAlterationObserver resumed = new CompactFileAlterationObserver(testDir,
+                observer.getFileFilter());
+        resumed.addListener(listener);
+        resumed.initialize(restored);
+        resumed.checkAndNotify();
+        checkCollectionSizes("B", 0, 1, 0, 1, 1, 1);
+        assertTrue("B changed dir", listener.getChangedDirectories().contains(testDirA));
+        assertTrue("B created", listener.getCreatedFiles().contains(fileA3));
+        assertTrue("B changed", listener.getChangedFiles().contains(fileA2));
+        assertTrue("B deleted", listener.getDeletedFiles().contains(fileA1));
+    }
+
+    /**
+     * Test a snapshot is only accepted by an observer of the same directory.
+     */
+    public void testSnapshotMismatch() throws Exception {
+        final FileTreeSnapshot snapshot = ((CompactFileAlterationObserver) observer).getSnapshot();
+        try {
+            new CompactFileAlterationObserver(new File(testDir, "other")).initialize(snapshot);
+            fail("Expected IllegalArgumentException");
+        } catch (final IllegalArgumentException expected) {
+            // expected
+        }
+        final IOCase other = IOCase.SYSTEM == IOCase.SENSITIVE ? IOCase.INSENSITIVE : IOCase.SENSITIVE;
+        try {
+            new CompactFileAlterationObserver(testDir, null, other).initialize(snapshot);
+            fail("Expected IllegalArgumentException");
+        } catch (final IllegalArgumentException expected) {
+            // expected
+        }
+        try {
+            FileTreeSnapshot.readFrom(new ByteArrayInputStream(new byte[] {1, 2, 3, 4}));
+            fail("Expected IOException");
+        } catch (final IOException expected) {
+            // expected
+        }
+    }
+
+    /**
+     * Test a corrupt snapshot fails with an IOException.
+     */
+    public void testSnapshotCorrupt() throws Exception {
+        final File testDirA = new File(testDir, "test-dir-A");
+        testDirA.mkdir();
+        touch(new File(testDirA, "A-file1.java"));
+        touch(new File(testDirA, "A-file2.java"));
+        checkAndNotify();
+        final FileTreeSnapshot snapshot = ((CompactFileAlterationObserver) observer).getSnapshot();
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        snapshot.writeTo(out);
+        final byte[] data = out.toByteArray();
+        int nameLength = 0;
+        for (int i = 0; i < snapshot.size(); i++) {
+            nameLength += snapshot.getName(i).length();
+        }
+        // each entry is three ints, two longs, a byte and the int end of its name
+        final int entryLength = 33;
+        final int entries = data.length - 2 * nameLength - snapshot.size() * entryLength;
+
+        assertCorrupt(data, entries - 4, Integer.MAX_VALUE);
+        assertCorrupt(data, entries, 0);
+        assertCorrupt(data, entries + 3 * entryLength, 3);
+        assertCorrupt(data, entries + 3 * entryLength, 100);
+        assertCorrupt(data, entries + 4, 3);
+        assertCorrupt(data, entries + entryLength + 8, -1);
+        assertCorrupt(data, entries + entryLength + 8, Integer.MAX_VALUE);
+        assertCorrupt(data, entries + 2 * entryLength + 29, -5);
+        assertCorrupt(data, entries + 3 * entryLength + 29, Integer.MAX_VALUE);
+    }
+
+    private void assertCorrupt(final byte[] data, final int offset, final int value) {
+        final byte[] corrupt = data.clone();
+        ByteBuffer.wrap(corrupt).putInt(offset, value);
+        try {
+            FileTreeSnapshot.readFrom(new ByteArrayInputStream(corrupt));
+            fail("Expected IOException for " + value + " at " + offset);
+        } catch (final IOException expected) {
+            // expected
+        }
+    }
+}
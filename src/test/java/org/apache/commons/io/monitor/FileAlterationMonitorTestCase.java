@@ -19,6 +19,7 @@ package org.apache.commons.io.monitor;
 import java.io.File;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
 /**
@@ -167,6 +168,32 @@ public class FileAlterationMonitorTestCase extends AbstractMonitorTestCase {
         }
     }
 
+    /**
+     * Test checking the observers with an executor.
+     */
+    public void testExecutor() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            listener.clear();
+            final File otherDir = new File(testDir, "other");
+            otherDir.mkdir();
+            final FileAlterationObserver other = new FileAlterationObserver(otherDir);
+            other.addListener(listener);
+            final FileAlterationMonitor monitor = new FileAlterationMonitor(100, observer, other);
+            monitor.setExecutor(executor);
+            monitor.start();
+
+            final File file1 = touch(new File(testDir, "file1.java"));
+            checkFile("Create", file1, listener.getCreatedFiles());
+            final File file2 = touch(new File(otherDir, "file2.txt"));
+            checkFile("Create other", file2, listener.getCreatedFiles());
+
+            monitor.stop();
+        } finally {
+            executor.shutdown();
+        }
+    }
+
     /**
      * Check all the File Collections have the expected sizes.
      */
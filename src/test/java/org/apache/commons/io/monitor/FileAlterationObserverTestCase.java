@@ -18,6 +18,8 @@ package org.apache.commons.io.monitor;
 
 import java.io.File;
 import java.io.FileFilter;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
 
 import org.apache.commons.io.FileUtils;
@@ -389,6 +391,114 @@ public class FileAlterationObserverTestCase extends AbstractMonitorTestCase {
         }
     }
 
+    /**
+     * Test checkAndNotify(Collection) only checking part of the tree
+     */
+    public void testCheckAndNotifyFiles() throws Exception {
+        final File testDirA = new File(testDir, "test-dir-A");
+        final File testDirB = new File(testDir, "test-dir-B");
+        testDirA.mkdir();
+        testDirB.mkdir();
+        final File fileA1 = touch(new File(testDirA, "A-file1.java"));
+        touch(new File(testDirB, "B-file1.java"));
+        checkAndNotify();
+        checkCollectionSizes("A", 2, 0, 0, 2, 0, 0);
+
+        final File fileA2 = touch(new File(testDirA, "A-file2.java"));
+        final File fileB2 = touch(new File(testDirB, "B-file2.java"));
+        fileA1.delete();
+        observer.checkAndNotify(Arrays.asList(fileA1, fileA2));
+        checkCollectionSizes("B", 0, 0, 0, 1, 0, 1);
+        assertTrue("B fileA2", listener.getCreatedFiles().contains(fileA2));
+        assertTrue("B fileA1", listener.getDeletedFiles().contains(fileA1));
+
+        observer.checkAndNotify(Collections.singletonList(testDirB));
+        assertEquals("C created", 1, listener.getCreatedFiles().size());
+        assertTrue("C fileB2", listener.getCreatedFiles().contains(fileB2));
+
+        // a file in a directory the observer does not know yet
+        final File subDir = new File(testDirA, "sub");
+        subDir.mkdir();
+        final File subFile = touch(new File(subDir, "sub-file.java"));
+        observer.checkAndNotify(Collections.singletonList(subFile));
+        checkCollectionSizes("D", 1, 0, 0, 1, 0, 0);
+        assertTrue("D subDir", listener.getCreatedDirectories().contains(subDir));
+
+        // files outside the observed directory are ignored
+        observer.checkAndNotify(Collections.singletonList(new File("pom.xml")));
+        checkCollectionsEmpty("E");
+
+        checkAndNotify();
+        assertEquals("F created", 0, listener.getCreatedFiles().size());
+        assertEquals("F deleted", 0, listener.getDeletedFiles().size());
+    }
+
+    /**
+     * Test incremental checks skip listing unchanged directories
+     */
+    public void testIncremental() throws Exception {
+        assertFalse(observer.isIncremental());
+        observer.setIncremental(true);
+        assertTrue(observer.isIncremental());
+        final long past = System.currentTimeMillis() - 60000;
+        final File testDirA = new File(testDir, "test-dir-A");
+        testDirA.mkdir();
+        final File fileA1 = touch(new File(testDirA, "A-file1.java"));
+        testDirA.setLastModified(past);
+        testDir.setLastModified(past);
+        checkAndNotify();
+        checkCollectionSizes("A", 1, 0, 0, 1, 0, 0);
+
+        // files of an unchanged directory are still checked
+        touch(fileA1);
+        checkAndNotify();
+        checkCollectionSizes("B", 0, 0, 0, 0, 1, 0);
+
+        // a directory whose time did not change is not listed again
+        final File fileA2 = touch(new File(testDirA, "A-file2.java"));
+        testDirA.setLastModified(past);
+        checkAndNotify();
+        checkCollectionsEmpty("C");
+
+        // until its time changes
+        testDirA.setLastModified(past + 1000);
+        checkAndNotify();
+        checkCollectionSizes("D", 0, 1, 0, 1, 0, 0);
+        assertTrue("D fileA2", listener.getCreatedFiles().contains(fileA2));
+
+        // recently modified directories are always listed
+        final File fileA3 = touch(new File(testDirA, "A-file3.java"));
+        checkAndNotify();
+        assertTrue("E fileA3", listener.getCreatedFiles().contains(fileA3));
+        final File fileA4 = touch(new File(testDirA, "A-file4.java"));
+        checkAndNotify();
+        assertTrue("F fileA4", listener.getCreatedFiles().contains(fileA4));
+    }
+
+    /**
+     * Test incremental checks list a directory again when it was changed within one
+     * modification time tick of its last listing, even if polled much later
+     */
+    public void testIncrementalChangeWithinTimeTick() throws Exception {
+        observer.setIncremental(true);
+        final long tick = System.currentTimeMillis() - 1500;
+        final File testDirA = new File(testDir, "test-dir-A");
+        testDirA.mkdir();
+        testDirA.setLastModified(tick);
+        testDir.setLastModified(tick);
+        checkAndNotify();
+        checkCollectionSizes("A", 1, 0, 0, 0, 0, 0);
+
+        // a change that leaves the directory time as it was at the last listing
+        final File fileA1 = touch(new File(testDirA, "A-file1.java"));
+        testDirA.setLastModified(tick);
+        testDir.setLastModified(tick);
+        Thread.sleep(1000);
+        checkAndNotify();
+        checkCollectionSizes("B", 0, 0, 0, 1, 0, 0);
+        assertTrue("B fileA1", listener.getCreatedFiles().contains(fileA1));
+    }
+
     /**
      * Call {@link FileAlterationObserver#checkAndNotify()}.
      *
@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.io.monitor;
+
+import java.io.File;
+import java.util.Collection;
+
+/**
+ * {@link FileAlterationWatchMonitor} Test Case.
+ */
+public class FileAlterationWatchMonitorTestCase extends AbstractMonitorTestCase {
+
+    /**
+     * Construct a new test case.
+     *
+     * @param name The name of the test
+     */
+    public FileAlterationWatchMonitorTestCase(final String name) {
+        super(name);
+        testDirName = "test-watch-monitor";
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        listener = new CollectionFileListener(false);
+        super.setUp();
+    }
+
+    /**
+     * Test that changes are reported without waiting for the interval.
+     */
+    public void testWatch() throws Exception {
+        // an interval far longer than the test: changes can only come from the watch service
+        final FileAlterationWatchMonitor monitor = new FileAlterationWatchMonitor(60000, observer);
+        monitor.start();
+        try {
+            if (!monitor.isWatching()) {
+                assertFalse("Watch service expected", WatchServiceBridge.isAvailable());
+                return;
+            }
+            checkCollectionsEmpty("A");
+            final File file1 = touch(new File(testDir, "file1.java"));
+            checkFile("Create", file1, listener.getCreatedFiles());
+
+            // a new directory is watched as well
+            final File subDir = new File(testDir, "sub");
+            subDir.mkdir();
+            checkFile("Create dir", subDir, listener.getCreatedDirectories());
+            final File file2 = touch(new File(subDir, "file2.java"));
+            checkFile("Create in new dir", file2, listener.getCreatedFiles());
+
+            file2.delete();
+            checkFile("Delete", file2, listener.getDeletedFiles());
+        } finally {
+            monitor.stop(1000);
+        }
+    }
+
+    /**
+     * Test the polling fallback.
+     */
+    public void testPolling() throws Exception {
+        final FileAlterationWatchMonitor monitor = new FileAlterationWatchMonitor(100, false);
+        monitor.addObserver(observer);
+        assertEquals("Interval", 100, monitor.getInterval());
+        monitor.start();
+        try {
+            assertFalse(monitor.isWatching());
+            final File file1 = touch(new File(testDir, "file1.java"));
+            checkFile("Create", file1, listener.getCreatedFiles());
+            file1.delete();
+            checkFile("Delete", file1, listener.getDeletedFiles());
+        } finally {
+            monitor.stop();
+        }
+        try {
+            monitor.stop();
+            fail("Expected IllegalStateException");
+        } catch (final IllegalStateException expected) {
+            // expected
+        }
+    }
+
+    /**
+     * Test an observed directory that does not exist yet.
+     */
+    public void testMissingDirectoryIsPolled() throws Exception {
+        final File missing = new File(testDir, "later");
+        createObserver(missing, null);
+        final FileAlterationWatchMonitor monitor = new FileAlterationWatchMonitor(100, observer);
+        monitor.start();
+        try {
+            missing.mkdir();
+            final File file1 = touch(new File(missing, "file1.java"));
+            checkFile("Create", file1, listener.getCreatedFiles());
+            // once the directory exists it is watched
+            final File file2 = touch(new File(missing, "file2.java"));
+            checkFile("Create", file2, listener.getCreatedFiles());
+        } finally {
+            monitor.stop();
+        }
+    }
+
+    /**
+     * Check the File Collection eventually contains the file.
+     */
+    private void checkFile(final String label, final File file, final Collection<File> files) {
+        for (int i = 0; i < 50; i++) {
+            if (files.contains(file)) {
+                return; // found, test passes
+            }
+            sleepHandleInterruped(pauseTime);
+        }
+        fail(label + " " + file + " not found");
+    }
+}
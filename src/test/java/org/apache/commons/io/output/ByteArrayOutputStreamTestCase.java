@@ -19,6 +19,10 @@ package org.apache.commons.io.output;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
 
 import org.apache.commons.io.IOUtils;
 
@@ -161,6 +165,67 @@ public class ByteArrayOutputStreamTestCase extends TestCase {
         in.close();
     }
 
+    public void testToByteBuffersWithReset() throws IOException {
+        //Make sure reset() does not destroy the buffers returned from toByteBuffers()
+        final ByteArrayOutputStream baout = new ByteArrayOutputStream(32);
+        final java.io.ByteArrayOutputStream ref = new java.io.ByteArrayOutputStream();
+        assertEquals(0, baout.toByteBuffers().length);
+
+        writeData(baout, ref, new int[] { 20, 64, 64, 10 });
+        final ByteBuffer[] buffers = baout.toByteBuffers();
+        final byte[] refData = ref.toByteArray();
+        assertTrue(buffers.length > 1);
+
+        baout.reset();
+        writeData(baout, new java.io.ByteArrayOutputStream(), new int[] { 64, 64, 64 });
+
+        final byte[] baoutData = new byte[refData.length];
+        int pos = 0;
+        for (final ByteBuffer buffer : buffers) {
+            assertTrue(buffer.isReadOnly());
+            final int n = buffer.remaining();
+            buffer.get(baoutData, pos, n);
+            pos += n;
+        }
+        assertEquals(refData.length, pos);
+        checkByteArrays(refData, baoutData);
+        baout.close();
+    }
+
+    public void testWriteToGatheringByteChannel() throws IOException {
+        final ByteArrayOutputStream baout = new ByteArrayOutputStream(32);
+        final java.io.ByteArrayOutputStream ref = new java.io.ByteArrayOutputStream();
+        writeData(baout, ref, new int[] { 20, 64, 64, 10 });
+
+        final java.io.ByteArrayOutputStream sink = new java.io.ByteArrayOutputStream();
+        final WritableByteChannel target = Channels.newChannel(sink);
+        // accepts at most 7 bytes per call, to exercise partial writes
+        final GatheringByteChannel channel = new GatheringByteChannel() {
+            public int write(final ByteBuffer src) throws IOException {
+                final ByteBuffer part = src.slice();
+                part.limit(Math.min(7, part.remaining()));
+                final int n = target.write(part);
+                src.position(src.position() + n);
+                return n;
+            }
+            public long write(final ByteBuffer[] srcs, final int offset, final int length) throws IOException {
+                return write(srcs[offset]);
+            }
+            public long write(final ByteBuffer[] srcs) throws IOException {
+                return write(srcs, 0, srcs.length);
+            }
+            public boolean isOpen() {
+                return true;
+            }
+            public void close() {
+            }
+        };
+        assertEquals(158, baout.writeTo(channel));
+        checkByteArrays(ref.toByteArray(), sink.toByteArray());
+        assertEquals(158, baout.size());
+        baout.close();
+    }
+
     public void testStream() throws Exception {
         int written;
 
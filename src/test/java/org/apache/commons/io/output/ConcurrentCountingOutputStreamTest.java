@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.io.output;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+
+import org.apache.commons.io.ByteCounter;
+import org.apache.commons.io.ByteCounterRegistry;
+import org.junit.Test;
+
+/**
+ * Tests {@link ConcurrentCountingOutputStream}.
+ *
+ * @version $Id$
+ */
+public class ConcurrentCountingOutputStreamTest {
+
+    @Test
+    public void testCounting() throws IOException {
+        final ByteCounterRegistry registry = new ByteCounterRegistry();
+        final ConcurrentCountingOutputStream out =
+                new ConcurrentCountingOutputStream(new NullOutputStream(), registry);
+        out.write(1);
+        out.write(new byte[9]);
+        out.write(new byte[20], 5, 10);
+        assertEquals(20, out.getByteCount());
+        assertEquals(20, out.resetByteCount());
+        out.write(new byte[5]);
+        assertEquals(5, out.getByteCount());
+        assertEquals(25, registry.getTotalByteCount());
+        out.close();
+        assertEquals(0, registry.getCounterCount());
+        assertEquals(25, registry.getTotalByteCount());
+    }
+
+    @Test
+    public void testSharedCounter() throws IOException {
+        final ByteCounterRegistry registry = new ByteCounterRegistry();
+        final ByteCounter counter = new ByteCounter();
+        final ConcurrentCountingOutputStream first =
+                new ConcurrentCountingOutputStream(new NullOutputStream(), counter, registry);
+        final ConcurrentCountingOutputStream second =
+                new ConcurrentCountingOutputStream(new NullOutputStream(), counter, registry);
+        first.write(new byte[3]);
+        second.write(new byte[4]);
+        assertEquals(7, counter.getByteCount());
+        assertEquals(7, first.getByteCount());
+
+        // the counter stays live while the other stream is open, even if one is closed twice
+        first.close();
+        first.close();
+        assertEquals(1, registry.getCounterCount());
+        second.write(new byte[5]);
+        assertEquals(12, registry.getTotalByteCount());
+        second.close();
+        assertEquals(0, registry.getCounterCount());
+        assertEquals(12, registry.getTotalByteCount());
+    }
+
+}
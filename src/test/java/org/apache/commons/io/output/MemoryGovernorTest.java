@@ -0,0 +1,190 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.io.output;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests {@link MemoryGovernor} and its use by {@link DeferredFileOutputStream}.
+ *
+ * @version $Id$
+ */
+public class MemoryGovernorTest {
+
+    private File directory;
+
+    @Before
+    public void setUp() {
+        directory = new File(FileUtils.getTempDirectory(), getClass().getSimpleName());
+        directory.mkdirs();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(directory);
+    }
+
+    private DeferredFileOutputStream newStream(final MemoryGovernor governor) {
+        return new DeferredFileOutputStream(1000, "governed", ".tmp", directory, governor);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidLimit() {
+        new MemoryGovernor(0);
+    }
+
+    @Test
+    public void testLargestSpillsFirst() throws IOException {
+        final MemoryGovernor governor = new MemoryGovernor(200);
+        final DeferredFileOutputStream small = newStream(governor);
+        final DeferredFileOutputStream large = newStream(governor);
+        small.write(new byte[50]);
+        large.write(new byte[120]);
+        assertEquals(170, governor.getUsedBytes());
+        assertEquals(2, governor.getStreamCount());
+
+        // goes over the limit: the large stream is asked to spill, on its next write
+        small.write(new byte[40]);
+        assertTrue(small.isInMemory());
+        assertTrue(large.isInMemory());
+        assertEquals(1, governor.getPendingSpillCount());
+        assertEquals(1, governor.getSpillRequestCount());
+        assertEquals(120, governor.getPendingSpillBytes());
+
+        // the pending spill covers the excess, so no other stream is asked
+        small.write(new byte[5]);
+        assertEquals(1, governor.getSpillRequestCount());
+
+        large.write(new byte[10]);
+        assertFalse(large.isInMemory());
+        assertEquals(95, governor.getUsedBytes());
+        assertEquals(0, governor.getPendingSpillCount());
+        assertEquals(0, governor.getPendingSpillBytes());
+        assertEquals(225, governor.getPeakUsedBytes());
+
+        large.close();
+        assertEquals(130, large.getFile().length());
+        small.close();
+        assertEquals(0, governor.getUsedBytes());
+        assertEquals(0, governor.getStreamCount());
+        assertArrayEquals(new byte[95], small.getData());
+    }
+
+    @Test
+    public void testOldestSpillsFirst() throws IOException {
+        final MemoryGovernor governor = new MemoryGovernor(200, MemoryGovernor.SpillPolicy.OLDEST);
+        final DeferredFileOutputStream old = newStream(governor);
+        final DeferredFileOutputStream young = newStream(governor);
+        old.write(new byte[100]);
+        young.write(new byte[60]);
+
+        // goes over the limit: the older stream is asked to spill, although it is smaller
+        young.write(new byte[50]);
+        assertTrue(young.isInMemory());
+        assertEquals(1, governor.getPendingSpillCount());
+        old.write(1);
+        assertFalse(old.isInMemory());
+        assertTrue(young.isInMemory());
+        assertEquals(110, governor.getUsedBytes());
+        old.close();
+        young.close();
+    }
+
+    @Test
+    public void testRequestWithdrawnWhenMemoryFrees() throws IOException {
+        final MemoryGovernor governor = new MemoryGovernor(200);
+        final DeferredFileOutputStream first = newStream(governor);
+        final DeferredFileOutputStream second = newStream(governor);
+        first.write(new byte[110]);
+        second.write(new byte[100]);
+        assertEquals(1, governor.getPendingSpillCount());
+
+        // the other stream finishes, so the flagged one may keep its data
+        second.close();
+        assertEquals(110, governor.getUsedBytes());
+        first.write(1);
+        assertTrue(first.isInMemory());
+        assertEquals(0, governor.getPendingSpillCount());
+        assertEquals(0, governor.getPendingSpillBytes());
+        first.close();
+    }
+
+    @Test
+    public void testConcurrentStreams() throws InterruptedException {
+        final MemoryGovernor governor = new MemoryGovernor(10000);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        final List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < 8; i++) {
+            final Random random = new Random(i);
+            threads.add(new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        MemoryGovernor.Registration registration = governor.register();
+                        for (int j = 0; j < 20000; j++) {
+                            if (registration.allocate(random.nextInt(100)) || random.nextInt(50) == 0) {
+                                registration.release();
+                                registration = governor.register();
+                            }
+                        }
+                        registration.release();
+                    } catch (final Throwable t) {
+                        failure.compareAndSet(null, t);
+                    }
+                }
+            });
+        }
+        for (final Thread thread : threads) {
+            thread.start();
+        }
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+        assertNull(failure.get());
+        assertTrue(governor.getSpillRequestCount() > 0);
+        assertEquals(0, governor.getUsedBytes());
+        assertEquals(0, governor.getStreamCount());
+        assertEquals(0, governor.getPendingSpillBytes());
+    }
+
+    @Test
+    public void testOwnThresholdStillApplies() throws IOException {
+        final MemoryGovernor governor = new MemoryGovernor(1L << 20);
+        final DeferredFileOutputStream out = newStream(governor);
+        out.write(new byte[1001]);
+        assertFalse(out.isInMemory());
+        assertEquals(0, governor.getUsedBytes());
+        out.close();
+    }
+
+}
@@ -0,0 +1,200 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.io.output;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.Random;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests {@link TieredDeferredFileOutputStream} and {@link DirectMemoryBudget}.
+ *
+ * @version $Id$
+ */
+public class TieredDeferredFileOutputStreamTest {
+
+    private File directory;
+    private DirectMemoryBudget budget;
+
+    @Before
+    public void setUp() {
+        directory = new File(FileUtils.getTempDirectory(), getClass().getSimpleName());
+        directory.mkdirs();
+        budget = new DirectMemoryBudget(256, 64);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(directory);
+    }
+
+    private static byte[] data(final int length) {
+        final byte[] data = new byte[length];
+        new Random(length).nextBytes(data);
+        return data;
+    }
+
+    private TieredDeferredFileOutputStream write(final int threshold, final int offHeapThreshold,
+            final byte[] data) throws IOException {
+        final TieredDeferredFileOutputStream out =
+                new TieredDeferredFileOutputStream(threshold, offHeapThreshold, budget, "tiered", ".tmp", directory);
+        out.write(data[0]);
+        out.write(data, 1, data.length - 1);
+        out.close();
+        return out;
+    }
+
+    private static byte[] contents(final ByteBuffer[] buffers) {
+        final java.io.ByteArrayOutputStream out = new java.io.ByteArrayOutputStream();
+        for (final ByteBuffer buffer : buffers) {
+            assertTrue(buffer.isReadOnly());
+            final byte[] bytes = new byte[buffer.remaining()];
+            buffer.get(bytes);
+            out.write(bytes, 0, bytes.length);
+        }
+        return out.toByteArray();
+    }
+
+    private static void assertContents(final byte[] expected, final TieredDeferredFileOutputStream out)
+            throws IOException {
+        assertArrayEquals(expected, contents(out.toByteBuffers()));
+        final java.io.ByteArrayOutputStream stream = new java.io.ByteArrayOutputStream();
+        out.writeTo(stream);
+        assertArrayEquals(expected, stream.toByteArray());
+        final java.io.ByteArrayOutputStream channel = new java.io.ByteArrayOutputStream();
+        assertEquals(expected.length, out.writeTo(Channels.newChannel(channel)));
+        assertArrayEquals(expected, channel.toByteArray());
+    }
+
+    @Test
+    public void testHeap() throws IOException {
+        final byte[] data = data(50);
+        final TieredDeferredFileOutputStream out = write(100, 200, data);
+        assertEquals(TieredDeferredFileOutputStream.Tier.HEAP, out.getTier());
+        assertTrue(out.isInMemory());
+        assertNull(out.getFile());
+        assertArrayEquals(data, out.getData());
+        assertContents(data, out);
+        assertEquals(0, budget.getUsedBytes());
+    }
+
+    @Test
+    public void testOffHeap() throws IOException {
+        final byte[] data = data(150);
+        final TieredDeferredFileOutputStream out = write(100, 200, data);
+        assertEquals(TieredDeferredFileOutputStream.Tier.OFF_HEAP, out.getTier());
+        assertTrue(out.isInMemory());
+        assertNull(out.getFile());
+        assertEquals(192, budget.getUsedBytes());
+        assertArrayEquals(data, out.getData());
+        assertContents(data, out);
+        out.release();
+        assertEquals(0, budget.getUsedBytes());
+        assertEquals(192, budget.getAllocatedBytes());
+    }
+
+    @Test
+    public void testFile() throws IOException {
+        final byte[] data = data(250);
+        final TieredDeferredFileOutputStream out = write(100, 200, data);
+        assertEquals(TieredDeferredFileOutputStream.Tier.FILE, out.getTier());
+        assertNotNull(out.getFile());
+        assertNull(out.getData());
+        assertArrayEquals(data, FileUtils.readFileToByteArray(out.getFile()));
+        assertContents(data, out);
+        // the chunks went back to the budget when the data moved to the file
+        assertEquals(0, budget.getUsedBytes());
+    }
+
+    @Test
+    public void testBudgetExhausted() throws IOException {
+        final TieredDeferredFileOutputStream holder = write(10, 1000, data(200));
+        assertEquals(TieredDeferredFileOutputStream.Tier.OFF_HEAP, holder.getTier());
+
+        // only one chunk is left, so the second stream has to go to disk
+        final byte[] data = data(150);
+        final TieredDeferredFileOutputStream out = write(100, 1000, data);
+        assertEquals(TieredDeferredFileOutputStream.Tier.FILE, out.getTier());
+        assertContents(data, out);
+        assertEquals(256, budget.getUsedBytes());
+        holder.release();
+        assertEquals(0, budget.getUsedBytes());
+    }
+
+    @Test
+    public void testUnreleasedChunksStayBorrowed() throws IOException {
+        // neither closing nor reading gives the chunks back
+        final byte[] data = data(150);
+        TieredDeferredFileOutputStream out = write(100, 200, data);
+        assertContents(data, out);
+        assertEquals(192, budget.getUsedBytes());
+
+        // nor does dropping the stream, so the budget stays used up
+        out = null;
+        System.gc();
+        final TieredDeferredFileOutputStream next = write(100, 200, data);
+        assertEquals(TieredDeferredFileOutputStream.Tier.FILE, next.getTier());
+        assertEquals(192, budget.getUsedBytes());
+    }
+
+    @Test
+    public void testNoOffHeapTier() throws IOException {
+        final byte[] data = data(150);
+        final TieredDeferredFileOutputStream out = write(100, 100, data);
+        assertEquals(TieredDeferredFileOutputStream.Tier.FILE, out.getTier());
+        assertContents(data, out);
+        assertEquals(0, budget.getAllocatedBytes());
+    }
+
+    @Test(expected = IOException.class)
+    public void testReadBeforeClose() throws IOException {
+        final TieredDeferredFileOutputStream out =
+                new TieredDeferredFileOutputStream(100, 200, budget, "tiered", ".tmp", directory);
+        out.toByteBuffers();
+    }
+
+    @Test
+    public void testBudgetLimit() {
+        final DirectMemoryBudget small = new DirectMemoryBudget(128, 64);
+        final ByteBuffer first = small.allocate();
+        final ByteBuffer second = small.allocate();
+        assertNotNull(first);
+        assertNotNull(second);
+        assertNull(small.allocate());
+        small.setLimit(64);
+        small.release(first);
+        small.release(second);
+        assertEquals(0, small.getUsedBytes());
+        assertEquals(64, small.getAllocatedBytes());
+        assertTrue(second == small.allocate());
+        assertNull(small.allocate());
+    }
+
+}
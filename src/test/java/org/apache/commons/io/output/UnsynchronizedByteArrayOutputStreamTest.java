@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.io.output;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import org.apache.commons.io.Charsets;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.buffer.StripedBufferPool;
+import org.junit.Test;
+
+/**
+ * Tests {@link UnsynchronizedByteArrayOutputStream}.
+ *
+ * @version $Id$
+ */
+public class UnsynchronizedByteArrayOutputStreamTest {
+
+    private static byte[] data(final int length) {
+        final byte[] data = new byte[length];
+        new Random(length).nextBytes(data);
+        return data;
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidSegmentSize() {
+        new UnsynchronizedByteArrayOutputStream(0);
+    }
+
+    @Test
+    public void testWriteAcrossSegments() throws IOException {
+        final byte[] data = data(100);
+        final UnsynchronizedByteArrayOutputStream out = new UnsynchronizedByteArrayOutputStream(16);
+        assertEquals(0, out.size());
+        assertEquals(0, out.toByteArray().length);
+        assertEquals(0, out.toByteBuffers().length);
+        out.write(data[0]);
+        out.write(data, 1, 40);
+        out.write(new ByteArrayInputStream(data, 41, 59));
+        assertEquals(100, out.size());
+        assertArrayEquals(data, out.toByteArray());
+
+        final java.io.ByteArrayOutputStream ref = new java.io.ByteArrayOutputStream();
+        out.writeTo(ref);
+        assertArrayEquals(data, ref.toByteArray());
+    }
+
+    @Test
+    public void testToByteBuffers() {
+        final byte[] data = data(40);
+        final UnsynchronizedByteArrayOutputStream out = new UnsynchronizedByteArrayOutputStream(16);
+        out.write(data, 0, data.length);
+        final ByteBuffer[] buffers = out.toByteBuffers();
+        assertEquals(3, buffers.length);
+        final byte[] copy = new byte[data.length];
+        int pos = 0;
+        for (final ByteBuffer buffer : buffers) {
+            assertTrue(buffer.isReadOnly());
+            final int n = buffer.remaining();
+            buffer.get(copy, pos, n);
+            pos += n;
+        }
+        assertEquals(data.length, pos);
+        assertArrayEquals(data, copy);
+    }
+
+    @Test
+    public void testWriteToGatheringByteChannel() throws IOException {
+        final byte[] data = data(100);
+        final UnsynchronizedByteArrayOutputStream out = new UnsynchronizedByteArrayOutputStream(16);
+        out.write(data, 0, data.length);
+        final File file = File.createTempFile("gathered", ".bin");
+        try {
+            final FileOutputStream fos = new FileOutputStream(file);
+            try {
+                assertEquals(100, out.writeTo(fos.getChannel()));
+            } finally {
+                fos.close();
+            }
+            assertArrayEquals(data, FileUtils.readFileToByteArray(file));
+        } finally {
+            FileUtils.forceDelete(file);
+        }
+    }
+
+    @Test
+    public void testResetReturnsSegmentsToPool() {
+        final StripedBufferPool pool = new StripedBufferPool(4, 16);
+        final UnsynchronizedByteArrayOutputStream out = new UnsynchronizedByteArrayOutputStream(16, pool);
+        out.write(data(20), 0, 20);
+        assertEquals(2, pool.getMissCount());
+        out.reset();
+        assertEquals(0, out.size());
+        assertEquals(0, out.toByteArray().length);
+        out.write(data(20), 0, 20);
+        assertEquals(2, pool.getHitCount());
+        out.close();
+        assertEquals(0, out.size());
+
+        final UnsynchronizedByteArrayOutputStream other = new UnsynchronizedByteArrayOutputStream(16, pool);
+        other.write('a');
+        assertEquals(3, pool.getHitCount());
+        assertEquals("a", other.toString(Charsets.UTF_8));
+    }
+
+    @Test
+    public void testOversizedSegmentsFromPool() {
+        // the pool hands out 32 byte buffers for 16 byte requests
+        final StripedBufferPool pool = new StripedBufferPool(4, 32);
+        final byte[] data = data(50);
+        final UnsynchronizedByteArrayOutputStream out = new UnsynchronizedByteArrayOutputStream(16, pool);
+        out.write(data, 0, data.length);
+        assertEquals(2, out.toByteBuffers().length);
+        assertArrayEquals(data, out.toByteArray());
+        final ByteBuffer[] buffers = out.toByteBuffers();
+        assertEquals(32, buffers[0].remaining());
+        assertEquals(18, buffers[1].remaining());
+    }
+
+}